@@ -3,6 +3,8 @@ package com.alert.system.controller;
 import com.alert.system.dto.AlertFilterRuleRequest;
 import com.alert.system.dto.AlertFilterRuleResponse;
 import com.alert.system.service.AlertFilterRuleService;
+import com.alert.system.service.AlertRuleEngine;
+import com.alert.system.service.RuleBacktestService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -23,6 +25,12 @@ public class AlertFilterRuleController {
     @Autowired
     private AlertFilterRuleService filterRuleService;
 
+    @Autowired
+    private AlertRuleEngine ruleEngine;
+
+    @Autowired
+    private RuleBacktestService backtestService;
+
     @GetMapping
     public ResponseEntity<List<AlertFilterRuleResponse>> getAllRules() {
         return ResponseEntity.ok(filterRuleService.getAllRules());
@@ -89,4 +97,29 @@ public class AlertFilterRuleController {
     public ResponseEntity<List<AlertFilterRuleResponse>> searchRules(@RequestParam String keyword) {
         return ResponseEntity.ok(filterRuleService.searchRules(keyword));
     }
-}
\ No newline at end of file
+
+    @GetMapping("/engine/stats")
+    public ResponseEntity<Map<String, Object>> getEngineStats() {
+        return ResponseEntity.ok(ruleEngine.getStats());
+    }
+
+    /**
+     * 用最近days天的历史告警回测未保存的过滤规则
+     */
+    @PostMapping("/backtest")
+    public ResponseEntity<Map<String, Object>> backtestRule(
+            @Valid @RequestBody AlertFilterRuleRequest request,
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(defaultValue = "20") int sampleSize) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("data", backtestService.backtestFilterRule(request, days, sampleSize));
+            return ResponseEntity.ok(response);
+        } catch (RuntimeException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+}
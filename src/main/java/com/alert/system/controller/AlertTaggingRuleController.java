@@ -4,6 +4,7 @@ import com.alert.system.dto.AlertTaggingRuleRequest;
 import com.alert.system.dto.AlertTaggingRuleResponse;
 import com.alert.system.dto.ApiResponse;
 import com.alert.system.service.AlertTaggingRuleService;
+import com.alert.system.service.RuleBacktestService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -28,6 +29,9 @@ public class AlertTaggingRuleController {
     @Autowired
     private AlertTaggingRuleService taggingRuleService;
 
+    @Autowired
+    private RuleBacktestService backtestService;
+
     /**
      * Get tagging rules with pagination and search
      */
@@ -112,6 +116,9 @@ public class AlertTaggingRuleController {
         try {
             AlertTaggingRuleResponse updatedRule = taggingRuleService.updateRule(id, request);
             return ResponseEntity.ok(ApiResponse.success("Tagging rule updated successfully", updatedRule));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error("Failed to update rule: " + e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(ApiResponse.error("Rule not found: " + e.getMessage()));
@@ -189,4 +196,22 @@ public class AlertTaggingRuleController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Backtest an unsaved tagging rule against recent alerts in ClickHouse
+     */
+    @PostMapping("/backtest")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> backtestRule(
+            @Valid @RequestBody AlertTaggingRuleRequest request,
+            @RequestParam(defaultValue = "7") int days,
+            @RequestParam(defaultValue = "20") int sampleSize) {
+        try {
+            Map<String, Object> result = backtestService.backtestTaggingRule(request, days, sampleSize);
+            return ResponseEntity.ok(ApiResponse.success("Backtest completed", result));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(ApiResponse.error("Failed to backtest rule: " + e.getMessage()));
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.alert.system.controller;
 import com.alert.system.dto.FlinkConfigRequest;
 import com.alert.system.dto.FlinkConfigResponse;
 import com.alert.system.dto.FlinkTestResult;
+import com.alert.system.service.FlinkComputeService;
 import com.alert.system.service.FlinkConfigService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,12 +25,30 @@ public class FlinkConfigController {
     @Autowired
     private FlinkConfigService flinkConfigService;
 
+    @Autowired
+    private FlinkComputeService flinkComputeService;
+
     @GetMapping
     public ResponseEntity<List<FlinkConfigResponse>> getAllConfigs() {
         List<FlinkConfigResponse> configs = flinkConfigService.getAllConfigs();
         return ResponseEntity.ok(configs);
     }
 
+    @GetMapping("/health")
+    public ResponseEntity<Map<String, Object>> getHealthStatus() {
+        return ResponseEntity.ok(flinkComputeService.getHealthStatus());
+    }
+
+    @GetMapping("/embedded-status")
+    public ResponseEntity<Map<String, Object>> getEmbeddedStatus() {
+        return ResponseEntity.ok(flinkComputeService.getEmbeddedStatus());
+    }
+
+    @GetMapping("/streaming-status")
+    public ResponseEntity<Map<String, Object>> getStreamingStatus() {
+        return ResponseEntity.ok(flinkComputeService.getStreamingStatus());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<FlinkConfigResponse> getConfigById(@PathVariable UUID id) {
         try {
@@ -4,6 +4,8 @@ import com.alert.system.dto.KafkaDataSourceConfigResponse;
 import com.alert.system.entity.KafkaDataSourceConfig;
 import com.alert.system.repository.KafkaDataSourceConfigRepository;
 import com.alert.system.repository.AlertTypeRepository;
+import com.alert.system.service.KafkaConsumerManager;
+import com.alert.system.service.PipelineExecutorService;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.DescribeTopicsResult;
@@ -28,6 +30,12 @@ public class KafkaDataSourceConfigController {
     @Autowired
     private AlertTypeRepository alertTypeRepository;
 
+    @Autowired
+    private PipelineExecutorService pipelineExecutorService;
+
+    @Autowired
+    private KafkaConsumerManager kafkaConsumerManager;
+
     @GetMapping
     @Transactional(readOnly = true)
     public ResponseEntity<Map<String, Object>> getAllConfigs() {
@@ -50,6 +58,36 @@ public class KafkaDataSourceConfigController {
         }
     }
 
+    /**
+     * 告警处理流水线的吞吐量和延迟统计，用于对比平台线程与虚拟线程模式
+     */
+    @GetMapping("/pipeline-stats")
+    public ResponseEntity<Map<String, Object>> getPipelineStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", pipelineExecutorService.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 各配置的背压状态：分区未完成记录数、暂停状态及异步阶段队列深度
+     */
+    @GetMapping("/backpressure")
+    public ResponseEntity<Map<String, Object>> getBackpressureStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", kafkaConsumerManager.getBackpressureStatus());
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/pipeline-stats/reset")
+    public ResponseEntity<Map<String, Object>> resetPipelineStats() {
+        pipelineExecutorService.resetStats();
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/{id}")
     @Transactional(readOnly = true)
     public ResponseEntity<Map<String, Object>> getConfig(@PathVariable Long id) {
@@ -0,0 +1,91 @@
+package com.alert.system.controller;
+
+import com.alert.system.service.IocMatchEngine;
+import com.alert.system.service.ObservableIdCache;
+import com.alert.system.service.ObservableWriteBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/observables")
+@PreAuthorize("hasRole('ADMIN')")
+public class ObservableController {
+
+    @Autowired
+    private ObservableWriteBuffer writeBuffer;
+
+    @Autowired
+    private ObservableIdCache idCache;
+
+    @Autowired
+    private IocMatchEngine iocMatchEngine;
+
+    /**
+     * 写缓冲的待刷新数量及累计的upsert、映射行数
+     */
+    @GetMapping("/write-buffer/stats")
+    public ResponseEntity<Map<String, Object>> getWriteBufferStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", writeBuffer.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * id缓存的命中率、容量和淘汰计数
+     */
+    @GetMapping("/id-cache/stats")
+    public ResponseEntity<Map<String, Object>> getIdCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", idCache.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 本地IOC索引的已加载情报源、各类指标数量和匹配计数
+     */
+    @GetMapping("/ioc/status")
+    public ResponseEntity<Map<String, Object>> getIocStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", iocMatchEngine.getStatus());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 立即重新加载本地IOC情报源，不等待文件变化检查
+     */
+    @PostMapping("/ioc/reload")
+    public ResponseEntity<Map<String, Object>> reloadIocFeeds() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("data", iocMatchEngine.reload());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Failed to reload IOC feeds: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    /**
+     * 用本地IOC索引匹配单个值，如 type=DOMAIN&value=a.evil.com
+     */
+    @GetMapping("/ioc/match")
+    public ResponseEntity<Map<String, Object>> matchIoc(@RequestParam String type, @RequestParam String value) {
+        Map<String, Object> response = new HashMap<>();
+        IocMatchEngine.Indicator indicator = iocMatchEngine.match(type.toUpperCase(), value.trim());
+        response.put("success", true);
+        response.put("matched", indicator != null);
+        response.put("data", indicator);
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,73 @@
+package com.alert.system.controller;
+
+import com.alert.system.service.RuleMetricsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/rule-metrics")
+@PreAuthorize("hasRole('ADMIN')")
+public class RuleMetricsController {
+
+    @Autowired
+    private RuleMetricsService ruleMetricsService;
+
+    /**
+     * 启动以来各规则的求值次数、命中次数和耗时，默认按累计耗时降序
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getRuleMetrics(
+            @RequestParam(required = false) String ruleType,
+            @RequestParam(defaultValue = "totalNanos") String sortBy,
+            @RequestParam(defaultValue = "50") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", ruleMetricsService.getRuleMetrics(ruleType, sortBy, limit));
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 已写入rule_execution_logs的汇总记录
+     */
+    @GetMapping("/logs")
+    public ResponseEntity<Map<String, Object>> getExecutionLogs(
+            @RequestParam(required = false) UUID ruleId,
+            @RequestParam(required = false) String ruleType,
+            @RequestParam(defaultValue = "100") int limit) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("data", ruleMetricsService.getExecutionLogs(ruleId, ruleType, limit));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Failed to load execution logs: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+
+    /**
+     * 立即把当前计数写入rule_execution_logs
+     */
+    @PostMapping("/flush")
+    public ResponseEntity<Map<String, Object>> flush() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            int flushed = ruleMetricsService.flush();
+            response.put("success", true);
+            response.put("data", flushed);
+            response.put("message", "Flushed metrics for " + flushed + " rules");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", "Failed to flush rule metrics: " + e.getMessage());
+            return ResponseEntity.internalServerError().body(response);
+        }
+    }
+}
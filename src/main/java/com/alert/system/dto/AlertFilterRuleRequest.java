@@ -22,10 +22,10 @@ public class AlertFilterRuleRequest {
     private String matchField;
 
     @NotBlank(message = "Match type is required")
-    private String matchType; // exact, regex, contains
+    private String matchType; // exact, regex, contains, condition
 
     @NotBlank(message = "Match value is required")
-    private String matchValue;
+    private String matchValue; // condition类型时为JSON条件树
 
     private Integer priority = 0;
 
@@ -26,7 +26,7 @@ public class AlertTaggingRuleRequest {
     private String matchField;
 
     @NotBlank(message = "Match type is required")
-    @Pattern(regexp = "^(exact|regex)$", message = "Match type must be 'exact' or 'regex'")
+    @Pattern(regexp = "^(exact|regex|condition)$", message = "Match type must be 'exact', 'regex' or 'condition'")
     private String matchType;
 
     @NotBlank(message = "Match value is required")
@@ -18,6 +18,9 @@ public class KafkaDataSourceConfigResponse {
     private Integer sessionTimeout;
     private Integer maxPollRecords;
     private String autoOffsetReset;
+    private Integer processingLanes;
+    private String laneStrategy;
+    private String processingMode;
     private String dataFormat;
     private String fieldMapping;
     private String description;
@@ -47,6 +50,9 @@ public class KafkaDataSourceConfigResponse {
         response.setSessionTimeout(config.getSessionTimeout());
         response.setMaxPollRecords(config.getMaxPollRecords());
         response.setAutoOffsetReset(config.getAutoOffsetReset());
+        response.setProcessingLanes(config.getProcessingLanes());
+        response.setLaneStrategy(config.getLaneStrategy());
+        response.setProcessingMode(config.getProcessingMode());
         response.setDataFormat(config.getDataFormat());
         response.setFieldMapping(config.getFieldMapping());
         response.setDescription(config.getDescription());
@@ -172,6 +178,30 @@ public class KafkaDataSourceConfigResponse {
         this.autoOffsetReset = autoOffsetReset;
     }
 
+    public Integer getProcessingLanes() {
+        return processingLanes;
+    }
+
+    public void setProcessingLanes(Integer processingLanes) {
+        this.processingLanes = processingLanes;
+    }
+
+    public String getLaneStrategy() {
+        return laneStrategy;
+    }
+
+    public void setLaneStrategy(String laneStrategy) {
+        this.laneStrategy = laneStrategy;
+    }
+
+    public String getProcessingMode() {
+        return processingMode;
+    }
+
+    public void setProcessingMode(String processingMode) {
+        this.processingMode = processingMode;
+    }
+
     public String getDataFormat() {
         return dataFormat;
     }
@@ -8,6 +8,7 @@ import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -71,6 +72,18 @@ public class Alert {
     @JdbcTypeCode(SqlTypes.JSON)
     private String rawData;
 
+    // Kafka消息的原始UTF-8字节，只在处理流水线内使用，持久化到PostgreSQL时才解码为rawData
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private byte[] rawBytes;
+
+    // 解析后的字段值，只在处理流水线内使用，避免各阶段反复解析parsedData
+    @Transient
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ParsedAlert parsed;
+
     @Column(name = "parsed_data", columnDefinition = "JSON")
     @JdbcTypeCode(SqlTypes.JSON)
     private String parsedData;
@@ -129,6 +142,9 @@ public class Alert {
         if (alertUuid == null) {
             alertUuid = UUID.randomUUID().toString();
         }
+        if (rawData == null && rawBytes != null) {
+            rawData = new String(rawBytes, StandardCharsets.UTF_8);
+        }
     }
 
     @PreUpdate
@@ -38,7 +38,7 @@ public class AlertFilterRule {
     private String matchField;
 
     @Column(name = "match_type", nullable = false, length = 20)
-    private String matchType; // exact, regex, contains
+    private String matchType; // exact, regex, contains, condition
 
     @Column(name = "match_value", nullable = false, columnDefinition = "TEXT")
     private String matchValue;
@@ -41,7 +41,7 @@ public class AlertTaggingRule {
     private String matchField;
 
     @Column(name = "match_type", nullable = false, length = 20)
-    private String matchType; // exact or regex
+    private String matchType; // exact, regex or condition
 
     @Column(name = "match_value", nullable = false, columnDefinition = "TEXT")
     private String matchValue;
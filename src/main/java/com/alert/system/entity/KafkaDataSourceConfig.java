@@ -49,6 +49,18 @@ public class KafkaDataSourceConfig {
     @Column(name = "auto_offset_reset", length = 50)
     private String autoOffsetReset = "latest";
 
+    // 并行处理通道数，1表示沿用单线程串行处理
+    @Column(name = "processing_lanes")
+    private Integer processingLanes = 1;
+
+    // 通道分配策略: partition(按分区) 或 key(按消息key)
+    @Column(name = "lane_strategy", length = 20)
+    private String laneStrategy = "partition";
+
+    // 处理模式: record(逐条处理) 或 batch(按poll批量处理)
+    @Column(name = "processing_mode", length = 20)
+    private String processingMode = "record";
+
     @Column(name = "data_format", nullable = false, length = 50)
     private String dataFormat = "json";
 
@@ -196,6 +208,30 @@ public class KafkaDataSourceConfig {
         this.autoOffsetReset = autoOffsetReset;
     }
 
+    public Integer getProcessingLanes() {
+        return processingLanes;
+    }
+
+    public void setProcessingLanes(Integer processingLanes) {
+        this.processingLanes = processingLanes;
+    }
+
+    public String getLaneStrategy() {
+        return laneStrategy;
+    }
+
+    public void setLaneStrategy(String laneStrategy) {
+        this.laneStrategy = laneStrategy;
+    }
+
+    public String getProcessingMode() {
+        return processingMode;
+    }
+
+    public void setProcessingMode(String processingMode) {
+        this.processingMode = processingMode;
+    }
+
     public String getDataFormat() {
         return dataFormat;
     }
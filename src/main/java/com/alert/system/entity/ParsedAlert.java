@@ -0,0 +1,88 @@
+package com.alert.system.entity;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * 告警解析后的字段值（非持久化对象）
+ * 在处理流水线中随Alert传递，各阶段按字段名O(1)读取已解码的值，不再反复解析parsedData；
+ * 序列化为JSON只在需要持久化时进行一次，并缓存结果
+ */
+public class ParsedAlert {
+
+    private final Map<String, Object> fields;
+    private String json;
+
+    public ParsedAlert(Map<String, Object> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * 从已持久化的parsedData恢复，用于从数据库加载的告警
+     */
+    @SuppressWarnings("unchecked")
+    public static ParsedAlert fromJson(String json, ObjectMapper objectMapper) throws JsonProcessingException {
+        ParsedAlert parsed = new ParsedAlert(objectMapper.readValue(json, LinkedHashMap.class));
+        parsed.json = json;
+        return parsed;
+    }
+
+    /**
+     * 获取告警的解析结果；从数据库加载的告警首次访问时解析parsedData并挂到告警上
+     */
+    public static ParsedAlert of(Alert alert, ObjectMapper objectMapper) {
+        if (alert.getParsed() == null) {
+            try {
+                alert.setParsed(alert.getParsedData() != null
+                    ? fromJson(alert.getParsedData(), objectMapper)
+                    : new ParsedAlert(new LinkedHashMap<>()));
+            } catch (JsonProcessingException e) {
+                alert.setParsed(new ParsedAlert(new LinkedHashMap<>()));
+            }
+        }
+        return alert.getParsed();
+    }
+
+    public Object get(String fieldName) {
+        return fields.get(fieldName);
+    }
+
+    /**
+     * 以文本形式获取字段值，字段不存在或为null时返回null；
+     * 与JsonNode.asText()保持一致：对象和数组返回空字符串
+     */
+    public String getText(String fieldName) {
+        Object value = fields.get(fieldName);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String) {
+            return (String) value;
+        }
+        if (value instanceof LocalDateTime) {
+            return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format((LocalDateTime) value);
+        }
+        if (value instanceof Collection || value instanceof Map) {
+            return "";
+        }
+        return String.valueOf(value);
+    }
+
+    public Map<String, Object> getFields() {
+        return Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * 序列化为JSON，结果缓存，多次调用只序列化一次
+     */
+    public String toJson(ObjectMapper objectMapper) throws JsonProcessingException {
+        if (json == null) {
+            json = objectMapper.writeValueAsString(fields);
+        }
+        return json;
+    }
+}
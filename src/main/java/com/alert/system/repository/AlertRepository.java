@@ -2,6 +2,7 @@ package com.alert.system.repository;
 
 import com.alert.system.entity.Alert;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -68,4 +69,8 @@ public interface AlertRepository extends JpaRepository<Alert, UUID> {
            "JOIN AlertTagMapping atm ON atm.alert.id = a.id " +
            "WHERE a.alertType.id = :typeId")
     Long countTaggedByAlertTypeId(@Param("typeId") Integer typeId);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("UPDATE Alert a SET a.clickhouseId = a.alertUuid, a.storageTime = :storageTime WHERE a.id IN :ids")
+    int markStoredInClickHouse(@Param("ids") List<UUID> ids, @Param("storageTime") LocalDateTime storageTime);
+}
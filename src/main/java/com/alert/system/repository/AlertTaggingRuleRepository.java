@@ -57,6 +57,11 @@ public interface AlertTaggingRuleRepository extends JpaRepository<AlertTaggingRu
         @Param("alertSubtype") String alertSubtype
     );
 
+    /**
+     * Find all enabled rules ordered by priority, used to compile the in-memory rule engine
+     */
+    List<AlertTaggingRule> findByIsEnabledTrueOrderByPriorityDescCreatedAtAsc();
+
     /**
      * Count enabled rules
      */
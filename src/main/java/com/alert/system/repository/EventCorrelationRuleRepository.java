@@ -2,10 +2,12 @@ package com.alert.system.repository;
 
 import com.alert.system.entity.EventCorrelationRule;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -34,4 +36,14 @@ public interface EventCorrelationRuleRepository extends JpaRepository<EventCorre
     List<EventCorrelationRule> findByCorrelationLevel(String correlationLevel);
 
     List<EventCorrelationRule> findByRuleType(String ruleType);
-}
\ No newline at end of file
+
+    @Modifying
+    @Query("UPDATE EventCorrelationRule r SET " +
+           "r.executionCount = COALESCE(r.executionCount, 0) + :executions, " +
+           "r.successCount = COALESCE(r.successCount, 0) + :successes, " +
+           "r.lastExecutionTime = :lastExecutionTime WHERE r.id = :id")
+    int addExecutionStats(@Param("id") UUID id,
+                          @Param("executions") long executions,
+                          @Param("successes") long successes,
+                          @Param("lastExecutionTime") LocalDateTime lastExecutionTime);
+}
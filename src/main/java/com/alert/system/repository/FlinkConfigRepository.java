@@ -6,7 +6,9 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -28,4 +30,10 @@ public interface FlinkConfigRepository extends JpaRepository<FlinkConfig, UUID>
     void deactivateOthers(@Param("id") UUID id);
 
     Optional<FlinkConfig> findByIsActiveTrue();
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE FlinkConfig f SET f.lastTestTime = :time, f.lastTestStatus = :status, f.lastTestMessage = :message WHERE f.id = :id")
+    int updateTestStatus(@Param("id") UUID id, @Param("time") LocalDateTime time,
+                         @Param("status") String status, @Param("message") String message);
 }
\ No newline at end of file
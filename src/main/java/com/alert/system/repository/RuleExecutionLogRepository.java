@@ -0,0 +1,19 @@
+package com.alert.system.repository;
+
+import com.alert.system.entity.RuleExecutionLog;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RuleExecutionLogRepository extends JpaRepository<RuleExecutionLog, UUID> {
+
+    List<RuleExecutionLog> findByRuleIdOrderByExecutionTimeDesc(UUID ruleId, Pageable pageable);
+
+    List<RuleExecutionLog> findByRuleTypeOrderByExecutionTimeDesc(String ruleType, Pageable pageable);
+
+    List<RuleExecutionLog> findAllByOrderByExecutionTimeDesc(Pageable pageable);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,6 +23,13 @@ public interface TagRepository extends JpaRepository<Tag, UUID> {
      */
     Optional<Tag> findByTagName(String tagName);
 
+    /**
+     * 根据多个标签名称批量查找标签
+     * @param tagNames 标签名称集合
+     * @return 标签列表
+     */
+    List<Tag> findByTagNameIn(Collection<String> tagNames);
+
     /**
      * 根据标签类型查找标签
      * @param tagType 标签类型
@@ -0,0 +1,148 @@
+package com.alert.system.service;
+
+import java.util.*;
+
+/**
+ * 多模式子串匹配（Aho-Corasick自动机）
+ * 同一字段上的所有contains规则编译成一个自动机，对小写后的字段值扫描一遍即可得到全部命中的规则，
+ * 匹配耗时只与字段值长度和命中数有关，不随规则数量增长
+ *
+ * 状态转移用每个状态按字符排序的数组保存，二分查找；
+ * 每个状态记录自身结束的规则序号，以及沿失败链最近的有输出的状态（输出链），避免命中时遍历整条失败链
+ */
+public class AhoCorasickMatcher {
+
+    private static final int ROOT = 0;
+    private static final char[] NO_CHARS = new char[0];
+    private static final int[] NO_INTS = new int[0];
+
+    // 状态 -> 已排序的转移字符及目标状态
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] failure;
+    private final int[] outputLink;
+    // 状态 -> 在此状态结束的模式对应的规则序号
+    private final int[][] outputs;
+    private final int patternCount;
+
+    /**
+     * @param needles  已转为小写的模式串
+     * @param ordinals 每个模式串对应的规则序号
+     */
+    public AhoCorasickMatcher(String[] needles, int[] ordinals) {
+        List<Map<Character, Integer>> gotoTable = new ArrayList<>();
+        List<List<Integer>> stateOutputs = new ArrayList<>();
+        gotoTable.add(new HashMap<>());
+        stateOutputs.add(new ArrayList<>());
+
+        int count = 0;
+        for (int i = 0; i < needles.length; i++) {
+            String needle = needles[i];
+            if (needle == null) {
+                continue;
+            }
+            int state = ROOT;
+            for (int c = 0; c < needle.length(); c++) {
+                Integer next = gotoTable.get(state).get(needle.charAt(c));
+                if (next == null) {
+                    next = gotoTable.size();
+                    gotoTable.get(state).put(needle.charAt(c), next);
+                    gotoTable.add(new HashMap<>());
+                    stateOutputs.add(new ArrayList<>());
+                }
+                state = next;
+            }
+            stateOutputs.get(state).add(ordinals[i]);
+            count++;
+        }
+        this.patternCount = count;
+
+        int size = gotoTable.size();
+        edgeChars = new char[size][];
+        edgeTargets = new int[size][];
+        outputs = new int[size][];
+        for (int s = 0; s < size; s++) {
+            Map<Character, Integer> edges = gotoTable.get(s);
+            char[] chars = edges.isEmpty() ? NO_CHARS : new char[edges.size()];
+            int[] targets = edges.isEmpty() ? NO_INTS : new int[edges.size()];
+            int e = 0;
+            for (Character c : new TreeSet<>(edges.keySet())) {
+                chars[e] = c;
+                targets[e] = edges.get(c);
+                e++;
+            }
+            edgeChars[s] = chars;
+            edgeTargets[s] = targets;
+
+            List<Integer> out = stateOutputs.get(s);
+            outputs[s] = out.isEmpty() ? NO_INTS : out.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        failure = new int[size];
+        outputLink = new int[size];
+        Arrays.fill(outputLink, -1);
+        buildFailureLinks();
+    }
+
+    public int getPatternCount() {
+        return patternCount;
+    }
+
+    /**
+     * 扫描小写后的字段值，将所有命中规则的序号写入matched
+     */
+    public void match(String lowerValue, BitSet matched) {
+        // 空模式串在根状态结束，对任意字段值都命中
+        for (int ordinal : outputs[ROOT]) {
+            matched.set(ordinal);
+        }
+
+        int state = ROOT;
+        for (int i = 0; i < lowerValue.length(); i++) {
+            char c = lowerValue.charAt(i);
+            int next;
+            while ((next = transition(state, c)) < 0 && state != ROOT) {
+                state = failure[state];
+            }
+            state = next < 0 ? ROOT : next;
+
+            for (int s = outputs[state].length > 0 ? state : outputLink[state]; s > ROOT; s = outputLink[s]) {
+                for (int ordinal : outputs[s]) {
+                    matched.set(ordinal);
+                }
+            }
+        }
+    }
+
+    private void buildFailureLinks() {
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int target : edgeTargets[ROOT]) {
+            failure[target] = ROOT;
+            queue.add(target);
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int e = 0; e < edgeChars[state].length; e++) {
+                char c = edgeChars[state][e];
+                int target = edgeTargets[state][e];
+
+                int fallback = failure[state];
+                int next;
+                while ((next = transition(fallback, c)) < 0 && fallback != ROOT) {
+                    fallback = failure[fallback];
+                }
+                failure[target] = next < 0 || next == target ? ROOT : next;
+
+                int f = failure[target];
+                outputLink[target] = outputs[f].length > 0 ? f : outputLink[f];
+                queue.add(target);
+            }
+        }
+    }
+
+    private int transition(int state, char c) {
+        int index = Arrays.binarySearch(edgeChars[state], c);
+        return index >= 0 ? edgeTargets[state][index] : -1;
+    }
+}
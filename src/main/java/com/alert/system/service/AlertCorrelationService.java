@@ -25,9 +25,10 @@ public class AlertCorrelationService {
     private final AlertRepository alertRepository;
     private final EventRepository eventRepository;
     private final EventCorrelationRuleRepository correlationRuleRepository;
-    private final AlertObservableMappingRepository observableMappingRepository;
     private final FlinkComputeService flinkComputeService;
+    private final EmbeddedStreamEngine embeddedStreamEngine;
     private final ObjectMapper objectMapper;
+    private final RuleMetricsService ruleMetricsService;
 
     private final Map<String, List<Alert>> correlationWindows = new ConcurrentHashMap<>();
 
@@ -40,12 +41,47 @@ public class AlertCorrelationService {
             for (EventCorrelationRule rule : rules) {
                 processCorrelationRule(alert, rule);
             }
+            processCep(alert);
 
         } catch (Exception e) {
             log.error("Error correlating alert: {}", alert.getAlertUuid(), e);
         }
     }
 
+    /**
+     * 批量关联告警，关联规则只加载一次
+     */
+    @Transactional
+    public void correlateAlerts(List<Alert> alerts) {
+        if (alerts.isEmpty()) {
+            return;
+        }
+
+        List<EventCorrelationRule> allRules = correlationRuleRepository.findByIsEnabledOrderByPriority(true);
+
+        for (Alert alert : alerts) {
+            try {
+                for (EventCorrelationRule rule : allRules) {
+                    if (isRuleApplicable(alert, rule)) {
+                        processCorrelationRule(alert, rule);
+                    }
+                }
+                processCep(alert);
+            } catch (Exception e) {
+                log.error("Error correlating alert: {}", alert.getAlertUuid(), e);
+            }
+        }
+    }
+
+    /**
+     * CEP未路由到Flink时由进程内引擎匹配
+     */
+    private void processCep(Alert alert) {
+        if (!flinkComputeService.routeToFlink(FlinkComputeService.OP_CEP)) {
+            embeddedStreamEngine.processCep(alert);
+        }
+    }
+
     private List<EventCorrelationRule> getApplicableRules(Alert alert) {
         List<EventCorrelationRule> allRules = correlationRuleRepository.findByIsEnabledOrderByPriority(true);
 
@@ -69,6 +105,7 @@ public class AlertCorrelationService {
     }
 
     private void processCorrelationRule(Alert alert, EventCorrelationRule rule) {
+        long start = System.nanoTime();
         try {
             String correlationLevel = rule.getCorrelationLevel();
 
@@ -82,6 +119,9 @@ public class AlertCorrelationService {
 
         } catch (Exception e) {
             log.error("Error processing correlation rule: {}", rule.getRuleName(), e);
+        } finally {
+            ruleMetricsService.recordEvaluation(RuleMetricsService.RULE_TYPE_CORRELATION,
+                rule.getId(), rule.getRuleName(), System.nanoTime() - start);
         }
     }
 
@@ -119,21 +159,18 @@ public class AlertCorrelationService {
     }
 
     private void correlateCrossType(Alert alert, EventCorrelationRule rule) {
-        if (flinkComputeService.isFlinkAvailable()) {
+        if (flinkComputeService.routeToFlink(FlinkComputeService.OP_CORRELATE_CROSS_TYPE)) {
             flinkComputeService.correlateCrossTypeAlerts(alert, rule);
             return;
         }
 
-        LocalDateTime startTime = LocalDateTime.now().minusSeconds(rule.getTimeWindowSeconds());
-
-        List<Alert> relatedAlerts = alertRepository.findAlertsInTimeWindow(
-            startTime,
-            LocalDateTime.now()
-        );
-
-        relatedAlerts = filterByCorrelationFields(relatedAlerts, alert, rule);
-        relatedAlerts = filterByObservables(relatedAlerts, alert);
+        // 进程内引擎按关联字段维护窗口状态，不再扫描时间窗口内的全部告警
+        List<UUID> relatedIds = embeddedStreamEngine.correlateCrossType(alert, rule);
+        if (relatedIds.isEmpty()) {
+            return;
+        }
 
+        List<Alert> relatedAlerts = alertRepository.findAllById(relatedIds);
         if (relatedAlerts.size() >= rule.getMinAlertCount()) {
             createOrUpdateEvent(relatedAlerts, rule, "CROSS_TYPE");
         }
@@ -166,31 +203,6 @@ public class AlertCorrelationService {
         return false;
     }
 
-    private List<Alert> filterByObservables(List<Alert> alerts, Alert targetAlert) {
-        Set<UUID> targetObservables = observableMappingRepository
-            .findByAlertId(targetAlert.getId())
-            .stream()
-            .map(m -> m.getObservable().getId())
-            .collect(Collectors.toSet());
-
-        if (targetObservables.isEmpty()) {
-            return alerts;
-        }
-
-        return alerts.stream()
-            .filter(alert -> {
-                Set<UUID> alertObservables = observableMappingRepository
-                    .findByAlertId(alert.getId())
-                    .stream()
-                    .map(m -> m.getObservable().getId())
-                    .collect(Collectors.toSet());
-
-                alertObservables.retainAll(targetObservables);
-                return !alertObservables.isEmpty();
-            })
-            .collect(Collectors.toList());
-    }
-
     @Transactional
     private void createOrUpdateEvent(List<Alert> alerts, EventCorrelationRule rule, String correlationType) {
         try {
@@ -215,10 +227,8 @@ public class AlertCorrelationService {
                 log.info("Created new event: {} with {} alerts", newEvent.getSystemCode(), alerts.size());
             }
 
-            rule.setExecutionCount(rule.getExecutionCount() + 1);
-            rule.setSuccessCount(rule.getSuccessCount() + 1);
-            rule.setLastExecutionTime(LocalDateTime.now());
-            correlationRuleRepository.save(rule);
+            // 执行次数由RuleMetricsService定期汇总更新
+            ruleMetricsService.recordHit(RuleMetricsService.RULE_TYPE_CORRELATION, rule.getId(), rule.getRuleName());
 
         } catch (Exception e) {
             log.error("Error creating/updating event", e);
@@ -402,26 +412,22 @@ public class AlertCorrelationService {
 
     private void extractDomainsFromAlert(Alert alert, Set<String> attackDomains, Set<String> victimDomains) {
         try {
-            if (alert.getParsedData() != null) {
-                JsonNode parsed = objectMapper.readTree(alert.getParsedData());
+            ParsedAlert parsed = ParsedAlert.of(alert, objectMapper);
 
-                extractFieldToSet(parsed, "attack_domain", attackDomains);
-                extractFieldToSet(parsed, "victim_domain", victimDomains);
-                extractFieldToSet(parsed, "domain", attackDomains);
-            }
+            extractFieldToSet(parsed, "attack_domain", attackDomains);
+            extractFieldToSet(parsed, "victim_domain", victimDomains);
+            extractFieldToSet(parsed, "domain", attackDomains);
         } catch (Exception e) {
             log.debug("Error extracting domains from alert", e);
         }
     }
 
-    private void extractFieldToSet(JsonNode node, String fieldName, Set<String> targetSet) {
-        JsonNode field = node.get(fieldName);
-        if (field != null) {
-            if (field.isArray()) {
-                field.forEach(item -> targetSet.add(item.asText()));
-            } else {
-                targetSet.add(field.asText());
-            }
+    private void extractFieldToSet(ParsedAlert parsed, String fieldName, Set<String> targetSet) {
+        Object field = parsed.get(fieldName);
+        if (field instanceof Collection) {
+            ((Collection<?>) field).forEach(item -> targetSet.add(String.valueOf(item)));
+        } else if (field != null) {
+            targetSet.add(parsed.getText(fieldName));
         }
     }
 
@@ -488,12 +494,9 @@ public class AlertCorrelationService {
 
     private String getFieldValue(Alert alert, String fieldName) {
         try {
-            if (alert.getParsedData() != null) {
-                JsonNode parsed = objectMapper.readTree(alert.getParsedData());
-                JsonNode value = parsed.get(fieldName);
-                if (value != null && !value.isNull()) {
-                    return value.asText();
-                }
+            String value = ParsedAlert.of(alert, objectMapper).getText(fieldName);
+            if (value != null) {
+                return value;
             }
 
             switch (fieldName.toLowerCase()) {
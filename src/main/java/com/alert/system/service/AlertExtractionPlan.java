@@ -0,0 +1,308 @@
+package com.alert.system.service;
+
+import com.alert.system.entity.AlertField;
+import com.alert.system.entity.AlertType;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 某个告警类型编译后的字段提取计划
+ * 字段路径预先编译为JsonPointer，数据类型预先解析为解码函数，
+ * alarm_date/alarm_subtype 等特殊字段预先标记，解析告警时不再访问数据库或拆分路径
+ *
+ * 除了基于JsonNode树的提取外，还提供基于JsonParser的流式提取：
+ * 所有字段路径合并为一棵路径树，只遍历一次token流，不在路径上的子树直接跳过、不构建节点
+ */
+@Slf4j
+public class AlertExtractionPlan {
+
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+        DateTimeFormatter.ISO_DATE_TIME,
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"),
+        DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss")
+    };
+
+    public enum SpecialField { NONE, ALARM_DATE, ALARM_SUBTYPE }
+
+    private final AlertType alertType;
+    private final List<FieldExtractor> fields;
+    private final PathNode root = new PathNode();
+
+    public AlertExtractionPlan(AlertType alertType, List<AlertField> alertFields) {
+        this.alertType = alertType;
+
+        List<FieldExtractor> compiled = new ArrayList<>(alertFields.size());
+        for (AlertField field : alertFields) {
+            String fieldPath = field.getFieldPath() != null ? field.getFieldPath() : field.getFieldName();
+            compiled.add(new FieldExtractor(
+                compiled.size(),
+                field.getFieldName(),
+                fieldPath,
+                compilePointer(fieldPath),
+                decoderFor(field.getDataType()),
+                specialFieldOf(field.getFieldName())
+            ));
+        }
+        this.fields = Collections.unmodifiableList(compiled);
+
+        for (FieldExtractor field : fields) {
+            root.add(field.getFieldPath().split("\\."), 0, field);
+        }
+    }
+
+    public AlertType getAlertType() {
+        return alertType;
+    }
+
+    public List<FieldExtractor> getFields() {
+        return fields;
+    }
+
+    /**
+     * 字段存在但解码结果为null（如无法解析的日期）时的取值；
+     * 与原先逐字段解析一致，这类字段以null值保留在parsedData中，而未出现或为JSON null的字段不写入
+     */
+    public static final Object DECODED_NULL = new Object();
+
+    /**
+     * 流式提取所有字段，返回值按 getFields() 的顺序排列，未出现或为null的字段对应null，
+     * 存在但解码为null的字段对应DECODED_NULL
+     */
+    public Object[] extract(ObjectMapper objectMapper, byte[] payload) throws IOException {
+        Object[] values = new Object[fields.size()];
+        try (JsonParser parser = objectMapper.getFactory().createParser(payload)) {
+            if (parser.nextToken() != null) {
+                readValue(objectMapper, parser, root, values);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 基于已构建的JsonNode树提取所有字段，返回值与流式提取一致
+     */
+    public Object[] extract(JsonNode document) {
+        Object[] values = new Object[fields.size()];
+        for (FieldExtractor field : fields) {
+            values[field.index] = field.extract(document);
+        }
+        return values;
+    }
+
+    /**
+     * 解析器位于当前值的起始token；路径树上有字段终止于此节点时读取该子树，否则只向下走路径树中存在的分支
+     */
+    private void readValue(ObjectMapper objectMapper, JsonParser parser, PathNode node,
+                           Object[] values) throws IOException {
+        if (!node.extractors.isEmpty()) {
+            JsonNode value = readNode(objectMapper, parser);
+            if (value == null || value.isNull()) {
+                return;
+            }
+            for (FieldExtractor field : node.extractors) {
+                values[field.index] = field.decode(value);
+            }
+            for (Map.Entry<FieldExtractor, JsonPointer> descendant : node.descendants.entrySet()) {
+                JsonNode nested = value.at(descendant.getValue());
+                if (!nested.isMissingNode() && !nested.isNull()) {
+                    values[descendant.getKey().index] = descendant.getKey().decode(nested);
+                }
+            }
+            return;
+        }
+
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                PathNode child = node.children.get(parser.getCurrentName());
+                parser.nextToken();
+                if (child == null) {
+                    parser.skipChildren();
+                } else {
+                    readValue(objectMapper, parser, child, values);
+                }
+            }
+        } else if (token == JsonToken.START_ARRAY) {
+            int index = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                PathNode child = node.children.get(String.valueOf(index++));
+                if (child == null) {
+                    parser.skipChildren();
+                } else {
+                    readValue(objectMapper, parser, child, values);
+                }
+            }
+        }
+    }
+
+    /**
+     * 标量直接构造节点，避免为每个叶子字段创建反序列化上下文；对象和数组才读取为子树
+     */
+    private static JsonNode readNode(ObjectMapper objectMapper, JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case VALUE_STRING:
+                return TextNode.valueOf(parser.getText());
+            case VALUE_NUMBER_INT:
+                switch (parser.getNumberType()) {
+                    case INT:
+                        return IntNode.valueOf(parser.getIntValue());
+                    case LONG:
+                        return LongNode.valueOf(parser.getLongValue());
+                    default:
+                        return BigIntegerNode.valueOf(parser.getBigIntegerValue());
+                }
+            case VALUE_NUMBER_FLOAT:
+                return DoubleNode.valueOf(parser.getDoubleValue());
+            case VALUE_TRUE:
+                return BooleanNode.TRUE;
+            case VALUE_FALSE:
+                return BooleanNode.FALSE;
+            case VALUE_NULL:
+                return NullNode.getInstance();
+            default:
+                return objectMapper.readTree(parser);
+        }
+    }
+
+    /**
+     * 将点分隔的字段路径转换为JsonPointer，路径片段中的特殊字符按RFC 6901转义
+     */
+    static JsonPointer compilePointer(String fieldPath) {
+        StringBuilder pointer = new StringBuilder();
+        for (String part : fieldPath.split("\\.")) {
+            pointer.append('/').append(part.replace("~", "~0").replace("/", "~1"));
+        }
+        return JsonPointer.compile(pointer.toString());
+    }
+
+    private static SpecialField specialFieldOf(String fieldName) {
+        if ("alarm_date".equalsIgnoreCase(fieldName)) {
+            return SpecialField.ALARM_DATE;
+        }
+        if ("alarm_subtype".equalsIgnoreCase(fieldName)) {
+            return SpecialField.ALARM_SUBTYPE;
+        }
+        return SpecialField.NONE;
+    }
+
+    private static Function<JsonNode, Object> decoderFor(String dataType) {
+        switch (dataType != null ? dataType.toLowerCase() : "string") {
+            case "integer":
+                return JsonNode::asInt;
+            case "long":
+                return JsonNode::asLong;
+            case "double":
+                return JsonNode::asDouble;
+            case "boolean":
+                return JsonNode::asBoolean;
+            case "datetime":
+                return value -> parseDateTime(value.asText());
+            case "array":
+                return value -> {
+                    List<String> list = new ArrayList<>();
+                    if (value.isArray()) {
+                        value.forEach(node -> list.add(node.asText()));
+                    }
+                    return list;
+                };
+            case "json":
+                return JsonNode::toString;
+            case "string":
+            default:
+                return JsonNode::asText;
+        }
+    }
+
+    private static LocalDateTime parseDateTime(String dateStr) {
+        if (dateStr == null || dateStr.isEmpty()) {
+            return null;
+        }
+
+        for (DateTimeFormatter formatter : DATE_FORMATS) {
+            try {
+                return LocalDateTime.parse(dateStr, formatter);
+            } catch (Exception ignored) {
+            }
+        }
+
+        log.warn("Unable to parse date: {}", dateStr);
+        return null;
+    }
+
+    /**
+     * 字段路径树的节点；extractors为路径终止于此的字段，
+     * descendants为路径经过此节点、继续向下的字段及其相对路径，用于在已读取的子树上继续提取
+     */
+    private static class PathNode {
+        final Map<String, PathNode> children = new HashMap<>();
+        final List<FieldExtractor> extractors = new ArrayList<>();
+        final Map<FieldExtractor, JsonPointer> descendants = new LinkedHashMap<>();
+
+        void add(String[] parts, int depth, FieldExtractor field) {
+            if (depth == parts.length) {
+                extractors.add(field);
+                return;
+            }
+            descendants.put(field, compilePointer(String.join(".", Arrays.copyOfRange(parts, depth, parts.length))));
+            children.computeIfAbsent(parts[depth], part -> new PathNode()).add(parts, depth + 1, field);
+        }
+    }
+
+    public static class FieldExtractor {
+        private final int index;
+        private final String fieldName;
+        private final String fieldPath;
+        private final JsonPointer pointer;
+        private final Function<JsonNode, Object> decoder;
+        private final SpecialField specialField;
+
+        FieldExtractor(int index, String fieldName, String fieldPath, JsonPointer pointer,
+                       Function<JsonNode, Object> decoder, SpecialField specialField) {
+            this.index = index;
+            this.fieldName = fieldName;
+            this.fieldPath = fieldPath;
+            this.pointer = pointer;
+            this.decoder = decoder;
+            this.specialField = specialField;
+        }
+
+        public int getIndex() { return index; }
+        public String getFieldName() { return fieldName; }
+        public String getFieldPath() { return fieldPath; }
+        public JsonPointer getPointer() { return pointer; }
+        public SpecialField getSpecialField() { return specialField; }
+
+        /**
+         * 从文档根节点取出字段值并解码，字段不存在或为null时返回null
+         */
+        public Object extract(JsonNode root) {
+            JsonNode value = root.at(pointer);
+            if (value.isMissingNode() || value.isNull()) {
+                return null;
+            }
+            return decode(value);
+        }
+
+        public Object decode(JsonNode value) {
+            try {
+                Object decoded = decoder.apply(value);
+                return decoded != null ? decoded : DECODED_NULL;
+            } catch (Exception e) {
+                log.warn("Error parsing field value of {}: {}", fieldName, e.getMessage());
+                return value.asText();
+            }
+        }
+    }
+}
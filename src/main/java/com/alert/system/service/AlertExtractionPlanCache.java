@@ -0,0 +1,72 @@
+package com.alert.system.service;
+
+import com.alert.system.entity.AlertField;
+import com.alert.system.entity.AlertType;
+import com.alert.system.repository.AlertFieldRepository;
+import com.alert.system.repository.AlertTypeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按告警类型缓存编译后的字段提取计划
+ * 首次使用时从数据库加载并编译，告警类型或字段定义变更时失效重建
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AlertExtractionPlanCache {
+
+    private final AlertTypeRepository alertTypeRepository;
+    private final AlertFieldRepository alertFieldRepository;
+
+    private final Map<Integer, AlertExtractionPlan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * 获取告警类型的提取计划，告警类型不存在时返回null
+     */
+    public AlertExtractionPlan getPlan(Integer alertTypeId) {
+        AlertExtractionPlan plan = plans.get(alertTypeId);
+        if (plan != null) {
+            return plan;
+        }
+
+        AlertType alertType = alertTypeRepository.findById(alertTypeId).orElse(null);
+        if (alertType == null) {
+            return null;
+        }
+
+        List<AlertField> fields = alertFieldRepository.findByAlertTypeIdOrderByDisplayOrder(alertTypeId);
+        plan = new AlertExtractionPlan(alertType, fields);
+        plans.put(alertTypeId, plan);
+
+        log.debug("Compiled extraction plan for alert type {} with {} fields", alertTypeId, fields.size());
+        return plan;
+    }
+
+    /**
+     * 使告警类型的提取计划失效；在事务中调用时，事务提交后会再失效一次，
+     * 避免提交前并发加载的旧定义留在缓存中
+     */
+    public void invalidate(Integer alertTypeId) {
+        if (alertTypeId == null) {
+            return;
+        }
+        plans.remove(alertTypeId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    plans.remove(alertTypeId);
+                }
+            });
+        }
+    }
+}
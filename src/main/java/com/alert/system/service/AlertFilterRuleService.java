@@ -26,6 +26,9 @@ public class AlertFilterRuleService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AlertRuleEngine ruleEngine;
+
     public List<AlertFilterRuleResponse> getAllRules() {
         return filterRuleRepository.findAll().stream()
                 .map(AlertFilterRuleResponse::fromEntity)
@@ -64,8 +67,9 @@ public class AlertFilterRuleService {
 
         // Validate match type
         if (!isValidMatchType(request.getMatchType())) {
-            throw new RuntimeException("Invalid match type. Must be one of: exact, regex");
+            throw new RuntimeException("Invalid match type. Must be one of: exact, contains, regex, condition");
         }
+        ruleEngine.validateMatchValue(request.getMatchType(), request.getMatchValue());
 
         AlertFilterRule rule = new AlertFilterRule();
         rule.setRuleName(request.getRuleName());
@@ -86,6 +90,7 @@ public class AlertFilterRuleService {
         }
 
         AlertFilterRule saved = filterRuleRepository.save(rule);
+        ruleEngine.refreshFilterRules();
         return AlertFilterRuleResponse.fromEntity(saved);
     }
 
@@ -101,8 +106,9 @@ public class AlertFilterRuleService {
 
         // Validate match type
         if (!isValidMatchType(request.getMatchType())) {
-            throw new RuntimeException("Invalid match type. Must be one of: exact, regex");
+            throw new RuntimeException("Invalid match type. Must be one of: exact, contains, regex, condition");
         }
+        ruleEngine.validateMatchValue(request.getMatchType(), request.getMatchValue());
 
         rule.setRuleName(request.getRuleName());
         rule.setRuleDescription(request.getRuleDescription());
@@ -115,6 +121,8 @@ public class AlertFilterRuleService {
         rule.setIsEnabled(request.getIsEnabled());
 
         AlertFilterRule saved = filterRuleRepository.save(rule);
+        ruleEngine.clearRegexViolation(id);
+        ruleEngine.refreshFilterRules();
         return AlertFilterRuleResponse.fromEntity(saved);
     }
 
@@ -123,6 +131,8 @@ public class AlertFilterRuleService {
             throw new RuntimeException("Filter rule not found");
         }
         filterRuleRepository.deleteById(id);
+        ruleEngine.clearRegexViolation(id);
+        ruleEngine.refreshFilterRules();
     }
 
     public List<AlertFilterRuleResponse> searchRules(String keyword) {
@@ -132,6 +142,7 @@ public class AlertFilterRuleService {
     }
 
     private boolean isValidMatchType(String matchType) {
-        return "exact".equals(matchType) || "regex".equals(matchType);
+        return "exact".equals(matchType) || "contains".equals(matchType) || "regex".equals(matchType)
+            || "condition".equals(matchType);
     }
 }
\ No newline at end of file
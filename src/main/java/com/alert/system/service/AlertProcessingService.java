@@ -7,15 +7,18 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
@@ -23,105 +26,228 @@ import java.util.regex.Pattern;
 public class AlertProcessingService {
 
     private final AlertRepository alertRepository;
-    private final AlertTypeRepository alertTypeRepository;
-    private final AlertFieldRepository alertFieldRepository;
-    private final AlertFilterRuleRepository filterRuleRepository;
-    private final AlertTaggingRuleRepository taggingRuleRepository;
-    private final AlertTagMappingRepository tagMappingRepository;
-    private final TagRepository tagRepository;
+    private final AlertExtractionPlanCache extractionPlanCache;
+    private final AlertRuleEngine ruleEngine;
+    private final TagDictionary tagDictionary;
+    private final JdbcTemplate jdbcTemplate;
     private final ObservableService observableService;
     private final AlertCorrelationService correlationService;
     private final ClickHouseStorageService clickHouseStorageService;
     private final FlinkComputeService flinkComputeService;
     private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final PipelineExecutorService pipelineExecutorService;
+
+    // 告警解析方式: streaming(基于JsonParser单次遍历) 或 tree(先构建完整JsonNode树)
+    @Value("${app.alert.parser:streaming}")
+    private String parserMode;
+
+    private static final String STAGE_OBSERVABLES = "observables";
+    private static final String STAGE_CLICKHOUSE = "clickhouse";
+
+    /**
+     * 处理单条告警
+     * 返回的future在所有异步阶段（ClickHouse存储、可观察对象提取）成功后完成，任一阶段失败时异常完成，
+     * 调用方据此判断该记录是否已经处理完毕、offset是否可以提交。
+     * 同步部分的异常直接抛出并回滚事务；无法解析的告警抛出UnprocessableAlertException，重试也不会成功
+     */
+    @Transactional
+    public CompletableFuture<Void> processAlert(AlertData alertData) {
+        Alert alert = parseAlert(alertData);
 
-    private static final DateTimeFormatter[] DATE_FORMATS = {
-        DateTimeFormatter.ISO_DATE_TIME,
-        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
-        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'"),
-        DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss")
-    };
+        if (alert == null) {
+            throw new UnprocessableAlertException("Failed to parse alert data");
+        }
+        return processParsedAlert(alert);
+    }
 
-    @Transactional
-    public void processAlert(AlertData alertData) {
-        try {
-            Alert alert = parseAlert(alertData);
+    /**
+     * 过滤、打标签、关联并保存一条已解析的告警，在调用方的事务中执行；返回值与processAlert相同
+     */
+    private CompletableFuture<Void> processParsedAlert(Alert alert) {
+
+        List<TagAssignment> tagAssignments = Collections.emptyList();
+        boolean isFiltered = applyFilterRules(alert);
 
+        if (isFiltered) {
+            log.info("Alert {} filtered by rules", alert.getAlertUuid());
+            alert.setIsFiltered(true);
+            alert.setStatus("FILTERED");
+        } else {
+            tagAssignments = matchTaggingRules(alert);
+
+            correlationService.correlateAlert(alert);
+        }
+
+        alertRepository.save(alert);
+        saveAlertTags(Map.of(alert, tagAssignments));
+
+        log.info("Successfully processed alert: {}", alert.getAlertUuid());
+
+        if (isFiltered) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // ClickHouse存储标记和可观察对象映射都更新已提交的告警行，事务提交后再启动
+        List<Alert> accepted = List.of(alert);
+        return afterCommit(() -> CompletableFuture.allOf(storeToClickHouse(accepted), extractObservables(accepted)));
+    }
+
+    /**
+     * 批量处理告警
+     * 解析、过滤、打标签按批进行，PostgreSQL写入在同一个事务内完成，ClickHouse每个告警类型只插入一次。
+     * 解析失败的记录单独进入失败列表；若整批事务失败，则退回逐条处理，只让有问题的记录失败
+     */
+    public BatchResult processAlerts(List<AlertData> batch) {
+        BatchResult result = new BatchResult();
+        List<Alert> alerts = new ArrayList<>(batch.size());
+        Map<Alert, AlertData> sources = new IdentityHashMap<>();
+
+        for (AlertData alertData : batch) {
+            Alert alert = parseAlert(alertData);
             if (alert == null) {
-                log.error("Failed to parse alert data");
-                return;
+                result.addFailure(alertData, "Failed to parse alert data", false);
+                continue;
             }
+            alerts.add(alert);
+            sources.put(alert, alertData);
+        }
 
-            boolean isFiltered = applyFilterRules(alert);
+        if (alerts.isEmpty()) {
+            return result;
+        }
 
-            if (isFiltered) {
-                log.info("Alert {} filtered by rules", alert.getAlertUuid());
-                alert.setIsFiltered(true);
-                alert.setStatus("FILTERED");
-            } else {
-                applyTaggingRules(alert);
+        List<Alert> accepted;
+        try {
+            accepted = transactionTemplate.execute(status -> persistBatch(alerts));
+        } catch (Exception e) {
+            log.error("Batch of {} alerts failed, falling back to per-record processing", alerts.size(), e);
+            return processIndividually(alerts, sources, result);
+        }
+
+        result.setProcessedCount(alerts.size());
+        result.setCompletion(CompletableFuture.allOf(
+            extractObservables(accepted),
+            storeToClickHouse(accepted)
+        ));
+
+        log.info("Successfully processed batch of {} alerts ({} filtered)",
+            alerts.size(), alerts.size() - accepted.size());
 
-                extractObservables(alert);
+        return result;
+    }
+
+    private List<Alert> persistBatch(List<Alert> alerts) {
+        Map<Alert, List<TagAssignment>> assignments = new IdentityHashMap<>();
+        List<Alert> accepted = new ArrayList<>();
 
-                storeToClickHouse(alert, alertData.getKafkaConfig());
+        // streaming模式下整批先发送，逐条等待结果时往返相互重叠
+        flinkComputeService.prefetch(alerts);
 
-                correlationService.correlateAlert(alert);
+        for (Alert alert : alerts) {
+            if (applyFilterRules(alert)) {
+                alert.setIsFiltered(true);
+                alert.setStatus("FILTERED");
+                continue;
             }
 
-            alertRepository.save(alert);
+            assignments.put(alert, matchTaggingRules(alert));
+            accepted.add(alert);
+        }
 
-            log.info("Successfully processed alert: {}", alert.getAlertUuid());
+        alertRepository.saveAll(alerts);
+        saveAlertTags(assignments);
+        correlationService.correlateAlerts(accepted);
 
-        } catch (Exception e) {
-            log.error("Error processing alert", e);
+        return accepted;
+    }
+
+    /**
+     * 逐条在各自的事务中重新处理已解析的告警，失败的记录进入失败列表，成功的记录各自带有异步阶段的future
+     */
+    private BatchResult processIndividually(List<Alert> alerts, Map<Alert, AlertData> sources, BatchResult result) {
+        for (Alert alert : alerts) {
+            AlertData alertData = sources.get(alert);
+            try {
+                resetProcessingState(alert);
+                result.setCompletion(alertData, transactionTemplate.execute(status -> processParsedAlert(alert)));
+                result.setProcessedCount(result.getProcessedCount() + 1);
+            } catch (Exception e) {
+                log.error("Error processing alert from topic: {}, partition: {}, offset: {}",
+                    alertData.getKafkaTopic(), alertData.getKafkaPartition(), alertData.getKafkaOffset(), e);
+                result.addFailure(alertData, e.getMessage(), true);
+            }
         }
+
+        return result;
+    }
+
+    /**
+     * 整批事务回滚后，告警对象仍带着已分配的id和过滤、关联结果，重新处理前恢复到刚解析时的状态
+     */
+    private void resetProcessingState(Alert alert) {
+        alert.setId(null);
+        alert.setIsFiltered(false);
+        alert.setFilterRuleId(null);
+        alert.setFilterReason(null);
+        alert.setEvent(null);
+        alert.setCorrelationKey(null);
+        alert.setStatus("NEW");
     }
 
     private Alert parseAlert(AlertData alertData) {
         try {
-            JsonNode jsonData = objectMapper.readTree(alertData.getRawData());
-            Alert alert = new Alert();
-
-            alert.setAlertUuid(UUID.randomUUID().toString());
-            alert.setRawData(alertData.getRawData());
-
             KafkaDataSourceConfig kafkaConfig = alertData.getKafkaConfig();
-            AlertType alertType = alertTypeRepository.findById(kafkaConfig.getAlertTypeId().intValue()).orElse(null);
+            AlertExtractionPlan plan = extractionPlanCache.getPlan(kafkaConfig.getAlertTypeId().intValue());
 
-            if (alertType == null) {
+            if (plan == null) {
                 log.error("Alert type not found for config: {}", kafkaConfig.getConfigName());
                 return null;
             }
 
-            alert.setAlertType(alertType);
+            Object[] values = "tree".equalsIgnoreCase(parserMode)
+                ? plan.extract(objectMapper.readTree(alertData.getRawBytes()))
+                : plan.extract(objectMapper, alertData.getRawBytes());
+            Alert alert = new Alert();
 
-            Map<String, Object> parsedData = new HashMap<>();
-            List<AlertField> fields = alertFieldRepository.findByAlertTypeIdOrderByDisplayOrder(alertType.getId());
+            alert.setAlertUuid(UUID.randomUUID().toString());
+            alert.setRawBytes(alertData.getRawBytes());
+            alert.setAlertType(plan.getAlertType());
 
-            for (AlertField field : fields) {
-                String fieldPath = field.getFieldPath() != null ? field.getFieldPath() : field.getFieldName();
-                JsonNode value = getJsonValue(jsonData, fieldPath);
+            Map<String, Object> parsedData = new HashMap<>();
 
-                if (value != null && !value.isNull()) {
-                    Object parsedValue = parseFieldValue(value, field.getDataType());
-                    parsedData.put(field.getFieldName(), parsedValue);
+            for (AlertExtractionPlan.FieldExtractor field : plan.getFields()) {
+                Object parsedValue = values[field.getIndex()];
+                if (parsedValue == null) {
+                    continue;
+                }
+                if (parsedValue == AlertExtractionPlan.DECODED_NULL) {
+                    parsedData.put(field.getFieldName(), null);
+                    continue;
+                }
+                parsedData.put(field.getFieldName(), parsedValue);
 
-                    // 只设置几个核心字段到Alert实体，用于PostgreSQL查询
-                    // 其他字段都通过parsedData传递
-                    if (field.getFieldName().equalsIgnoreCase("alarm_date")) {
+                // 只设置几个核心字段到Alert实体，用于PostgreSQL查询
+                // 其他字段都通过parsedData传递
+                switch (field.getSpecialField()) {
+                    case ALARM_DATE:
                         if (parsedValue instanceof Long) {
                             alert.setAlertTime(LocalDateTime.ofInstant(
                                 java.time.Instant.ofEpochMilli((Long) parsedValue),
                                 java.time.ZoneId.systemDefault()
                             ));
                         }
-                    } else if (field.getFieldName().equalsIgnoreCase("alarm_subtype")) {
+                        break;
+                    case ALARM_SUBTYPE:
                         alert.setAlertSubtype(String.valueOf(parsedValue));
-                    }
+                        break;
+                    default:
+                        break;
                 }
             }
 
-            alert.setParsedData(objectMapper.writeValueAsString(parsedData));
+            ParsedAlert parsed = new ParsedAlert(parsedData);
+            alert.setParsed(parsed);
+            alert.setParsedData(parsed.toJson(objectMapper));
 
             if (alert.getAlertTime() == null) {
                 alert.setAlertTime(LocalDateTime.now());
@@ -139,86 +265,20 @@ public class AlertProcessingService {
         }
     }
 
-    private JsonNode getJsonValue(JsonNode root, String path) {
-        String[] parts = path.split("\\.");
-        JsonNode current = root;
-
-        for (String part : parts) {
-            if (current == null || current.isNull()) {
-                return null;
-            }
-            current = current.get(part);
-        }
-
-        return current;
-    }
-
-    private Object parseFieldValue(JsonNode value, String dataType) {
-        try {
-            switch (dataType.toLowerCase()) {
-                case "string":
-                    return value.asText();
-                case "integer":
-                    return value.asInt();
-                case "long":
-                    return value.asLong();
-                case "double":
-                    return value.asDouble();
-                case "boolean":
-                    return value.asBoolean();
-                case "datetime":
-                    return parseDateTime(value.asText());
-                case "array":
-                    List<String> list = new ArrayList<>();
-                    if (value.isArray()) {
-                        value.forEach(node -> list.add(node.asText()));
-                    }
-                    return list;
-                case "json":
-                    return value.toString();
-                default:
-                    return value.asText();
-            }
-        } catch (Exception e) {
-            log.warn("Error parsing field value of type {}: {}", dataType, e.getMessage());
-            return value.asText();
-        }
-    }
-
-    private LocalDateTime parseDateTime(String dateStr) {
-        if (dateStr == null || dateStr.isEmpty()) {
-            return null;
-        }
-
-        for (DateTimeFormatter formatter : DATE_FORMATS) {
-            try {
-                return LocalDateTime.parse(dateStr, formatter);
-            } catch (Exception ignored) {
-            }
-        }
-
-        log.warn("Unable to parse date: {}", dateStr);
-        return null;
-    }
-
     // setAlertField方法已删除，所有字段都通过parsedData传递
 
     private boolean applyFilterRules(Alert alert) {
         try {
-            List<AlertFilterRule> rules = filterRuleRepository.findByAlertTypeAndIsEnabledOrderByPriority(
-                alert.getAlertType().getId(), true);
-
-            if (flinkComputeService.isFlinkAvailable()) {
-                return flinkComputeService.applyFilterRules(alert, rules);
+            if (flinkComputeService.routeToFlink(FlinkComputeService.OP_FILTER)) {
+                return flinkComputeService.applyFilterRules(alert, ruleEngine.getFilterRules(alert));
             }
 
-            for (AlertFilterRule rule : rules) {
-                if (matchesRule(alert, rule)) {
-                    alert.setFilterRuleId(rule.getId());
-                    alert.setFilterReason(rule.getRuleName());
-                    log.info("Alert {} matched filter rule: {}", alert.getAlertUuid(), rule.getRuleName());
-                    return true;
-                }
+            AlertFilterRule rule = ruleEngine.matchFilterRule(alert);
+            if (rule != null) {
+                alert.setFilterRuleId(rule.getId());
+                alert.setFilterReason(rule.getRuleName());
+                log.info("Alert {} matched filter rule: {}", alert.getAlertUuid(), rule.getRuleName());
+                return true;
             }
 
             return false;
@@ -229,145 +289,215 @@ public class AlertProcessingService {
         }
     }
 
-    private void applyTaggingRules(Alert alert) {
+    private List<TagAssignment> matchTaggingRules(Alert alert) {
+        List<TagAssignment> assignments = new ArrayList<>();
         try {
-            List<AlertTaggingRule> rules = taggingRuleRepository.findByAlertTypeAndIsEnabledOrderByPriority(
-                alert.getAlertType().getId(), true);
-
-            if (flinkComputeService.isFlinkAvailable()) {
-                List<String> tags = flinkComputeService.applyTaggingRules(alert, rules);
-                saveAlertTags(alert, tags, null);
-                return;
+            if (flinkComputeService.routeToFlink(FlinkComputeService.OP_TAG)) {
+                for (String tagName : flinkComputeService.applyTaggingRules(alert, ruleEngine.getTaggingRules(alert))) {
+                    assignments.add(new TagAssignment(tagName, null));
+                }
+                return assignments;
             }
 
-            for (AlertTaggingRule rule : rules) {
-                if (matchesRule(alert, rule)) {
-                    saveAlertTags(alert, rule.getTags(), rule);
-                    log.debug("Alert {} matched tagging rule: {}", alert.getAlertUuid(), rule.getRuleName());
+            for (AlertTaggingRule rule : ruleEngine.matchTaggingRules(alert)) {
+                for (String tagName : rule.getTags()) {
+                    assignments.add(new TagAssignment(tagName, rule));
                 }
+                log.debug("Alert {} matched tagging rule: {}", alert.getAlertUuid(), rule.getRuleName());
             }
-
         } catch (Exception e) {
             log.error("Error applying tagging rules", e);
         }
+        return assignments;
     }
 
-    private boolean matchesRule(Alert alert, Object rule) {
-        try {
-            String matchField;
-            String matchType;
-            String matchValue;
-
-            if (rule instanceof AlertFilterRule) {
-                AlertFilterRule filterRule = (AlertFilterRule) rule;
-                matchField = filterRule.getMatchField();
-                matchType = filterRule.getMatchType();
-                matchValue = filterRule.getMatchValue();
-            } else if (rule instanceof AlertTaggingRule) {
-                AlertTaggingRule taggingRule = (AlertTaggingRule) rule;
-                matchField = taggingRule.getMatchField();
-                matchType = taggingRule.getMatchType();
-                matchValue = taggingRule.getMatchValue();
-            } else {
-                return false;
+    /**
+     * 批量保存标签：标签从内存字典解析，映射用一次JDBC批量插入写入，与告警在同一事务内
+     */
+    private void saveAlertTags(Map<Alert, List<TagAssignment>> assignments) {
+        List<Object[]> rows = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        assignments.forEach((alert, list) -> {
+            Set<String> seen = new HashSet<>();
+            for (TagAssignment assignment : list) {
+                if (!seen.add(assignment.tagName)) {
+                    continue;
+                }
+                try {
+                    Tag tag = tagDictionary.getOrCreate(assignment.tagName);
+                    rows.add(new Object[]{UUID.randomUUID(), alert.getId(), tag.getId(),
+                        assignment.rule != null ? assignment.rule.getId() : null, true, now});
+                } catch (Exception e) {
+                    log.error("Error resolving tag: {}", assignment.tagName, e);
+                }
             }
+        });
+        if (rows.isEmpty()) {
+            return;
+        }
 
-            String fieldValue = getAlertFieldValue(alert, matchField);
-            if (fieldValue == null) {
-                return false;
-            }
+        // 告警由JPA延迟插入，先写出以满足映射表的外键
+        alertRepository.flush();
+        jdbcTemplate.batchUpdate(
+            "INSERT INTO alert_tag_mappings (id, alert_id, tag_id, tagging_rule_id, is_auto_tagged, created_at) "
+                + "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT (alert_id, tag_id) DO NOTHING",
+            rows);
+    }
 
-            switch (matchType.toLowerCase()) {
-                case "exact":
-                    return fieldValue.equalsIgnoreCase(matchValue);
-                case "contains":
-                    return fieldValue.toLowerCase().contains(matchValue.toLowerCase());
-                case "regex":
-                    Pattern pattern = Pattern.compile(matchValue, Pattern.CASE_INSENSITIVE);
-                    Matcher matcher = pattern.matcher(fieldValue);
-                    return matcher.find();
-                default:
-                    return false;
+    /**
+     * 在当前事务提交后启动异步阶段；事务回滚时返回的future异常完成。没有事务时立即启动
+     */
+    private CompletableFuture<Void> afterCommit(Supplier<CompletableFuture<Void>> stages) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return stages.get();
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    result.completeExceptionally(new IllegalStateException("Alert transaction did not commit"));
+                    return;
+                }
+                try {
+                    stages.get().whenComplete((ignored, e) -> {
+                        if (e != null) {
+                            result.completeExceptionally(e);
+                        } else {
+                            result.complete(null);
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
             }
+        });
+        return result;
+    }
 
-        } catch (Exception e) {
-            log.error("Error matching rule", e);
-            return false;
+    private CompletableFuture<Void> extractObservables(List<Alert> alerts) {
+        if (alerts.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
         }
+        // 提取在阶段线程中完成，写入由可观察对象写缓冲合并后批量进行，落库后该阶段才算结束
+        CompletableFuture<Void> persisted = new CompletableFuture<>();
+        pipelineExecutorService.runStage(STAGE_OBSERVABLES, () -> {
+            try {
+                observableService.extractAndSaveObservables(alerts).whenComplete((result, e) -> {
+                    if (e != null) {
+                        persisted.completeExceptionally(e);
+                    } else {
+                        persisted.complete(null);
+                    }
+                });
+            } catch (Exception e) {
+                log.error("Error extracting observables for batch of {} alerts", alerts.size(), e);
+                persisted.completeExceptionally(e);
+            }
+        });
+        return persisted;
     }
 
-    private String getAlertFieldValue(Alert alert, String fieldName) {
-        try {
-            if (alert.getParsedData() != null) {
-                JsonNode parsed = objectMapper.readTree(alert.getParsedData());
-                JsonNode value = parsed.get(fieldName);
-                if (value != null && !value.isNull()) {
-                    return value.asText();
-                }
+    private CompletableFuture<Void> storeToClickHouse(List<Alert> alerts) {
+        if (alerts.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return pipelineExecutorService.runStage(STAGE_CLICKHOUSE, () -> {
+            Map<Integer, List<Alert>> byType = new HashMap<>();
+            for (Alert alert : alerts) {
+                byType.computeIfAbsent(alert.getAlertType().getId(), id -> new ArrayList<>()).add(alert);
             }
 
-            switch (fieldName.toLowerCase()) {
-                case "source_ip": return alert.getSourceIp();
-                case "dest_ip": return alert.getDestIp();
-                case "severity": return alert.getSeverity();
-                case "priority": return alert.getPriority();
-                case "title": return alert.getTitle();
-                case "description": return alert.getDescription();
-                case "alert_subtype": return alert.getAlertSubtype();
-                default: return null;
+            // 各告警类型分别写入，全部尝试后若有失败则整个阶段失败
+            List<RuntimeException> failures = new ArrayList<>();
+            byType.forEach((typeId, typeAlerts) -> {
+                try {
+                    List<Alert> stored = clickHouseStorageService.storeAlerts(typeAlerts, typeId.longValue());
+                    if (!stored.isEmpty()) {
+                        LocalDateTime storageTime = LocalDateTime.now();
+                        List<UUID> ids = new ArrayList<>(stored.size());
+                        for (Alert alert : stored) {
+                            alert.setClickhouseId(alert.getAlertUuid());
+                            alert.setStorageTime(storageTime);
+                            ids.add(alert.getId());
+                        }
+                        pipelineExecutorService.withPostgres(() -> transactionTemplate.executeWithoutResult(status ->
+                            alertRepository.markStoredInClickHouse(ids, storageTime)));
+                    }
+                } catch (RuntimeException e) {
+                    log.error("Error storing batch of {} alerts to ClickHouse", typeAlerts.size(), e);
+                    failures.add(e);
+                }
+            });
+            if (!failures.isEmpty()) {
+                RuntimeException failure = failures.get(0);
+                failures.subList(1, failures.size()).forEach(failure::addSuppressed);
+                throw failure;
             }
-        } catch (Exception e) {
-            log.error("Error getting field value: {}", fieldName, e);
-            return null;
-        }
+        });
     }
 
-    private void saveAlertTags(Alert alert, List<String> tagNames, AlertTaggingRule rule) {
-        for (String tagName : tagNames) {
-            try {
-                Tag tag = tagRepository.findByName(tagName).orElseGet(() -> {
-                    Tag newTag = new Tag();
-                    newTag.setName(tagName);
-                    newTag.setCategory("auto");
-                    newTag.setCreatedAt(LocalDateTime.now());
-                    return tagRepository.save(newTag);
-                });
+    private static class TagAssignment {
+        final String tagName;
+        final AlertTaggingRule rule;
 
-                AlertTagMapping mapping = new AlertTagMapping();
-                mapping.setAlert(alert);
-                mapping.setTag(tag);
-                mapping.setTaggingRule(rule);
-                mapping.setIsAutoTagged(true);
-                mapping.setCreatedAt(LocalDateTime.now());
+        TagAssignment(String tagName, AlertTaggingRule rule) {
+            this.tagName = tagName;
+            this.rule = rule;
+        }
+    }
 
-                tagMappingRepository.save(mapping);
+    /**
+     * 告警本身无法处理（无法解析、告警类型不存在等），重试也不会成功
+     */
+    public static class UnprocessableAlertException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
 
-            } catch (Exception e) {
-                log.error("Error saving tag: {}", tagName, e);
-            }
+        public UnprocessableAlertException(String message) {
+            super(message);
         }
     }
 
-    private void extractObservables(Alert alert) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                observableService.extractAndSaveObservables(alert);
-            } catch (Exception e) {
-                log.error("Error extracting observables for alert: {}", alert.getAlertUuid(), e);
-            }
-        });
+    /**
+     * 批量处理结果：成功处理的数量、失败的记录以及异步阶段完成的future。
+     * 不在失败列表中的记录以getCompletion的结果为准：整批处理时共用一个future，逐条处理时每条各有一个
+     */
+    public static class BatchResult {
+        private int processedCount;
+        private final List<FailedRecord> failures = new ArrayList<>();
+        private CompletableFuture<Void> completion = CompletableFuture.completedFuture(null);
+        private final Map<AlertData, CompletableFuture<Void>> recordCompletions = new IdentityHashMap<>();
+
+        void addFailure(AlertData alertData, String reason, boolean retryable) {
+            failures.add(new FailedRecord(alertData, reason, retryable));
+        }
+
+        public int getProcessedCount() { return processedCount; }
+        void setProcessedCount(int processedCount) { this.processedCount = processedCount; }
+        public List<FailedRecord> getFailures() { return failures; }
+        public CompletableFuture<Void> getCompletion() { return completion; }
+        void setCompletion(CompletableFuture<Void> completion) { this.completion = completion; }
+        public CompletableFuture<Void> getCompletion(AlertData alertData) {
+            return recordCompletions.getOrDefault(alertData, completion);
+        }
+        void setCompletion(AlertData alertData, CompletableFuture<Void> completion) {
+            recordCompletions.put(alertData, completion);
+        }
     }
 
-    private void storeToClickHouse(Alert alert, KafkaDataSourceConfig config) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                String clickhouseId = clickHouseStorageService.storeAlert(alert, config.getAlertTypeId());
-                alert.setClickhouseId(clickhouseId);
-                alert.setStorageTime(LocalDateTime.now());
-                alertRepository.save(alert);
-            } catch (Exception e) {
-                log.error("Error storing alert to ClickHouse: {}", alert.getAlertUuid(), e);
-            }
-        });
+    public static class FailedRecord {
+        private final AlertData alertData;
+        private final String reason;
+        private final boolean retryable;
+
+        FailedRecord(AlertData alertData, String reason, boolean retryable) {
+            this.alertData = alertData;
+            this.reason = reason;
+            this.retryable = retryable;
+        }
+
+        public AlertData getAlertData() { return alertData; }
+        public String getReason() { return reason; }
+        public boolean isRetryable() { return retryable; }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,409 @@
+package com.alert.system.service;
+
+import com.alert.system.entity.Alert;
+import com.alert.system.entity.AlertFilterRule;
+import com.alert.system.entity.AlertTaggingRule;
+import com.alert.system.entity.ParsedAlert;
+import com.alert.system.repository.AlertFilterRuleRepository;
+import com.alert.system.repository.AlertTaggingRuleRepository;
+import com.alert.system.service.CompiledRuleSet.CompiledRule;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 内存规则引擎
+ * 启用的过滤规则和打标签规则在加载时一次性编译，按告警类型和子类型建立索引；
+ * 规则变更后重新编译并整体替换，处理每条告警时不访问数据库
+ *
+ * 正则规则默认在线性时间的正则集合自动机上求值，保存规则时拒绝自动机不支持的写法；
+ * 仍需java.util.regex逐条求值的正则受步数预算限制，超出预算的规则会被自动停用并记录
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class AlertRuleEngine {
+
+    private final AlertFilterRuleRepository filterRuleRepository;
+    private final AlertTaggingRuleRepository taggingRuleRepository;
+    private final ObjectMapper objectMapper;
+    private final RuleMetricsService ruleMetricsService;
+
+    private static final String KIND_FILTER = RuleMetricsService.RULE_TYPE_FILTER;
+    private static final String KIND_TAGGING = RuleMetricsService.RULE_TYPE_TAGGING;
+    private static final long RELOAD_RETRY_SECONDS = 10;
+
+    // 正则求值方式: linear(线性时间的正则集合自动机) 或 java(java.util.regex逐条匹配)
+    @Value("${app.rules.regex-engine:linear}")
+    private String regexEngine;
+
+    // java.util.regex单次求值允许读取字符的次数，0表示不限制
+    @Value("${app.rules.regex-step-budget:1000000}")
+    private int regexStepBudget;
+
+    private final Map<UUID, Map<String, Object>> regexViolations = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "rule-engine-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 规则集重新编译后的回调（例如把规则快照推送给常驻Flink作业）
+    private final List<Runnable> reloadListeners = new CopyOnWriteArrayList<>();
+    // 加载失败、等待在维护线程上重试的规则种类
+    private final Set<String> pendingReloads = ConcurrentHashMap.newKeySet();
+
+    private volatile CompiledRuleSet<AlertFilterRule> filterRules = CompiledRuleSet.empty();
+    private volatile CompiledRuleSet<AlertTaggingRule> taggingRules = CompiledRuleSet.empty();
+
+    @PostConstruct
+    public void initialize() {
+        ruleMetricsService.registerSource(this::drainMetrics);
+        // 首次加载失败时在维护线程上重试，直到成功
+        reloadOrRetry(KIND_FILTER);
+        reloadOrRetry(KIND_TAGGING);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        maintenanceExecutor.shutdownNow();
+    }
+
+    public boolean isLinearRegex() {
+        return !"java".equalsIgnoreCase(regexEngine);
+    }
+
+    /**
+     * 保存规则前校验匹配值：正则必须能编译，线性模式下还必须能由正则集合自动机求值；
+     * 复合条件必须能编译为条件树
+     */
+    public void validateMatchValue(String matchType, String matchValue) {
+        if (CompiledRuleSet.MATCH_TYPE_CONDITION.equalsIgnoreCase(matchType) && matchValue != null) {
+            RuleCondition.compile(matchValue, isLinearRegex(), regexStepBudget);
+            return;
+        }
+        if (!"regex".equalsIgnoreCase(matchType) || matchValue == null) {
+            return;
+        }
+        try {
+            Pattern.compile(matchValue, Pattern.CASE_INSENSITIVE);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid regex: " + e.getDescription());
+        }
+        if (isLinearRegex() && !new RegexSetMatcher().tryAdd(matchValue, 0)) {
+            throw new IllegalArgumentException("Regex uses constructs not supported by the linear-time engine "
+                + "(backreferences, lookaround, word boundaries, inline flags, possessive quantifiers, "
+                + "\\p classes or anchors inside the expression)");
+        }
+    }
+
+    /**
+     * 重新编译过滤规则；在事务中调用时推迟到事务提交后执行，保证读到已提交的规则
+     */
+    public void refreshFilterRules() {
+        runAfterCommit(() -> reloadOrRetry(KIND_FILTER));
+    }
+
+    /**
+     * 重新编译打标签规则；在事务中调用时推迟到事务提交后执行
+     */
+    public void refreshTaggingRules() {
+        runAfterCommit(() -> reloadOrRetry(KIND_TAGGING));
+    }
+
+    public synchronized void reloadFilterRules() {
+        List<AlertFilterRule> rules = filterRuleRepository.findByIsEnabledTrueOrderByPriorityDesc();
+        List<CompiledRule<AlertFilterRule>> compiled = new ArrayList<>(rules.size());
+        for (AlertFilterRule rule : rules) {
+            compiled.add(new CompiledRule<>(rule, rule.getId(), rule.getRuleName(), rule.getAlertType(),
+                rule.getAlertSubtype(), rule.getMatchField(), rule.getMatchType(), rule.getMatchValue(),
+                compiled.size()));
+        }
+        CompiledRuleSet<AlertFilterRule> previous = filterRules;
+        filterRules = new CompiledRuleSet<>(compiled, compileOptions(KIND_FILTER));
+        drainMetrics(KIND_FILTER, previous);
+        log.info("Compiled {} filter rules", compiled.size());
+        notifyReloadListeners();
+    }
+
+    public synchronized void reloadTaggingRules() {
+        List<AlertTaggingRule> rules = taggingRuleRepository.findByIsEnabledTrueOrderByPriorityDescCreatedAtAsc();
+        List<CompiledRule<AlertTaggingRule>> compiled = new ArrayList<>(rules.size());
+        for (AlertTaggingRule rule : rules) {
+            compiled.add(new CompiledRule<>(rule, rule.getId(), rule.getRuleName(), rule.getAlertType(),
+                rule.getAlertSubtype(), rule.getMatchField(), rule.getMatchType(), rule.getMatchValue(),
+                compiled.size()));
+        }
+        CompiledRuleSet<AlertTaggingRule> previous = taggingRules;
+        taggingRules = new CompiledRuleSet<>(compiled, compileOptions(KIND_TAGGING));
+        drainMetrics(KIND_TAGGING, previous);
+        log.info("Compiled {} tagging rules", compiled.size());
+        notifyReloadListeners();
+    }
+
+    public void addReloadListener(Runnable listener) {
+        reloadListeners.add(listener);
+    }
+
+    /**
+     * 当前生效的全部过滤规则，按优先级排列
+     */
+    public List<AlertFilterRule> getAllFilterRules() {
+        return toEntities(filterRules.getRules());
+    }
+
+    /**
+     * 当前生效的全部打标签规则，按优先级排列
+     */
+    public List<AlertTaggingRule> getAllTaggingRules() {
+        return toEntities(taggingRules.getRules());
+    }
+
+    private void notifyReloadListeners() {
+        for (Runnable listener : reloadListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                log.error("Rule reload listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * 按生产环境的编译选项单独编译一条未保存的规则（用于回测），不加入当前规则集，也不计入执行指标
+     * 正则超出预算时只调用onRegexBudgetExceeded，不停用任何规则
+     */
+    public <R> CompiledRuleSet<R> compileDraft(R rule, String ruleName, Integer alertType, String alertSubtype,
+                                               String matchField, String matchType, String matchValue,
+                                               Consumer<CompiledRule<?>> onRegexBudgetExceeded) {
+        validateMatchValue(matchType, matchValue);
+        CompiledRule<R> compiled = new CompiledRule<>(rule, UUID.randomUUID(), ruleName, alertType, alertSubtype,
+            matchField, matchType, matchValue, 0);
+        return new CompiledRuleSet<>(List.of(compiled), new CompiledRuleSet.Options()
+            .linearRegex(isLinearRegex())
+            .regexStepBudget(regexStepBudget)
+            .onRegexBudgetExceeded(onRegexBudgetExceeded));
+    }
+
+    /**
+     * 返回告警命中的优先级最高的过滤规则，没有命中时返回null
+     */
+    public AlertFilterRule matchFilterRule(Alert alert) {
+        CompiledRule<AlertFilterRule> matched = filterRules
+            .bucketFor(alert.getAlertType().getId(), alert.getAlertSubtype())
+            .firstMatch(fieldValues(alert));
+        return matched != null ? matched.getRule() : null;
+    }
+
+    /**
+     * 返回告警命中的全部打标签规则，按优先级排列
+     */
+    public List<AlertTaggingRule> matchTaggingRules(Alert alert) {
+        List<CompiledRule<AlertTaggingRule>> matched = taggingRules
+            .bucketFor(alert.getAlertType().getId(), alert.getAlertSubtype())
+            .allMatches(fieldValues(alert));
+
+        List<AlertTaggingRule> rules = new ArrayList<>(matched.size());
+        for (CompiledRule<AlertTaggingRule> rule : matched) {
+            rules.add(rule.getRule());
+        }
+        return rules;
+    }
+
+    /**
+     * 适用于告警的过滤规则（提交给Flink等外部计算引擎时使用）
+     */
+    public List<AlertFilterRule> getFilterRules(Alert alert) {
+        return toEntities(filterRules.bucketFor(alert.getAlertType().getId(), alert.getAlertSubtype()).getRules());
+    }
+
+    /**
+     * 适用于告警的打标签规则（提交给Flink等外部计算引擎时使用）
+     */
+    public List<AlertTaggingRule> getTaggingRules(Alert alert) {
+        return toEntities(taggingRules.bucketFor(alert.getAlertType().getId(), alert.getAlertSubtype()).getRules());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("filterRules", filterRules.size());
+        stats.put("taggingRules", taggingRules.size());
+        stats.put("regexEngine", isLinearRegex() ? "linear" : "java");
+        stats.put("regexStepBudget", regexStepBudget);
+        stats.put("regexViolations", getRegexViolations());
+        return stats;
+    }
+
+    /**
+     * 规则被修改、重新启用或删除后，清除其超出预算的记录
+     */
+    public void clearRegexViolation(UUID ruleId) {
+        regexViolations.remove(ruleId);
+    }
+
+    /**
+     * 因超出求值预算被自动停用的正则规则
+     */
+    public List<Map<String, Object>> getRegexViolations() {
+        return new ArrayList<>(regexViolations.values());
+    }
+
+    /**
+     * 按当前的正则求值方式编译条件树，供规则以外的条件（如CEP模式的步骤）使用
+     */
+    public RuleCondition compileCondition(String json) {
+        return RuleCondition.compile(json, isLinearRegex(), regexStepBudget);
+    }
+
+    /**
+     * 告警字段取值：优先取解析后的字段，其次取告警实体上的标准字段
+     */
+    public String getAlertFieldValue(Alert alert, String fieldName) {
+        try {
+            String value = ParsedAlert.of(alert, objectMapper).getText(fieldName);
+            if (value != null) {
+                return value;
+            }
+
+            switch (fieldName.toLowerCase()) {
+                case "source_ip": return alert.getSourceIp();
+                case "dest_ip": return alert.getDestIp();
+                case "severity": return alert.getSeverity();
+                case "priority": return alert.getPriority();
+                case "title": return alert.getTitle();
+                case "description": return alert.getDescription();
+                case "alert_subtype": return alert.getAlertSubtype();
+                default: return null;
+            }
+        } catch (Exception e) {
+            log.error("Error getting field value: {}", fieldName, e);
+            return null;
+        }
+    }
+
+    /**
+     * 把规则集中按匹配器汇总的执行计数转入RuleMetricsService
+     */
+    private void drainMetrics() {
+        drainMetrics(KIND_FILTER, filterRules);
+        drainMetrics(KIND_TAGGING, taggingRules);
+    }
+
+    private <R> void drainMetrics(String kind, CompiledRuleSet<R> ruleSet) {
+        ruleSet.drainMetrics((rule, evaluations, hits, nanos, maxNanos) -> ruleMetricsService.record(
+            kind, rule.getId(), rule.getRuleName(), evaluations, hits, nanos, maxNanos));
+    }
+
+    private CompiledRuleSet.Options compileOptions(String kind) {
+        return new CompiledRuleSet.Options()
+            .linearRegex(isLinearRegex())
+            .regexStepBudget(regexStepBudget)
+            .onRegexBudgetExceeded(rule -> onRegexBudgetExceeded(kind, rule));
+    }
+
+    /**
+     * 正则求值超出预算：记录并在后台停用该规则，停用后重新编译规则集
+     * 超出预算的正则在当前规则集中已不再求值，因此告警处理线程不需要等待停用完成
+     */
+    private void onRegexBudgetExceeded(String kind, CompiledRule<?> rule) {
+        Map<String, Object> violation = new LinkedHashMap<>();
+        violation.put("ruleId", rule.getId());
+        violation.put("ruleName", rule.getRuleName());
+        violation.put("ruleKind", kind);
+        violation.put("matchField", rule.getMatchField());
+        violation.put("matchValue", rule.getMatchValue());
+        violation.put("stepBudget", regexStepBudget);
+        violation.put("disabledAt", LocalDateTime.now());
+        if (regexViolations.putIfAbsent(rule.getId(), violation) != null) {
+            return;
+        }
+
+        log.warn("Disabling {} rule {} ({}): regex exceeded step budget of {}",
+            kind, rule.getRuleName(), rule.getId(), regexStepBudget);
+
+        maintenanceExecutor.submit(() -> {
+            try {
+                if (KIND_FILTER.equals(kind)) {
+                    filterRuleRepository.findById(rule.getId()).ifPresent(entity -> {
+                        entity.setIsEnabled(false);
+                        filterRuleRepository.save(entity);
+                    });
+                    reloadFilterRules();
+                } else {
+                    taggingRuleRepository.findById(rule.getId()).ifPresent(entity -> {
+                        entity.setIsEnabled(false);
+                        taggingRuleRepository.save(entity);
+                    });
+                    reloadTaggingRules();
+                }
+            } catch (Exception e) {
+                log.error("Failed to disable {} rule {}", kind, rule.getId(), e);
+            }
+        });
+    }
+
+    private Function<String, String> fieldValues(Alert alert) {
+        return fieldName -> getAlertFieldValue(alert, fieldName);
+    }
+
+    private static <R> List<R> toEntities(List<CompiledRule<R>> compiled) {
+        List<R> rules = new ArrayList<>(compiled.size());
+        for (CompiledRule<R> rule : compiled) {
+            rules.add(rule.getRule());
+        }
+        return rules;
+    }
+
+    /**
+     * 重新编译一类规则；失败时记录日志并保留当前规则集，稍后在维护线程上重试，不把异常抛给调用方
+     */
+    private void reloadOrRetry(String kind) {
+        try {
+            if (KIND_FILTER.equals(kind)) {
+                reloadFilterRules();
+            } else {
+                reloadTaggingRules();
+            }
+        } catch (Exception e) {
+            log.error("Failed to reload {} rules, keeping the current rule set and retrying in {}s",
+                kind, RELOAD_RETRY_SECONDS, e);
+            if (!maintenanceExecutor.isShutdown() && pendingReloads.add(kind)) {
+                maintenanceExecutor.schedule(() -> {
+                    pendingReloads.remove(kind);
+                    reloadOrRetry(kind);
+                }, RELOAD_RETRY_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private void runAfterCommit(Runnable reload) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reload.run();
+                }
+            });
+        } else {
+            reload.run();
+        }
+    }
+}
@@ -28,6 +28,9 @@ public class AlertTaggingRuleService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private AlertRuleEngine ruleEngine;
+
     /**
      * Get all tagging rules with pagination
      */
@@ -57,6 +60,8 @@ public class AlertTaggingRuleService {
      * Create a new tagging rule
      */
     public AlertTaggingRuleResponse createRule(AlertTaggingRuleRequest request) {
+        ruleEngine.validateMatchValue(request.getMatchType(), request.getMatchValue());
+
         AlertTaggingRule rule = new AlertTaggingRule();
         mapRequestToEntity(request, rule);
 
@@ -65,6 +70,7 @@ public class AlertTaggingRuleService {
         rule.setCreatedBy(currentUser);
 
         AlertTaggingRule savedRule = taggingRuleRepository.save(rule);
+        ruleEngine.refreshTaggingRules();
         return AlertTaggingRuleResponse.fromEntity(savedRule);
     }
 
@@ -74,10 +80,13 @@ public class AlertTaggingRuleService {
     public AlertTaggingRuleResponse updateRule(UUID id, AlertTaggingRuleRequest request) {
         AlertTaggingRule existingRule = taggingRuleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Tagging rule not found with id: " + id));
+        ruleEngine.validateMatchValue(request.getMatchType(), request.getMatchValue());
 
         mapRequestToEntity(request, existingRule);
 
         AlertTaggingRule updatedRule = taggingRuleRepository.save(existingRule);
+        ruleEngine.clearRegexViolation(id);
+        ruleEngine.refreshTaggingRules();
         return AlertTaggingRuleResponse.fromEntity(updatedRule);
     }
 
@@ -88,6 +97,8 @@ public class AlertTaggingRuleService {
         AlertTaggingRule rule = taggingRuleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Tagging rule not found with id: " + id));
         taggingRuleRepository.delete(rule);
+        ruleEngine.clearRegexViolation(id);
+        ruleEngine.refreshTaggingRules();
     }
 
     /**
@@ -99,6 +110,8 @@ public class AlertTaggingRuleService {
 
         rule.setIsEnabled(!rule.getIsEnabled());
         AlertTaggingRule updatedRule = taggingRuleRepository.save(rule);
+        ruleEngine.clearRegexViolation(id);
+        ruleEngine.refreshTaggingRules();
         return AlertTaggingRuleResponse.fromEntity(updatedRule);
     }
 
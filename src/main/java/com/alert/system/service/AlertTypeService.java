@@ -20,6 +20,7 @@ public class AlertTypeService {
     private final AlertTypeRepository alertTypeRepository;
     private final AlertSubtypeRepository alertSubtypeRepository;
     private final AlertFieldRepository alertFieldRepository;
+    private final AlertExtractionPlanCache extractionPlanCache;
 
     public List<AlertType> getAllAlertTypes() {
         return alertTypeRepository.findAllByOrderByDisplayOrderAsc();
@@ -51,12 +52,14 @@ public class AlertTypeService {
             existingType.setDisplayOrder(alertType.getDisplayOrder());
         }
 
+        extractionPlanCache.invalidate(id);
         return alertTypeRepository.save(existingType);
     }
 
     @Transactional
     public void deleteAlertType(Integer id) {
         alertTypeRepository.deleteById(id);
+        extractionPlanCache.invalidate(id);
     }
 
     public List<AlertSubtype> getAlertSubtypesByTypeId(Integer typeId) {
@@ -115,6 +118,7 @@ public class AlertTypeService {
         AlertType alertType = alertTypeRepository.findById(alertField.getAlertTypeId())
                 .orElseThrow(() -> new RuntimeException("AlertType not found with id: " + alertField.getAlertTypeId()));
         alertField.setAlertType(alertType);
+        extractionPlanCache.invalidate(alertType.getId());
         return alertFieldRepository.save(alertField);
     }
 
@@ -122,6 +126,7 @@ public class AlertTypeService {
     public AlertField updateAlertField(Integer id, AlertField alertField) {
         AlertField existingField = alertFieldRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("AlertField not found with id: " + id));
+        extractionPlanCache.invalidate(existingField.getAlertTypeId());
 
         existingField.setFieldName(alertField.getFieldName());
         existingField.setFieldLabel(alertField.getFieldLabel());
@@ -136,6 +141,7 @@ public class AlertTypeService {
             AlertType alertType = alertTypeRepository.findById(alertField.getAlertTypeId())
                     .orElseThrow(() -> new RuntimeException("AlertType not found with id: " + alertField.getAlertTypeId()));
             existingField.setAlertType(alertType);
+            extractionPlanCache.invalidate(alertType.getId());
         }
 
         return alertFieldRepository.save(existingField);
@@ -143,6 +149,8 @@ public class AlertTypeService {
 
     @Transactional
     public void deleteAlertField(Integer id) {
+        alertFieldRepository.findById(id)
+                .ifPresent(field -> extractionPlanCache.invalidate(field.getAlertTypeId()));
         alertFieldRepository.deleteById(id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,55 @@
+package com.alert.system.service;
+
+/**
+ * 限制读取次数的字符序列，用于给java.util.regex的单次求值设置步数预算
+ * 回溯型正则引擎的每一步都会读取字符，读取次数超过预算时抛出BudgetExceededException中止求值
+ */
+public class BudgetedCharSequence implements CharSequence {
+
+    private final String value;
+    private final int budget;
+    private int steps;
+
+    /**
+     * @param budget 允许读取字符的次数，0表示不限制
+     */
+    public BudgetedCharSequence(String value, int budget) {
+        this.value = value;
+        this.budget = budget > 0 ? budget : Integer.MAX_VALUE;
+    }
+
+    public void reset() {
+        steps = 0;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (++steps > budget) {
+            throw new BudgetExceededException(budget);
+        }
+        return value.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return value.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return value.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+
+    public static class BudgetExceededException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public BudgetExceededException(int budget) {
+            super("Regex evaluation exceeded step budget of " + budget, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.alert.system.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 以单字节字符视图包装UTF-8字节数组，供扫描器和正则直接扫描而无需先解码成字符串
+ * 每个字节对应一个字符，因此匹配到的区间即为字节区间。只有ASCII字节按原字符呈现，
+ * 多字节字符的每个字节都呈现为U+FFFD：它不是字母、数字或空白，不会被当作Latin-1字符匹配进标识符，
+ * 非ASCII文本在该视图上只适合做ASCII模式的匹配。
+ * 命中的片段通过 decode 解码，区间两端落在多字节字符中间时扩展到完整字符，不会产生截断的字符
+ */
+public class ByteCharSequence implements CharSequence {
+
+    private static final char NON_ASCII = '\uFFFD';
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    public ByteCharSequence(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    private ByteCharSequence(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        byte b = bytes[offset + index];
+        return b >= 0 ? (char) b : NON_ASCII;
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length);
+        }
+        return new ByteCharSequence(bytes, offset + start, end - start);
+    }
+
+    /**
+     * 将[start, end)区间的字节按UTF-8解码，两端扩展到所在字符的边界
+     */
+    public String decode(int start, int end) {
+        int from = offset + start;
+        int to = offset + end;
+        while (from > offset && isContinuation(bytes[from])) {
+            from--;
+        }
+        while (to < offset + length && isContinuation(bytes[to])) {
+            to++;
+        }
+        return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    @Override
+    public String toString() {
+        return decode(0, length);
+    }
+}
@@ -3,6 +3,7 @@ package com.alert.system.service;
 import com.alert.system.entity.Alert;
 import com.alert.system.entity.AlertStorageMapping;
 import com.alert.system.entity.DataStorageConfig;
+import com.alert.system.entity.ParsedAlert;
 import com.alert.system.repository.AlertStorageMappingRepository;
 import com.alert.system.repository.DataStorageConfigRepository;
 import com.clickhouse.jdbc.ClickHouseDataSource;
@@ -17,6 +18,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -26,37 +28,67 @@ public class ClickHouseStorageService {
     private final AlertStorageMappingRepository storageMappingRepository;
     private final DataStorageConfigRepository storageConfigRepository;
     private final ObjectMapper objectMapper;
+    private final PipelineExecutorService pipelineExecutorService;
 
     private final Map<Long, DataSource> dataSourceCache = new ConcurrentHashMap<>();
     private static final DateTimeFormatter CLICKHOUSE_DATETIME_FORMAT =
         DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    public String storeAlert(Alert alert, Long alertTypeId) {
-        try {
-            AlertStorageMapping mapping = storageMappingRepository
-                .findByAlertType_Id(alertTypeId.intValue())
-                .orElseThrow(() -> new RuntimeException("No storage mapping found for alert type: " + alertTypeId));
-
-            DataStorageConfig storageConfig = mapping.getStorageConfig();
-            if (storageConfig == null || !"clickhouse".equalsIgnoreCase(storageConfig.getStorageType())) {
-                log.warn("No ClickHouse storage configured for alert type: {}", alertTypeId);
-                return null;
-            }
+    /**
+     * 批量存储同一告警类型的告警，整批只执行一次INSERT
+     * 返回写入的告警，未配置ClickHouse存储时返回空列表；写入失败时抛出异常，由调用方决定重试
+     */
+    public List<Alert> storeAlerts(List<Alert> alerts, Long alertTypeId) {
+        if (alerts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        AlertStorageMapping mapping = findClickHouseMapping(alertTypeId);
+        if (mapping == null) {
+            return Collections.emptyList();
+        }
 
+        DataStorageConfig storageConfig = mapping.getStorageConfig();
+        try {
             String tableName = mapping.getTableName();
-            ensureTableExists(storageConfig, tableName, alert);
+            pipelineExecutorService.withStorage(storageConfig, () -> {
+                ensureTableExists(storageConfig, tableName, alerts.get(0));
+
+                try (Connection conn = getConnection(storageConfig);
+                     PreparedStatement pstmt = conn.prepareStatement(buildInsertSql(tableName))) {
 
-            String clickhouseId = insertAlert(storageConfig, tableName, alert);
+                    for (Alert alert : alerts) {
+                        bindAlert(pstmt, alert);
+                        pstmt.addBatch();
+                    }
+                    pstmt.executeBatch();
+                }
+                return null;
+            });
 
-            log.debug("Stored alert {} in ClickHouse table {} with ID {}",
-                alert.getAlertUuid(), tableName, clickhouseId);
+            log.debug("Stored {} alerts in ClickHouse table {}", alerts.size(), tableName);
 
-            return clickhouseId;
+            return alerts;
 
         } catch (Exception e) {
-            log.error("Error storing alert to ClickHouse", e);
+            throw new RuntimeException("Failed to store " + alerts.size() + " alerts to ClickHouse", e);
+        }
+    }
+
+    /**
+     * 告警类型的存储映射，没有映射或映射的不是ClickHouse时返回null
+     */
+    private AlertStorageMapping findClickHouseMapping(Long alertTypeId) {
+        AlertStorageMapping mapping = storageMappingRepository.findByAlertType_Id(alertTypeId.intValue()).orElse(null);
+        if (mapping == null) {
+            log.warn("No storage mapping found for alert type: {}", alertTypeId);
+            return null;
+        }
+        DataStorageConfig storageConfig = mapping.getStorageConfig();
+        if (storageConfig == null || !"clickhouse".equalsIgnoreCase(storageConfig.getStorageType())) {
+            log.warn("No ClickHouse storage configured for alert type: {}", alertTypeId);
             return null;
         }
+        return mapping;
     }
 
     private void ensureTableExists(DataStorageConfig config, String tableName, Alert alert) {
@@ -112,14 +144,8 @@ public class ClickHouseStorageService {
         }
     }
 
-    private String insertAlert(DataStorageConfig config, String tableName, Alert alert) throws Exception {
-        // 从parsedData JSON中提取字段值
-        Map<String, Object> parsedData = new HashMap<>();
-        if (alert.getParsedData() != null && !alert.getParsedData().isEmpty()) {
-            parsedData = new ObjectMapper().readValue(alert.getParsedData(), Map.class);
-        }
-
-        String insertSql = String.format("""
+    private String buildInsertSql(String tableName) {
+        return String.format("""
             INSERT INTO %s (
                 alert_uuid, alert_type_id, alert_subtype, alert_time,
                 source_ip, dest_ip, source_port, dest_port,
@@ -128,37 +154,38 @@ public class ClickHouseStorageService {
                 kafka_offset, processing_time
             ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
             """, tableName);
+    }
 
-        try (Connection conn = getConnection(config);
-             PreparedStatement pstmt = conn.prepareStatement(insertSql)) {
-
-            pstmt.setString(1, alert.getAlertUuid());
-            pstmt.setInt(2, alert.getAlertType().getId());
-            pstmt.setString(3, alert.getAlertSubtype());
-            pstmt.setTimestamp(4, Timestamp.valueOf(alert.getAlertTime()));
-
-            // 从parsedData中提取字段，如果不存在则设置为null
-            pstmt.setString(5, getStringFromMap(parsedData, "src_ip"));
-            pstmt.setString(6, getStringFromMap(parsedData, "dst_ip"));
-            pstmt.setObject(7, parsedData.get("src_port"));
-            pstmt.setObject(8, parsedData.get("dst_port"));
-            pstmt.setString(9, getStringFromMap(parsedData, "alarm_severity"));
-            pstmt.setString(10, getStringFromMap(parsedData, "alarm_priority"));
-            pstmt.setString(11, getStringFromMap(parsedData, "alarm_name"));
-            pstmt.setString(12, getStringFromMap(parsedData, "alarm_description"));
-
+    private void bindAlert(PreparedStatement pstmt, Alert alert) throws Exception {
+        // 从解析结果中提取字段值
+        Map<String, Object> parsedData = ParsedAlert.of(alert, objectMapper).getFields();
+
+        pstmt.setString(1, alert.getAlertUuid());
+        pstmt.setInt(2, alert.getAlertType().getId());
+        pstmt.setString(3, alert.getAlertSubtype());
+        pstmt.setTimestamp(4, Timestamp.valueOf(alert.getAlertTime()));
+
+        // 从parsedData中提取字段，如果不存在则设置为null
+        pstmt.setString(5, getStringFromMap(parsedData, "src_ip"));
+        pstmt.setString(6, getStringFromMap(parsedData, "dst_ip"));
+        pstmt.setObject(7, parsedData.get("src_port"));
+        pstmt.setObject(8, parsedData.get("dst_port"));
+        pstmt.setString(9, getStringFromMap(parsedData, "alarm_severity"));
+        pstmt.setString(10, getStringFromMap(parsedData, "alarm_priority"));
+        pstmt.setString(11, getStringFromMap(parsedData, "alarm_name"));
+        pstmt.setString(12, getStringFromMap(parsedData, "alarm_description"));
+
+        if (alert.getRawBytes() != null) {
+            pstmt.setBytes(13, alert.getRawBytes());
+        } else {
             pstmt.setString(13, alert.getRawData());
-            pstmt.setString(14, alert.getParsedData());
-            pstmt.setString(15, alert.getKafkaTopic());
-            pstmt.setObject(16, alert.getKafkaPartition());
-            pstmt.setObject(17, alert.getKafkaOffset());
-            pstmt.setTimestamp(18, alert.getProcessingTime() != null ?
-                Timestamp.valueOf(alert.getProcessingTime()) : Timestamp.valueOf(LocalDateTime.now()));
-
-            pstmt.executeUpdate();
-
-            return alert.getAlertUuid();
         }
+        pstmt.setString(14, alert.getParsedData());
+        pstmt.setString(15, alert.getKafkaTopic());
+        pstmt.setObject(16, alert.getKafkaPartition());
+        pstmt.setObject(17, alert.getKafkaOffset());
+        pstmt.setTimestamp(18, alert.getProcessingTime() != null ?
+            Timestamp.valueOf(alert.getProcessingTime()) : Timestamp.valueOf(LocalDateTime.now()));
     }
 
     private String getStringFromMap(Map<String, Object> map, String key) {
@@ -214,6 +241,83 @@ public class ClickHouseStorageService {
         return results;
     }
 
+    /**
+     * 按告警类型的存储映射流式读取最近days天的告警，每读满chunkSize条交给chunkConsumer处理一次
+     * 只执行SELECT，读出的告警是不受JPA管理的临时对象；maxAlerts大于0时最多读取该数量
+     * 返回读取的告警数
+     */
+    public long scanRecentAlerts(Integer alertTypeId, int days, int chunkSize, long maxAlerts,
+                                 Consumer<List<Alert>> chunkConsumer) throws Exception {
+        AlertStorageMapping mapping = storageMappingRepository
+            .findByAlertType_Id(alertTypeId)
+            .orElseThrow(() -> new RuntimeException("No storage mapping found for alert type: " + alertTypeId));
+
+        DataStorageConfig storageConfig = mapping.getStorageConfig();
+        if (storageConfig == null || !"clickhouse".equalsIgnoreCase(storageConfig.getStorageType())) {
+            throw new RuntimeException("No ClickHouse storage configured for alert type: " + alertTypeId);
+        }
+
+        String tableName = mapping.getTableName();
+        if (!tableExists(storageConfig, tableName)) {
+            log.warn("Table {} does not exist in ClickHouse", tableName);
+            return 0;
+        }
+
+        String query = String.format("""
+            SELECT alert_uuid, alert_subtype, alert_time, source_ip, dest_ip,
+                   severity, priority, title, description, parsed_data
+            FROM %s
+            WHERE alert_type_id = ? AND alert_time >= ?
+            ORDER BY alert_time
+            %s
+            """, tableName, maxAlerts > 0 ? "LIMIT " + maxAlerts : "");
+
+        return pipelineExecutorService.withStorage(storageConfig, () -> {
+            long scanned = 0;
+            try (Connection conn = getConnection(storageConfig);
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
+
+                pstmt.setInt(1, alertTypeId);
+                pstmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now().minusDays(days)));
+                pstmt.setFetchSize(chunkSize);
+
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    List<Alert> chunk = new ArrayList<>(chunkSize);
+                    while (rs.next()) {
+                        chunk.add(toAlert(rs, mapping));
+                        scanned++;
+                        if (chunk.size() >= chunkSize) {
+                            chunkConsumer.accept(chunk);
+                            chunk = new ArrayList<>(chunkSize);
+                        }
+                    }
+                    if (!chunk.isEmpty()) {
+                        chunkConsumer.accept(chunk);
+                    }
+                }
+            }
+            return scanned;
+        });
+    }
+
+    private Alert toAlert(ResultSet rs, AlertStorageMapping mapping) throws SQLException {
+        Alert alert = new Alert();
+        alert.setAlertUuid(rs.getString("alert_uuid"));
+        alert.setAlertType(mapping.getAlertType());
+        alert.setAlertSubtype(rs.getString("alert_subtype"));
+        Timestamp alertTime = rs.getTimestamp("alert_time");
+        alert.setAlertTime(alertTime != null ? alertTime.toLocalDateTime() : null);
+        alert.setSourceIp(rs.getString("source_ip"));
+        alert.setDestIp(rs.getString("dest_ip"));
+        alert.setSeverity(rs.getString("severity"));
+        alert.setPriority(rs.getString("priority"));
+        alert.setTitle(rs.getString("title"));
+        alert.setDescription(rs.getString("description"));
+        alert.setParsedData(rs.getString("parsed_data"));
+        alert.setClickhouseTable(mapping.getTableName());
+        return alert;
+    }
+
     public long countAlerts(String tableName, String whereClause) {
         DataStorageConfig defaultConfig = storageConfigRepository
             .findByIsDefault(true)
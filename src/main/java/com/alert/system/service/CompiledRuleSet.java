@@ -0,0 +1,570 @@
+package com.alert.system.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 编译后的一组规则（过滤规则或打标签规则），创建后不可变，整体替换
+ * 规则按告警类型和子类型建立索引：子类型为空的规则对该类型的所有子类型生效。
+ * 每个(类型, 子类型)对应一个RuleBucket，桶内规则按优先级排序，序号即为优先级顺序
+ */
+@Slf4j
+public class CompiledRuleSet<R> {
+
+    private static final String ANY_SUBTYPE = "";
+    static final String MATCH_TYPE_CONDITION = "condition";
+
+    private final List<CompiledRule<R>> rules;
+    private final Map<Integer, Map<String, RuleBucket<R>>> buckets = new HashMap<>();
+
+    /**
+     * @param rules 已按优先级从高到低排序的规则
+     */
+    public CompiledRuleSet(List<CompiledRule<R>> rules) {
+        this(rules, new Options());
+    }
+
+    /**
+     * @param rules   已按优先级从高到低排序的规则
+     * @param options 编译选项
+     */
+    public CompiledRuleSet(List<CompiledRule<R>> rules, Options options) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+
+        // 复合条件每条规则只编译一次，同一规则出现在多个桶中时共享
+        Map<CompiledRule<R>, RuleCondition> conditions = new IdentityHashMap<>();
+        RuleCondition.Registry registry = new RuleCondition.Registry();
+        for (CompiledRule<R> rule : this.rules) {
+            if (MATCH_TYPE_CONDITION.equals(rule.getMatchType()) && rule.getMatchValue() != null) {
+                try {
+                    conditions.put(rule, RuleCondition.compile(rule.getMatchValue(),
+                        options.linearRegex, options.regexStepBudget, registry));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Skipping rule {} with invalid condition: {}", rule.getRuleName(), e.getMessage());
+                }
+            }
+        }
+
+        Map<Integer, Map<String, List<CompiledRule<R>>>> grouped = new HashMap<>();
+        for (CompiledRule<R> rule : this.rules) {
+            String subtype = rule.getAlertSubtype() != null ? rule.getAlertSubtype() : ANY_SUBTYPE;
+            grouped.computeIfAbsent(rule.getAlertType(), t -> new HashMap<>())
+                .computeIfAbsent(subtype, s -> new ArrayList<>())
+                .add(rule);
+        }
+
+        grouped.forEach((type, bySubtype) -> {
+            List<CompiledRule<R>> typeWide = bySubtype.getOrDefault(ANY_SUBTYPE, Collections.emptyList());
+            Map<String, RuleBucket<R>> typeBuckets = new HashMap<>();
+            typeBuckets.put(ANY_SUBTYPE, new RuleBucket<>(typeWide, conditions, registry, options));
+
+            bySubtype.forEach((subtype, subtypeRules) -> {
+                if (!ANY_SUBTYPE.equals(subtype)) {
+                    typeBuckets.put(subtype, new RuleBucket<>(mergeByOrder(typeWide, subtypeRules), conditions, registry,
+                        options));
+                }
+            });
+            buckets.put(type, typeBuckets);
+        });
+    }
+
+    public static <R> CompiledRuleSet<R> empty() {
+        return new CompiledRuleSet<>(Collections.emptyList());
+    }
+
+    /**
+     * 获取适用于告警类型/子类型的规则桶；没有子类型专属规则时返回该类型的通用规则桶
+     */
+    public RuleBucket<R> bucketFor(Integer alertType, String alertSubtype) {
+        Map<String, RuleBucket<R>> typeBuckets = buckets.get(alertType);
+        if (typeBuckets == null) {
+            return RuleBucket.empty();
+        }
+        RuleBucket<R> bucket = alertSubtype != null ? typeBuckets.get(alertSubtype) : null;
+        return bucket != null ? bucket : typeBuckets.get(ANY_SUBTYPE);
+    }
+
+    public List<CompiledRule<R>> getRules() {
+        return rules;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    /**
+     * 取出上次调用以来的规则执行计数
+     * 匹配器按字段分组求值，求值次数和共享匹配器（exact、contains、正则集合）的耗时记在分组上，
+     * 取出时平均分摊到组内规则；逐条求值的正则和复合条件单独计时
+     */
+    public void drainMetrics(MetricsSink<R> sink) {
+        Set<RuleBucket<R>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map<String, RuleBucket<R>> typeBuckets : buckets.values()) {
+            for (RuleBucket<R> bucket : typeBuckets.values()) {
+                if (seen.add(bucket)) {
+                    bucket.drainMetrics(sink);
+                }
+            }
+        }
+        for (CompiledRule<R> rule : rules) {
+            long hits = rule.hits.sumThenReset();
+            if (hits > 0) {
+                sink.accept(rule, 0, hits, 0, 0);
+            }
+        }
+    }
+
+    public interface MetricsSink<R> {
+        void accept(CompiledRule<R> rule, long evaluations, long hits, long nanos, long maxNanos);
+    }
+
+    private static <R> List<CompiledRule<R>> mergeByOrder(List<CompiledRule<R>> a, List<CompiledRule<R>> b) {
+        List<CompiledRule<R>> merged = new ArrayList<>(a.size() + b.size());
+        merged.addAll(a);
+        merged.addAll(b);
+        merged.sort(Comparator.comparingInt(CompiledRule::getOrder));
+        return merged;
+    }
+
+    /**
+     * 编译选项
+     */
+    public static class Options {
+        // true时正则规则优先使用线性时间的正则集合自动机；false时全部使用java.util.regex逐条匹配
+        private boolean linearRegex = true;
+        // 逐条匹配的正则单次求值允许读取字符的次数，0表示不限制
+        private int regexStepBudget;
+        // 正则求值超出预算时的回调
+        private Consumer<CompiledRule<?>> regexBudgetExceeded = rule -> { };
+
+        public Options linearRegex(boolean linearRegex) {
+            this.linearRegex = linearRegex;
+            return this;
+        }
+
+        public Options regexStepBudget(int regexStepBudget) {
+            this.regexStepBudget = regexStepBudget;
+            return this;
+        }
+
+        public Options onRegexBudgetExceeded(Consumer<CompiledRule<?>> regexBudgetExceeded) {
+            this.regexBudgetExceeded = regexBudgetExceeded;
+            return this;
+        }
+    }
+
+    /**
+     * 单条规则编译前的信息，order为全局优先级顺序
+     */
+    public static class CompiledRule<R> {
+        private final R rule;
+        private final UUID id;
+        private final String ruleName;
+        private final Integer alertType;
+        private final String alertSubtype;
+        private final String matchField;
+        private final String matchType;
+        private final String matchValue;
+        private final int order;
+        private final LongAdder hits = new LongAdder();
+
+        public CompiledRule(R rule, UUID id, String ruleName, Integer alertType, String alertSubtype,
+                            String matchField, String matchType, String matchValue, int order) {
+            this.rule = rule;
+            this.id = id;
+            this.ruleName = ruleName;
+            this.alertType = alertType;
+            this.alertSubtype = alertSubtype == null || alertSubtype.isBlank() ? null : alertSubtype;
+            this.matchField = matchField;
+            this.matchType = matchType != null ? matchType.toLowerCase(Locale.ROOT) : "";
+            this.matchValue = matchValue;
+            this.order = order;
+        }
+
+        public R getRule() { return rule; }
+        public UUID getId() { return id; }
+        public String getRuleName() { return ruleName; }
+        public Integer getAlertType() { return alertType; }
+        public String getAlertSubtype() { return alertSubtype; }
+        public String getMatchField() { return matchField; }
+        public String getMatchType() { return matchType; }
+        public String getMatchValue() { return matchValue; }
+        public int getOrder() { return order; }
+
+        void recordHit() {
+            hits.increment();
+        }
+    }
+
+    /**
+     * 某个(类型, 子类型)适用的全部规则，按匹配字段分组；每个字段的值只取一次、只转小写一次
+     * 复合条件规则不属于任何字段分组，在字段分组之后逐条短路求值，条件间共享已读取的字段和已求值的叶子
+     */
+    public static class RuleBucket<R> {
+        private static final RuleBucket<?> EMPTY = new RuleBucket<>(Collections.emptyList(),
+            Collections.emptyMap(), new RuleCondition.Registry(), new Options());
+
+        private final List<CompiledRule<R>> rules;
+        private final List<FieldMatcherGroup> groups;
+        private final Options options;
+
+        // 超出求值预算的条件会被置为null，之后不再求值
+        private final RuleCondition.Registry conditionRegistry;
+        private final RuleCondition[] conditions;
+        private final int[] conditionOrdinals;
+        // 没有contains门控叶子的条件逐条求值；有门控的条件按(字段, 叶子)索引，只求值自动机命中的
+        private final int[] ungatedConditions;
+        private final int[] gateFields;
+        private final List<Map<Integer, int[]>> gatedConditions;
+        // 条件整体计时，取出时平均分摊到各条件规则
+        private final LongAdder conditionEvaluations = new LongAdder();
+        private final LongAdder conditionNanos = new LongAdder();
+        private final LongAccumulator conditionMaxNanos = new LongAccumulator(Long::max, 0);
+
+        RuleBucket(List<CompiledRule<R>> rules, Map<CompiledRule<R>, RuleCondition> compiledConditions,
+                   RuleCondition.Registry conditionRegistry, Options options) {
+            this.rules = Collections.unmodifiableList(rules);
+            this.options = options;
+            this.conditionRegistry = conditionRegistry;
+
+            Map<String, FieldMatcherGroup.Builder> builders = new LinkedHashMap<>();
+            List<RuleCondition> conditionList = new ArrayList<>();
+            List<Integer> conditionOrdinalList = new ArrayList<>();
+            for (int ordinal = 0; ordinal < rules.size(); ordinal++) {
+                CompiledRule<R> rule = rules.get(ordinal);
+                if (MATCH_TYPE_CONDITION.equals(rule.getMatchType())) {
+                    RuleCondition condition = compiledConditions.get(rule);
+                    if (condition != null) {
+                        conditionList.add(condition);
+                        conditionOrdinalList.add(ordinal);
+                    }
+                    continue;
+                }
+                if (rule.getMatchField() == null || rule.getMatchValue() == null) {
+                    continue;
+                }
+                builders.computeIfAbsent(rule.getMatchField(), field -> new FieldMatcherGroup.Builder(field, options))
+                    .add(rule, ordinal);
+            }
+
+            List<FieldMatcherGroup> built = new ArrayList<>(builders.size());
+            builders.values().forEach(builder -> built.add(builder.build()));
+            this.groups = Collections.unmodifiableList(built);
+
+            this.conditions = conditionList.toArray(new RuleCondition[0]);
+            this.conditionOrdinals = FieldMatcherGroup.toArray(conditionOrdinalList);
+
+            List<Integer> ungated = new ArrayList<>();
+            Map<Integer, Map<Integer, List<Integer>>> gated = new LinkedHashMap<>();
+            for (int i = 0; i < conditions.length; i++) {
+                int[] gate = conditions[i].containsGate();
+                if (gate == null) {
+                    ungated.add(i);
+                } else {
+                    gated.computeIfAbsent(gate[0], f -> new HashMap<>())
+                        .computeIfAbsent(gate[1], l -> new ArrayList<>()).add(i);
+                }
+            }
+            this.ungatedConditions = FieldMatcherGroup.toArray(ungated);
+            this.gateFields = FieldMatcherGroup.toArray(new ArrayList<>(gated.keySet()));
+            this.gatedConditions = new ArrayList<>(gated.size());
+            gated.values().forEach(byLeaf -> {
+                Map<Integer, int[]> index = new HashMap<>();
+                byLeaf.forEach((leaf, indexes) -> index.put(leaf, FieldMatcherGroup.toArray(indexes)));
+                gatedConditions.add(index);
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        static <R> RuleBucket<R> empty() {
+            return (RuleBucket<R>) EMPTY;
+        }
+
+        public List<CompiledRule<R>> getRules() {
+            return rules;
+        }
+
+        public boolean isEmpty() {
+            return rules.isEmpty();
+        }
+
+        /**
+         * 计算所有命中的规则，返回按优先级排列的序号集合
+         */
+        public BitSet match(Function<String, String> fieldValues) {
+            BitSet matched = new BitSet(rules.size());
+            for (FieldMatcherGroup group : groups) {
+                String value = fieldValues.apply(group.field);
+                if (value != null) {
+                    group.match(value, matched, ordinal -> options.regexBudgetExceeded.accept(rules.get(ordinal)));
+                }
+            }
+            if (conditions.length > 0) {
+                matchConditions(fieldValues, matched);
+            }
+            return matched;
+        }
+
+        private void matchConditions(Function<String, String> fieldValues, BitSet matched) {
+            long start = System.nanoTime();
+            conditionEvaluations.increment();
+            RuleCondition.Context context = conditionRegistry.newContext(fieldValues);
+            for (int index : ungatedConditions) {
+                matchCondition(index, context, matched);
+            }
+            for (int g = 0; g < gateFields.length; g++) {
+                BitSet hits = context.containsHits(gateFields[g]);
+                Map<Integer, int[]> byLeaf = gatedConditions.get(g);
+                for (int leaf = hits.nextSetBit(0); leaf >= 0; leaf = hits.nextSetBit(leaf + 1)) {
+                    int[] indexes = byLeaf.get(leaf);
+                    if (indexes != null) {
+                        for (int index : indexes) {
+                            matchCondition(index, context, matched);
+                        }
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            conditionNanos.add(elapsed);
+            conditionMaxNanos.accumulate(elapsed);
+        }
+
+        private void matchCondition(int index, RuleCondition.Context context, BitSet matched) {
+            RuleCondition condition = conditions[index];
+            if (condition == null) {
+                return;
+            }
+            try {
+                if (condition.test(context)) {
+                    matched.set(conditionOrdinals[index]);
+                }
+            } catch (BudgetedCharSequence.BudgetExceededException e) {
+                conditions[index] = null;
+                options.regexBudgetExceeded.accept(rules.get(conditionOrdinals[index]));
+            }
+        }
+
+        /**
+         * 优先级最高的命中规则，没有命中时返回null
+         */
+        public CompiledRule<R> firstMatch(Function<String, String> fieldValues) {
+            BitSet matched = match(fieldValues);
+            int first = matched.nextSetBit(0);
+            if (first < 0) {
+                return null;
+            }
+            CompiledRule<R> rule = rules.get(first);
+            rule.recordHit();
+            return rule;
+        }
+
+        /**
+         * 所有命中的规则，按优先级排列
+         */
+        public List<CompiledRule<R>> allMatches(Function<String, String> fieldValues) {
+            BitSet matched = match(fieldValues);
+            List<CompiledRule<R>> result = new ArrayList<>(matched.cardinality());
+            for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+                CompiledRule<R> rule = rules.get(i);
+                rule.recordHit();
+                result.add(rule);
+            }
+            return result;
+        }
+
+        void drainMetrics(MetricsSink<R> sink) {
+            for (FieldMatcherGroup group : groups) {
+                group.drainMetrics((ordinal, evaluations, nanos, maxNanos) ->
+                    sink.accept(rules.get(ordinal), evaluations, 0, nanos, maxNanos));
+            }
+            if (conditionOrdinals.length > 0) {
+                long evaluated = conditionEvaluations.sumThenReset();
+                long share = conditionNanos.sumThenReset() / conditionOrdinals.length;
+                long max = conditionMaxNanos.getThenReset();
+                for (int ordinal : conditionOrdinals) {
+                    sink.accept(rules.get(ordinal), evaluated, 0, share, max);
+                }
+            }
+        }
+    }
+
+    /**
+     * 同一匹配字段上的规则：exact规则按小写值哈希查找，contains规则编译为一个Aho-Corasick自动机，
+     * regex规则合并为一个正则集合自动机，自动机不支持的正则预先编译后逐条匹配
+     */
+    static class FieldMatcherGroup {
+        private final String field;
+        private final Map<String, int[]> exact;
+        private final AhoCorasickMatcher containsMatcher;
+        private final RegexSetMatcher regexSet;
+        // 超出求值预算的正则会被置为null，之后不再求值
+        private final Pattern[] patterns;
+        private final int[] regexOrdinals;
+        private final int regexStepBudget;
+
+        // 执行计数：共享匹配器按分组计时，逐条求值的正则各自计时
+        private final int[] sharedOrdinals;
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder sharedNanos = new LongAdder();
+        private final LongAccumulator sharedMaxNanos = new LongAccumulator(Long::max, 0);
+        private final LongAdder[] patternNanos;
+        private final LongAccumulator[] patternMaxNanos;
+
+        private FieldMatcherGroup(Builder builder) {
+            this.field = builder.field;
+            this.regexStepBudget = builder.options.regexStepBudget;
+            this.exact = new HashMap<>();
+            builder.exact.forEach((value, ordinals) -> exact.put(value, toArray(ordinals)));
+            this.containsMatcher = builder.containsNeedles.isEmpty() ? null : new AhoCorasickMatcher(
+                builder.containsNeedles.toArray(new String[0]), toArray(builder.containsOrdinals));
+            this.regexSet = builder.regexSet.getPatternCount() > 0 ? builder.regexSet.build() : null;
+            this.patterns = builder.patterns.toArray(new Pattern[0]);
+            this.regexOrdinals = toArray(builder.regexOrdinals);
+            this.sharedOrdinals = toArray(builder.sharedOrdinals);
+            this.patternNanos = new LongAdder[patterns.length];
+            this.patternMaxNanos = new LongAccumulator[patterns.length];
+            for (int i = 0; i < patterns.length; i++) {
+                patternNanos[i] = new LongAdder();
+                patternMaxNanos[i] = new LongAccumulator(Long::max, 0);
+            }
+        }
+
+        void match(String value, BitSet matched, IntConsumer budgetExceeded) {
+            long start = System.nanoTime();
+            evaluations.increment();
+            String lowerValue = value.toLowerCase(Locale.ROOT);
+
+            int[] exactOrdinals = exact.get(lowerValue);
+            if (exactOrdinals != null) {
+                for (int ordinal : exactOrdinals) {
+                    matched.set(ordinal);
+                }
+            }
+
+            if (containsMatcher != null) {
+                containsMatcher.match(lowerValue, matched);
+            }
+
+            if (regexSet != null) {
+                regexSet.match(value, matched);
+            }
+
+            long elapsed = System.nanoTime() - start;
+            sharedNanos.add(elapsed);
+            sharedMaxNanos.accumulate(elapsed);
+
+            if (patterns.length == 0) {
+                return;
+            }
+            BudgetedCharSequence input = new BudgetedCharSequence(value, regexStepBudget);
+            for (int i = 0; i < patterns.length; i++) {
+                Pattern pattern = patterns[i];
+                if (pattern == null) {
+                    continue;
+                }
+                input.reset();
+                long patternStart = System.nanoTime();
+                try {
+                    if (pattern.matcher(input).find()) {
+                        matched.set(regexOrdinals[i]);
+                    }
+                } catch (BudgetedCharSequence.BudgetExceededException e) {
+                    patterns[i] = null;
+                    budgetExceeded.accept(regexOrdinals[i]);
+                } finally {
+                    long patternElapsed = System.nanoTime() - patternStart;
+                    patternNanos[i].add(patternElapsed);
+                    patternMaxNanos[i].accumulate(patternElapsed);
+                }
+            }
+        }
+
+        void drainMetrics(GroupMetricsSink sink) {
+            long evaluated = evaluations.sumThenReset();
+            long shared = sharedNanos.sumThenReset();
+            long sharedMax = sharedMaxNanos.getThenReset();
+            if (sharedOrdinals.length > 0) {
+                long share = shared / sharedOrdinals.length;
+                for (int ordinal : sharedOrdinals) {
+                    sink.accept(ordinal, evaluated, share, sharedMax);
+                }
+            }
+            for (int i = 0; i < regexOrdinals.length; i++) {
+                sink.accept(regexOrdinals[i], evaluated, patternNanos[i].sumThenReset(), patternMaxNanos[i].getThenReset());
+            }
+        }
+
+        interface GroupMetricsSink {
+            void accept(int ordinal, long evaluations, long nanos, long maxNanos);
+        }
+
+        static int[] toArray(List<Integer> values) {
+            int[] array = new int[values.size()];
+            for (int i = 0; i < array.length; i++) {
+                array[i] = values.get(i);
+            }
+            return array;
+        }
+
+        static class Builder {
+            private final String field;
+            private final Options options;
+            private final Map<String, List<Integer>> exact = new HashMap<>();
+            private final List<String> containsNeedles = new ArrayList<>();
+            private final List<Integer> containsOrdinals = new ArrayList<>();
+            private final RegexSetMatcher regexSet = new RegexSetMatcher();
+            private final List<Pattern> patterns = new ArrayList<>();
+            private final List<Integer> regexOrdinals = new ArrayList<>();
+            private final List<Integer> sharedOrdinals = new ArrayList<>();
+
+            Builder(String field, Options options) {
+                this.field = field;
+                this.options = options;
+            }
+
+            void add(CompiledRule<?> rule, int ordinal) {
+                switch (rule.getMatchType()) {
+                    case "exact":
+                        exact.computeIfAbsent(rule.getMatchValue().toLowerCase(Locale.ROOT), v -> new ArrayList<>())
+                            .add(ordinal);
+                        sharedOrdinals.add(ordinal);
+                        break;
+                    case "contains":
+                        containsNeedles.add(rule.getMatchValue().toLowerCase(Locale.ROOT));
+                        containsOrdinals.add(ordinal);
+                        sharedOrdinals.add(ordinal);
+                        break;
+                    case "regex":
+                        try {
+                            Pattern pattern = Pattern.compile(rule.getMatchValue(), Pattern.CASE_INSENSITIVE);
+                            if (!options.linearRegex || !regexSet.tryAdd(rule.getMatchValue(), ordinal)) {
+                                log.debug("Rule {} regex not supported by regex set, matching individually",
+                                    rule.getRuleName());
+                                patterns.add(pattern);
+                                regexOrdinals.add(ordinal);
+                            } else {
+                                sharedOrdinals.add(ordinal);
+                            }
+                        } catch (PatternSyntaxException e) {
+                            log.warn("Skipping rule {} with invalid regex: {}", rule.getRuleName(), e.getMessage());
+                        }
+                        break;
+                    default:
+                        log.warn("Skipping rule {} with unsupported match type: {}", rule.getRuleName(), rule.getMatchType());
+                }
+            }
+
+            FieldMatcherGroup build() {
+                return new FieldMatcherGroup(this);
+            }
+        }
+    }
+}
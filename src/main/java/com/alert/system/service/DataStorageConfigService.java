@@ -27,6 +27,9 @@ public class DataStorageConfigService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PipelineExecutorService pipelineExecutorService;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     public List<DataStorageConfigDTO> getAllConfigs() {
@@ -109,6 +112,7 @@ public class DataStorageConfigService {
         }
 
         repository.deleteById(id);
+        pipelineExecutorService.evictStorage(id);
     }
 
     public Map<String, Object> testConnection(DataStorageConfigDTO dto) {
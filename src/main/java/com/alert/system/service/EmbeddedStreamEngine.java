@@ -0,0 +1,449 @@
+package com.alert.system.service;
+
+import com.alert.system.entity.Alert;
+import com.alert.system.entity.EventCorrelationRule;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 进程内流计算引擎，Flink不可用或路由到embedded时使用
+ * FILTER/TAG由AlertRuleEngine的编译规则集完成；本引擎实现有状态的CORRELATE_CROSS_TYPE和CEP：
+ * 状态按(规则, 分组键)保存，窗口按告警时间（事件时间）推进，每个键维护自己的水位线。
+ * 状态只在内存中，重启后从空窗口开始
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class EmbeddedStreamEngine {
+
+    private static final String TUMBLING = "TUMBLING";
+    // 未配置关联字段时按IP分组，与数据库回退按可观察对象关联的效果一致
+    private static final String[] DEFAULT_CORRELATION_FIELDS = {"source_ip", "dest_ip"};
+    private static final int MAX_RECENT_MATCHES = 100;
+
+    private final AlertRuleEngine ruleEngine;
+    private final ObjectMapper objectMapper;
+
+    // 全部规则的键数量上限，超出时不再为新键建立状态
+    @Value("${app.flink.embedded.max-keys:200000}")
+    private int maxKeys;
+
+    // 空闲键的清理间隔
+    @Value("${app.flink.embedded.sweep-interval-seconds:30}")
+    private int sweepIntervalSeconds;
+
+    private final Map<UUID, CorrelationState> correlationStates = new ConcurrentHashMap<>();
+    private final Map<String, CepPattern> cepPatterns = new ConcurrentHashMap<>();
+    private final Deque<Map<String, Object>> recentCepMatches = new ArrayDeque<>();
+    private final AtomicLong keyCount = new AtomicLong();
+    private final AtomicLong correlationsEmitted = new AtomicLong();
+    private final AtomicLong cepMatches = new AtomicLong();
+    private final AtomicLong droppedKeys = new AtomicLong();
+
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    public void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "embedded-stream-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int interval = Math.max(1, sweepIntervalSeconds);
+        sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * 跨类型关联：告警按规则的关联字段分组写入窗口，与同窗口内任一字段值相同的告警达到最小数量时返回这些告警的ID
+     * （包含当前告警，按时间从旧到新，最多maxAlertCount条），否则返回空列表
+     */
+    public List<UUID> correlateCrossType(Alert alert, EventCorrelationRule rule) {
+        if (alert.getId() == null) {
+            // 状态中只保存告警ID，未保存的告警无法关联
+            return Collections.emptyList();
+        }
+        long windowMillis = Math.max(1, rule.getTimeWindowSeconds() != null ? rule.getTimeWindowSeconds() : 300) * 1000L;
+        boolean tumbling = TUMBLING.equalsIgnoreCase(rule.getTimeWindowType());
+        int maxAlerts = rule.getMaxAlertCount() != null && rule.getMaxAlertCount() > 0 ? rule.getMaxAlertCount() : 100;
+        int minAlerts = rule.getMinAlertCount() != null ? rule.getMinAlertCount() : 2;
+        String[] fields = rule.getCorrelationFields() != null && rule.getCorrelationFields().length > 0
+            ? rule.getCorrelationFields() : DEFAULT_CORRELATION_FIELDS;
+
+        CorrelationState state = correlationStates.computeIfAbsent(rule.getId(), id -> new CorrelationState());
+        long time = eventTime(alert);
+
+        // 各字段的窗口取并集，与逐字段比较、任一字段相等即关联的语义一致
+        Map<UUID, Long> related = new HashMap<>();
+        for (String field : fields) {
+            String value = ruleEngine.getAlertFieldValue(alert, field);
+            if (value == null) {
+                continue;
+            }
+            KeyWindow window = state.window(field + '\0' + value);
+            if (window == null) {
+                continue;
+            }
+            window.add(alert.getId(), time, windowMillis, tumbling, maxAlerts, related);
+        }
+
+        related.putIfAbsent(alert.getId(), time);
+        if (related.size() < minAlerts) {
+            return Collections.emptyList();
+        }
+
+        List<Map.Entry<UUID, Long>> entries = new ArrayList<>(related.entrySet());
+        entries.sort(Map.Entry.comparingByValue());
+        if (entries.size() > maxAlerts) {
+            entries = entries.subList(entries.size() - maxAlerts, entries.size());
+        }
+        List<UUID> ids = new ArrayList<>(entries.size());
+        for (Map.Entry<UUID, Long> entry : entries) {
+            ids.add(entry.getKey());
+        }
+        correlationsEmitted.incrementAndGet();
+        return ids;
+    }
+
+    /**
+     * 注册CEP模式，同名模式替换旧模式及其状态。
+     * 模式为JSON：{"name": "...", "keyBy": ["source_ip"], "sequence": [条件, 条件, ...]}，条件格式与condition规则相同；
+     * 也可以写成"port_scan -> brute_force"，按alert_subtype依次匹配、按source_ip分组
+     */
+    public CepPattern registerCepPattern(String pattern, int timeWindowMinutes) {
+        CepPattern cep = parseCepPattern(pattern, Math.max(1, timeWindowMinutes) * 60_000L);
+        cepPatterns.put(cep.name, cep);
+        log.info("Registered embedded CEP pattern '{}' with {} steps", cep.name, cep.steps.size());
+        return cep;
+    }
+
+    /**
+     * 把告警送入全部CEP模式，返回本条告警完成的匹配
+     */
+    public List<Map<String, Object>> processCep(Alert alert) {
+        if (cepPatterns.isEmpty() || alert.getId() == null) {
+            return Collections.emptyList();
+        }
+        Function<String, String> fields = field -> ruleEngine.getAlertFieldValue(alert, field);
+        long time = eventTime(alert);
+        List<Map<String, Object>> matches = new ArrayList<>();
+        for (CepPattern pattern : cepPatterns.values()) {
+            List<UUID> matched = pattern.process(alert.getId(), time, fields);
+            if (matched != null) {
+                Map<String, Object> match = new LinkedHashMap<>();
+                match.put("pattern", pattern.name);
+                match.put("key", pattern.key(fields));
+                match.put("alertIds", matched);
+                match.put("matchedAt", alert.getAlertTime());
+                matches.add(match);
+                recordCepMatch(match);
+            }
+        }
+        return matches;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("correlationRules", correlationStates.size());
+        stats.put("keys", keyCount.get());
+        stats.put("droppedKeys", droppedKeys.get());
+        stats.put("correlationsEmitted", correlationsEmitted.get());
+        stats.put("cepPatterns", new ArrayList<>(cepPatterns.keySet()));
+        stats.put("cepMatches", cepMatches.get());
+        synchronized (recentCepMatches) {
+            stats.put("recentCepMatches", new ArrayList<>(recentCepMatches));
+        }
+        return stats;
+    }
+
+    private void recordCepMatch(Map<String, Object> match) {
+        cepMatches.incrementAndGet();
+        log.info("Embedded CEP pattern '{}' matched {} alerts for key {}",
+            match.get("pattern"), ((List<?>) match.get("alertIds")).size(), match.get("key"));
+        synchronized (recentCepMatches) {
+            recentCepMatches.addFirst(match);
+            if (recentCepMatches.size() > MAX_RECENT_MATCHES) {
+                recentCepMatches.removeLast();
+            }
+        }
+    }
+
+    private CepPattern parseCepPattern(String pattern, long windowMillis) {
+        if (pattern == null || pattern.isBlank()) {
+            throw new IllegalArgumentException("CEP pattern is empty");
+        }
+        String trimmed = pattern.trim();
+        String name;
+        List<String> keyBy = new ArrayList<>();
+        List<RuleCondition> steps = new ArrayList<>();
+
+        if (!trimmed.startsWith("{")) {
+            name = trimmed;
+            keyBy.add("source_ip");
+            for (String step : trimmed.split("->")) {
+                if (step.isBlank()) {
+                    throw new IllegalArgumentException("CEP pattern has an empty step: " + pattern);
+                }
+                steps.add(ruleEngine.compileCondition(String.format(
+                    "{\"field\": \"alert_subtype\", \"op\": \"eq\", \"value\": %s}",
+                    objectMapper.valueToTree(step.trim()))));
+            }
+        } else {
+            JsonNode root;
+            try {
+                root = objectMapper.readTree(trimmed);
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Invalid CEP pattern JSON: " + e.getMessage());
+            }
+            JsonNode sequence = root.path("sequence");
+            if (!sequence.isArray() || sequence.isEmpty()) {
+                throw new IllegalArgumentException("CEP pattern requires a non-empty sequence");
+            }
+            for (JsonNode step : sequence) {
+                steps.add(ruleEngine.compileCondition(step.toString()));
+            }
+            JsonNode keys = root.path("keyBy");
+            if (keys.isTextual()) {
+                keyBy.add(keys.asText());
+            } else {
+                keys.forEach(key -> keyBy.add(key.asText()));
+            }
+            name = root.path("name").asText(trimmed);
+        }
+        return new CepPattern(name, keyBy, steps, windowMillis);
+    }
+
+    private long eventTime(Alert alert) {
+        return alert.getAlertTime() != null
+            ? alert.getAlertTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+            : System.currentTimeMillis();
+    }
+
+    /**
+     * 清理水位线已落后于窗口的键
+     */
+    private void sweep() {
+        try {
+            long now = System.currentTimeMillis();
+            for (CorrelationState state : correlationStates.values()) {
+                state.windows.values().removeIf(window -> {
+                    if (window.isIdle(now)) {
+                        keyCount.decrementAndGet();
+                        return true;
+                    }
+                    return false;
+                });
+            }
+            for (CepPattern pattern : cepPatterns.values()) {
+                pattern.partials.values().removeIf(partial -> partial.isIdle(now, pattern.windowMillis));
+            }
+        } catch (Exception e) {
+            log.warn("Embedded stream state sweep failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 一条关联规则的键控状态
+     */
+    private class CorrelationState {
+        private final Map<String, KeyWindow> windows = new ConcurrentHashMap<>();
+
+        KeyWindow window(String key) {
+            KeyWindow window = windows.get(key);
+            if (window != null) {
+                return window;
+            }
+            if (keyCount.get() >= maxKeys) {
+                droppedKeys.incrementAndGet();
+                return null;
+            }
+            return windows.computeIfAbsent(key, k -> {
+                keyCount.incrementAndGet();
+                return new KeyWindow();
+            });
+        }
+    }
+
+    /**
+     * 单个键的窗口：滑动窗口按水位线淘汰，滚动窗口在进入新的时间段时清空
+     */
+    private static class KeyWindow {
+        private final ArrayDeque<UUID> ids = new ArrayDeque<>();
+        private final ArrayDeque<Long> times = new ArrayDeque<>();
+        private long watermark = Long.MIN_VALUE;
+        private long bucket = Long.MIN_VALUE;
+        private long windowMillis;
+        private long touchedAt;
+
+        synchronized void add(UUID id, long time, long windowMillis, boolean tumbling, int maxAlerts,
+                              Map<UUID, Long> related) {
+            this.windowMillis = windowMillis;
+            this.touchedAt = System.currentTimeMillis();
+            watermark = Math.max(watermark, time);
+
+            if (tumbling) {
+                long current = Math.floorDiv(watermark, windowMillis);
+                if (current != bucket) {
+                    bucket = current;
+                    ids.clear();
+                    times.clear();
+                }
+                if (Math.floorDiv(time, windowMillis) != bucket) {
+                    // 迟到的告警属于已关闭的窗口
+                    return;
+                }
+            } else {
+                long cutoff = watermark - windowMillis;
+                while (!times.isEmpty() && times.peekFirst() < cutoff) {
+                    times.pollFirst();
+                    ids.pollFirst();
+                }
+                if (time < cutoff) {
+                    return;
+                }
+            }
+
+            Iterator<UUID> idIterator = ids.iterator();
+            Iterator<Long> timeIterator = times.iterator();
+            while (idIterator.hasNext()) {
+                related.putIfAbsent(idIterator.next(), timeIterator.next());
+            }
+
+            ids.addLast(id);
+            times.addLast(time);
+            if (ids.size() > maxAlerts) {
+                ids.pollFirst();
+                times.pollFirst();
+            }
+        }
+
+        synchronized boolean isIdle(long now) {
+            return now - touchedAt > Math.max(windowMillis, 60_000L);
+        }
+    }
+
+    /**
+     * 已注册的CEP模式：每个键维护各阶段的最优部分匹配（起点最晚者），宽松连续（中间可夹杂其他告警）
+     */
+    @Getter
+    public static class CepPattern {
+        private final String name;
+        private final List<String> keyBy;
+        private final List<RuleCondition> steps;
+        private final long windowMillis;
+        private final Map<String, Partial> partials = new ConcurrentHashMap<>();
+
+        CepPattern(String name, List<String> keyBy, List<RuleCondition> steps, long windowMillis) {
+            this.name = name;
+            this.keyBy = keyBy;
+            this.steps = steps;
+            this.windowMillis = windowMillis;
+        }
+
+        String key(Function<String, String> fields) {
+            StringBuilder key = new StringBuilder();
+            for (String field : keyBy) {
+                if (key.length() > 0) {
+                    key.append('|');
+                }
+                key.append(fields.apply(field));
+            }
+            return key.toString();
+        }
+
+        /**
+         * 返回完成匹配的告警ID，未完成时返回null
+         */
+        List<UUID> process(UUID alertId, long time, Function<String, String> fields) {
+            boolean[] matches = new boolean[steps.size()];
+            boolean any = false;
+            for (int i = 0; i < matches.length; i++) {
+                try {
+                    matches[i] = steps.get(i).test(fields);
+                } catch (RuntimeException e) {
+                    matches[i] = false;
+                }
+                any |= matches[i];
+            }
+            if (!any) {
+                return null;
+            }
+            Partial partial = partials.computeIfAbsent(key(fields), k -> new Partial(steps.size()));
+            return partial.advance(matches, alertId, time, windowMillis);
+        }
+    }
+
+    /**
+     * starts[i]为已完成i步的部分匹配的起点时间，alerts.get(i)为其告警
+     */
+    private static class Partial {
+        private final long[] starts;
+        private final List<List<UUID>> alerts;
+        private long touchedAt;
+
+        Partial(int steps) {
+            starts = new long[steps + 1];
+            Arrays.fill(starts, Long.MIN_VALUE);
+            alerts = new ArrayList<>(Collections.nCopies(steps + 1, null));
+        }
+
+        synchronized List<UUID> advance(boolean[] matches, UUID alertId, long time, long windowMillis) {
+            touchedAt = System.currentTimeMillis();
+            int steps = matches.length;
+            // 从后往前推进，避免同一条告警连续推进多步
+            for (int i = steps - 1; i >= 0; i--) {
+                if (!matches[i]) {
+                    continue;
+                }
+                long start;
+                List<UUID> path;
+                if (i == 0) {
+                    start = time;
+                    path = new ArrayList<>(steps);
+                } else {
+                    if (starts[i] == Long.MIN_VALUE || time - starts[i] > windowMillis || time < starts[i]) {
+                        continue;
+                    }
+                    start = starts[i];
+                    path = new ArrayList<>(alerts.get(i));
+                }
+                if (start >= starts[i + 1]) {
+                    path.add(alertId);
+                    starts[i + 1] = start;
+                    alerts.set(i + 1, path);
+                }
+            }
+            if (starts[steps] != Long.MIN_VALUE) {
+                List<UUID> matched = alerts.get(steps);
+                Arrays.fill(starts, Long.MIN_VALUE);
+                Collections.fill(alerts, null);
+                return matched;
+            }
+            return null;
+        }
+
+        synchronized boolean isIdle(long now, long windowMillis) {
+            return now - touchedAt > windowMillis;
+        }
+    }
+}
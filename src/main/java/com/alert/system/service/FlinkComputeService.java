@@ -1,47 +1,126 @@
 package com.alert.system.service;
 
 import com.alert.system.entity.*;
-import com.alert.system.repository.FlinkConfigRepository;
+import com.alert.system.repository.EventCorrelationRuleRepository;
+import com.alert.system.service.FlinkStreamingService.StreamingResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flink计算
+ * rest模式下每条告警通过/jars/{id}/run提交一次作业；
+ * streaming模式下只提交一个常驻作业，告警、规则快照和结果经由FlinkStreamingService的Kafka topic交换，
+ * 作业的提交、存活检查和规则快照发布都在后台线程中完成，处理告警时不访问JobManager
+ */
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class FlinkComputeService {
 
-    private final FlinkConfigRepository flinkConfigRepository;
+    public static final String OP_FILTER = "FILTER";
+    public static final String OP_TAG = "TAG";
+    public static final String OP_CORRELATE_CROSS_TYPE = "CORRELATE_CROSS_TYPE";
+    public static final String OP_CEP = "CEP";
+
+    private static final String STREAMING_JOB_NAME = "alert-streaming-job";
+    private static final String ROUTING_EMBEDDED = "embedded";
+
     private final RestTemplate restTemplate = new RestTemplate();
     private final ObjectMapper objectMapper;
+    private final FlinkStreamingService streamingService;
+    private final AlertRuleEngine ruleEngine;
+    private final EventCorrelationRuleRepository correlationRuleRepository;
+    private final FlinkHealthMonitor healthMonitor;
+    private final EmbeddedStreamEngine embeddedStreamEngine;
+    private final FlinkJarRegistry jarRegistry;
+
+    // 各操作的路由: auto(Flink可用时使用Flink，否则使用进程内引擎) 或 embedded(始终使用进程内引擎)
+    @Value("${app.flink.routing.filter:auto}")
+    private String filterRouting;
+
+    @Value("${app.flink.routing.tag:auto}")
+    private String tagRouting;
+
+    @Value("${app.flink.routing.correlate-cross-type:auto}")
+    private String correlationRouting;
+
+    @Value("${app.flink.routing.cep:auto}")
+    private String cepRouting;
+
+    // 常驻作业的存活检查间隔
+    @Value("${app.flink.streaming.supervise-interval-seconds:30}")
+    private int superviseIntervalSeconds;
+
+    private ScheduledExecutorService streamingSupervisor;
+    private volatile String streamingJobId;
+    private volatile boolean streamingJobRunning;
+    private volatile int publishedRulesHash;
+
+    @PostConstruct
+    public void initialize() {
+        if (!streamingService.isEnabled()) {
+            return;
+        }
+        streamingSupervisor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "flink-streaming-supervisor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // 规则重载在AlertRuleEngine的锁内通知，快照交给后台线程发布
+        ruleEngine.addReloadListener(() -> streamingSupervisor.execute(() -> publishRuleSnapshot(false)));
+        streamingSupervisor.scheduleWithFixedDelay(this::superviseStreamingJob,
+            0, Math.max(1, superviseIntervalSeconds), TimeUnit.SECONDS);
+    }
 
-    private volatile FlinkConfig activeFlinkConfig = null;
+    @PreDestroy
+    public void shutdown() {
+        if (streamingSupervisor != null) {
+            streamingSupervisor.shutdownNow();
+        }
+    }
 
+    /**
+     * 只读取FlinkHealthMonitor和常驻作业检查发布的状态，不做任何I/O；
+     * streaming模式下还要求作业已确认规则快照
+     */
     public boolean isFlinkAvailable() {
-        try {
-            if (activeFlinkConfig == null) {
-                activeFlinkConfig = flinkConfigRepository.findByIsActiveTrue()
-                    .stream()
-                    .findFirst()
-                    .orElse(null);
-            }
-
-            if (activeFlinkConfig == null) {
-                return false;
-            }
+        if (streamingService.isEnabled()) {
+            return healthMonitor.isAvailable() && streamingJobRunning && streamingService.isReady();
+        }
+        return healthMonitor.isAvailable();
+    }
 
-            return testFlinkConnection(activeFlinkConfig);
-        } catch (Exception e) {
-            log.debug("Flink is not available", e);
-            return false;
+    /**
+     * 该操作是否交给Flink执行；为false时由进程内引擎执行（FILTER/TAG为AlertRuleEngine，其余为EmbeddedStreamEngine）
+     */
+    public boolean routeToFlink(String operation) {
+        String routing;
+        switch (operation) {
+            case OP_FILTER: routing = filterRouting; break;
+            case OP_TAG: routing = tagRouting; break;
+            case OP_CORRELATE_CROSS_TYPE: routing = correlationRouting; break;
+            case OP_CEP: routing = cepRouting; break;
+            default: throw new IllegalArgumentException("Unknown operation: " + operation);
         }
+        return !ROUTING_EMBEDDED.equalsIgnoreCase(routing) && isFlinkAvailable();
+    }
+
+    public Map<String, Object> getHealthStatus() {
+        return healthMonitor.getStatus();
     }
 
     public boolean applyFilterRules(Alert alert, List<AlertFilterRule> rules) {
@@ -51,10 +130,24 @@ public class FlinkComputeService {
         }
 
         try {
+            if (streamingService.isEnabled()) {
+                StreamingResult result = streamingService.awaitResult(
+                    alert.getAlertUuid(), convertAlertToMap(alert), false);
+                if (result.isFiltered()) {
+                    // 被过滤的告警不再打标签，结果不再需要
+                    streamingService.release(alert.getAlertUuid());
+                    if (result.getFilterRuleId() != null) {
+                        alert.setFilterRuleId(UUID.fromString(result.getFilterRuleId()));
+                    }
+                    alert.setFilterReason(result.getFilterReason());
+                }
+                return result.isFiltered();
+            }
+
             Map<String, Object> request = new HashMap<>();
             request.put("alert", convertAlertToMap(alert));
             request.put("rules", convertRulesToMaps(rules));
-            request.put("operation", "FILTER");
+            request.put("operation", OP_FILTER);
 
             String response = submitFlinkJob(request, "alert-filter-job");
 
@@ -63,6 +156,7 @@ public class FlinkComputeService {
 
         } catch (Exception e) {
             log.error("Error applying filter rules via Flink", e);
+            healthMonitor.reportFailure(e);
             return false;
         }
     }
@@ -74,10 +168,14 @@ public class FlinkComputeService {
         }
 
         try {
+            if (streamingService.isEnabled()) {
+                return streamingService.awaitResult(alert.getAlertUuid(), convertAlertToMap(alert), true).getTags();
+            }
+
             Map<String, Object> request = new HashMap<>();
             request.put("alert", convertAlertToMap(alert));
             request.put("rules", convertTaggingRulesToMaps(rules));
-            request.put("operation", "TAG");
+            request.put("operation", OP_TAG);
 
             String response = submitFlinkJob(request, "alert-tagging-job");
 
@@ -86,6 +184,7 @@ public class FlinkComputeService {
 
         } catch (Exception e) {
             log.error("Error applying tagging rules via Flink", e);
+            healthMonitor.reportFailure(e);
             return new ArrayList<>();
         }
     }
@@ -96,12 +195,17 @@ public class FlinkComputeService {
             return;
         }
 
+        if (streamingService.isEnabled()) {
+            // 常驻作业按广播的关联规则在告警流上关联，告警在过滤时已发送
+            return;
+        }
+
         CompletableFuture.runAsync(() -> {
             try {
                 Map<String, Object> request = new HashMap<>();
                 request.put("alert", convertAlertToMap(alert));
                 request.put("rule", convertCorrelationRuleToMap(rule));
-                request.put("operation", "CORRELATE_CROSS_TYPE");
+                request.put("operation", OP_CORRELATE_CROSS_TYPE);
                 request.put("windowSeconds", rule.getTimeWindowSeconds());
 
                 String jobName = String.format("correlation-%s-%d",
@@ -115,19 +219,29 @@ public class FlinkComputeService {
 
             } catch (Exception e) {
                 log.error("Error submitting cross-type correlation to Flink", e);
+                healthMonitor.reportFailure(e);
             }
         });
     }
 
     public void submitComplexEventProcessingJob(String cepPattern, int timeWindowMinutes) {
-        if (!isFlinkAvailable()) {
-            log.warn("Flink not available for CEP job submission");
+        // 进程内引擎始终登记模式，Flink不可用期间由它继续匹配
+        embeddedStreamEngine.registerCepPattern(cepPattern, timeWindowMinutes);
+
+        if (!routeToFlink(OP_CEP)) {
+            log.info("CEP pattern will be matched by the embedded stream engine");
             return;
         }
 
         try {
+            if (streamingService.isEnabled()) {
+                streamingService.publishCepPattern(cepPattern, timeWindowMinutes, "cep-output");
+                log.info("Published CEP pattern to Flink streaming job");
+                return;
+            }
+
             Map<String, Object> request = new HashMap<>();
-            request.put("operation", "CEP");
+            request.put("operation", OP_CEP);
             request.put("pattern", cepPattern);
             request.put("timeWindowMinutes", timeWindowMinutes);
             request.put("outputTopic", "cep-output");
@@ -142,13 +256,137 @@ public class FlinkComputeService {
         }
     }
 
+    /**
+     * 批量处理前把整批告警先发送给常驻作业，之后逐条等待结果时各告警的往返相互重叠
+     */
+    public void prefetch(List<Alert> alerts) {
+        if (!streamingService.isEnabled() || !routeToFlink(OP_FILTER)) {
+            return;
+        }
+        for (Alert alert : alerts) {
+            streamingService.submit(alert.getAlertUuid(), convertAlertToMap(alert));
+        }
+    }
+
+    public Map<String, Object> getEmbeddedStatus() {
+        Map<String, Object> status = embeddedStreamEngine.getStats();
+        Map<String, Object> routing = new LinkedHashMap<>();
+        for (String operation : List.of(OP_FILTER, OP_TAG, OP_CORRELATE_CROSS_TYPE, OP_CEP)) {
+            routing.put(operation, routeToFlink(operation) ? "flink" : ROUTING_EMBEDDED);
+        }
+        status.put("routing", routing);
+        return status;
+    }
+
+    public Map<String, Object> getStreamingStatus() {
+        Map<String, Object> status = streamingService.getStats();
+        status.put("jobId", streamingJobId);
+        status.put("jobRunning", streamingJobRunning);
+        return status;
+    }
+
+    /**
+     * 后台检查常驻作业：没有运行时提交作业并重新发布规则快照；作业未确认快照或关联规则变化时也重新发布
+     */
+    private void superviseStreamingJob() {
+        try {
+            if (!healthMonitor.isAvailable()) {
+                streamingJobRunning = false;
+                return;
+            }
+
+            boolean running = streamingJobId != null && isJobRunning(streamingJobId);
+            if (!running) {
+                streamingService.markNotReady();
+                String response = submitFlinkJob(streamingService.jobArguments(), STREAMING_JOB_NAME);
+                streamingJobId = objectMapper.readTree(response).path("jobid").asText(null);
+                log.info("Submitted Flink streaming job {}", streamingJobId);
+                publishRuleSnapshot(true);
+                running = true;
+            } else {
+                publishRuleSnapshot(!streamingService.isReady());
+            }
+            streamingJobRunning = running;
+        } catch (Exception e) {
+            streamingJobRunning = false;
+            log.warn("Flink streaming job is not available: {}", e.getMessage());
+        }
+    }
+
+    private boolean isJobRunning(String jobId) {
+        FlinkConfig activeFlinkConfig = healthMonitor.getSnapshot().getConfig();
+        try {
+            ResponseEntity<String> response = restTemplate.exchange(
+                buildFlinkUrl(activeFlinkConfig) + "/jobs/" + jobId,
+                HttpMethod.GET,
+                new HttpEntity<>(authHeaders(activeFlinkConfig)),
+                String.class
+            );
+            return "RUNNING".equals(objectMapper.readTree(response.getBody()).path("state").asText());
+        } catch (Exception e) {
+            log.debug("Failed to get state of Flink job {}: {}", jobId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 把当前生效的过滤、打标签和跨类型关联规则作为一个快照发布到控制topic；内容未变化且force为false时跳过
+     */
+    private synchronized void publishRuleSnapshot(boolean force) {
+        try {
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("filterRules", convertRulesToMaps(ruleEngine.getAllFilterRules()));
+            snapshot.put("taggingRules", convertTaggingRulesToMaps(ruleEngine.getAllTaggingRules()));
+            List<Map<String, Object>> correlationRules = new ArrayList<>();
+            for (EventCorrelationRule rule : correlationRuleRepository.findByIsCrossTypeAndIsEnabled(true, true)) {
+                correlationRules.add(convertCorrelationRuleToMap(rule));
+            }
+            snapshot.put("correlationRules", correlationRules);
+
+            int hash = objectMapper.writeValueAsString(snapshot).hashCode();
+            if (!force && hash == publishedRulesHash) {
+                return;
+            }
+            publishedRulesHash = hash;
+            streamingService.publishRules(snapshot).whenComplete((version, e) -> {
+                if (e != null) {
+                    // 下次检查时重新发布
+                    publishedRulesHash = 0;
+                    log.error("Failed to publish rule snapshot to Flink streaming job", e);
+                }
+            });
+        } catch (Exception e) {
+            log.error("Failed to publish rule snapshot to Flink streaming job", e);
+        }
+    }
+
+    private HttpHeaders authHeaders(FlinkConfig config) {
+        HttpHeaders headers = new HttpHeaders();
+        if (config.getUsername() != null && config.getPassword() != null) {
+            headers.setBasicAuth(config.getUsername(), config.getPassword());
+        }
+        return headers;
+    }
+
     private String submitFlinkJob(Map<String, Object> jobConfig, String jobName) throws Exception {
+        FlinkConfig activeFlinkConfig = healthMonitor.getSnapshot().getConfig();
         if (activeFlinkConfig == null) {
             throw new RuntimeException("No active Flink configuration");
         }
 
+        String jarId = jarRegistry.resolveJobJar(activeFlinkConfig);
+        try {
+            return runJar(activeFlinkConfig, jarId, jobConfig, jobName);
+        } catch (HttpClientErrorException.NotFound e) {
+            // 集群上的JAR已不存在，重新登记后重试一次
+            jarRegistry.invalidate(activeFlinkConfig, jarId);
+            return runJar(activeFlinkConfig, jarRegistry.resolveJobJar(activeFlinkConfig), jobConfig, jobName);
+        }
+    }
+
+    private String runJar(FlinkConfig activeFlinkConfig, String jarId, Map<String, Object> jobConfig,
+                          String jobName) throws Exception {
         String flinkUrl = buildFlinkUrl(activeFlinkConfig);
-        String jarId = ensureJobJarUploaded(flinkUrl);
 
         Map<String, Object> submitRequest = new HashMap<>();
         submitRequest.put("entryClass", "com.alert.flink.AlertProcessingJob");
@@ -183,12 +421,6 @@ public class FlinkComputeService {
         }
     }
 
-    private String ensureJobJarUploaded(String flinkUrl) {
-        // In a production environment, this would check if the jar is already uploaded
-        // and upload it if necessary. For now, we'll assume it's pre-uploaded.
-        return "alert-processing-job.jar";
-    }
-
     private Map<String, Object> convertAlertToMap(Alert alert) {
         Map<String, Object> alertMap = new HashMap<>();
         alertMap.put("alertUuid", alert.getAlertUuid());
@@ -211,6 +443,8 @@ public class FlinkComputeService {
             Map<String, Object> ruleMap = new HashMap<>();
             ruleMap.put("id", rule.getId().toString());
             ruleMap.put("ruleName", rule.getRuleName());
+            ruleMap.put("alertType", rule.getAlertType());
+            ruleMap.put("alertSubtype", rule.getAlertSubtype());
             ruleMap.put("matchField", rule.getMatchField());
             ruleMap.put("matchType", rule.getMatchType());
             ruleMap.put("matchValue", rule.getMatchValue());
@@ -226,6 +460,8 @@ public class FlinkComputeService {
             Map<String, Object> ruleMap = new HashMap<>();
             ruleMap.put("id", rule.getId().toString());
             ruleMap.put("ruleName", rule.getRuleName());
+            ruleMap.put("alertType", rule.getAlertType());
+            ruleMap.put("alertSubtype", rule.getAlertSubtype());
             ruleMap.put("matchField", rule.getMatchField());
             ruleMap.put("matchType", rule.getMatchType());
             ruleMap.put("matchValue", rule.getMatchValue());
@@ -251,44 +487,6 @@ public class FlinkComputeService {
         return ruleMap;
     }
 
-    private boolean testFlinkConnection(FlinkConfig config) {
-        try {
-            String url = buildFlinkUrl(config) + "/overview";
-
-            HttpHeaders headers = new HttpHeaders();
-            if (config.getUsername() != null && config.getPassword() != null) {
-                headers.setBasicAuth(config.getUsername(), config.getPassword());
-            }
-
-            HttpEntity<Void> entity = new HttpEntity<>(headers);
-
-            ResponseEntity<String> response = restTemplate.exchange(
-                url,
-                HttpMethod.GET,
-                entity,
-                String.class
-            );
-
-            boolean isConnected = response.getStatusCode() == HttpStatus.OK;
-
-            config.setLastTestTime(LocalDateTime.now());
-            config.setLastTestStatus(isConnected ? "connected" : "failed");
-            config.setLastTestMessage(isConnected ? "Connection successful" : "Connection failed");
-            flinkConfigRepository.save(config);
-
-            return isConnected;
-
-        } catch (Exception e) {
-            config.setLastTestTime(LocalDateTime.now());
-            config.setLastTestStatus("error");
-            config.setLastTestMessage(e.getMessage());
-            flinkConfigRepository.save(config);
-
-            log.debug("Flink connection test failed: {}", e.getMessage());
-            return false;
-        }
-    }
-
     private String buildFlinkUrl(FlinkConfig config) {
         return String.format("http://%s:%d", config.getJobManagerUrl(), config.getPort());
     }
@@ -300,6 +498,7 @@ public class FlinkComputeService {
             return status;
         }
 
+        FlinkConfig activeFlinkConfig = healthMonitor.getSnapshot().getConfig();
         try {
             String url = buildFlinkUrl(activeFlinkConfig) + "/overview";
 
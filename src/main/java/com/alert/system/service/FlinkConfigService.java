@@ -37,6 +37,9 @@ public class FlinkConfigService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private FlinkHealthMonitor healthMonitor;
+
     public List<FlinkConfigResponse> getAllConfigs() {
         return flinkConfigRepository.findAll().stream()
                 .map(FlinkConfigResponse::fromEntity)
@@ -77,6 +80,7 @@ public class FlinkConfigService {
         }
 
         FlinkConfig saved = flinkConfigRepository.save(config);
+        healthMonitor.refresh();
         return FlinkConfigResponse.fromEntity(saved);
     }
 
@@ -112,6 +116,7 @@ public class FlinkConfigService {
         }
 
         FlinkConfig saved = flinkConfigRepository.save(config);
+        healthMonitor.refresh();
         return FlinkConfigResponse.fromEntity(saved);
     }
 
@@ -120,6 +125,7 @@ public class FlinkConfigService {
             throw new RuntimeException("Flink configuration not found");
         }
         flinkConfigRepository.deleteById(id);
+        healthMonitor.refresh();
     }
 
     public FlinkTestResult testConnection(UUID id) {
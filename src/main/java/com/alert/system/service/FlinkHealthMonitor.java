@@ -0,0 +1,283 @@
+package com.alert.system.service;
+
+import com.alert.system.entity.FlinkConfig;
+import com.alert.system.repository.FlinkConfigRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flink健康检查
+ * 后台线程按间隔探测当前生效配置的/overview，结果发布为volatile快照，告警处理只读取快照，不做任何I/O。
+ * 连续失败达到阈值后熔断：熔断期间不再探测，到期后半开探测一次，成功则恢复，失败则继续熔断。
+ * last_test_status只在状态变化时写回数据库
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class FlinkHealthMonitor {
+
+    public enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final String STATUS_CONNECTED = "connected";
+    private static final String STATUS_FAILED = "failed";
+    private static final String STATUS_ERROR = "error";
+
+    private final FlinkConfigRepository flinkConfigRepository;
+    private final RestTemplateBuilder restTemplateBuilder;
+
+    @Value("${app.flink.health.interval-seconds:10}")
+    private int intervalSeconds;
+
+    // 连续失败多少次后熔断
+    @Value("${app.flink.health.failure-threshold:3}")
+    private int failureThreshold;
+
+    // 熔断持续时间，到期后半开探测
+    @Value("${app.flink.health.open-seconds:60}")
+    private int openSeconds;
+
+    private volatile Snapshot snapshot = Snapshot.unavailable(null, CircuitState.CLOSED, 0, "Not checked yet");
+
+    private ScheduledExecutorService executor;
+    private long openedAt;
+    // 最近一次写回数据库的状态，按配置区分
+    private UUID persistedConfigId;
+    private String persistedStatus;
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "flink-health-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::probe, 0, Math.max(1, intervalSeconds), TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    public boolean isAvailable() {
+        return snapshot.available;
+    }
+
+    /**
+     * 当前快照，告警处理线程只读取该对象
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * 配置变更后立即重新探测，不等下一个周期
+     */
+    public void refresh() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 在配置变更提交后再探测，以免读到旧配置
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    scheduleRefresh();
+                }
+            });
+            return;
+        }
+        scheduleRefresh();
+    }
+
+    private void scheduleRefresh() {
+        executor.execute(() -> {
+            synchronized (this) {
+                openedAt = 0;
+                snapshot = Snapshot.unavailable(snapshot.config, CircuitState.CLOSED, 0, "Configuration changed");
+            }
+            probe();
+        });
+    }
+
+    /**
+     * 调用方在访问Flink失败时上报，与探测失败一起计入熔断
+     */
+    public synchronized void reportFailure(Exception e) {
+        if (snapshot.state == CircuitState.CLOSED) {
+            recordFailure(snapshot.config, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Snapshot current = snapshot;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("available", current.available);
+        status.put("circuitState", current.state);
+        status.put("consecutiveFailures", current.consecutiveFailures);
+        status.put("configId", current.config != null ? current.config.getId() : null);
+        status.put("checkedAt", current.checkedAt);
+        status.put("message", current.message);
+        return status;
+    }
+
+    /**
+     * 只在探测线程中执行；HTTP请求和数据库访问都在锁外，状态切换在锁内
+     */
+    private void probe() {
+        try {
+            if (!beginProbe()) {
+                return;
+            }
+
+            FlinkConfig config = flinkConfigRepository.findByIsActiveTrue().orElse(null);
+            if (config == null) {
+                synchronized (this) {
+                    snapshot = Snapshot.unavailable(null, CircuitState.CLOSED, 0, "No active Flink configuration");
+                }
+                return;
+            }
+
+            String status;
+            String message;
+            try {
+                ResponseEntity<String> response = restTemplate(config).exchange(
+                    String.format("http://%s:%d/overview", config.getJobManagerUrl(), config.getPort()),
+                    HttpMethod.GET,
+                    new HttpEntity<>(authHeaders(config)),
+                    String.class
+                );
+                boolean connected = response.getStatusCode().is2xxSuccessful();
+                status = connected ? STATUS_CONNECTED : STATUS_FAILED;
+                message = connected ? "Connection successful" : "Connection failed";
+            } catch (Exception e) {
+                status = STATUS_ERROR;
+                message = e.getMessage();
+            }
+
+            synchronized (this) {
+                if (STATUS_CONNECTED.equals(status)) {
+                    if (snapshot.state != CircuitState.CLOSED) {
+                        log.info("Flink cluster {} is available again", config.getName());
+                    }
+                    snapshot = new Snapshot(config, true, CircuitState.CLOSED, 0, LocalDateTime.now(), message);
+                } else {
+                    recordFailure(config, message);
+                }
+            }
+            persistIfChanged(config, status, message);
+        } catch (Exception e) {
+            log.warn("Flink health check failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 熔断期间跳过探测，到期后转为半开
+     */
+    private synchronized boolean beginProbe() {
+        if (snapshot.state != CircuitState.OPEN) {
+            return true;
+        }
+        if (System.currentTimeMillis() - openedAt < openSeconds * 1000L) {
+            return false;
+        }
+        snapshot = Snapshot.unavailable(snapshot.config, CircuitState.HALF_OPEN, snapshot.consecutiveFailures,
+            snapshot.message);
+        return true;
+    }
+
+    private void recordFailure(FlinkConfig config, String message) {
+        Snapshot current = snapshot;
+        int failures = current.consecutiveFailures + 1;
+        if (current.state == CircuitState.HALF_OPEN || failures >= failureThreshold) {
+            if (current.state != CircuitState.OPEN) {
+                log.warn("Flink circuit opened after {} consecutive failures: {}", failures, message);
+            }
+            openedAt = System.currentTimeMillis();
+            snapshot = Snapshot.unavailable(config, CircuitState.OPEN, failures, message);
+        } else {
+            // 未达阈值时保持原有可用性，偶发失败由调用方的回退逻辑处理
+            snapshot = new Snapshot(config, current.available, CircuitState.CLOSED, failures, LocalDateTime.now(),
+                message);
+        }
+    }
+
+    private void persistIfChanged(FlinkConfig config, String status, String message) {
+        if (Objects.equals(config.getId(), persistedConfigId) && status.equals(persistedStatus)) {
+            return;
+        }
+        if (!Objects.equals(config.getId(), persistedConfigId) && status.equals(config.getLastTestStatus())) {
+            // 启动或切换配置时，数据库中已是该状态
+            persistedConfigId = config.getId();
+            persistedStatus = status;
+            return;
+        }
+        flinkConfigRepository.updateTestStatus(config.getId(), LocalDateTime.now(), status, message);
+        persistedConfigId = config.getId();
+        persistedStatus = status;
+    }
+
+    private RestTemplate restTemplate(FlinkConfig config) {
+        return restTemplateBuilder
+            .setConnectTimeout(Duration.ofMillis(config.getConnectionTimeout() != null ? config.getConnectionTimeout() : 5000))
+            .setReadTimeout(Duration.ofMillis(config.getReadTimeout() != null ? config.getReadTimeout() : 10000))
+            .build();
+    }
+
+    private HttpHeaders authHeaders(FlinkConfig config) {
+        HttpHeaders headers = new HttpHeaders();
+        if (config.getUsername() != null && config.getPassword() != null) {
+            headers.setBasicAuth(config.getUsername(), config.getPassword());
+        }
+        return headers;
+    }
+
+    /**
+     * 某一时刻的可用性快照，不可变
+     */
+    @Getter
+    public static class Snapshot {
+        private final FlinkConfig config;
+        private final boolean available;
+        private final CircuitState state;
+        private final int consecutiveFailures;
+        private final LocalDateTime checkedAt;
+        private final String message;
+
+        Snapshot(FlinkConfig config, boolean available, CircuitState state, int consecutiveFailures,
+                 LocalDateTime checkedAt, String message) {
+            this.config = config;
+            this.available = available;
+            this.state = state;
+            this.consecutiveFailures = consecutiveFailures;
+            this.checkedAt = checkedAt;
+            this.message = message;
+        }
+
+        static Snapshot unavailable(FlinkConfig config, CircuitState state, int consecutiveFailures, String message) {
+            return new Snapshot(config, false, state, consecutiveFailures, LocalDateTime.now(), message);
+        }
+    }
+}
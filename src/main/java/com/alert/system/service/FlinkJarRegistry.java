@@ -0,0 +1,278 @@
+package com.alert.system.service;
+
+import com.alert.system.entity.FlinkConfig;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.*;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Flink作业JAR登记
+ * 上传时在文件名中带上内容校验和（name-校验和.jar），每个Flink集群只在第一次使用时列出一次/jars，
+ * 之后按校验和在内存中查找jar id；本地文件内容不变时不再上传，变化后上传新版本并删除同名的旧版本
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class FlinkJarRegistry {
+
+    // 校验和取SHA-256的前16个十六进制字符
+    private static final int CHECKSUM_LENGTH = 16;
+    private static final Pattern VERSIONED_NAME = Pattern.compile("^(.+)-([0-9a-f]{" + CHECKSUM_LENGTH + "})\\.jar$");
+
+    private final ObjectMapper objectMapper;
+    private final RestTemplate restTemplate = new RestTemplate();
+
+    // 告警处理作业的本地JAR
+    @Value("${app.flink.job-jar:/opt/flink-jobs/alert-processing.jar}")
+    private String jobJarPath;
+
+    private final Map<String, ClusterJars> clusters = new ConcurrentHashMap<>();
+    private volatile LocalArtifact jobJar;
+
+    /**
+     * 告警处理作业在该集群上的jar id，本地文件未变化且已登记时不访问Flink
+     */
+    public String resolveJobJar(FlinkConfig config) throws Exception {
+        return register(config, jobJarArtifact());
+    }
+
+    /**
+     * 确保本地JAR已上传到该集群，返回jar id；相同内容已上传过时直接返回已有的id
+     */
+    public String register(FlinkConfig config, String jarPath) throws Exception {
+        return register(config, LocalArtifact.of(Paths.get(jarPath)));
+    }
+
+    /**
+     * 作业提交返回jar不存在时调用（例如JobManager重启后丢失了上传的文件），下次使用时重新列出/jars
+     */
+    public void invalidate(FlinkConfig config, String jarId) {
+        ClusterJars jars = clusters.get(clusterKey(config));
+        if (jars == null) {
+            return;
+        }
+        synchronized (jars) {
+            jars.byChecksum.values().removeIf(entry -> entry.jarId.equals(jarId));
+            jars.listed = false;
+        }
+        log.info("Invalidated Flink jar {} on {}:{}", jarId, config.getJobManagerUrl(), config.getPort());
+    }
+
+    private String register(FlinkConfig config, LocalArtifact artifact) throws Exception {
+        ClusterJars jars = clusters.computeIfAbsent(clusterKey(config), key -> new ClusterJars());
+        synchronized (jars) {
+            JarEntry entry = jars.byChecksum.get(artifact.checksum);
+            if (entry != null) {
+                return entry.jarId;
+            }
+
+            if (!jars.listed) {
+                discover(config, jars);
+                jars.listed = true;
+                entry = jars.byChecksum.get(artifact.checksum);
+                if (entry != null) {
+                    log.info("Found {} already uploaded to Flink as {}", artifact.versionedName(), entry.jarId);
+                    return entry.jarId;
+                }
+            }
+
+            String jarId = upload(config, artifact);
+            deleteOtherVersions(config, jars, artifact);
+            jars.byChecksum.put(artifact.checksum, new JarEntry(jarId, artifact.baseName));
+            return jarId;
+        }
+    }
+
+    /**
+     * 列出集群上已有的JAR，登记文件名中带校验和的版本
+     */
+    private void discover(FlinkConfig config, ClusterJars jars) throws Exception {
+        ResponseEntity<String> response = restTemplate.exchange(
+            buildFlinkUrl(config, FlinkJobSubmitService.FlinkRestEndpoints.JARS_LIST),
+            HttpMethod.GET,
+            new HttpEntity<>(authHeaders(config)),
+            String.class
+        );
+        JsonNode files = objectMapper.readTree(response.getBody()).path("files");
+        for (JsonNode file : files) {
+            String name = file.path("name").asText();
+            Matcher matcher = VERSIONED_NAME.matcher(name);
+            if (matcher.matches()) {
+                jars.byChecksum.putIfAbsent(matcher.group(2),
+                    new JarEntry(file.path("id").asText(), matcher.group(1)));
+            }
+        }
+    }
+
+    private String upload(FlinkConfig config, LocalArtifact artifact) throws Exception {
+        // 以带校验和的文件名上传，重启后可以从/jars中识别出同一内容
+        String fileName = artifact.versionedName();
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("jarfile", new FileSystemResource(artifact.path) {
+            @Override
+            public String getFilename() {
+                return fileName;
+            }
+        });
+
+        HttpHeaders headers = authHeaders(config);
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        long start = System.currentTimeMillis();
+        ResponseEntity<String> response = restTemplate.exchange(
+            buildFlinkUrl(config, FlinkJobSubmitService.FlinkRestEndpoints.JARS_UPLOAD),
+            HttpMethod.POST,
+            new HttpEntity<>(body, headers),
+            String.class
+        );
+
+        if (response.getStatusCode() != HttpStatus.OK) {
+            throw new RuntimeException("Failed to upload JAR: " + response.getStatusCode());
+        }
+        // filename为JobManager上的完整路径，jar id是其最后一段
+        String uploaded = objectMapper.readTree(response.getBody()).path("filename").asText();
+        String jarId = uploaded.substring(uploaded.lastIndexOf('/') + 1);
+        log.info("Uploaded {} to Flink as {} in {} ms", fileName, jarId, System.currentTimeMillis() - start);
+        return jarId;
+    }
+
+    /**
+     * 删除同名JAR的其他版本；运行中的作业不依赖上传的文件，删除失败不影响本次提交
+     */
+    private void deleteOtherVersions(FlinkConfig config, ClusterJars jars, LocalArtifact artifact) {
+        Iterator<Map.Entry<String, JarEntry>> iterator = jars.byChecksum.entrySet().iterator();
+        while (iterator.hasNext()) {
+            JarEntry entry = iterator.next().getValue();
+            if (!entry.baseName.equals(artifact.baseName)) {
+                continue;
+            }
+            try {
+                restTemplate.exchange(
+                    buildFlinkUrl(config, "/jars/" + entry.jarId),
+                    HttpMethod.DELETE,
+                    new HttpEntity<>(authHeaders(config)),
+                    String.class
+                );
+                log.info("Deleted outdated Flink jar {}", entry.jarId);
+            } catch (Exception e) {
+                log.warn("Failed to delete outdated Flink jar {}: {}", entry.jarId, e.getMessage());
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 作业JAR的校验和按文件大小和修改时间缓存，文件未变化时不重新计算
+     */
+    private LocalArtifact jobJarArtifact() throws Exception {
+        Path path = Paths.get(jobJarPath);
+        LocalArtifact cached = jobJar;
+        if (cached != null && cached.isCurrent()) {
+            return cached;
+        }
+        LocalArtifact artifact = LocalArtifact.of(path);
+        jobJar = artifact;
+        return artifact;
+    }
+
+    private String clusterKey(FlinkConfig config) {
+        return config.getId() + "@" + config.getJobManagerUrl() + ":" + config.getPort();
+    }
+
+    private String buildFlinkUrl(FlinkConfig config, String endpoint) {
+        return String.format("http://%s:%d%s", config.getJobManagerUrl(), config.getPort(), endpoint);
+    }
+
+    private HttpHeaders authHeaders(FlinkConfig config) {
+        HttpHeaders headers = new HttpHeaders();
+        if (config.getUsername() != null && config.getPassword() != null) {
+            headers.setBasicAuth(config.getUsername(), config.getPassword());
+        }
+        return headers;
+    }
+
+    /**
+     * 一个Flink集群上已登记的JAR，按校验和索引
+     */
+    private static class ClusterJars {
+        private final Map<String, JarEntry> byChecksum = new HashMap<>();
+        private boolean listed;
+    }
+
+    private static class JarEntry {
+        private final String jarId;
+        private final String baseName;
+
+        JarEntry(String jarId, String baseName) {
+            this.jarId = jarId;
+            this.baseName = baseName;
+        }
+    }
+
+    private static class LocalArtifact {
+        private final Path path;
+        private final String baseName;
+        private final String checksum;
+        private final long size;
+        private final long lastModified;
+
+        private LocalArtifact(Path path, String checksum, long size, long lastModified) {
+            this.path = path;
+            String fileName = path.getFileName().toString();
+            Matcher matcher = VERSIONED_NAME.matcher(fileName);
+            String name = matcher.matches() ? matcher.group(1) : fileName;
+            this.baseName = name.endsWith(".jar") ? name.substring(0, name.length() - 4) : name;
+            this.checksum = checksum;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        static LocalArtifact of(Path path) throws Exception {
+            if (!Files.isRegularFile(path)) {
+                throw new RuntimeException("JAR file not found: " + path);
+            }
+            long size = Files.size(path);
+            long lastModified = Files.getLastModifiedTime(path).toMillis();
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            try (InputStream in = Files.newInputStream(path)) {
+                int read;
+                while ((read = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+            String checksum = HexFormat.of().formatHex(digest.digest()).substring(0, CHECKSUM_LENGTH);
+            return new LocalArtifact(path, checksum, size, lastModified);
+        }
+
+        boolean isCurrent() {
+            try {
+                return Files.size(path) == size && Files.getLastModifiedTime(path).toMillis() == lastModified;
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        String versionedName() {
+            return baseName + "-" + checksum + ".jar";
+        }
+    }
+}
@@ -5,14 +5,10 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 
-import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -30,6 +26,7 @@ public class FlinkJobSubmitService {
 
     private final RestTemplate restTemplate = new RestTemplate();
     private final ObjectMapper objectMapper;
+    private final FlinkJarRegistry jarRegistry;
 
     /**
      * Flink REST API端点
@@ -49,40 +46,10 @@ public class FlinkJobSubmitService {
     }
 
     /**
-     * 上传JAR包到Flink集群
+     * 上传JAR包到Flink集群，相同内容已上传过时直接返回已有的jar id
      */
     public String uploadJar(FlinkConfig config, String jarPath) throws Exception {
-        String url = buildFlinkUrl(config, FlinkRestEndpoints.JARS_UPLOAD);
-
-        File jarFile = new File(jarPath);
-        if (!jarFile.exists()) {
-            throw new RuntimeException("JAR file not found: " + jarPath);
-        }
-
-        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
-        body.add("jarfile", new FileSystemResource(jarFile));
-
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
-        addAuthHeaders(headers, config);
-
-        HttpEntity<MultiValueMap<String, Object>> entity = new HttpEntity<>(body, headers);
-
-        ResponseEntity<String> response = restTemplate.exchange(
-            url,
-            HttpMethod.POST,
-            entity,
-            String.class
-        );
-
-        if (response.getStatusCode() == HttpStatus.OK) {
-            JsonNode result = objectMapper.readTree(response.getBody());
-            String jarId = result.get("filename").asText();
-            log.info("Successfully uploaded JAR: {}", jarId);
-            return jarId;
-        } else {
-            throw new RuntimeException("Failed to upload JAR: " + response.getStatusCode());
-        }
+        return jarRegistry.register(config, jarPath);
     }
 
     /**
@@ -347,7 +314,7 @@ public class FlinkJobSubmitService {
         jobConfig.put("parallelism", 2);
         jobConfig.put("jobName", "alert-filter-" + System.currentTimeMillis());
 
-        String jarId = ensureJarUploaded(config, "alert-processing.jar");
+        String jarId = jarRegistry.resolveJobJar(config);
         return submitJob(config, jarId, jobConfig);
     }
 
@@ -362,7 +329,7 @@ public class FlinkJobSubmitService {
         jobConfig.put("parallelism", 2);
         jobConfig.put("jobName", "alert-tagging-" + System.currentTimeMillis());
 
-        String jarId = ensureJarUploaded(config, "alert-processing.jar");
+        String jarId = jarRegistry.resolveJobJar(config);
         return submitJob(config, jarId, jobConfig);
     }
 
@@ -377,48 +344,10 @@ public class FlinkJobSubmitService {
         jobConfig.put("jobName", "alert-correlation-" + rule.getRuleName());
         jobConfig.put("timeWindowSeconds", rule.getTimeWindowSeconds());
 
-        String jarId = ensureJarUploaded(config, "alert-processing.jar");
+        String jarId = jarRegistry.resolveJobJar(config);
         return submitJob(config, jarId, jobConfig);
     }
 
-    /**
-     * 确保JAR已上传
-     */
-    private String ensureJarUploaded(FlinkConfig config, String jarName) throws Exception {
-        // 检查JAR是否已经上传
-        String url = buildFlinkUrl(config, FlinkRestEndpoints.JARS_LIST);
-
-        HttpHeaders headers = new HttpHeaders();
-        addAuthHeaders(headers, config);
-
-        HttpEntity<Void> entity = new HttpEntity<>(headers);
-
-        ResponseEntity<String> response = restTemplate.exchange(
-            url,
-            HttpMethod.GET,
-            entity,
-            String.class
-        );
-
-        if (response.getStatusCode() == HttpStatus.OK) {
-            JsonNode result = objectMapper.readTree(response.getBody());
-            JsonNode files = result.get("files");
-
-            if (files != null && files.isArray()) {
-                for (JsonNode file : files) {
-                    String fileName = file.get("name").asText();
-                    if (fileName.contains(jarName)) {
-                        return file.get("id").asText();
-                    }
-                }
-            }
-        }
-
-        // 如果JAR不存在，上传它
-        String jarPath = "/opt/flink-jobs/" + jarName;
-        return uploadJar(config, jarPath);
-    }
-
     /**
      * 构建Flink URL
      */
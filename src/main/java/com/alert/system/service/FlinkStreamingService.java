@@ -0,0 +1,350 @@
+package com.alert.system.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 常驻Flink作业的Kafka通道（app.flink.mode=streaming）
+ * 告警写入输入topic，规则快照写入控制topic（作业以广播状态保存），作业的结果从输出topic读回；
+ * 每条告警只有一次Kafka写入，不访问JobManager。每个实例使用独立的消费组读取全部结果，只认领自己等待中的告警。
+ * 消息格式见 alert-interface/flink-streaming-protocol.md；作业确认过规则快照（RULES_ACK）之后才视为就绪，
+ * 等待结果超时则退回未就绪，直到作业确认下一份快照
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class FlinkStreamingService {
+
+    public static final String MESSAGE_RULES = "RULES";
+    public static final String MESSAGE_CEP = "CEP";
+    public static final String MESSAGE_RESULT = "RESULT";
+    public static final String MESSAGE_CORRELATION = "CORRELATION";
+    public static final String MESSAGE_RULES_ACK = "RULES_ACK";
+    public static final int SCHEMA_VERSION = 1;
+
+    private final ObjectMapper objectMapper;
+
+    // Flink调用方式: rest(每条告警提交一次作业) 或 streaming(常驻作业，通过Kafka交换告警、规则和结果)
+    @Value("${app.flink.mode:rest}")
+    private String mode;
+
+    @Value("${app.flink.streaming.bootstrap-servers:localhost:9092}")
+    private String bootstrapServers;
+
+    @Value("${app.flink.streaming.input-topic:alert-flink-input}")
+    private String inputTopic;
+
+    @Value("${app.flink.streaming.control-topic:alert-flink-control}")
+    private String controlTopic;
+
+    @Value("${app.flink.streaming.output-topic:alert-flink-results}")
+    private String outputTopic;
+
+    // 等待单条告警结果的最长时间
+    @Value("${app.flink.streaming.result-timeout-ms:2000}")
+    private long resultTimeoutMs;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong resultsReceived = new AtomicLong();
+    private final AtomicLong correlationsReceived = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private volatile long rulesVersion;
+    private volatile long ackedRulesVersion;
+    // 该时间之后发布的快照被确认时才恢复就绪；快照版本号为发布时的毫秒时间戳
+    private volatile long notReadySince = System.currentTimeMillis();
+
+    private KafkaProducer<String, String> producer;
+    private KafkaConsumer<String, String> consumer;
+    private Thread consumerThread;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+
+        Properties producerProps = new Properties();
+        producerProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        producerProps.put(ProducerConfig.ACKS_CONFIG, "1");
+        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, 1);
+        producer = new KafkaProducer<>(producerProps);
+
+        Properties consumerProps = new Properties();
+        consumerProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        consumerProps.put(ConsumerConfig.GROUP_ID_CONFIG, "alert-system-flink-results-" + UUID.randomUUID());
+        consumerProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        consumerProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        consumerProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "true");
+        consumer = new KafkaConsumer<>(consumerProps);
+
+        running = true;
+        consumerThread = new Thread(this::consumeResults, "flink-streaming-results");
+        consumerThread.setDaemon(true);
+        consumerThread.start();
+
+        log.info("Flink streaming mode enabled: input={}, control={}, output={}", inputTopic, controlTopic, outputTopic);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+        if (producer != null) {
+            producer.close(Duration.ofSeconds(5));
+        }
+    }
+
+    public boolean isEnabled() {
+        return "streaming".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * 作业已确认最近一次就绪检查之后发布的规则快照
+     */
+    public boolean isReady() {
+        return ackedRulesVersion >= notReadySince;
+    }
+
+    /**
+     * 作业重新提交或结果超时后调用，之后的告警不再等待作业，直到作业确认新发布的快照
+     */
+    public void markNotReady() {
+        notReadySince = System.currentTimeMillis();
+    }
+
+    /**
+     * 作业启动参数：告诉常驻作业从哪里读取告警和规则、把结果写到哪里
+     */
+    public Map<String, Object> jobArguments() {
+        Map<String, Object> args = new HashMap<>();
+        args.put("operation", "STREAM");
+        args.put("schemaVersion", SCHEMA_VERSION);
+        args.put("bootstrapServers", bootstrapServers);
+        args.put("inputTopic", inputTopic);
+        args.put("controlTopic", controlTopic);
+        args.put("outputTopic", outputTopic);
+        return args;
+    }
+
+    /**
+     * 把告警发送给常驻作业；同一告警只发送一次，过滤和打标签共用一个结果
+     */
+    public CompletableFuture<StreamingResult> submit(String alertUuid, Map<String, Object> alert) {
+        return send(alertUuid, alert).future;
+    }
+
+    private Pending send(String alertUuid, Map<String, Object> alert) {
+        return pending.computeIfAbsent(alertUuid, uuid -> {
+            Pending entry = new Pending();
+            try {
+                Map<String, Object> message = new HashMap<>();
+                message.put("schemaVersion", SCHEMA_VERSION);
+                message.put("alertUuid", uuid);
+                message.put("alert", alert);
+                producer.send(new ProducerRecord<>(inputTopic, uuid, objectMapper.writeValueAsString(message)),
+                    (metadata, e) -> {
+                        if (e != null) {
+                            entry.future.completeExceptionally(e);
+                        }
+                    });
+            } catch (Exception e) {
+                entry.future.completeExceptionally(e);
+            }
+            return entry;
+        });
+    }
+
+    /**
+     * 等待告警的处理结果，超时抛出异常；release为true时结果取出后不再保留。
+     * 超时从告警发送时算起，批量预先发送的告警共用同一截止时间，整批最多等待一个超时
+     */
+    public StreamingResult awaitResult(String alertUuid, Map<String, Object> alert, boolean release) {
+        try {
+            Pending entry = send(alertUuid, alert);
+            long remaining = entry.createdAt + resultTimeoutMs - System.currentTimeMillis();
+            return entry.future.get(Math.max(0, remaining), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            timeouts.incrementAndGet();
+            pending.remove(alertUuid);
+            if (isReady()) {
+                log.warn("No result from Flink streaming job within {} ms, bypassing it until it acknowledges new rules",
+                    resultTimeoutMs);
+                markNotReady();
+            }
+            throw new RuntimeException("No result from Flink streaming job within " + resultTimeoutMs + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for Flink streaming result");
+        } catch (ExecutionException e) {
+            pending.remove(alertUuid);
+            throw new RuntimeException("Failed to send alert to Flink streaming job: " + e.getCause().getMessage());
+        } finally {
+            if (release) {
+                pending.remove(alertUuid);
+            }
+        }
+    }
+
+    public void release(String alertUuid) {
+        pending.remove(alertUuid);
+    }
+
+    /**
+     * 异步发布规则快照，作业收到后整体替换广播状态并回复RULES_ACK；返回的future在写入Kafka后以版本号完成
+     */
+    public CompletableFuture<Long> publishRules(Map<String, Object> snapshot) {
+        long version = System.currentTimeMillis();
+        CompletableFuture<Long> published = new CompletableFuture<>();
+        try {
+            Map<String, Object> message = new LinkedHashMap<>(snapshot);
+            message.put("schemaVersion", SCHEMA_VERSION);
+            message.put("type", MESSAGE_RULES);
+            message.put("version", version);
+            producer.send(new ProducerRecord<>(controlTopic, MESSAGE_RULES, objectMapper.writeValueAsString(message)),
+                (metadata, e) -> {
+                    if (e != null) {
+                        published.completeExceptionally(e);
+                        return;
+                    }
+                    rulesVersion = version;
+                    log.info("Published rule snapshot version {} to {}", version, controlTopic);
+                    published.complete(version);
+                });
+        } catch (Exception e) {
+            published.completeExceptionally(e);
+        }
+        return published;
+    }
+
+    /**
+     * 异步发布CEP模式，作业把它加入广播状态，不再为每个模式提交新作业
+     */
+    public void publishCepPattern(String pattern, int timeWindowMinutes, String resultTopic) throws Exception {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("schemaVersion", SCHEMA_VERSION);
+        message.put("type", MESSAGE_CEP);
+        message.put("pattern", pattern);
+        message.put("timeWindowMinutes", timeWindowMinutes);
+        message.put("outputTopic", resultTopic);
+        producer.send(new ProducerRecord<>(controlTopic, MESSAGE_CEP + ":" + pattern,
+            objectMapper.writeValueAsString(message)), (metadata, e) -> {
+                if (e != null) {
+                    log.error("Failed to publish CEP pattern to {}", controlTopic, e);
+                }
+            });
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("ready", isReady());
+        stats.put("pending", pending.size());
+        stats.put("resultsReceived", resultsReceived.get());
+        stats.put("correlationsReceived", correlationsReceived.get());
+        stats.put("timeouts", timeouts.get());
+        stats.put("rulesVersion", rulesVersion);
+        stats.put("ackedRulesVersion", ackedRulesVersion);
+        return stats;
+    }
+
+    private void consumeResults() {
+        try {
+            consumer.subscribe(Collections.singletonList(outputTopic));
+            while (running) {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(200))) {
+                    handleResult(record.value());
+                }
+                expirePending();
+            }
+        } catch (WakeupException e) {
+            // 关闭时退出
+        } catch (Exception e) {
+            log.error("Flink streaming result consumer stopped", e);
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private void handleResult(String value) {
+        try {
+            StreamingResult result = objectMapper.readValue(value, StreamingResult.class);
+            if (MESSAGE_RULES_ACK.equalsIgnoreCase(result.getType())) {
+                if (result.getVersion() != null && result.getVersion() > ackedRulesVersion) {
+                    ackedRulesVersion = result.getVersion();
+                }
+                return;
+            }
+            if (MESSAGE_CORRELATION.equalsIgnoreCase(result.getType())) {
+                correlationsReceived.incrementAndGet();
+                log.info("Flink streaming job correlated alerts: {}", value);
+                return;
+            }
+            if (result.getAlertUuid() == null) {
+                return;
+            }
+            Pending entry = pending.get(result.getAlertUuid());
+            if (entry != null) {
+                resultsReceived.incrementAndGet();
+                entry.future.complete(result);
+            }
+        } catch (Exception e) {
+            log.warn("Ignoring malformed Flink streaming result: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 清理已超时但未被取走的等待项（例如处理中途异常的告警）
+     */
+    private void expirePending() {
+        long cutoff = System.currentTimeMillis() - resultTimeoutMs * 2;
+        pending.values().removeIf(entry -> entry.createdAt < cutoff);
+    }
+
+    private static class Pending {
+        private final CompletableFuture<StreamingResult> future = new CompletableFuture<>();
+        private final long createdAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 输出topic中的一条消息：RESULT为单条告警的过滤和打标签结果，CORRELATION为作业生成的跨类型关联，
+     * RULES_ACK为作业已应用的规则快照版本
+     */
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class StreamingResult {
+        private String type = MESSAGE_RESULT;
+        private String alertUuid;
+        private boolean filtered;
+        private String filterRuleId;
+        private String filterReason;
+        private List<String> tags = new ArrayList<>();
+        private Long version;
+    }
+}
@@ -0,0 +1,813 @@
+package com.alert.system.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 本地IOC匹配引擎
+ * 从本地情报源文件（CSV、STIX风格的JSON）加载指标：哈希放在开放寻址的128位集合中，
+ * 域名放在按标签倒序的字典树中（命中父域即命中子域），IP和CIDR放在路径压缩的前缀树中做最长前缀匹配。
+ * 索引整体构建完成后通过volatile引用替换，匹配方不加锁，重新加载期间照常使用旧索引
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class IocMatchEngine {
+
+    // STIX模式中的比较项，如 [ipv4-addr:value = '1.2.3.4'] 或 [file:hashes.'SHA-256' = '...']
+    private static final Pattern STIX_COMPARISON = Pattern.compile(
+        "([a-z0-9-]+):([A-Za-z0-9_.'-]+)\\s*=\\s*'((?:[^'\\\\]|\\\\.)*)'");
+
+    private final ObjectMapper objectMapper;
+
+    // 情报源目录，读取其中的*.csv和*.json
+    @Value("${app.observables.ioc.feed-dir:/opt/alert/ioc-feeds}")
+    private String feedDir;
+
+    @Value("${app.observables.ioc.reload-interval-seconds:60}")
+    private int reloadIntervalSeconds;
+
+    // 情报源未给出评分时使用的风险评分（0-10）
+    @Value("${app.observables.ioc.default-score:8.0}")
+    private double defaultScore;
+
+    private volatile IndicatorIndex index = IndicatorIndex.empty();
+    private ScheduledExecutorService executor;
+    // 上次加载时各源文件的名称、大小和修改时间
+    private String loadedSignature;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong matches = new AtomicLong();
+
+    /**
+     * 一条威胁指标
+     */
+    @Getter
+    public static class Indicator {
+        private final String kind;
+        private final String value;
+        private final double score;
+        private final String threatType;
+        private final String description;
+        private final String feed;
+
+        Indicator(String kind, String value, double score, String threatType, String description, String feed) {
+            this.kind = kind;
+            this.value = value;
+            this.score = score;
+            this.threatType = threatType;
+            this.description = description;
+            this.feed = feed;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "ioc-feed-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reloadIfChanged();
+        int interval = Math.max(1, reloadIntervalSeconds);
+        executor.scheduleWithFixedDelay(this::reloadIfChanged, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 按可观察对象类型匹配，未命中返回null
+     */
+    public Indicator match(String type, String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        lookups.incrementAndGet();
+        IndicatorIndex current = index;
+        Indicator indicator;
+        switch (type) {
+            case "IP":
+                indicator = current.matchIp(value);
+                break;
+            case "DOMAIN":
+                indicator = current.domains.match(value);
+                break;
+            case "URL":
+                indicator = current.matchUrl(value);
+                break;
+            case "EMAIL":
+                indicator = current.domains.match(value.substring(value.lastIndexOf('@') + 1));
+                break;
+            case "MD5":
+            case "SHA1":
+            case "SHA256":
+                indicator = current.hashes.match(value);
+                break;
+            default:
+                indicator = null;
+        }
+        if (indicator != null) {
+            matches.incrementAndGet();
+        }
+        return indicator;
+    }
+
+    /**
+     * 立即重新读取全部情报源
+     */
+    public Map<String, Object> reload() throws Exception {
+        return executor.submit(() -> {
+            load(feedSignature());
+            return getStatus();
+        }).get();
+    }
+
+    public Map<String, Object> getStatus() {
+        IndicatorIndex current = index;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("feedDir", feedDir);
+        status.put("feeds", current.feeds);
+        status.put("hashes", current.hashes.size());
+        status.put("domains", current.domains.size());
+        status.put("ipPrefixes", current.ipv4.size() + current.ipv6.size());
+        status.put("urls", current.urls.size());
+        status.put("skippedLines", current.skipped);
+        status.put("loadedAt", current.loadedAt);
+        status.put("loadMillis", current.loadMillis);
+        status.put("lookups", lookups.get());
+        status.put("matches", matches.get());
+        return status;
+    }
+
+    private void reloadIfChanged() {
+        try {
+            String signature = feedSignature();
+            if (!signature.equals(loadedSignature)) {
+                load(signature);
+            }
+        } catch (Exception e) {
+            log.error("Failed to reload IOC feeds from {}", feedDir, e);
+        }
+    }
+
+    private void load(String signature) throws Exception {
+        long start = System.currentTimeMillis();
+        IndexBuilder builder = new IndexBuilder();
+        for (Path file : feedFiles()) {
+            String feed = file.getFileName().toString();
+            try {
+                if (feed.endsWith(".json")) {
+                    loadStix(file, feed, builder);
+                } else {
+                    loadCsv(file, feed, builder);
+                }
+                builder.feeds.add(feed);
+            } catch (Exception e) {
+                log.error("Failed to load IOC feed {}, skipping it", file, e);
+            }
+        }
+
+        IndicatorIndex built = builder.build(System.currentTimeMillis() - start);
+        index = built;
+        loadedSignature = signature;
+        log.info("Loaded {} IOC feeds: {} hashes, {} domains, {} IP prefixes, {} URLs in {} ms",
+            built.feeds.size(), built.hashes.size(), built.domains.size(),
+            built.ipv4.size() + built.ipv6.size(), built.urls.size(), built.loadMillis);
+    }
+
+    private List<Path> feedFiles() throws Exception {
+        Path dir = Paths.get(feedDir);
+        if (!Files.isDirectory(dir)) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> listing = Files.list(dir)) {
+            return listing.filter(path -> {
+                    String name = path.getFileName().toString();
+                    return Files.isRegularFile(path) && (name.endsWith(".csv") || name.endsWith(".json"));
+                })
+                .sorted()
+                .collect(Collectors.toList());
+        }
+    }
+
+    private String feedSignature() throws Exception {
+        StringBuilder signature = new StringBuilder();
+        for (Path file : feedFiles()) {
+            signature.append(file.getFileName()).append(':').append(Files.size(file)).append(':')
+                .append(Files.getLastModifiedTime(file).toMillis()).append(';');
+        }
+        return signature.toString();
+    }
+
+    /**
+     * CSV：type,value[,score[,threat_type[,description]]]，#开头为注释；只有一列时按值自动判断类型
+     */
+    private void loadCsv(Path file, String feed, IndexBuilder builder) throws Exception {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] columns = line.split(",", 5);
+                if (columns.length == 1) {
+                    builder.add(null, columns[0], defaultScore, null, null, feed);
+                    continue;
+                }
+                String kind = columns[0].trim();
+                if (kind.equalsIgnoreCase("type")) {
+                    continue;
+                }
+                double score = defaultScore;
+                if (columns.length > 2 && !columns[2].isBlank()) {
+                    try {
+                        score = Double.parseDouble(columns[2].trim());
+                    } catch (NumberFormatException e) {
+                        builder.skipped++;
+                        continue;
+                    }
+                }
+                builder.add(kind, columns[1], score,
+                    columns.length > 3 ? blankToNull(columns[3]) : null,
+                    columns.length > 4 ? blankToNull(columns[4]) : null, feed);
+            }
+        }
+    }
+
+    /**
+     * STIX风格的JSON：{"objects": [...]}或数组，读取type为indicator的对象的pattern，
+     * confidence（0-100）换算为评分，labels作为威胁类型
+     */
+    private void loadStix(Path file, String feed, IndexBuilder builder) throws Exception {
+        JsonNode root = objectMapper.readTree(file.toFile());
+        JsonNode objects = root.isArray() ? root : root.path("objects");
+        for (JsonNode object : objects) {
+            if (!"indicator".equals(object.path("type").asText()) || !object.hasNonNull("pattern")) {
+                continue;
+            }
+            double score = object.has("confidence") ? object.path("confidence").asDouble() / 10.0 : defaultScore;
+            String threatType = object.path("labels").isArray() && object.path("labels").size() > 0
+                ? object.path("labels").get(0).asText()
+                : blankToNull(object.path("indicator_types").path(0).asText(null));
+            String description = object.hasNonNull("name") ? object.path("name").asText()
+                : blankToNull(object.path("description").asText(null));
+
+            Matcher matcher = STIX_COMPARISON.matcher(object.path("pattern").asText());
+            boolean found = false;
+            while (matcher.find()) {
+                String kind = stixKind(matcher.group(1), matcher.group(2));
+                if (kind != null) {
+                    builder.add(kind, matcher.group(3).replace("\\'", "'"), score, threatType, description, feed);
+                    found = true;
+                }
+            }
+            if (!found) {
+                builder.skipped++;
+            }
+        }
+    }
+
+    private static String stixKind(String objectType, String property) {
+        switch (objectType) {
+            case "ipv4-addr":
+            case "ipv6-addr":
+                return "ip";
+            case "domain-name":
+                return "domain";
+            case "url":
+                return "url";
+            case "file":
+                return property.startsWith("hashes.") ? "hash" : null;
+            default:
+                return null;
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * 构建中的索引，只在加载线程中使用
+     */
+    private static class IndexBuilder {
+        private final List<long[]> hashKeys = new ArrayList<>();
+        private final List<Indicator> hashIndicators = new ArrayList<>();
+        private final DomainTrie domains = new DomainTrie();
+        private final PrefixTree ipv4 = new PrefixTree();
+        private final PrefixTree ipv6 = new PrefixTree();
+        private final Map<String, Indicator> urls = new HashMap<>();
+        private final List<String> feeds = new ArrayList<>();
+        private int skipped;
+
+        void add(String kind, String rawValue, double score, String threatType, String description, String feed) {
+            String value = rawValue.trim();
+            if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1);
+            }
+            if (value.isEmpty()) {
+                skipped++;
+                return;
+            }
+            String resolvedKind = kind != null ? kind.toLowerCase() : detectKind(value);
+            Indicator indicator = new Indicator(resolvedKind, value, score, threatType, description, feed);
+            boolean added;
+            switch (resolvedKind) {
+                case "ip":
+                case "ipv4":
+                case "ipv6":
+                case "cidr":
+                    added = addPrefix(value, indicator);
+                    break;
+                case "domain":
+                case "hostname":
+                    added = domains.insert(value, indicator);
+                    break;
+                case "url":
+                    urls.merge(value, indicator, IndicatorIndex::higher);
+                    added = true;
+                    break;
+                case "hash":
+                case "md5":
+                case "sha1":
+                case "sha256":
+                    long[] key = HashSet128.key(value);
+                    added = key != null;
+                    if (added) {
+                        hashKeys.add(key);
+                        hashIndicators.add(indicator);
+                    }
+                    break;
+                default:
+                    added = false;
+            }
+            if (!added) {
+                skipped++;
+            }
+        }
+
+        private boolean addPrefix(String value, Indicator indicator) {
+            int slash = value.indexOf('/');
+            String address = slash >= 0 ? value.substring(0, slash) : value;
+            long[] key = IndicatorIndex.parseIp(address);
+            if (key == null) {
+                return false;
+            }
+            boolean v4 = key[2] == 32;
+            int length = (int) key[2];
+            if (slash >= 0) {
+                try {
+                    length = Integer.parseInt(value.substring(slash + 1).trim());
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+                if (length < 0 || length > key[2]) {
+                    return false;
+                }
+            }
+            (v4 ? ipv4 : ipv6).insert(key[0], key[1], length, indicator);
+            return true;
+        }
+
+        private static String detectKind(String value) {
+            if (ObservableScanner.hashType(value) != null) {
+                return "hash";
+            }
+            if (value.startsWith("http://") || value.startsWith("https://")) {
+                return "url";
+            }
+            int slash = value.indexOf('/');
+            if (IndicatorIndex.parseIp(slash >= 0 ? value.substring(0, slash) : value) != null) {
+                return "ip";
+            }
+            return "domain";
+        }
+
+        IndicatorIndex build(long loadMillis) {
+            HashSet128 hashes = new HashSet128(hashKeys.size());
+            for (int i = 0; i < hashKeys.size(); i++) {
+                hashes.add(hashKeys.get(i), hashIndicators.get(i));
+            }
+            return new IndicatorIndex(hashes, domains, ipv4, ipv6, urls, feeds, skipped, LocalDateTime.now(), loadMillis);
+        }
+    }
+
+    /**
+     * 一次加载的完整索引，构建后不再修改
+     */
+    private static class IndicatorIndex {
+        private final HashSet128 hashes;
+        private final DomainTrie domains;
+        private final PrefixTree ipv4;
+        private final PrefixTree ipv6;
+        private final Map<String, Indicator> urls;
+        private final List<String> feeds;
+        private final int skipped;
+        private final LocalDateTime loadedAt;
+        private final long loadMillis;
+
+        IndicatorIndex(HashSet128 hashes, DomainTrie domains, PrefixTree ipv4, PrefixTree ipv6,
+                       Map<String, Indicator> urls, List<String> feeds, int skipped,
+                       LocalDateTime loadedAt, long loadMillis) {
+            this.hashes = hashes;
+            this.domains = domains;
+            this.ipv4 = ipv4;
+            this.ipv6 = ipv6;
+            this.urls = urls;
+            this.feeds = feeds;
+            this.skipped = skipped;
+            this.loadedAt = loadedAt;
+            this.loadMillis = loadMillis;
+        }
+
+        static IndicatorIndex empty() {
+            return new IndicatorIndex(new HashSet128(0), new DomainTrie(), new PrefixTree(), new PrefixTree(),
+                Collections.emptyMap(), Collections.emptyList(), 0, null, 0);
+        }
+
+        Indicator matchIp(String value) {
+            long[] key = parseIp(value);
+            if (key == null) {
+                return null;
+            }
+            return (key[2] == 32 ? ipv4 : ipv6).match(key[0], key[1]);
+        }
+
+        /**
+         * URL先按原值匹配，再匹配其主机
+         */
+        Indicator matchUrl(String url) {
+            Indicator indicator = urls.get(url);
+            if (indicator != null) {
+                return indicator;
+            }
+            int hostStart = url.indexOf("://");
+            if (hostStart < 0) {
+                return null;
+            }
+            hostStart += 3;
+            int hostEnd = hostStart;
+            while (hostEnd < url.length() && "/?#".indexOf(url.charAt(hostEnd)) < 0) {
+                hostEnd++;
+            }
+            String host = url.substring(hostStart, hostEnd);
+            host = host.substring(host.lastIndexOf('@') + 1);
+            if (host.startsWith("[")) {
+                int close = host.indexOf(']');
+                return close > 0 ? matchIp(host.substring(1, close)) : null;
+            }
+            int port = host.indexOf(':');
+            if (port >= 0) {
+                host = host.substring(0, port);
+            }
+            indicator = matchIp(host);
+            return indicator != null ? indicator : domains.match(host);
+        }
+
+        /**
+         * 解析IP字面量，返回{高64位, 低64位, 位数}；IPv4放在高64位的高32位。
+         * 只接受由数字、十六进制字符、冒号和点组成的字面量，不会触发DNS解析
+         */
+        static long[] parseIp(String value) {
+            String address = value.trim();
+            if (address.isEmpty()) {
+                return null;
+            }
+            if (address.indexOf(':') < 0) {
+                String[] parts = address.split("\\.", -1);
+                if (parts.length != 4) {
+                    return null;
+                }
+                long bits = 0;
+                for (String part : parts) {
+                    if (part.isEmpty() || part.length() > 3 || !part.chars().allMatch(Character::isDigit)) {
+                        return null;
+                    }
+                    int octet = Integer.parseInt(part);
+                    if (octet > 255) {
+                        return null;
+                    }
+                    bits = (bits << 8) | octet;
+                }
+                return new long[]{bits << 32, 0, 32};
+            }
+            for (int i = 0; i < address.length(); i++) {
+                char c = address.charAt(i);
+                if (Character.digit(c, 16) < 0 && c != ':' && c != '.') {
+                    return null;
+                }
+            }
+            try {
+                byte[] bytes = InetAddress.getByName(address).getAddress();
+                if (bytes.length == 4) {
+                    long bits = ((bytes[0] & 0xFFL) << 24) | ((bytes[1] & 0xFFL) << 16)
+                        | ((bytes[2] & 0xFFL) << 8) | (bytes[3] & 0xFFL);
+                    return new long[]{bits << 32, 0, 32};
+                }
+                long hi = 0;
+                long lo = 0;
+                for (int i = 0; i < 8; i++) {
+                    hi = (hi << 8) | (bytes[i] & 0xFF);
+                    lo = (lo << 8) | (bytes[i + 8] & 0xFF);
+                }
+                return new long[]{hi, lo, 128};
+            } catch (Exception e) {
+                return null;
+            }
+        }
+
+        static Indicator higher(Indicator a, Indicator b) {
+            return b.score > a.score ? b : a;
+        }
+    }
+
+    /**
+     * 开放寻址的哈希集合，键为哈希值的前128位（MD5为全部），线性探测
+     */
+    private static class HashSet128 {
+        private final long[] keys;
+        private final Indicator[] indicators;
+        private final int mask;
+        private int size;
+
+        HashSet128(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+            keys = new long[capacity * 2];
+            indicators = new Indicator[capacity];
+            mask = capacity - 1;
+        }
+
+        static long[] key(CharSequence hash) {
+            int length = hash.length();
+            if ((length != 32 && length != 40 && length != 64) || ObservableScanner.hashType(hash) == null) {
+                return null;
+            }
+            return new long[]{hexLong(hash, 0), hexLong(hash, 16)};
+        }
+
+        void add(long[] key, Indicator indicator) {
+            int slot = slot(key[0], key[1]);
+            while (indicators[slot] != null) {
+                if (keys[2 * slot] == key[0] && keys[2 * slot + 1] == key[1]) {
+                    indicators[slot] = IndicatorIndex.higher(indicators[slot], indicator);
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[2 * slot] = key[0];
+            keys[2 * slot + 1] = key[1];
+            indicators[slot] = indicator;
+            size++;
+        }
+
+        Indicator match(String hash) {
+            long[] key = key(hash);
+            if (key == null) {
+                return null;
+            }
+            int slot = slot(key[0], key[1]);
+            while (indicators[slot] != null) {
+                if (keys[2 * slot] == key[0] && keys[2 * slot + 1] == key[1]) {
+                    Indicator indicator = indicators[slot];
+                    // 前128位相同而长度不同的哈希不算命中
+                    return indicator.value.length() == hash.length() ? indicator : null;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private int slot(long hi, long lo) {
+            long h = (hi ^ (lo * 0x9E3779B97F4A7C15L));
+            h ^= h >>> 31;
+            return (int) h & mask;
+        }
+
+        private static long hexLong(CharSequence hash, int offset) {
+            long value = 0;
+            for (int i = offset; i < offset + 16; i++) {
+                value = (value << 4) | Character.digit(hash.charAt(i), 16);
+            }
+            return value;
+        }
+    }
+
+    /**
+     * 按标签倒序的域名字典树：evil.com存为com → evil，查询时从顶级域向下走，经过的最深指标即为命中
+     */
+    private static class DomainTrie {
+        private final Node root = new Node();
+        private int size;
+
+        private static class Node {
+            private Map<String, Node> children;
+            private Indicator indicator;
+        }
+
+        boolean insert(String domain, Indicator indicator) {
+            String normalized = normalize(domain);
+            if (normalized.isEmpty() || normalized.indexOf('.') < 0) {
+                return false;
+            }
+            Node node = root;
+            int end = normalized.length();
+            while (end > 0) {
+                int start = normalized.lastIndexOf('.', end - 1) + 1;
+                String label = normalized.substring(start, end);
+                if (label.isEmpty()) {
+                    return false;
+                }
+                if (node.children == null) {
+                    node.children = new HashMap<>();
+                }
+                node = node.children.computeIfAbsent(label, l -> new Node());
+                end = start - 1;
+            }
+            if (node.indicator == null) {
+                size++;
+                node.indicator = indicator;
+            } else {
+                node.indicator = IndicatorIndex.higher(node.indicator, indicator);
+            }
+            return true;
+        }
+
+        Indicator match(String domain) {
+            String normalized = normalize(domain);
+            Node node = root;
+            Indicator deepest = null;
+            int end = normalized.length();
+            while (end > 0 && node.children != null) {
+                int start = normalized.lastIndexOf('.', end - 1) + 1;
+                node = node.children.get(normalized.substring(start, end));
+                if (node == null) {
+                    break;
+                }
+                if (node.indicator != null) {
+                    deepest = node.indicator;
+                }
+                end = start - 1;
+            }
+            return deepest;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private static String normalize(String domain) {
+            String normalized = domain.trim().toLowerCase(Locale.ROOT);
+            if (normalized.startsWith("*.")) {
+                normalized = normalized.substring(2);
+            }
+            return normalized.endsWith(".") ? normalized.substring(0, normalized.length() - 1) : normalized;
+        }
+    }
+
+    /**
+     * 路径压缩的二进制前缀树，键为最多128位（高64位、低64位），做最长前缀匹配
+     */
+    private static class PrefixTree {
+        private final Node root = new Node(0, 0, 0, null);
+        private int size;
+
+        private static class Node {
+            private final long hi;
+            private final long lo;
+            private final int length;
+            private Indicator indicator;
+            private Node zero;
+            private Node one;
+
+            Node(long hi, long lo, int length, Indicator indicator) {
+                this.hi = hi;
+                this.lo = lo;
+                this.length = length;
+                this.indicator = indicator;
+            }
+
+            Node child(int bit) {
+                return bit == 0 ? zero : one;
+            }
+
+            void setChild(int bit, Node node) {
+                if (bit == 0) {
+                    zero = node;
+                } else {
+                    one = node;
+                }
+            }
+        }
+
+        void insert(long hi, long lo, int length, Indicator indicator) {
+            long maskedHi = maskHi(hi, length);
+            long maskedLo = maskLo(lo, length);
+            Node node = root;
+            while (true) {
+                if (node.length == length) {
+                    if (node.indicator == null) {
+                        size++;
+                        node.indicator = indicator;
+                    } else {
+                        node.indicator = IndicatorIndex.higher(node.indicator, indicator);
+                    }
+                    return;
+                }
+                int bit = bit(maskedHi, maskedLo, node.length);
+                Node child = node.child(bit);
+                if (child == null) {
+                    node.setChild(bit, new Node(maskedHi, maskedLo, length, indicator));
+                    size++;
+                    return;
+                }
+                int common = commonPrefix(child, maskedHi, maskedLo, Math.min(child.length, length));
+                if (common == child.length) {
+                    node = child;
+                    continue;
+                }
+                // 在公共前缀处拆分出中间节点
+                Node middle = new Node(maskHi(maskedHi, common), maskLo(maskedLo, common), common, null);
+                node.setChild(bit, middle);
+                middle.setChild(bit(child.hi, child.lo, common), child);
+                if (common == length) {
+                    middle.indicator = indicator;
+                } else {
+                    middle.setChild(bit(maskedHi, maskedLo, common), new Node(maskedHi, maskedLo, length, indicator));
+                }
+                size++;
+                return;
+            }
+        }
+
+        Indicator match(long hi, long lo) {
+            Node node = root;
+            Indicator longest = root.indicator;
+            while (node.length < 128) {
+                Node child = node.child(bit(hi, lo, node.length));
+                if (child == null || commonPrefix(child, hi, lo, child.length) < child.length) {
+                    break;
+                }
+                node = child;
+                if (node.indicator != null) {
+                    longest = node.indicator;
+                }
+            }
+            return longest;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private static int bit(long hi, long lo, int index) {
+            return (int) (index < 64 ? (hi >>> (63 - index)) & 1 : (lo >>> (127 - index)) & 1);
+        }
+
+        private static int commonPrefix(Node node, long hi, long lo, int max) {
+            long diff = node.hi ^ hi;
+            int common = diff != 0 ? Long.numberOfLeadingZeros(diff)
+                : 64 + (node.lo == lo ? 64 : Long.numberOfLeadingZeros(node.lo ^ lo));
+            return Math.min(common, max);
+        }
+
+        private static long maskHi(long hi, int length) {
+            return length == 0 ? 0 : length >= 64 ? hi : hi & (-1L << (64 - length));
+        }
+
+        private static long maskLo(long lo, int length) {
+            return length <= 64 ? 0 : lo & (-1L << (128 - length));
+        }
+    }
+}
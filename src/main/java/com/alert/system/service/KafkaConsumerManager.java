@@ -8,10 +8,19 @@ import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.*;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
@@ -24,12 +33,37 @@ public class KafkaConsumerManager {
     private final KafkaDataSourceConfigRepository kafkaConfigRepository;
     private final AlertProcessingService alertProcessingService;
     private final ObjectMapper objectMapper;
+    private final PipelineExecutorService pipelineExecutorService;
 
-    private final Map<Long, KafkaConsumer<String, String>> consumers = new ConcurrentHashMap<>();
+    private final Map<Long, KafkaConsumer<String, byte[]>> consumers = new ConcurrentHashMap<>();
     private final Map<Long, Future<?>> consumerTasks = new ConcurrentHashMap<>();
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final Map<Long, PartitionLaneExecutor> laneExecutors = new ConcurrentHashMap<>();
+    private final Map<Long, OffsetCommitTracker> offsetTrackers = new ConcurrentHashMap<>();
+    private final Map<Long, Set<TopicPartition>> pausedPartitions = new ConcurrentHashMap<>();
     private volatile boolean running = true;
 
+    @Value("${app.kafka.commit.batch-size:500}")
+    private int commitBatchSize;
+
+    @Value("${app.kafka.commit.interval-ms:1000}")
+    private long commitIntervalMs;
+
+    @Value("${app.kafka.backpressure.high-watermark:5000}")
+    private int backpressureHighWatermark;
+
+    @Value("${app.kafka.backpressure.low-watermark:1000}")
+    private int backpressureLowWatermark;
+
+    @Value("${app.kafka.retry.backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value("${app.kafka.retry.max-attempts:5}")
+    private int retryMaxAttempts;
+
+    // 死信topic为原topic加该后缀；为空时不写死信，失败的记录一直重试
+    @Value("${app.kafka.dead-letter.topic-suffix:.dlq}")
+    private String deadLetterTopicSuffix;
+
     @PostConstruct
     public void initialize() {
         log.info("Initializing Kafka Consumer Manager...");
@@ -42,15 +76,6 @@ public class KafkaConsumerManager {
         log.info("Shutting down Kafka Consumer Manager...");
         running = false;
         stopAllConsumers();
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(30, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
     }
 
     private void startAllEnabledConsumers() {
@@ -70,16 +95,30 @@ public class KafkaConsumerManager {
 
         try {
             Properties props = createConsumerProperties(config);
-            KafkaConsumer<String, String> consumer = new KafkaConsumer<>(props);
-            consumer.subscribe(Collections.singletonList(config.getTopicName()));
+            KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(props);
+            OffsetCommitTracker tracker = new OffsetCommitTracker(commitBatchSize, commitIntervalMs);
+            Set<TopicPartition> paused = ConcurrentHashMap.newKeySet();
 
-            consumers.put(config.getId(), consumer);
+            int laneCount = config.getProcessingLanes() != null ? config.getProcessingLanes() : 1;
+            PartitionLaneExecutor lanes = laneCount > 1
+                ? new PartitionLaneExecutor("kafka-" + config.getId(), laneCount, config.getLaneStrategy())
+                : null;
 
-            Future<?> task = executorService.submit(() -> consumeMessages(config, consumer));
+            ConsumerContext context = new ConsumerContext(consumer, tracker, paused, lanes);
+            consumer.subscribe(Collections.singletonList(config.getTopicName()),
+                new TrackingRebalanceListener(config, context));
+
+            consumers.put(config.getId(), consumer);
+            offsetTrackers.put(config.getId(), tracker);
+            pausedPartitions.put(config.getId(), paused);
+            if (lanes != null) {
+                laneExecutors.put(config.getId(), lanes);
+            }
+            Future<?> task = pipelineExecutorService.getConsumerExecutor().submit(() -> consumeMessages(config, context));
             consumerTasks.put(config.getId(), task);
 
-            log.info("Started Kafka consumer for config: {} on topic: {}",
-                config.getConfigName(), config.getTopicName());
+            log.info("Started Kafka consumer for config: {} on topic: {} with {} processing lane(s)",
+                config.getConfigName(), config.getTopicName(), laneCount);
 
             updateConnectionStatus(config.getId(), "connected");
         } catch (Exception e) {
@@ -89,7 +128,7 @@ public class KafkaConsumerManager {
     }
 
     public void stopConsumer(Long configId) {
-        KafkaConsumer<String, String> consumer = consumers.remove(configId);
+        KafkaConsumer<String, byte[]> consumer = consumers.remove(configId);
         if (consumer != null) {
             try {
                 consumer.wakeup();
@@ -105,6 +144,10 @@ public class KafkaConsumerManager {
             task.cancel(true);
         }
 
+        shutdownLanes(configId);
+        offsetTrackers.remove(configId);
+        pausedPartitions.remove(configId);
+
         updateConnectionStatus(configId, "disconnected");
     }
 
@@ -114,54 +157,390 @@ public class KafkaConsumerManager {
         }
     }
 
-    private void consumeMessages(KafkaDataSourceConfig config, KafkaConsumer<String, String> consumer) {
+    private void consumeMessages(KafkaDataSourceConfig config, ConsumerContext context) {
+        KafkaConsumer<String, byte[]> consumer = context.consumer;
+        OffsetCommitTracker tracker = context.tracker;
+        Set<TopicPartition> paused = context.paused;
+        PartitionLaneExecutor lanes = context.lanes;
         try {
             while (running && !Thread.currentThread().isInterrupted()) {
                 try {
-                    ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(1000));
-
-                    for (ConsumerRecord<String, String> record : records) {
-                        try {
-                            processMessage(config, record);
-                        } catch (Exception e) {
-                            log.error("Error processing message from topic: {}, partition: {}, offset: {}",
-                                record.topic(), record.partition(), record.offset(), e);
+                    // 有分区被暂停时缩短poll等待时间，以便尽快检查是否可以恢复
+                    ConsumerRecords<String, byte[]> records = consumer.poll(
+                        Duration.ofMillis(paused.isEmpty() ? 1000 : 100));
+
+                    for (ConsumerRecord<String, byte[]> record : records) {
+                        tracker.track(new TopicPartition(record.topic(), record.partition()), record.offset());
+                    }
+
+                    if (isBatchMode(config)) {
+                        if (lanes == null) {
+                            List<ConsumerRecord<String, byte[]>> batch = new ArrayList<>(records.count());
+                            records.forEach(batch::add);
+                            processBatch(config, batch, context);
+                        } else {
+                            dispatchBatchesToLanes(config, lanes, records, context);
                         }
+                    } else if (lanes == null) {
+                        for (ConsumerRecord<String, byte[]> record : records) {
+                            processRecord(config, record, context);
+                        }
+                    } else {
+                        dispatchToLanes(config, lanes, records, context);
                     }
 
-                    if (!records.isEmpty()) {
-                        consumer.commitSync();
+                    handleFailures(config, context);
+
+                    if (tracker.isCommitDue()) {
+                        commitCompletedOffsets(config, context);
                     }
+
+                    applyBackpressure(config, context);
                 } catch (CommitFailedException e) {
                     log.error("Failed to commit offset for config: {}", config.getConfigName(), e);
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             if (!e.getClass().getSimpleName().equals("WakeupException")) {
                 log.error("Error in consumer loop for config: {}", config.getConfigName(), e);
                 updateConnectionStatus(config.getId(), "error: " + e.getMessage());
             }
         } finally {
+            try {
+                Map<TopicPartition, OffsetAndMetadata> offsets =
+                    tracker.drainCommittable(consumer.assignment(), true);
+                if (!offsets.isEmpty()) {
+                    consumer.commitSync(offsets);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to commit final offsets for config: {}", config.getConfigName(), e);
+            }
             try {
                 consumer.close();
             } catch (Exception e) {
                 log.error("Error closing consumer for config: {}", config.getConfigName(), e);
             }
-            consumers.remove(config.getId());
-            consumerTasks.remove(config.getId());
+            if (context.deadLetterProducer != null) {
+                context.deadLetterProducer.close(Duration.ofSeconds(5));
+            }
+            // 重启时新消费者可能已用同一配置id注册，只移除本线程创建的实例
+            consumers.remove(config.getId(), consumer);
+            offsetTrackers.remove(config.getId(), tracker);
+            pausedPartitions.remove(config.getId(), paused);
+            if (lanes != null) {
+                laneExecutors.remove(config.getId(), lanes);
+                lanes.shutdown();
+            }
+        }
+    }
+
+    /**
+     * 分区内未完成（含异步阶段排队中）的记录数超过高水位时暂停该分区，低于低水位时恢复；
+     * 暂停期间继续poll以维持心跳，不会触发再均衡。等待重试的分区在退避时间结束前不恢复
+     */
+    private void applyBackpressure(KafkaDataSourceConfig config, ConsumerContext context) {
+        KafkaConsumer<String, byte[]> consumer = context.consumer;
+        OffsetCommitTracker tracker = context.tracker;
+        Set<TopicPartition> paused = context.paused;
+        List<TopicPartition> toPause = new ArrayList<>();
+        List<TopicPartition> toResume = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        for (TopicPartition partition : consumer.assignment()) {
+            Long retryAt = context.retryHolds.get(partition);
+            if (retryAt != null) {
+                if (now < retryAt) {
+                    continue;
+                }
+                context.retryHolds.remove(partition);
+            }
+            int inFlight = tracker.getInFlightCount(partition);
+            if (!paused.contains(partition) && inFlight >= backpressureHighWatermark) {
+                toPause.add(partition);
+            } else if (paused.contains(partition) && inFlight <= backpressureLowWatermark) {
+                toResume.add(partition);
+            }
+        }
+
+        if (!toPause.isEmpty()) {
+            consumer.pause(toPause);
+            paused.addAll(toPause);
+            log.warn("Paused partitions {} for config {}: in-flight records above {}",
+                toPause, config.getConfigName(), backpressureHighWatermark);
+        }
+        if (!toResume.isEmpty()) {
+            consumer.resume(toResume);
+            paused.removeAll(toResume);
+            log.info("Resumed partitions {} for config {}", toResume, config.getConfigName());
+        }
+    }
+
+    /**
+     * 异步批量提交各分区连续处理完成的最高offset
+     */
+    private void commitCompletedOffsets(KafkaDataSourceConfig config, ConsumerContext context) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = context.tracker.drainCommittable();
+        if (offsets.isEmpty()) {
+            return;
+        }
+
+        // 已提交位置之前的记录不会再重试
+        offsets.forEach((partition, offset) -> {
+            NavigableMap<Long, Integer> attempts = context.attempts.get(partition);
+            if (attempts != null) {
+                attempts.headMap(offset.offset()).clear();
+            }
+        });
+
+        context.consumer.commitAsync(offsets, (committed, exception) -> {
+            if (exception != null) {
+                log.warn("Failed to commit offsets {} for config: {}", committed, config.getConfigName(), exception);
+            }
+        });
+    }
+
+    /**
+     * 将一次poll的记录分发到各处理通道，并等待本批同步处理部分完成后再返回；
+     * 异步阶段的完成情况由OffsetCommitTracker跟踪
+     */
+    private void dispatchToLanes(KafkaDataSourceConfig config, PartitionLaneExecutor lanes,
+                                 ConsumerRecords<String, byte[]> records,
+                                 ConsumerContext context) throws InterruptedException {
+        List<Future<?>> pending = new ArrayList<>(records.count());
+        for (ConsumerRecord<String, byte[]> record : records) {
+            pending.add(lanes.submit(record, () -> processRecord(config, record, context)));
+        }
+
+        awaitLanes(config, pending);
+    }
+
+    /**
+     * 批量模式下按通道拆分一次poll的记录，每个通道把分到的记录作为一个批次处理
+     */
+    private void dispatchBatchesToLanes(KafkaDataSourceConfig config, PartitionLaneExecutor lanes,
+                                        ConsumerRecords<String, byte[]> records,
+                                        ConsumerContext context) throws InterruptedException {
+        Map<Integer, List<ConsumerRecord<String, byte[]>>> batches = new HashMap<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            batches.computeIfAbsent(lanes.laneFor(record), lane -> new ArrayList<>()).add(record);
+        }
+
+        List<Future<?>> pending = new ArrayList<>(batches.size());
+        batches.forEach((lane, batch) ->
+            pending.add(lanes.submitToLane(lane, () -> processBatch(config, batch, context))));
+
+        awaitLanes(config, pending);
+    }
+
+    private void awaitLanes(KafkaDataSourceConfig config, List<Future<?>> pending) throws InterruptedException {
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                log.error("Unexpected error in processing lane for config: {}", config.getConfigName(), e.getCause());
+            }
+        }
+    }
+
+    private boolean isBatchMode(KafkaDataSourceConfig config) {
+        return "batch".equalsIgnoreCase(config.getProcessingMode());
+    }
+
+    /**
+     * 批量处理记录，成功的记录标记为完成，失败的记录交给消费线程重试或写入死信
+     */
+    private void processBatch(KafkaDataSourceConfig config, List<ConsumerRecord<String, byte[]>> records,
+                              ConsumerContext context) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        List<AlertData> batch = new ArrayList<>(records.size());
+        long[] epochs = new long[records.size()];
+        Map<AlertData, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, byte[]> record = records.get(i);
+            AlertData alertData = toAlertData(config, record);
+            batch.add(alertData);
+            positions.put(alertData, i);
+            epochs[i] = context.tracker.epoch(new TopicPartition(record.topic(), record.partition()));
+        }
+
+        AlertProcessingService.BatchResult result;
+        try {
+            result = alertProcessingService.processAlerts(batch);
+        } catch (Exception e) {
+            log.error("Error processing batch of {} messages for config: {}", records.size(), config.getConfigName(), e);
+            for (int i = 0; i < records.size(); i++) {
+                reportFailure(context, records.get(i), epochs[i], e, true);
+            }
+            return;
+        }
+
+        for (AlertProcessingService.FailedRecord failed : result.getFailures()) {
+            int i = positions.remove(failed.getAlertData());
+            reportFailure(context, records.get(i), epochs[i], new RuntimeException(failed.getReason()),
+                failed.isRetryable());
+        }
+
+        positions.forEach((alertData, i) -> result.getCompletion(alertData).whenComplete((ignored, exception) -> {
+            if (exception == null) {
+                completeRecord(context, records.get(i), epochs[i], alertData.getReceivedTime());
+            } else {
+                reportFailure(context, records.get(i), epochs[i], exception, true);
+            }
+        }));
+    }
+
+    private void processRecord(KafkaDataSourceConfig config, ConsumerRecord<String, byte[]> record,
+                               ConsumerContext context) {
+        long epoch = context.tracker.epoch(new TopicPartition(record.topic(), record.partition()));
+        long receivedTime = System.currentTimeMillis();
+        try {
+            processMessage(config, record)
+                .whenComplete((result, exception) -> {
+                    if (exception == null) {
+                        completeRecord(context, record, epoch, receivedTime);
+                    } else {
+                        reportFailure(context, record, epoch, exception, true);
+                    }
+                });
+        } catch (Exception e) {
+            reportFailure(context, record, epoch, e,
+                !(e instanceof AlertProcessingService.UnprocessableAlertException));
+        }
+    }
+
+    private void completeRecord(ConsumerContext context, ConsumerRecord<String, byte[]> record,
+                                long epoch, long receivedTime) {
+        context.tracker.complete(new TopicPartition(record.topic(), record.partition()), record.offset(), epoch);
+        pipelineExecutorService.recordLatency(System.currentTimeMillis() - receivedTime);
+    }
+
+    /**
+     * 记录处理失败：不标记完成，分区提交停在该记录之前，由消费线程在下一轮决定重试或写入死信
+     */
+    private void reportFailure(ConsumerContext context, ConsumerRecord<String, byte[]> record, long epoch,
+                               Throwable exception, boolean retryable) {
+        Throwable cause = exception instanceof CompletionException && exception.getCause() != null
+            ? exception.getCause()
+            : exception;
+        log.error("Error processing message from topic: {}, partition: {}, offset: {}",
+            record.topic(), record.partition(), record.offset(), cause);
+        context.failures.add(new RecordFailure(record, epoch, cause, retryable));
+    }
+
+    /**
+     * 在消费线程处理失败的记录：无法处理或已达到最大尝试次数的记录写入死信topic后标记完成；
+     * 其余的记录所在分区回退到最早失败的offset重新消费，并暂停该分区一段随尝试次数递增的退避时间。
+     * 回退后该位置之后已经处理过的记录会再处理一次（至少一次语义）
+     */
+    private void handleFailures(KafkaDataSourceConfig config, ConsumerContext context) {
+        if (context.failures.isEmpty()) {
+            return;
+        }
+        List<RecordFailure> failures = new ArrayList<>();
+        for (RecordFailure failure; (failure = context.failures.poll()) != null; ) {
+            // 分区已被回收或该记录已被回退，记录会被重新消费
+            if (context.tracker.isCurrent(failure.partition(), failure.record.offset(), failure.epoch)) {
+                failures.add(failure);
+            }
+        }
+
+        Map<TopicPartition, Long> rewinds = new HashMap<>();
+        List<RecordFailure> deadLetters = new ArrayList<>();
+        for (RecordFailure failure : failures) {
+            int attempts = context.attempts.computeIfAbsent(failure.partition(), p -> new TreeMap<>())
+                .merge(failure.record.offset(), 1, Integer::sum);
+            if (!failure.retryable || attempts >= retryMaxAttempts) {
+                deadLetters.add(failure);
+            } else {
+                rewinds.merge(failure.partition(), failure.record.offset(), Math::min);
+            }
+        }
+
+        for (RecordFailure failure : deadLetters) {
+            TopicPartition partition = failure.partition();
+            Long rewindTo = rewinds.get(partition);
+            if (rewindTo != null && rewindTo < failure.record.offset()) {
+                // 分区回退到更早的位置，该记录会被重新消费
+                continue;
+            }
+            if (sendToDeadLetter(config, context, failure)) {
+                context.tracker.complete(partition, failure.record.offset(), failure.epoch);
+                context.attempts.get(partition).remove(failure.record.offset());
+            } else {
+                rewinds.merge(partition, failure.record.offset(), Math::min);
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        rewinds.forEach((partition, offset) -> {
+            int attempts = context.attempts.get(partition).getOrDefault(offset, 1);
+            context.tracker.rewind(partition, offset);
+            context.consumer.seek(partition, offset);
+            context.retryHolds.put(partition, now + retryBackoffMs * attempts);
+            if (context.paused.add(partition)) {
+                context.consumer.pause(Collections.singletonList(partition));
+            }
+            log.warn("Rewinding partition {} to offset {} for config {} (attempt {} of {})",
+                partition, offset, config.getConfigName(), attempts, retryMaxAttempts);
+        });
+    }
+
+    private boolean sendToDeadLetter(KafkaDataSourceConfig config, ConsumerContext context, RecordFailure failure) {
+        ConsumerRecord<String, byte[]> record = failure.record;
+        if (deadLetterTopicSuffix == null || deadLetterTopicSuffix.isBlank()) {
+            return false;
+        }
+
+        String topic = record.topic() + deadLetterTopicSuffix;
+        ProducerRecord<String, byte[]> deadLetter = new ProducerRecord<>(topic, record.key(), record.value());
+        deadLetter.headers()
+            .add("x-original-topic", record.topic().getBytes(StandardCharsets.UTF_8))
+            .add("x-original-partition", String.valueOf(record.partition()).getBytes(StandardCharsets.UTF_8))
+            .add("x-original-offset", String.valueOf(record.offset()).getBytes(StandardCharsets.UTF_8))
+            .add("x-error", String.valueOf(failure.cause).getBytes(StandardCharsets.UTF_8));
+        try {
+            if (context.deadLetterProducer == null) {
+                context.deadLetterProducer = new KafkaProducer<>(createProducerProperties(config));
+            }
+            context.deadLetterProducer.send(deadLetter).get(10, TimeUnit.SECONDS);
+            log.error("Sent message from topic: {}, partition: {}, offset: {} to dead-letter topic {}",
+                record.topic(), record.partition(), record.offset(), topic);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.error("Failed to send message at offset {} to dead-letter topic {}, will retry it",
+                record.offset(), topic, e);
+            return false;
+        }
+    }
+
+    private void shutdownLanes(Long configId) {
+        PartitionLaneExecutor lanes = laneExecutors.remove(configId);
+        if (lanes != null) {
+            lanes.shutdown();
         }
     }
 
-    private void processMessage(KafkaDataSourceConfig config, ConsumerRecord<String, String> record) {
+    private CompletableFuture<Void> processMessage(KafkaDataSourceConfig config, ConsumerRecord<String, byte[]> record) {
+        return alertProcessingService.processAlert(toAlertData(config, record));
+    }
+
+    private AlertData toAlertData(KafkaDataSourceConfig config, ConsumerRecord<String, byte[]> record) {
         AlertData alertData = new AlertData();
         alertData.setKafkaConfig(config);
-        alertData.setRawData(record.value());
+        alertData.setRawBytes(record.value());
         alertData.setKafkaTopic(record.topic());
         alertData.setKafkaPartition(record.partition());
         alertData.setKafkaOffset(record.offset());
         alertData.setReceivedTime(System.currentTimeMillis());
-
-        alertProcessingService.processAlert(alertData);
+        return alertData;
     }
 
     private Properties createConsumerProperties(KafkaDataSourceConfig config) {
@@ -169,12 +548,31 @@ public class KafkaConsumerManager {
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, config.getBrokers());
         props.put(ConsumerConfig.GROUP_ID_CONFIG, config.getConsumerGroup());
         props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
-        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        // 消息体以UTF-8字节传递，直接由Jackson解析并写入ClickHouse，不在流水线中转换为字符串
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
         props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, config.getAutoOffsetReset());
         props.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, config.getSessionTimeout());
         props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, config.getMaxPollRecords());
         props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        applySecurity(props, config);
+
+        return props;
+    }
+
+    /**
+     * 死信生产者，与消费者使用相同的broker和认证配置
+     */
+    private Properties createProducerProperties(KafkaDataSourceConfig config) {
+        Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, config.getBrokers());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        applySecurity(props, config);
+        return props;
+    }
 
+    private void applySecurity(Properties props, KafkaDataSourceConfig config) {
         if (config.getSecurityProtocol() != null && !"PLAINTEXT".equals(config.getSecurityProtocol())) {
             props.put("security.protocol", config.getSecurityProtocol());
 
@@ -186,8 +584,6 @@ public class KafkaConsumerManager {
                     config.getUsername(), config.getPassword()));
             }
         }
-
-        return props;
     }
 
     @Transactional
@@ -235,6 +631,37 @@ public class KafkaConsumerManager {
         return statuses;
     }
 
+    /**
+     * 各配置的背压状态：每个分区未完成的记录数及是否暂停，以及各异步阶段的队列深度
+     */
+    public Map<Long, Map<String, Object>> getBackpressureStatus() {
+        Map<Long, Map<String, Object>> statuses = new HashMap<>();
+        for (Map.Entry<Long, OffsetCommitTracker> entry : offsetTrackers.entrySet()) {
+            OffsetCommitTracker tracker = entry.getValue();
+            Set<TopicPartition> paused = pausedPartitions.getOrDefault(entry.getKey(), Collections.emptySet());
+
+            List<Map<String, Object>> partitions = new ArrayList<>();
+            for (TopicPartition partition : tracker.getPartitions()) {
+                Map<String, Object> partitionStatus = new LinkedHashMap<>();
+                partitionStatus.put("topic", partition.topic());
+                partitionStatus.put("partition", partition.partition());
+                partitionStatus.put("inFlight", tracker.getInFlightCount(partition));
+                partitionStatus.put("paused", paused.contains(partition));
+                partitions.add(partitionStatus);
+            }
+
+            Map<String, Object> status = new LinkedHashMap<>();
+            status.put("inFlight", tracker.getInFlightCount());
+            status.put("pausedPartitions", paused.size());
+            status.put("highWatermark", backpressureHighWatermark);
+            status.put("lowWatermark", backpressureLowWatermark);
+            status.put("partitions", partitions);
+            status.put("stageDepths", pipelineExecutorService.getStageDepths());
+            statuses.put(entry.getKey(), status);
+        }
+        return statuses;
+    }
+
     public void restartConsumer(Long configId) {
         stopConsumer(configId);
         KafkaDataSourceConfig config = kafkaConfigRepository.findById(configId).orElse(null);
@@ -243,9 +670,87 @@ public class KafkaConsumerManager {
         }
     }
 
+    /**
+     * 分区被回收前同步提交已完成的offset，并丢弃这些分区的跟踪状态
+     */
+    private class TrackingRebalanceListener implements ConsumerRebalanceListener {
+        private final KafkaDataSourceConfig config;
+        private final ConsumerContext context;
+
+        TrackingRebalanceListener(KafkaDataSourceConfig config, ConsumerContext context) {
+            this.config = config;
+            this.context = context;
+        }
+
+        @Override
+        public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+            try {
+                Map<TopicPartition, OffsetAndMetadata> offsets = context.tracker.drainCommittable(partitions, true);
+                if (!offsets.isEmpty()) {
+                    context.consumer.commitSync(offsets);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to commit offsets on revocation for config: {}", config.getConfigName(), e);
+            }
+            context.tracker.remove(partitions);
+            context.paused.removeAll(partitions);
+            for (TopicPartition partition : partitions) {
+                context.retryHolds.remove(partition);
+                context.attempts.remove(partition);
+            }
+        }
+
+        @Override
+        public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+            log.debug("Partitions assigned for config {}: {}", config.getConfigName(), partitions);
+        }
+    }
+
+    /**
+     * 一个消费线程创建并独占的实例；failures可由任意线程写入，其余的重试状态只在消费线程访问
+     */
+    private static class ConsumerContext {
+        private final KafkaConsumer<String, byte[]> consumer;
+        private final OffsetCommitTracker tracker;
+        private final Set<TopicPartition> paused;
+        private final PartitionLaneExecutor lanes;
+        private final Queue<RecordFailure> failures = new ConcurrentLinkedQueue<>();
+        // 各分区中失败记录的offset → 已尝试次数
+        private final Map<TopicPartition, NavigableMap<Long, Integer>> attempts = new HashMap<>();
+        // 等待重试的分区 → 可以恢复消费的时间
+        private final Map<TopicPartition, Long> retryHolds = new HashMap<>();
+        private KafkaProducer<String, byte[]> deadLetterProducer;
+
+        ConsumerContext(KafkaConsumer<String, byte[]> consumer, OffsetCommitTracker tracker,
+                        Set<TopicPartition> paused, PartitionLaneExecutor lanes) {
+            this.consumer = consumer;
+            this.tracker = tracker;
+            this.paused = paused;
+            this.lanes = lanes;
+        }
+    }
+
+    private static class RecordFailure {
+        private final ConsumerRecord<String, byte[]> record;
+        private final long epoch;
+        private final Throwable cause;
+        private final boolean retryable;
+
+        RecordFailure(ConsumerRecord<String, byte[]> record, long epoch, Throwable cause, boolean retryable) {
+            this.record = record;
+            this.epoch = epoch;
+            this.cause = cause;
+            this.retryable = retryable;
+        }
+
+        TopicPartition partition() {
+            return new TopicPartition(record.topic(), record.partition());
+        }
+    }
+
     public static class AlertData {
         private KafkaDataSourceConfig kafkaConfig;
-        private String rawData;
+        private byte[] rawBytes;
         private String kafkaTopic;
         private Integer kafkaPartition;
         private Long kafkaOffset;
@@ -253,8 +758,8 @@ public class KafkaConsumerManager {
 
         public KafkaDataSourceConfig getKafkaConfig() { return kafkaConfig; }
         public void setKafkaConfig(KafkaDataSourceConfig kafkaConfig) { this.kafkaConfig = kafkaConfig; }
-        public String getRawData() { return rawData; }
-        public void setRawData(String rawData) { this.rawData = rawData; }
+        public byte[] getRawBytes() { return rawBytes; }
+        public void setRawBytes(byte[] rawBytes) { this.rawBytes = rawBytes; }
         public String getKafkaTopic() { return kafkaTopic; }
         public void setKafkaTopic(String kafkaTopic) { this.kafkaTopic = kafkaTopic; }
         public Integer getKafkaPartition() { return kafkaPartition; }
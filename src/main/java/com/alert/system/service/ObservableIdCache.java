@@ -0,0 +1,362 @@
+package com.alert.system.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 可观察对象id缓存：(type, value) → observable id，容量有界
+ * 淘汰采用W-TinyLFU：新键先进入约占1%容量的LRU窗口，被挤出窗口时与主区（SLRU）的淘汰候选比较访问频率，
+ * 频率更高者留下，只出现一次的值不会挤掉常见的内网IP、自有域名等热点。频率由带周期性减半的Count-Min Sketch估计。
+ * 读取走ConcurrentHashMap，不阻塞；访问顺序和频率在拿到策略锁时才记录，竞争时丢弃这一次记录
+ */
+@Service
+public class ObservableIdCache {
+
+    @Value("${app.observables.id-cache.max-size:100000}")
+    private int maxSize;
+
+    private final ConcurrentHashMap<Key, Node> data = new ConcurrentHashMap<>();
+    private final ReentrantLock policyLock = new ReentrantLock();
+
+    // 以下字段只在持有policyLock时访问
+    private final AccessOrder window = new AccessOrder();
+    private final AccessOrder probation = new AccessOrder();
+    private final AccessOrder protectedOrder = new AccessOrder();
+    private FrequencySketch sketch;
+    private int windowCapacity;
+    private int protectedCapacity;
+    private int capacity;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    /**
+     * 缓存键
+     */
+    public static final class Key implements Comparable<Key> {
+        private final String type;
+        private final String value;
+
+        public Key(String type, String value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byType = type.compareTo(other.type);
+            return byType != 0 ? byType : value.compareTo(other.value);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key that = (Key) o;
+            return type.equals(that.type) && value.equals(that.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * type.hashCode() + value.hashCode();
+        }
+    }
+
+    @PostConstruct
+    public void initialize() {
+        capacity = Math.max(2, maxSize);
+        windowCapacity = Math.max(1, capacity / 100);
+        protectedCapacity = (capacity - windowCapacity) * 8 / 10;
+        sketch = new FrequencySketch(capacity);
+    }
+
+    public UUID get(Key key) {
+        Node node = data.get(key);
+        if (policyLock.tryLock()) {
+            try {
+                sketch.increment(key.hashCode());
+                if (node != null && node.order != null) {
+                    onAccess(node);
+                }
+            } finally {
+                policyLock.unlock();
+            }
+        }
+        if (node == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return node.id;
+    }
+
+    public void put(Key key, UUID id) {
+        policyLock.lock();
+        try {
+            Node existing = data.get(key);
+            if (existing != null) {
+                existing.id = id;
+                return;
+            }
+            Node node = new Node(key, id);
+            data.put(key, node);
+            window.addFirst(node);
+            if (window.size > windowCapacity) {
+                Node candidate = window.removeLast();
+                probation.addFirst(candidate);
+                evictIfNeeded(candidate);
+            }
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    public void putAll(Map<Key, UUID> ids) {
+        ids.forEach(this::put);
+    }
+
+    /**
+     * 可观察对象可能已被删除或写入回滚时清空，之后按需重新加载
+     */
+    public void invalidateAll() {
+        policyLock.lock();
+        try {
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedOrder.clear();
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    /**
+     * 取一批键的id，未命中的键交给loader一次批量加载。
+     * 加载结果不写入缓存，由调用方在确认这些行已提交后调用putAll
+     */
+    public Map<Key, UUID> getAll(Collection<Key> keys, Function<Set<Key>, Map<Key, UUID>> loader) {
+        Map<Key, UUID> result = new HashMap<>();
+        Set<Key> missing = new HashSet<>();
+        for (Key key : keys) {
+            if (result.containsKey(key) || missing.contains(key)) {
+                continue;
+            }
+            UUID id = get(key);
+            if (id != null) {
+                result.put(key, id);
+            } else {
+                missing.add(key);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            loads.incrementAndGet();
+            loader.apply(missing).forEach((key, id) -> {
+                if (id != null && missing.contains(key)) {
+                    result.put(key, id);
+                }
+            });
+        }
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long requests = hitCount + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", data.size());
+        stats.put("maxSize", capacity);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("hitRate", requests == 0 ? 0.0 : (double) hitCount / requests);
+        stats.put("evictions", evictions.get());
+        stats.put("rejectedAdmissions", rejections.get());
+        stats.put("loads", loads.get());
+        return stats;
+    }
+
+    private void onAccess(Node node) {
+        if (node.order == window) {
+            window.moveToFront(node);
+        } else if (node.order == probation) {
+            // 在试用区再次被访问，晋升到保护区
+            probation.remove(node);
+            protectedOrder.addFirst(node);
+            if (protectedOrder.size > protectedCapacity) {
+                probation.addFirst(protectedOrder.removeLast());
+            }
+        } else {
+            protectedOrder.moveToFront(node);
+        }
+    }
+
+    /**
+     * 超出容量时，刚从窗口进入试用区的候选与试用区最久未访问的键比较频率，淘汰频率低者
+     */
+    private void evictIfNeeded(Node candidate) {
+        if (data.size() <= capacity) {
+            return;
+        }
+        Node victim = probation.last();
+        Node evicted = victim;
+        if (victim == candidate) {
+            evicted = candidate;
+        } else if (sketch.frequency(candidate.key.hashCode()) <= sketch.frequency(victim.key.hashCode())) {
+            evicted = candidate;
+            rejections.incrementAndGet();
+        }
+        probation.remove(evicted);
+        data.remove(evicted.key);
+        evictions.incrementAndGet();
+    }
+
+    private static final class Node {
+        private final Key key;
+        private volatile UUID id;
+        private Node prev;
+        private Node next;
+        private AccessOrder order;
+
+        Node(Key key, UUID id) {
+            this.key = key;
+            this.id = id;
+        }
+    }
+
+    /**
+     * 按访问顺序排列的双向链表，表头为最近访问
+     */
+    private static final class AccessOrder {
+        private Node head;
+        private Node tail;
+        private int size;
+
+        void addFirst(Node node) {
+            node.order = this;
+            node.prev = null;
+            node.next = head;
+            if (head != null) {
+                head.prev = node;
+            } else {
+                tail = node;
+            }
+            head = node;
+            size++;
+        }
+
+        void remove(Node node) {
+            if (node.prev != null) {
+                node.prev.next = node.next;
+            } else {
+                head = node.next;
+            }
+            if (node.next != null) {
+                node.next.prev = node.prev;
+            } else {
+                tail = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.order = null;
+            size--;
+        }
+
+        Node removeLast() {
+            Node node = tail;
+            remove(node);
+            return node;
+        }
+
+        Node last() {
+            return tail;
+        }
+
+        void moveToFront(Node node) {
+            if (head != node) {
+                remove(node);
+                addFirst(node);
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+            size = 0;
+        }
+    }
+
+    /**
+     * 4位计数器的Count-Min Sketch，每个long存16个计数器；累计增加次数达到容量的10倍时全部减半，使频率随时间衰减
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int tableMask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int size = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+            table = new long[size];
+            tableMask = size - 1;
+            sampleSize = 10 * capacity;
+        }
+
+        int frequency(int hash) {
+            int frequency = 15;
+            for (int i = 0; i < 4; i++) {
+                int h = indexHash(hash, i);
+                int shift = ((h >>> 24) & 15) << 2;
+                frequency = Math.min(frequency, (int) ((table[h & tableMask] >>> shift) & 0xF));
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int h = indexHash(hash, i);
+                int index = h & tableMask;
+                int shift = ((h >>> 24) & 15) << 2;
+                if (((table[index] >>> shift) & 0xF) < 15) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        private static int indexHash(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h;
+        }
+    }
+}
@@ -0,0 +1,546 @@
+package com.alert.system.service;
+
+/**
+ * 可观察对象扫描器：一次线性扫描识别IPv4/IPv6、域名、URL、邮箱、MD5/SHA1/SHA256、CVE和文件路径
+ * 只通过charAt读取输入，命中时回调[start, end)区间，未命中的候选不产生子串。
+ * 输入可以是String，也可以是原始字节的ByteCharSequence视图（非ASCII字节不会被识别为标识符字符）
+ */
+public final class ObservableScanner {
+
+    public static final String IP = "IP";
+    public static final String DOMAIN = "DOMAIN";
+    public static final String URL = "URL";
+    public static final String EMAIL = "EMAIL";
+    public static final String MD5 = "MD5";
+    public static final String SHA1 = "SHA1";
+    public static final String SHA256 = "SHA256";
+    public static final String CVE = "CVE";
+    public static final String FILE_PATH = "FILE_PATH";
+
+    private static final int MAX_DOMAIN_LENGTH = 253;
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final int MIN_URL_LENGTH = 10;
+
+    /**
+     * 命中回调，区间为[start, end)
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void accept(String type, int start, int end);
+    }
+
+    private final CharSequence text;
+    private final int length;
+    private final Sink sink;
+    // 已被路径扫描读过的位置，之前的分隔符不再作为新路径的起点，保证整体线性
+    private int pathScannedUntil;
+    // 最近一次解析成功的IPv4地址
+    private int lastIpv4;
+
+    private ObservableScanner(CharSequence text, Sink sink) {
+        this.text = text;
+        this.length = text.length();
+        this.sink = sink;
+    }
+
+    public static void scan(CharSequence text, Sink sink) {
+        new ObservableScanner(text, sink).run();
+    }
+
+    /**
+     * 整个值恰好是指定类型（用于按字段名确定类型的取值）
+     */
+    public static boolean matches(String type, CharSequence value) {
+        boolean[] matched = new boolean[1];
+        int length = value.length();
+        scan(value, (t, start, end) -> {
+            if (start == 0 && end == length && t.equals(type)) {
+                matched[0] = true;
+            }
+        });
+        return matched[0];
+    }
+
+    /**
+     * 按长度判断哈希类型，不是十六进制串时返回null
+     */
+    public static String hashType(CharSequence value) {
+        String type = hashTypeForLength(value.length());
+        if (type == null) {
+            return null;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!isHex(value.charAt(i))) {
+                return null;
+            }
+        }
+        return type;
+    }
+
+    private void run() {
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isAlnum(c)) {
+                // 候选只从单词开头识别，与正则的\b一致
+                if (i > 0 && isWordChar(text.charAt(i - 1))) {
+                    i++;
+                } else {
+                    i = scanWord(i);
+                }
+            } else if (c == '/' || c == '\\') {
+                if (i >= pathScannedUntil && (i == 0 || !blocksPathStart(text.charAt(i - 1)))) {
+                    scanPath(i, i);
+                }
+                i++;
+            } else if (c == ':' && i + 1 < length && text.charAt(i + 1) == ':'
+                && (i == 0 || !isHex(text.charAt(i - 1)) && text.charAt(i - 1) != ':')) {
+                int end = scanIpv6(i);
+                if (end > 0) {
+                    sink.accept(IP, i, end);
+                    i = end;
+                } else {
+                    i += 2;
+                }
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * 从单词开头识别，返回下一个扫描位置
+     */
+    private int scanWord(int start) {
+        int runEnd = start;
+        while (runEnd < length && isRunChar(text.charAt(runEnd))) {
+            runEnd++;
+        }
+        char next = runEnd < length ? text.charAt(runEnd) : 0;
+
+        if (next == ':') {
+            if (isHttpScheme(start, runEnd) && runEnd + 2 < length
+                && text.charAt(runEnd + 1) == '/' && text.charAt(runEnd + 2) == '/') {
+                return scanUrl(start, runEnd + 3);
+            }
+            if (runEnd - start == 1 && isLetter(text.charAt(start)) && runEnd + 1 < length
+                && isPathSeparator(text.charAt(runEnd + 1))) {
+                scanPath(start, runEnd + 1);
+                return runEnd;
+            }
+            int end = scanIpv6(start);
+            if (end > 0) {
+                sink.accept(IP, start, end);
+                return end;
+            }
+        } else if (next == '@') {
+            int end = scanEmail(start, runEnd);
+            if (end > 0) {
+                return end;
+            }
+        }
+
+        // '%'和'+'不能出现在域名、地址、哈希中，按它们切分后分别识别
+        int pieceStart = start;
+        for (int p = start; p <= runEnd; p++) {
+            if (p == runEnd || text.charAt(p) == '%' || text.charAt(p) == '+') {
+                classifyToken(pieceStart, p);
+                pieceStart = p + 1;
+            }
+        }
+        return runEnd;
+    }
+
+    private void classifyToken(int start, int end) {
+        while (start < end && (text.charAt(start) == '.' || text.charAt(start) == '-')) {
+            start++;
+        }
+        // 去掉句末的点号和连字符
+        while (end > start && (text.charAt(end - 1) == '.' || text.charAt(end - 1) == '-')) {
+            end--;
+        }
+        if (start >= end) {
+            return;
+        }
+
+        String hashType = hashTypeForLength(end - start);
+        if (hashType != null && isHexRange(start, end)) {
+            sink.accept(hashType, start, end);
+        } else if (isCve(start, end)) {
+            sink.accept(CVE, start, end);
+        } else if (parseIpv4(start, end) == end) {
+            if (isUsefulIpv4(lastIpv4)) {
+                sink.accept(IP, start, end);
+            }
+        } else if (isDomain(start, end) && isUsefulDomain(start, end)) {
+            sink.accept(DOMAIN, start, end);
+        }
+    }
+
+    /**
+     * 本地部分为[start, at)，成功时返回邮箱结束位置，否则返回-1
+     */
+    private int scanEmail(int start, int at) {
+        int domainStart = at + 1;
+        int end = domainStart;
+        while (end < length && (isAlnum(text.charAt(end)) || text.charAt(end) == '.' || text.charAt(end) == '-')) {
+            end++;
+        }
+        while (end > domainStart && (text.charAt(end - 1) == '.' || text.charAt(end - 1) == '-')) {
+            end--;
+        }
+        if (!isDomain(domainStart, end)) {
+            return -1;
+        }
+        sink.accept(EMAIL, start, end);
+        if (isUsefulDomain(domainStart, end)) {
+            sink.accept(DOMAIN, domainStart, end);
+        }
+        return end;
+    }
+
+    /**
+     * URL延伸到空白、引号、尖括号或反斜杠为止；主机部分另外作为IP或域名输出
+     */
+    private int scanUrl(int start, int authorityStart) {
+        int end = authorityStart;
+        while (end < length && !isUrlTerminator(text.charAt(end))) {
+            end++;
+        }
+        while (end > authorityStart && isTrailingPunctuation(text.charAt(end - 1))) {
+            end--;
+        }
+        if (end - start >= MIN_URL_LENGTH) {
+            sink.accept(URL, start, end);
+        }
+
+        int authorityEnd = authorityStart;
+        int hostStart = authorityStart;
+        while (authorityEnd < end) {
+            char c = text.charAt(authorityEnd);
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+            if (c == '@') {
+                hostStart = authorityEnd + 1;
+            }
+            authorityEnd++;
+        }
+        if (hostStart < authorityEnd && text.charAt(hostStart) == '[') {
+            int ipEnd = scanIpv6(hostStart + 1);
+            if (ipEnd > 0 && ipEnd < authorityEnd && text.charAt(ipEnd) == ']') {
+                sink.accept(IP, hostStart + 1, ipEnd);
+            }
+        } else {
+            int hostEnd = hostStart;
+            while (hostEnd < authorityEnd && text.charAt(hostEnd) != ':') {
+                hostEnd++;
+            }
+            if (parseIpv4(hostStart, hostEnd) == hostEnd) {
+                if (isUsefulIpv4(lastIpv4)) {
+                    sink.accept(IP, hostStart, hostEnd);
+                }
+            } else if (isDomain(hostStart, hostEnd) && isUsefulDomain(hostStart, hostEnd)) {
+                sink.accept(DOMAIN, hostStart, hostEnd);
+            }
+        }
+        return Math.max(end, authorityStart);
+    }
+
+    /**
+     * 路径从start开始，第一个分隔符在firstSeparator；段内不含空白和\/:*?"<>|。
+     * 带盘符的路径至少一段，以分隔符开头的路径至少两段，避免把"/24"、"a/b"之类当成路径
+     */
+    private void scanPath(int start, int firstSeparator) {
+        boolean drive = firstSeparator > start;
+        int p = firstSeparator;
+        int segments = 0;
+        int end = -1;
+        while (p < length) {
+            if (isPathSeparator(text.charAt(p))) {
+                p++;
+                continue;
+            }
+            int segmentStart = p;
+            while (p < length && isPathChar(text.charAt(p))) {
+                p++;
+            }
+            if (p == segmentStart) {
+                break;
+            }
+            segments++;
+            end = p;
+        }
+        pathScannedUntil = Math.max(pathScannedUntil, p);
+
+        if (segments < (drive ? 1 : 2)) {
+            return;
+        }
+        while (end > start && isTrailingPunctuation(text.charAt(end - 1))) {
+            end--;
+        }
+        sink.accept(FILE_PATH, start, end);
+    }
+
+    /**
+     * 从start解析IPv6地址（可压缩、可带IPv4尾部），成功时返回结束位置，否则返回-1；
+     * 组数有上限，单次解析读取的字符数有界
+     */
+    private int scanIpv6(int start) {
+        int p = start;
+        int groups = 0;
+        boolean compressed = false;
+        int end = start;
+        if (text.charAt(p) == ':') {
+            if (p + 1 >= length || text.charAt(p + 1) != ':') {
+                return -1;
+            }
+            compressed = true;
+            p += 2;
+            end = p;
+        }
+        while (p < length && groups < 8) {
+            int groupStart = p;
+            while (p < length && p - groupStart < 5 && isHex(text.charAt(p))) {
+                p++;
+            }
+            if (p == groupStart) {
+                break;
+            }
+            if (p < length && text.charAt(p) == '.') {
+                // 末尾的IPv4部分占两组
+                int ipv4End = parseIpv4(groupStart, length);
+                if (ipv4End < 0) {
+                    return -1;
+                }
+                groups += 2;
+                end = ipv4End;
+                break;
+            }
+            if (p - groupStart > 4) {
+                return -1;
+            }
+            groups++;
+            end = p;
+            if (p + 1 < length && text.charAt(p) == ':' && text.charAt(p + 1) == ':') {
+                if (compressed) {
+                    return -1;
+                }
+                compressed = true;
+                p += 2;
+                end = p;
+            } else if (p + 1 < length && text.charAt(p) == ':' && isHex(text.charAt(p + 1))) {
+                p++;
+            } else {
+                break;
+            }
+        }
+
+        if (end < length && (isWordChar(text.charAt(end)) || text.charAt(end) == ':' || text.charAt(end) == '.')) {
+            return -1;
+        }
+        if (compressed ? groups == 0 || groups > 7 : groups != 8) {
+            return -1;
+        }
+        // 排除回环地址::1
+        if (end - start == 3 && text.charAt(start) == ':' && text.charAt(start + 2) == '1') {
+            return -1;
+        }
+        return end;
+    }
+
+    /**
+     * 解析点分十进制IPv4，返回结束位置并记录到lastIpv4；不是IPv4时返回-1
+     */
+    private int parseIpv4(int start, int limit) {
+        int p = start;
+        int address = 0;
+        for (int octet = 0; octet < 4; octet++) {
+            if (octet > 0) {
+                if (p >= limit || text.charAt(p) != '.') {
+                    return -1;
+                }
+                p++;
+            }
+            int digitsStart = p;
+            int value = 0;
+            while (p < limit && p - digitsStart < 3 && isDigit(text.charAt(p))) {
+                value = value * 10 + (text.charAt(p) - '0');
+                p++;
+            }
+            if (p == digitsStart || value > 255) {
+                return -1;
+            }
+            address = (address << 8) | value;
+        }
+        if (p < limit && isDigit(text.charAt(p))) {
+            return -1;
+        }
+        lastIpv4 = address;
+        return p;
+    }
+
+    private boolean isCve(int start, int end) {
+        int length = end - start;
+        if (length < 13 || length > 16 || !startsWith(start, "CVE-") || text.charAt(start + 8) != '-') {
+            return false;
+        }
+        for (int p = start + 4; p < end; p++) {
+            if (p != start + 8 && !isDigit(text.charAt(p))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 至少两个标签，标签由字母数字和连字符组成且不以连字符开头或结尾，顶级域为至少两个字母
+     */
+    private boolean isDomain(int start, int end) {
+        if (end - start > MAX_DOMAIN_LENGTH || start >= end) {
+            return false;
+        }
+        int labels = 0;
+        int labelStart = start;
+        for (int p = start; p <= end; p++) {
+            if (p < end && text.charAt(p) != '.') {
+                char c = text.charAt(p);
+                if (!isAlnum(c) && c != '-') {
+                    return false;
+                }
+                continue;
+            }
+            int labelLength = p - labelStart;
+            if (labelLength == 0 || labelLength > MAX_LABEL_LENGTH
+                || text.charAt(labelStart) == '-' || text.charAt(p - 1) == '-') {
+                return false;
+            }
+            labels++;
+            if (p == end) {
+                if (labels < 2 || labelLength < 2) {
+                    return false;
+                }
+                for (int q = labelStart; q < end; q++) {
+                    if (!isLetter(text.charAt(q))) {
+                        return false;
+                    }
+                }
+            }
+            labelStart = p + 1;
+        }
+        return true;
+    }
+
+    private boolean isUsefulDomain(int start, int end) {
+        return !endsWithIgnoreCase(start, end, ".local") && !endsWithIgnoreCase(start, end, ".localdomain");
+    }
+
+    private static boolean isUsefulIpv4(int address) {
+        return address != 0                            // 0.0.0.0
+            && address != 0x7F000001                   // 127.0.0.1
+            && address != 0xFFFFFFFF                   // 255.255.255.255
+            && (address >>> 16) != 0xA9FE;             // 169.254.0.0/16
+    }
+
+    private boolean isHttpScheme(int start, int end) {
+        int length = end - start;
+        return (length == 4 || length == 5 && (text.charAt(start + 4) | 0x20) == 's')
+            && (text.charAt(start) | 0x20) == 'h' && (text.charAt(start + 1) | 0x20) == 't'
+            && (text.charAt(start + 2) | 0x20) == 't' && (text.charAt(start + 3) | 0x20) == 'p';
+    }
+
+    private boolean isHexRange(int start, int end) {
+        for (int p = start; p < end; p++) {
+            if (!isHex(text.charAt(p))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean startsWith(int start, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean endsWithIgnoreCase(int start, int end, String suffix) {
+        if (end - start < suffix.length()) {
+            return false;
+        }
+        int offset = end - suffix.length();
+        for (int i = 0; i < suffix.length(); i++) {
+            if (Character.toLowerCase(text.charAt(offset + i)) != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String hashTypeForLength(int length) {
+        switch (length) {
+            case 32:
+                return MD5;
+            case 40:
+                return SHA1;
+            case 64:
+                return SHA256;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isAlnum(char c) {
+        return isDigit(c) || isLetter(c);
+    }
+
+    private static boolean isHex(char c) {
+        return isDigit(c) || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+    }
+
+    private static boolean isWordChar(char c) {
+        return isAlnum(c) || c == '_';
+    }
+
+    /**
+     * 邮箱本地部分、域名、地址、哈希、CVE可能包含的字符
+     */
+    private static boolean isRunChar(char c) {
+        return isWordChar(c) || c == '.' || c == '-' || c == '%' || c == '+';
+    }
+
+    private static boolean isPathSeparator(char c) {
+        return c == '/' || c == '\\';
+    }
+
+    private static boolean isPathChar(char c) {
+        return c > ' ' && c != 0x7F && c != '/' && c != '\\' && c != ':' && c != '*' && c != '?'
+            && c != '"' && c != '<' && c != '>' && c != '|';
+    }
+
+    /**
+     * 分隔符前是这些字符时不作为路径起点（如"10.0.0.0/24"、"and/or"、路径内部的分隔符）
+     */
+    private static boolean blocksPathStart(char c) {
+        return isWordChar(c) || c == '.' || c == '-' || c == ':' || isPathSeparator(c);
+    }
+
+    private static boolean isUrlTerminator(char c) {
+        return c <= ' ' || c == 0x7F || c == '"' || c == '\'' || c == '<' || c == '>' || c == '\\';
+    }
+
+    private static boolean isTrailingPunctuation(char c) {
+        return c == '.' || c == ',' || c == ';';
+    }
+}
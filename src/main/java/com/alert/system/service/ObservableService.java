@@ -2,17 +2,17 @@ package com.alert.system.service;
 
 import com.alert.system.entity.*;
 import com.alert.system.repository.*;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @Service
 @Slf4j
@@ -21,109 +21,93 @@ public class ObservableService {
 
     private final ObservableRepository observableRepository;
     private final ObservableTypeRepository observableTypeRepository;
-    private final AlertObservableMappingRepository alertObservableMappingRepository;
+    private final ObservableWriteBuffer writeBuffer;
+    private final IocMatchEngine iocMatchEngine;
     private final ObjectMapper objectMapper;
 
-    private static final Map<String, Pattern> OBSERVABLE_PATTERNS = new HashMap<>();
-
-    static {
-        OBSERVABLE_PATTERNS.put("IP", Pattern.compile(
-            "\\b(?:[0-9]{1,3}\\.){3}[0-9]{1,3}\\b"));
-        OBSERVABLE_PATTERNS.put("DOMAIN", Pattern.compile(
-            "\\b(?:[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?\\.)+[a-zA-Z]{2,}\\b"));
-        OBSERVABLE_PATTERNS.put("URL", Pattern.compile(
-            "https?://[^\\s]+"));
-        OBSERVABLE_PATTERNS.put("EMAIL", Pattern.compile(
-            "\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Z|a-z]{2,}\\b"));
-        OBSERVABLE_PATTERNS.put("MD5", Pattern.compile(
-            "\\b[a-fA-F0-9]{32}\\b"));
-        OBSERVABLE_PATTERNS.put("SHA1", Pattern.compile(
-            "\\b[a-fA-F0-9]{40}\\b"));
-        OBSERVABLE_PATTERNS.put("SHA256", Pattern.compile(
-            "\\b[a-fA-F0-9]{64}\\b"));
-        OBSERVABLE_PATTERNS.put("CVE", Pattern.compile(
-            "CVE-\\d{4}-\\d{4,7}"));
-        OBSERVABLE_PATTERNS.put("FILE_PATH", Pattern.compile(
-            "(?:[A-Za-z]:)?[\\\\/](?:[^\\\\/:\\*\\?\"<>|\\r\\n]+[\\\\/])*[^\\\\/:\\*\\?\"<>|\\r\\n]*"));
+    public CompletableFuture<Void> extractAndSaveObservables(Alert alert) {
+        return extractAndSaveObservables(List.of(alert));
     }
 
-    @Transactional
-    public void extractAndSaveObservables(Alert alert) {
-        try {
-            Set<ExtractedObservable> extractedObservables = new HashSet<>();
+    /**
+     * 批量提取可观察对象，交给写缓冲合并后批量写入
+     * 返回的future在这些可观察对象及映射落库后完成
+     */
+    public CompletableFuture<Void> extractAndSaveObservables(List<Alert> alerts) {
+        List<ObservableWriteBuffer.Sighting> sightings = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
 
-            extractFromRawData(alert, extractedObservables);
-
-            extractFromParsedData(alert, extractedObservables);
+        for (Alert alert : alerts) {
+            try {
+                Set<ExtractedObservable> extractedObservables = new HashSet<>();
 
-            extractFromSpecificFields(alert, extractedObservables);
+                extractFromRawData(alert, extractedObservables);
 
-            for (ExtractedObservable extracted : extractedObservables) {
-                com.alert.system.entity.Observable observable = findOrCreateObservable(extracted);
+                extractFromParsedData(alert, extractedObservables);
 
-                createAlertObservableMapping(alert, observable, extracted);
-            }
+                extractFromSpecificFields(alert, extractedObservables);
 
-            log.debug("Extracted {} observables from alert {}",
-                extractedObservables.size(), alert.getAlertUuid());
+                for (ExtractedObservable extracted : extractedObservables) {
+                    sightings.add(new ObservableWriteBuffer.Sighting(extracted.type, extracted.value,
+                        alert.getId(), extracted.role, extracted.source, now));
+                }
 
-        } catch (Exception e) {
-            log.error("Error extracting observables from alert: {}", alert.getAlertUuid(), e);
+            } catch (Exception e) {
+                log.error("Error extracting observables from alert: {}", alert.getAlertUuid(), e);
+            }
         }
+
+        log.debug("Extracted {} observables from {} alerts", sightings.size(), alerts.size());
+        return writeBuffer.submit(sightings, this::newObservable);
     }
 
     private void extractFromRawData(Alert alert, Set<ExtractedObservable> observables) {
-        if (alert.getRawData() == null) return;
+        if (alert.getRawBytes() == null && alert.getRawData() == null) return;
 
         try {
-            String rawData = alert.getRawData();
-
-            for (Map.Entry<String, Pattern> entry : OBSERVABLE_PATTERNS.entrySet()) {
-                String type = entry.getKey();
-                Pattern pattern = entry.getValue();
-
-                Matcher matcher = pattern.matcher(rawData);
-                while (matcher.find()) {
-                    String value = matcher.group();
-                    if (isValidObservable(type, value)) {
-                        observables.add(new ExtractedObservable(type, value, "raw_data", null));
-                    }
-                }
-            }
+            // 优先在原始字节上扫描，只对命中的片段做UTF-8解码
+            ByteCharSequence rawBytes = alert.getRawBytes() != null ? new ByteCharSequence(alert.getRawBytes()) : null;
+            CharSequence rawData = rawBytes != null ? rawBytes : alert.getRawData();
+
+            ObservableScanner.scan(rawData, (type, start, end) -> {
+                String value = rawBytes != null
+                    ? rawBytes.decode(start, end)
+                    : rawData.subSequence(start, end).toString();
+                observables.add(new ExtractedObservable(type, value, "raw_data", null));
+            });
         } catch (Exception e) {
             log.debug("Error extracting observables from raw data", e);
         }
     }
 
     private void extractFromParsedData(Alert alert, Set<ExtractedObservable> observables) {
-        if (alert.getParsedData() == null) return;
+        if (alert.getParsed() == null && alert.getParsedData() == null) return;
 
         try {
-            JsonNode parsedData = objectMapper.readTree(alert.getParsedData());
+            ParsedAlert parsed = ParsedAlert.of(alert, objectMapper);
 
-            extractFromJsonNode(parsedData, "", observables);
+            extractFromValue(parsed.getFields(), "", observables);
 
         } catch (Exception e) {
             log.debug("Error extracting observables from parsed data", e);
         }
     }
 
-    private void extractFromJsonNode(JsonNode node, String path, Set<ExtractedObservable> observables) {
-        if (node.isTextual()) {
-            String value = node.asText();
-            detectAndAddObservable(value, path, observables);
-        } else if (node.isArray()) {
-            for (int i = 0; i < node.size(); i++) {
-                extractFromJsonNode(node.get(i), path + "[" + i + "]", observables);
+    private void extractFromValue(Object node, String path, Set<ExtractedObservable> observables) {
+        if (node instanceof String) {
+            detectAndAddObservable((String) node, path, observables);
+        } else if (node instanceof List) {
+            List<?> items = (List<?>) node;
+            for (int i = 0; i < items.size(); i++) {
+                extractFromValue(items.get(i), path + "[" + i + "]", observables);
             }
-        } else if (node.isObject()) {
-            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
-            while (fields.hasNext()) {
-                Map.Entry<String, JsonNode> field = fields.next();
-                String fieldPath = path.isEmpty() ? field.getKey() : path + "." + field.getKey();
-                extractFromJsonNode(field.getValue(), fieldPath, observables);
-
-                String fieldName = field.getKey().toLowerCase();
+        } else if (node instanceof Map) {
+            for (Map.Entry<?, ?> field : ((Map<?, ?>) node).entrySet()) {
+                String key = String.valueOf(field.getKey());
+                String fieldPath = path.isEmpty() ? key : path + "." + key;
+                extractFromValue(field.getValue(), fieldPath, observables);
+
+                String fieldName = key.toLowerCase();
                 if (fieldName.contains("ip") || fieldName.contains("address")) {
                     extractTypedObservable(field.getValue(), "IP", fieldPath, observables);
                 } else if (fieldName.contains("domain") || fieldName.contains("host")) {
@@ -142,17 +126,17 @@ public class ObservableService {
         }
     }
 
-    private void extractTypedObservable(JsonNode node, String type, String path,
+    private void extractTypedObservable(Object node, String type, String path,
                                        Set<ExtractedObservable> observables) {
-        if (node.isTextual()) {
-            String value = node.asText();
+        if (node instanceof String) {
+            String value = (String) node;
             if (isValidObservable(type, value)) {
                 observables.add(new ExtractedObservable(type, value, path, null));
             }
-        } else if (node.isArray()) {
-            for (JsonNode item : node) {
-                if (item.isTextual()) {
-                    String value = item.asText();
+        } else if (node instanceof List) {
+            for (Object item : (List<?>) node) {
+                if (item instanceof String) {
+                    String value = (String) item;
                     if (isValidObservable(type, value)) {
                         observables.add(new ExtractedObservable(type, value, path, null));
                     }
@@ -162,32 +146,14 @@ public class ObservableService {
     }
 
     private void detectAndAddObservable(String value, String path, Set<ExtractedObservable> observables) {
-        for (Map.Entry<String, Pattern> entry : OBSERVABLE_PATTERNS.entrySet()) {
-            String type = entry.getKey();
-            Pattern pattern = entry.getValue();
-
-            Matcher matcher = pattern.matcher(value);
-            while (matcher.find()) {
-                String matchedValue = matcher.group();
-                if (isValidObservable(type, matchedValue)) {
-                    observables.add(new ExtractedObservable(type, matchedValue, path, null));
-                }
-            }
-        }
+        ObservableScanner.scan(value, (type, start, end) ->
+            observables.add(new ExtractedObservable(type, value.substring(start, end), path, null)));
     }
 
-    private void detectHashType(JsonNode node, String path, Set<ExtractedObservable> observables) {
-        if (node.isTextual()) {
-            String value = node.asText().trim();
-            String hashType = null;
-
-            if (value.matches("[a-fA-F0-9]{32}")) {
-                hashType = "MD5";
-            } else if (value.matches("[a-fA-F0-9]{40}")) {
-                hashType = "SHA1";
-            } else if (value.matches("[a-fA-F0-9]{64}")) {
-                hashType = "SHA256";
-            }
+    private void detectHashType(Object node, String path, Set<ExtractedObservable> observables) {
+        if (node instanceof String) {
+            String value = ((String) node).trim();
+            String hashType = ObservableScanner.hashType(value);
 
             if (hashType != null) {
                 observables.add(new ExtractedObservable(hashType, value, path, null));
@@ -196,12 +162,12 @@ public class ObservableService {
     }
 
     private void extractFromSpecificFields(Alert alert, Set<ExtractedObservable> observables) {
-        if (alert.getSourceIp() != null && isValidIp(alert.getSourceIp())) {
+        if (isValidObservable("IP", alert.getSourceIp())) {
             observables.add(new ExtractedObservable("IP", alert.getSourceIp(),
                 "source_ip", "ATTACKER"));
         }
 
-        if (alert.getDestIp() != null && isValidIp(alert.getDestIp())) {
+        if (isValidObservable("IP", alert.getDestIp())) {
             observables.add(new ExtractedObservable("IP", alert.getDestIp(),
                 "dest_ip", "VICTIM"));
         }
@@ -215,6 +181,9 @@ public class ObservableService {
         }
     }
 
+    /**
+     * 按字段名确定类型的取值必须整体符合该类型；文件路径等其他类型不做校验
+     */
     private boolean isValidObservable(String type, String value) {
         if (value == null || value.trim().isEmpty()) {
             return false;
@@ -222,131 +191,33 @@ public class ObservableService {
 
         switch (type) {
             case "IP":
-                return isValidIp(value);
             case "DOMAIN":
-                return isValidDomain(value);
             case "URL":
-                return isValidUrl(value);
             case "EMAIL":
-                return isValidEmail(value);
             case "MD5":
             case "SHA1":
             case "SHA256":
-                return isValidHash(value, type);
             case "CVE":
-                return value.matches("CVE-\\d{4}-\\d{4,7}");
+                return ObservableScanner.matches(type, value);
             default:
                 return true;
         }
     }
 
-    private boolean isValidIp(String ip) {
-        if (ip == null) return false;
-
-        if (ip.equals("0.0.0.0") || ip.equals("127.0.0.1") ||
-            ip.equals("255.255.255.255") || ip.startsWith("169.254.")) {
-            return false;
-        }
-
-        String[] parts = ip.split("\\.");
-        if (parts.length != 4) return false;
-
-        for (String part : parts) {
-            try {
-                int num = Integer.parseInt(part);
-                if (num < 0 || num > 255) return false;
-            } catch (NumberFormatException e) {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
-    private boolean isValidDomain(String domain) {
-        if (domain == null || domain.length() > 253) return false;
-
-        if (domain.equals("localhost") || domain.endsWith(".local") ||
-            domain.endsWith(".localdomain")) {
-            return false;
-        }
-
-        return domain.matches("^[a-zA-Z0-9][a-zA-Z0-9-]{0,61}[a-zA-Z0-9]?(\\.[a-zA-Z0-9][a-zA-Z0-9-]{0,61}[a-zA-Z0-9]?)*$");
-    }
-
-    private boolean isValidUrl(String url) {
-        if (url == null || url.length() < 10) return false;
-
-        return url.matches("^https?://.*");
-    }
+    /**
+     * 新可观察对象的各列，只在写缓冲中该键首次出现时调用
+     */
+    private com.alert.system.entity.Observable newObservable(String type, String value) {
+        com.alert.system.entity.Observable newObservable = new com.alert.system.entity.Observable();
+        newObservable.setObservableType(type);
+        newObservable.setObservableValue(value);
+        newObservable.setDisplayName(generateDisplayName(type, value));
+        newObservable.setCategory(determineCategory(type));
+        newObservable.setStatus("ACTIVE");
 
-    private boolean isValidEmail(String email) {
-        if (email == null) return false;
+        enrichObservable(newObservable);
 
-        return email.matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}$");
-    }
-
-    private boolean isValidHash(String hash, String type) {
-        if (hash == null) return false;
-
-        switch (type) {
-            case "MD5":
-                return hash.matches("^[a-fA-F0-9]{32}$");
-            case "SHA1":
-                return hash.matches("^[a-fA-F0-9]{40}$");
-            case "SHA256":
-                return hash.matches("^[a-fA-F0-9]{64}$");
-            default:
-                return false;
-        }
-    }
-
-    @Transactional
-    private com.alert.system.entity.Observable findOrCreateObservable(ExtractedObservable extracted) {
-        return observableRepository.findByTypeAndValue(extracted.type, extracted.value)
-            .map(observable -> {
-                observable.setLastSeen(LocalDateTime.now());
-                observable.setOccurrenceCount(observable.getOccurrenceCount() + 1);
-                return observableRepository.save(observable);
-            })
-            .orElseGet(() -> {
-                com.alert.system.entity.Observable newObservable = new com.alert.system.entity.Observable();
-                newObservable.setObservableType(extracted.type);
-                newObservable.setObservableValue(extracted.value);
-                newObservable.setDisplayName(generateDisplayName(extracted.type, extracted.value));
-                newObservable.setCategory(determineCategory(extracted.type));
-                newObservable.setFirstSeen(LocalDateTime.now());
-                newObservable.setLastSeen(LocalDateTime.now());
-                newObservable.setOccurrenceCount(1);
-                newObservable.setStatus("ACTIVE");
-
-                enrichObservable(newObservable);
-
-                return observableRepository.save(newObservable);
-            });
-    }
-
-    private void createAlertObservableMapping(Alert alert, com.alert.system.entity.Observable observable,
-                                             ExtractedObservable extracted) {
-        try {
-            List<AlertObservableMapping> existingMappings =
-                alertObservableMappingRepository.findByAlertIdAndObservableId(
-                    alert.getId(), observable.getId());
-
-            if (existingMappings.isEmpty()) {
-                AlertObservableMapping mapping = new AlertObservableMapping();
-                mapping.setAlert(alert);
-                mapping.setObservable(observable);
-                mapping.setRole(extracted.role);
-                mapping.setContext(extracted.context);
-                mapping.setExtractedFrom(extracted.source);
-                mapping.setCreatedAt(LocalDateTime.now());
-
-                alertObservableMappingRepository.save(mapping);
-            }
-        } catch (Exception e) {
-            log.error("Error creating alert-observable mapping", e);
-        }
+        return newObservable;
     }
 
     private String generateDisplayName(String type, String value) {
@@ -391,11 +262,33 @@ public class ObservableService {
         }
     }
 
+    /**
+     * 用本地IOC索引匹配，命中时写入恶意标记、风险评分和命中的指标；
+     * 提取路径上不做GeoIP、WHOIS或在线情报API等外部查询
+     */
     private void enrichObservable(com.alert.system.entity.Observable observable) {
-        // TODO: Implement threat intelligence enrichment
-        // TODO: Implement GeoIP lookup for IP addresses
-        // TODO: Implement WHOIS lookup for domains
-        // TODO: Implement VirusTotal/other threat intel API checks
+        IocMatchEngine.Indicator indicator =
+            iocMatchEngine.match(observable.getObservableType(), observable.getObservableValue());
+        if (indicator == null) {
+            observable.setIsMalicious(false);
+            return;
+        }
+        observable.setIsMalicious(true);
+        observable.setRiskScore(indicator.getScore());
+
+        Map<String, Object> threatIntel = new LinkedHashMap<>();
+        threatIntel.put("source", "local-ioc");
+        threatIntel.put("feed", indicator.getFeed());
+        threatIntel.put("indicatorType", indicator.getKind());
+        threatIntel.put("indicator", indicator.getValue());
+        threatIntel.put("threatType", indicator.getThreatType());
+        threatIntel.put("description", indicator.getDescription());
+        threatIntel.put("matchedAt", LocalDateTime.now().toString());
+        try {
+            observable.setThreatIntel(objectMapper.writeValueAsString(threatIntel));
+        } catch (IOException e) {
+            log.warn("Failed to serialize threat intel for {}: {}", observable.getObservableValue(), e.getMessage());
+        }
     }
 
     public List<com.alert.system.entity.Observable> findObservablesByType(String type) {
@@ -0,0 +1,388 @@
+package com.alert.system.service;
+
+import com.alert.system.entity.Observable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+
+/**
+ * 可观察对象写缓冲
+ * 同一(type, value)的出现在内存中合并为次数增量和最早/最晚出现时间，按间隔或积累到上限时刷新：
+ * 一个事务内先按键排序批量执行INSERT ... ON CONFLICT DO UPDATE，再批量写入告警映射。
+ * submit返回的future在包含这些记录的刷新提交后完成，offset提交因此仍以落库为准；
+ * 刷新失败的窗口在之后的周期中重试，多次失败后丢弃并以异常完成future，由调用方重试或转入死信
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ObservableWriteBuffer {
+
+    // 已有行再次出现时，若本次命中本地IOC则补上恶意标记和情报；不清除已有标记
+    private static final String UPSERT_OBSERVABLE =
+        "INSERT INTO observables (id, observable_type, observable_value, display_name, category, is_malicious, "
+            + "risk_score, threat_intel, first_seen, last_seen, occurrence_count, status, created_at, updated_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?::json, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (observable_type, observable_value) DO UPDATE SET "
+            + "occurrence_count = COALESCE(observables.occurrence_count, 0) + EXCLUDED.occurrence_count, "
+            + "first_seen = LEAST(observables.first_seen, EXCLUDED.first_seen), "
+            + "last_seen = GREATEST(observables.last_seen, EXCLUDED.last_seen), "
+            + "is_malicious = CASE WHEN EXCLUDED.is_malicious THEN true ELSE observables.is_malicious END, "
+            + "risk_score = CASE WHEN EXCLUDED.is_malicious "
+            + "THEN GREATEST(observables.risk_score, EXCLUDED.risk_score) ELSE observables.risk_score END, "
+            + "threat_intel = CASE WHEN EXCLUDED.is_malicious "
+            + "THEN EXCLUDED.threat_intel ELSE observables.threat_intel END, "
+            + "updated_at = EXCLUDED.updated_at";
+
+    // 通过alerts主键确保告警已提交，单条处理时告警事务回滚的映射被跳过而不是违反外键
+    private static final String INSERT_MAPPING =
+        "INSERT INTO alert_observable_mappings (id, alert_id, observable_id, role, context, extracted_from, "
+            + "is_primary, created_at) "
+            + "SELECT ?, a.id, ?, ?, ?, ?, false, ? FROM alerts a WHERE a.id = ?";
+
+    private static final int MAX_VALUE_LENGTH = 500;
+    private static final int LOAD_CHUNK = 500;
+    // 同一窗口连续写入失败达到该次数后丢弃，future以异常完成
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObservableIdCache idCache;
+
+    @Value("${app.observables.write-buffer.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    // 窗口内的出现次数达到该值时提前刷新
+    @Value("${app.observables.write-buffer.max-pending:50000}")
+    private int maxPending;
+
+    private final ReadWriteLock windowLock = new ReentrantReadWriteLock();
+    private volatile Window current = new Window();
+    // 写入失败、等待重试的窗口，只在刷新线程中访问
+    private Window retry;
+    private ScheduledExecutorService executor;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final AtomicLong sightings = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong upsertedRows = new AtomicLong();
+    private final AtomicLong mappingRows = new AtomicLong();
+    private final AtomicLong droppedSightings = new AtomicLong();
+    private volatile long lastFlushMillis;
+    private volatile LocalDateTime lastFlushTime;
+
+    /**
+     * 一次出现：可观察对象及其所在告警
+     */
+    public static class Sighting {
+        final String type;
+        final String value;
+        final UUID alertId;
+        final String role;
+        final String source;
+        final LocalDateTime seenAt;
+
+        public Sighting(String type, String value, UUID alertId, String role, String source, LocalDateTime seenAt) {
+            this.type = type;
+            this.value = value;
+            this.alertId = alertId;
+            this.role = role;
+            this.source = source;
+            this.seenAt = seenAt;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "observable-write-buffer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(10, flushIntervalMs);
+        executor.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        flushQuietly();
+    }
+
+    /**
+     * 登记一批出现，newObservable只在该键首次进入窗口时调用，用于构造新行的各列
+     */
+    public CompletableFuture<Void> submit(Collection<Sighting> batch, BiFunction<String, String, Observable> newObservable) {
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Window window;
+        windowLock.readLock().lock();
+        try {
+            window = current;
+            for (Sighting sighting : batch) {
+                // 超出列长度的值无法写入，跳过以免整批失败
+                if (sighting.value.length() <= MAX_VALUE_LENGTH) {
+                    window.add(sighting, newObservable);
+                }
+            }
+        } finally {
+            windowLock.readLock().unlock();
+        }
+        sightings.addAndGet(batch.size());
+
+        if (window.pending.get() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            executor.execute(this::flushQuietly);
+        }
+        return window.flushed;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Window window = current;
+        stats.put("pendingSightings", window.pending.get());
+        stats.put("pendingObservables", window.aggregates.size());
+        stats.put("pendingMappings", window.mappings.size());
+        stats.put("sightings", sightings.get());
+        stats.put("flushes", flushes.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("upsertedRows", upsertedRows.get());
+        stats.put("mappingRows", mappingRows.get());
+        stats.put("droppedSightings", droppedSightings.get());
+        stats.put("lastFlushMillis", lastFlushMillis);
+        stats.put("lastFlushTime", lastFlushTime);
+        return stats;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.error("Failed to flush observables", e);
+        }
+    }
+
+    private synchronized void flush() {
+        flushRequested.set(false);
+        if (retry != null && writeWindow(retry)) {
+            retry = null;
+        }
+
+        Window window;
+        windowLock.writeLock().lock();
+        try {
+            window = current;
+            if (window.pending.get() == 0) {
+                return;
+            }
+            current = new Window();
+        } finally {
+            windowLock.writeLock().unlock();
+        }
+
+        if (!writeWindow(window)) {
+            if (retry == null) {
+                retry = window;
+            } else {
+                retry.merge(window);
+            }
+        }
+    }
+
+    /**
+     * 写入一个窗口，失败达到次数上限时丢弃并让future异常完成；返回该窗口是否已结束（写入成功或被丢弃）
+     */
+    private boolean writeWindow(Window window) {
+        long start = System.currentTimeMillis();
+        try {
+            write(window);
+        } catch (Exception e) {
+            failedFlushes.incrementAndGet();
+            // 失败可能源于缓存中的id已不存在（如可观察对象被删除），清空后重新加载
+            idCache.invalidateAll();
+            if (++window.attempts < MAX_ATTEMPTS) {
+                log.warn("Failed to flush {} observables (attempt {}), will retry: {}",
+                    window.aggregates.size(), window.attempts, e.getMessage());
+                return false;
+            }
+            log.error("Dropping {} observables and {} mappings after {} failed flushes",
+                window.aggregates.size(), window.mappings.size(), window.attempts, e);
+            droppedSightings.addAndGet(window.pending.get());
+            window.flushed.completeExceptionally(new RuntimeException(
+                "Failed to flush observables after " + window.attempts + " attempts: " + e.getMessage(), e));
+            return true;
+        }
+
+        flushes.incrementAndGet();
+        upsertedRows.addAndGet(window.aggregates.size());
+        mappingRows.addAndGet(window.mappings.size());
+        lastFlushMillis = System.currentTimeMillis() - start;
+        lastFlushTime = LocalDateTime.now();
+        window.flushed.complete(null);
+        log.debug("Flushed {} sightings as {} observable upserts and {} mappings in {} ms",
+            window.pending.get(), window.aggregates.size(), window.mappings.size(), lastFlushMillis);
+        return true;
+    }
+
+    private void write(Window window) {
+        // 按键排序，并发刷新（多实例）之间以相同顺序加锁
+        List<Map.Entry<ObservableIdCache.Key, Aggregate>> entries = new ArrayList<>(window.aggregates.entrySet());
+        entries.sort(Map.Entry.comparingByKey());
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> upserts = new ArrayList<>(entries.size());
+        for (Map.Entry<ObservableIdCache.Key, Aggregate> entry : entries) {
+            Aggregate aggregate = entry.getValue();
+            Observable row = aggregate.prototype;
+            upserts.add(new Object[]{UUID.randomUUID(), entry.getKey().getType(), entry.getKey().getValue(),
+                truncate(row.getDisplayName(), 200), row.getCategory(), row.getIsMalicious(), row.getRiskScore(),
+                row.getThreatIntel(), aggregate.firstSeen, aggregate.lastSeen, aggregate.count,
+                row.getStatus(), now, now});
+        }
+
+        Set<ObservableIdCache.Key> mappedKeys = new HashSet<>();
+        for (Sighting sighting : window.mappings) {
+            mappedKeys.add(new ObservableIdCache.Key(sighting.type, sighting.value));
+        }
+
+        Map<ObservableIdCache.Key, UUID> ids = transactionTemplate.execute(status -> {
+            jdbcTemplate.batchUpdate(UPSERT_OBSERVABLE, upserts);
+            if (mappedKeys.isEmpty()) {
+                return Collections.emptyMap();
+            }
+
+            // 映射直接使用id，热点可观察对象从缓存取得，其余在upsert之后一次查出
+            Map<ObservableIdCache.Key, UUID> resolved = idCache.getAll(mappedKeys, this::loadIds);
+            List<Object[]> mappings = new ArrayList<>(window.mappings.size());
+            for (Sighting sighting : window.mappings) {
+                UUID observableId = resolved.get(new ObservableIdCache.Key(sighting.type, sighting.value));
+                if (observableId != null) {
+                    mappings.add(new Object[]{UUID.randomUUID(), observableId, sighting.role,
+                        truncate(sighting.source, 200), truncate(sighting.source, 100), sighting.seenAt,
+                        sighting.alertId});
+                }
+            }
+            jdbcTemplate.batchUpdate(INSERT_MAPPING, mappings);
+            return resolved;
+        });
+        // 提交之后才放入缓存，回滚的新行不会留下无效的id
+        idCache.putAll(ids);
+    }
+
+    /**
+     * 按(type, value)查询id，每次最多LOAD_CHUNK个键
+     */
+    private Map<ObservableIdCache.Key, UUID> loadIds(Set<ObservableIdCache.Key> keys) {
+        Map<ObservableIdCache.Key, UUID> ids = new HashMap<>();
+        List<ObservableIdCache.Key> pending = new ArrayList<>(keys);
+        for (int from = 0; from < pending.size(); from += LOAD_CHUNK) {
+            List<ObservableIdCache.Key> chunk = pending.subList(from, Math.min(pending.size(), from + LOAD_CHUNK));
+            StringBuilder sql = new StringBuilder(
+                "SELECT id, observable_type, observable_value FROM observables WHERE (observable_type, observable_value) IN (");
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+                args[2 * i] = chunk.get(i).getType();
+                args[2 * i + 1] = chunk.get(i).getValue();
+            }
+            sql.append(')');
+            jdbcTemplate.query(sql.toString(), rs -> {
+                ids.put(new ObservableIdCache.Key(rs.getString("observable_type"), rs.getString("observable_value")),
+                    rs.getObject("id", UUID.class));
+            }, args);
+        }
+        return ids;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+
+    /**
+     * 一个刷新周期内的合并结果
+     */
+    private static class Window {
+        private final ConcurrentHashMap<ObservableIdCache.Key, Aggregate> aggregates = new ConcurrentHashMap<>();
+        private final ConcurrentLinkedQueue<Sighting> mappings = new ConcurrentLinkedQueue<>();
+        private final AtomicLong pending = new AtomicLong();
+        private final CompletableFuture<Void> flushed = new CompletableFuture<>();
+        private int attempts;
+
+        void add(Sighting sighting, BiFunction<String, String, Observable> newObservable) {
+            Aggregate aggregate = aggregates.computeIfAbsent(new ObservableIdCache.Key(sighting.type, sighting.value),
+                key -> new Aggregate(newObservable.apply(key.getType(), key.getValue()), sighting.seenAt));
+            aggregate.record(sighting.seenAt);
+            if (sighting.alertId != null) {
+                mappings.add(sighting);
+            }
+            pending.incrementAndGet();
+        }
+
+        /**
+         * 并入另一个已停止写入的窗口，对方的调用方随本窗口一起完成或失败
+         */
+        void merge(Window other) {
+            other.aggregates.forEach((key, aggregate) -> aggregates.merge(key, aggregate, Aggregate::merge));
+            mappings.addAll(other.mappings);
+            pending.addAndGet(other.pending.get());
+            attempts = Math.max(attempts, other.attempts);
+            flushed.whenComplete((result, e) -> {
+                if (e != null) {
+                    other.flushed.completeExceptionally(e);
+                } else {
+                    other.flushed.complete(null);
+                }
+            });
+        }
+    }
+
+    private static class Aggregate {
+        private final Observable prototype;
+        private int count;
+        private LocalDateTime firstSeen;
+        private LocalDateTime lastSeen;
+
+        Aggregate(Observable prototype, LocalDateTime seenAt) {
+            this.prototype = prototype;
+            this.firstSeen = seenAt;
+            this.lastSeen = seenAt;
+        }
+
+        synchronized void record(LocalDateTime seenAt) {
+            count++;
+            if (seenAt.isBefore(firstSeen)) {
+                firstSeen = seenAt;
+            }
+            if (seenAt.isAfter(lastSeen)) {
+                lastSeen = seenAt;
+            }
+        }
+
+        synchronized Aggregate merge(Aggregate other) {
+            synchronized (other) {
+                count += other.count;
+                if (other.firstSeen.isBefore(firstSeen)) {
+                    firstSeen = other.firstSeen;
+                }
+                if (other.lastSeen.isAfter(lastSeen)) {
+                    lastSeen = other.lastSeen;
+                }
+            }
+            return this;
+        }
+    }
+}
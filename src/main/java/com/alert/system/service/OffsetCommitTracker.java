@@ -0,0 +1,186 @@
+package com.alert.system.service;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 跟踪每个分区已分发和已完成处理的offset
+ * 只有从上次提交位置起连续完成的offset才会被提交，
+ * 避免异步阶段（ClickHouse存储、可观察对象提取等）尚未完成时offset已被提交
+ *
+ * 处理失败的记录不标记完成，提交停在该记录之前；消费线程通过rewind丢弃其后的跟踪状态并从该位置重新消费。
+ * 每个offset记录分发时的epoch，每次rewind后分区进入新的epoch：被丢弃的offset重新消费前迟到的完成通知被忽略，
+ * 回退位置之前仍在处理的offset不受影响
+ *
+ * track/drainCommittable/rewind 只能在消费线程调用，complete 可以在任意线程调用
+ */
+public class OffsetCommitTracker {
+
+    // epoch全局递增，分区被回收后重新分配时不会与旧的epoch重复
+    private static final AtomicLong EPOCHS = new AtomicLong();
+
+    private final Map<TopicPartition, PartitionOffsets> partitions = new ConcurrentHashMap<>();
+    private final AtomicInteger completedSinceCommit = new AtomicInteger();
+    private final int commitBatchSize;
+    private final long commitIntervalMs;
+    private long lastCommitTime = System.currentTimeMillis();
+
+    public OffsetCommitTracker(int commitBatchSize, long commitIntervalMs) {
+        this.commitBatchSize = commitBatchSize;
+        this.commitIntervalMs = commitIntervalMs;
+    }
+
+    public void track(TopicPartition partition, long offset) {
+        partitions.computeIfAbsent(partition, p -> new PartitionOffsets()).track(offset);
+    }
+
+    /**
+     * 分区当前的epoch，分发记录时取得，完成时原样传回
+     */
+    public long epoch(TopicPartition partition) {
+        PartitionOffsets offsets = partitions.get(partition);
+        return offsets != null ? offsets.epoch() : -1;
+    }
+
+    /**
+     * 该offset仍以分发时的epoch被跟踪，即没有因rewind被丢弃
+     */
+    public boolean isCurrent(TopicPartition partition, long offset, long epoch) {
+        PartitionOffsets offsets = partitions.get(partition);
+        return offsets != null && offsets.isCurrent(offset, epoch);
+    }
+
+    public void complete(TopicPartition partition, long offset, long epoch) {
+        PartitionOffsets offsets = partitions.get(partition);
+        if (offsets != null && offsets.complete(offset, epoch)) {
+            completedSinceCommit.incrementAndGet();
+        }
+    }
+
+    /**
+     * 丢弃分区中该offset及之后的跟踪状态，调用方随后seek到该offset重新消费
+     */
+    public void rewind(TopicPartition partition, long offset) {
+        PartitionOffsets offsets = partitions.get(partition);
+        if (offsets != null) {
+            offsets.rewind(offset);
+        }
+    }
+
+    public boolean isCommitDue() {
+        return completedSinceCommit.get() >= commitBatchSize
+            || (completedSinceCommit.get() > 0 && System.currentTimeMillis() - lastCommitTime >= commitIntervalMs);
+    }
+
+    /**
+     * 取出自上次提交以来有推进的分区offset（下一条待消费记录的位置）
+     */
+    public Map<TopicPartition, OffsetAndMetadata> drainCommittable() {
+        return drainCommittable(partitions.keySet(), false);
+    }
+
+    /**
+     * force为true时返回目标分区当前可提交的offset，用于分区回收或关闭前的同步提交
+     */
+    public Map<TopicPartition, OffsetAndMetadata> drainCommittable(Collection<TopicPartition> targets, boolean force) {
+        Map<TopicPartition, OffsetAndMetadata> committable = new HashMap<>();
+        for (TopicPartition partition : targets) {
+            PartitionOffsets offsets = partitions.get(partition);
+            if (offsets == null) {
+                continue;
+            }
+            long next = offsets.drainCommittable(force);
+            if (next >= 0) {
+                committable.put(partition, new OffsetAndMetadata(next));
+            }
+        }
+        completedSinceCommit.set(0);
+        lastCommitTime = System.currentTimeMillis();
+        return committable;
+    }
+
+    public void remove(Collection<TopicPartition> revoked) {
+        for (TopicPartition partition : revoked) {
+            partitions.remove(partition);
+        }
+    }
+
+    public Set<TopicPartition> getPartitions() {
+        return Collections.unmodifiableSet(partitions.keySet());
+    }
+
+    public int getInFlightCount(TopicPartition partition) {
+        PartitionOffsets offsets = partitions.get(partition);
+        return offsets != null ? offsets.inFlight() : 0;
+    }
+
+    public int getInFlightCount() {
+        int total = 0;
+        for (PartitionOffsets offsets : partitions.values()) {
+            total += offsets.inFlight();
+        }
+        return total;
+    }
+
+    private static class PartitionOffsets {
+        // 已分发未完成的offset -> 分发时的epoch
+        private final TreeMap<Long, Long> pending = new TreeMap<>();
+        private final Set<Long> completed = new HashSet<>();
+        private long committableOffset = -1;
+        private boolean advanced;
+        private long epoch = EPOCHS.incrementAndGet();
+
+        synchronized void track(long offset) {
+            pending.put(offset, epoch);
+        }
+
+        synchronized long epoch() {
+            return epoch;
+        }
+
+        synchronized boolean isCurrent(long offset, long dispatchedEpoch) {
+            Long trackedEpoch = pending.get(offset);
+            return trackedEpoch != null && trackedEpoch == dispatchedEpoch;
+        }
+
+        synchronized void rewind(long offset) {
+            pending.tailMap(offset, true).clear();
+            completed.removeIf(completedOffset -> completedOffset >= offset);
+            epoch = EPOCHS.incrementAndGet();
+        }
+
+        synchronized boolean complete(long offset, long dispatchedEpoch) {
+            if (!isCurrent(offset, dispatchedEpoch)) {
+                return false;
+            }
+            if (offset == pending.firstKey()) {
+                pending.pollFirstEntry();
+                committableOffset = offset + 1;
+                advanced = true;
+                while (!pending.isEmpty() && completed.remove(pending.firstKey())) {
+                    committableOffset = pending.pollFirstEntry().getKey() + 1;
+                }
+            } else {
+                completed.add(offset);
+            }
+            return true;
+        }
+
+        synchronized long drainCommittable(boolean force) {
+            if (!advanced && !force) {
+                return -1;
+            }
+            advanced = false;
+            return committableOffset;
+        }
+
+        synchronized int inFlight() {
+            return pending.size();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.alert.system.service;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按分区或消息key将记录分发到固定数量的处理通道
+ * 同一分区（或同一key）的记录总是落到同一个通道内串行执行，保证分区内顺序；
+ * 不同通道之间并行执行
+ */
+public class PartitionLaneExecutor {
+
+    public static final String STRATEGY_PARTITION = "partition";
+    public static final String STRATEGY_KEY = "key";
+
+    private final ExecutorService[] lanes;
+    private final boolean keyed;
+
+    public PartitionLaneExecutor(String name, int laneCount, String strategy) {
+        this.lanes = new ExecutorService[laneCount];
+        this.keyed = STRATEGY_KEY.equalsIgnoreCase(strategy);
+
+        for (int i = 0; i < laneCount; i++) {
+            String threadName = name + "-lane-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public Future<?> submit(ConsumerRecord<?, ?> record, Runnable task) {
+        return lanes[laneFor(record)].submit(task);
+    }
+
+    public Future<?> submitToLane(int lane, Runnable task) {
+        return lanes[lane].submit(task);
+    }
+
+    public int laneFor(ConsumerRecord<?, ?> record) {
+        if (keyed && record.key() != null) {
+            return Math.floorMod(record.key().hashCode(), lanes.length);
+        }
+        return Math.floorMod(record.partition(), lanes.length);
+    }
+
+    public int getLaneCount() {
+        return lanes.length;
+    }
+
+    public void shutdown() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+        for (ExecutorService lane : lanes) {
+            try {
+                if (!lane.awaitTermination(10, TimeUnit.SECONDS)) {
+                    lane.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                lane.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.alert.system.service;
+
+import com.alert.system.entity.DataStorageConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 告警处理流水线的执行器
+ *
+ * 默认沿用平台线程模型：消费线程使用缓存线程池，异步阶段使用公共ForkJoinPool。
+ * 开启 app.pipeline.virtual-threads 且运行在Java 21及以上时，消费线程和每条记录的异步阶段都运行在虚拟线程上，
+ * 此时通过信号量限制并发的JDBC访问：PostgreSQL按连接池大小，ClickHouse按DataStorageConfig.maxConnections
+ */
+@Service
+@Slf4j
+public class PipelineExecutorService {
+
+    private static final int LATENCY_SAMPLES = 4096;
+
+    @Value("${app.pipeline.virtual-threads:false}")
+    private boolean virtualThreadsRequested;
+
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int postgresMaxConnections;
+
+    private ExecutorService consumerExecutor;
+    private Executor stageExecutor;
+    private boolean virtualThreads;
+    private Semaphore postgresPermits;
+    private final Map<Long, StoragePermits> storagePermits = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> stageDepths = new ConcurrentHashMap<>();
+
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private final AtomicLong latencyIndex = new AtomicLong();
+    private final AtomicLong completedCount = new AtomicLong();
+    private volatile long statsStartTime = System.currentTimeMillis();
+
+    @PostConstruct
+    public void initialize() {
+        ExecutorService virtualExecutor = virtualThreadsRequested ? createVirtualThreadExecutor() : null;
+        virtualThreads = virtualExecutor != null;
+
+        if (virtualThreads) {
+            consumerExecutor = virtualExecutor;
+            stageExecutor = virtualExecutor;
+        } else {
+            consumerExecutor = Executors.newCachedThreadPool();
+            stageExecutor = ForkJoinPool.commonPool();
+        }
+        postgresPermits = new Semaphore(Math.max(1, postgresMaxConnections), true);
+
+        log.info("Alert pipeline using {} threads", virtualThreads ? "virtual" : "platform");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        consumerExecutor.shutdown();
+        try {
+            if (!consumerExecutor.awaitTermination(30, TimeUnit.SECONDS)) {
+                consumerExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            consumerExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 通过反射创建虚拟线程执行器，使代码在Java 17下仍可编译运行
+     */
+    private ExecutorService createVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            log.warn("Virtual threads requested but not supported by Java {}, using platform threads",
+                System.getProperty("java.version"));
+            return null;
+        }
+    }
+
+    public ExecutorService getConsumerExecutor() {
+        return consumerExecutor;
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * 异步执行每条记录的处理阶段，并统计该阶段排队及执行中的任务数
+     */
+    public CompletableFuture<Void> runStage(String stage, Runnable task) {
+        AtomicInteger depth = stageDepths.computeIfAbsent(stage, s -> new AtomicInteger());
+        depth.incrementAndGet();
+        try {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    task.run();
+                } finally {
+                    depth.decrementAndGet();
+                }
+            }, stageExecutor);
+        } catch (RuntimeException e) {
+            depth.decrementAndGet();
+            throw e;
+        }
+    }
+
+    public Map<String, Integer> getStageDepths() {
+        Map<String, Integer> depths = new TreeMap<>();
+        stageDepths.forEach((stage, depth) -> depths.put(stage, depth.get()));
+        return depths;
+    }
+
+    /**
+     * 在PostgreSQL并发许可内执行
+     */
+    public void withPostgres(Runnable task) {
+        postgresPermits.acquireUninterruptibly();
+        try {
+            task.run();
+        } finally {
+            postgresPermits.release();
+        }
+    }
+
+    /**
+     * 在存储配置的并发连接许可内执行
+     * maxConnections修改后下一次调用即换用新的信号量，旧信号量上执行中的任务照常释放到旧信号量
+     */
+    public <T> T withStorage(DataStorageConfig config, Callable<T> task) throws Exception {
+        int limit = config.getMaxConnections() != null && config.getMaxConnections() > 0 ? config.getMaxConnections() : 10;
+        Semaphore permits = storagePermits.compute(config.getId(), (id, current) ->
+            current != null && current.limit == limit ? current : new StoragePermits(limit)).semaphore;
+        permits.acquireUninterruptibly();
+        try {
+            return task.call();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 存储配置删除后丢弃其并发许可
+     */
+    public void evictStorage(Long configId) {
+        storagePermits.remove(configId);
+    }
+
+    /**
+     * 记录一条告警从接收到全部阶段完成的耗时
+     */
+    public void recordLatency(long latencyMs) {
+        latencies[(int) (latencyIndex.getAndIncrement() % LATENCY_SAMPLES)] = latencyMs;
+        completedCount.incrementAndGet();
+    }
+
+    public Map<String, Object> getStats() {
+        int samples = (int) Math.min(latencyIndex.get(), LATENCY_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, samples);
+        Arrays.sort(sorted);
+
+        long elapsedMs = Math.max(1, System.currentTimeMillis() - statsStartTime);
+        long completed = completedCount.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threadModel", virtualThreads ? "virtual" : "platform");
+        stats.put("completed", completed);
+        stats.put("throughputPerSecond", completed * 1000.0 / elapsedMs);
+        stats.put("p50LatencyMs", percentile(sorted, 0.50));
+        stats.put("p99LatencyMs", percentile(sorted, 0.99));
+        stats.put("maxLatencyMs", samples > 0 ? sorted[samples - 1] : 0);
+        stats.put("postgresPermitsAvailable", postgresPermits.availablePermits());
+        stats.put("stageDepths", getStageDepths());
+        return stats;
+    }
+
+    public void resetStats() {
+        latencyIndex.set(0);
+        completedCount.set(0);
+        statsStartTime = System.currentTimeMillis();
+    }
+
+    private static class StoragePermits {
+        private final int limit;
+        private final Semaphore semaphore;
+
+        StoragePermits(int limit) {
+            this.limit = limit;
+            this.semaphore = new Semaphore(limit, true);
+        }
+    }
+
+    private long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
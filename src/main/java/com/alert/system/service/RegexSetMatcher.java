@@ -0,0 +1,799 @@
+package com.alert.system.service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 正则集合匹配：同一字段上的多条regex规则合并成一个NFA，扫描时按需构造DFA状态（惰性DFA），
+ * 对字段值扫描一遍即可得到所有命中的规则
+ *
+ * 语义与 Pattern.compile(regex, CASE_INSENSITIVE).matcher(value).find() 一致，
+ * 支持字面量、转义、字符类、点号、分组、选择和各类量词，以及位于整个表达式首尾的^和$。
+ * 反向引用、环视、单词边界、内嵌标志、占有量词等无法用有限自动机表达或尚未支持的写法，
+ * 由 {@link #tryAdd} 返回false，调用方对这些规则逐条使用Pattern匹配
+ */
+public class RegexSetMatcher {
+
+    // 单条规则的NFA状态数上限，超过则回退为逐条匹配
+    private static final int MAX_PATTERN_STATES = 2000;
+    private static final int MAX_REPEAT = 100;
+    // 缓存的DFA状态数上限，超过后清空缓存重新构造
+    private static final int MAX_DFA_STATES = 10000;
+    private static final int ASCII = 128;
+
+    private static final int TYPE_CHARS = 0;
+    private static final int TYPE_SPLIT = 1;
+    private static final int TYPE_MATCH = 2;
+
+    // NFA：每个状态的类型、字符集合（有序的闭区间数组）、后继
+    private final List<Integer> types = new ArrayList<>();
+    private final List<int[]> charSets = new ArrayList<>();
+    private final List<Integer> out1 = new ArrayList<>();
+    private final List<Integer> out2 = new ArrayList<>();
+
+    private final List<Integer> anchoredStarts = new ArrayList<>();
+    private final List<Integer> floatingStarts = new ArrayList<>();
+    private final List<Integer> ordinals = new ArrayList<>();
+    private final List<Boolean> endAnchored = new ArrayList<>();
+
+    // build()之后不可变的扫描结构
+    private int[] stateTypes;
+    private int[][] stateChars;
+    private int[] stateOut1;
+    private int[] stateOut2;
+    private int[] matchOrdinals;
+    private boolean[] matchEndAnchored;
+    private int[] floatingClosure;
+    private volatile DfaCache cache;
+
+    /**
+     * 尝试把正则加入集合，不支持的写法返回false且不改变集合
+     */
+    public boolean tryAdd(String regex, int ordinal) {
+        if (stateTypes != null) {
+            throw new IllegalStateException("Regex set already built");
+        }
+        int mark = types.size();
+        try {
+            Parser parser = new Parser(regex);
+            Node node = parser.parse();
+
+            boolean anchoredStart = false;
+            boolean anchoredEnd = false;
+            if (node instanceof Concat) {
+                List<Node> items = ((Concat) node).items;
+                if (!items.isEmpty() && items.get(0) == Anchor.START) {
+                    anchoredStart = true;
+                    items.remove(0);
+                }
+                if (!items.isEmpty() && items.get(items.size() - 1) == Anchor.END) {
+                    anchoredEnd = true;
+                    items.remove(items.size() - 1);
+                }
+            }
+            if (containsAnchor(node)) {
+                throw new UnsupportedOperationException("anchor inside expression");
+            }
+
+            int patternIndex = ordinals.size();
+            int match = addState(TYPE_MATCH, null, patternIndex, -1);
+            int start = compile(node, match, mark);
+
+            ordinals.add(ordinal);
+            endAnchored.add(anchoredEnd);
+            (anchoredStart ? anchoredStarts : floatingStarts).add(start);
+            return true;
+
+        } catch (UnsupportedOperationException e) {
+            truncate(mark);
+            return false;
+        }
+    }
+
+    public int getPatternCount() {
+        return ordinals.size();
+    }
+
+    /**
+     * 编译完成，之后只能调用match
+     */
+    public RegexSetMatcher build() {
+        int size = types.size();
+        stateTypes = new int[size];
+        stateChars = new int[size][];
+        stateOut1 = new int[size];
+        stateOut2 = new int[size];
+        for (int i = 0; i < size; i++) {
+            stateTypes[i] = types.get(i);
+            stateChars[i] = charSets.get(i);
+            stateOut1[i] = out1.get(i);
+            stateOut2[i] = out2.get(i);
+        }
+        matchOrdinals = ordinals.stream().mapToInt(Integer::intValue).toArray();
+        matchEndAnchored = new boolean[endAnchored.size()];
+        for (int i = 0; i < matchEndAnchored.length; i++) {
+            matchEndAnchored[i] = endAnchored.get(i);
+        }
+        floatingClosure = closure(floatingStarts.stream().mapToInt(Integer::intValue).toArray());
+        cache = new DfaCache();
+        return this;
+    }
+
+    /**
+     * 扫描字段值（原始大小写），将所有命中规则的序号写入matched
+     */
+    public void match(String value, BitSet matched) {
+        DfaCache current = cache;
+        DfaState state = current.initial;
+        int length = value.length();
+        int beforeTerminator = terminatorPosition(value);
+
+        int i = 0;
+        while (true) {
+            state.markMatches(matched, matchOrdinals, false);
+            if (i == length || i == beforeTerminator) {
+                state.markMatches(matched, matchOrdinals, true);
+            }
+            if (i == length || state.dead) {
+                return;
+            }
+
+            int c = value.codePointAt(i);
+            i += Character.charCount(c);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+
+            DfaState next = state.next(c);
+            if (next == null) {
+                if (current.size() >= MAX_DFA_STATES) {
+                    current = resetCache();
+                }
+                next = current.intern(step(state.nfaStates, c));
+                state.setNext(c, next);
+            }
+            state = next;
+        }
+    }
+
+    public int getCachedStateCount() {
+        DfaCache current = cache;
+        return current != null ? current.size() : 0;
+    }
+
+    private synchronized DfaCache resetCache() {
+        DfaCache fresh = new DfaCache();
+        cache = fresh;
+        return fresh;
+    }
+
+    /**
+     * Java默认模式下$还能匹配结尾行终止符之前的位置，返回该位置（没有则返回-1）
+     */
+    private static int terminatorPosition(String value) {
+        int length = value.length();
+        if (length == 0) {
+            return -1;
+        }
+        char last = value.charAt(length - 1);
+        if (last == '\n' && length >= 2 && value.charAt(length - 2) == '\r') {
+            return length - 2;
+        }
+        return isLineTerminator(last) ? length - 1 : -1;
+    }
+
+    private static boolean isLineTerminator(int c) {
+        return c == '\n' || c == '\r' || c == 0x85 || c == 0x2028 || c == 0x2029;
+    }
+
+    // ---------------------------------------------------------------- NFA构造
+
+    private int addState(int type, int[] chars, int o1, int o2) {
+        types.add(type);
+        charSets.add(chars);
+        out1.add(o1);
+        out2.add(o2);
+        return types.size() - 1;
+    }
+
+    private void truncate(int size) {
+        while (types.size() > size) {
+            int last = types.size() - 1;
+            types.remove(last);
+            charSets.remove(last);
+            out1.remove(last);
+            out2.remove(last);
+        }
+    }
+
+    /**
+     * 把语法树编译为NFA片段，next为片段完成后的后继状态，返回片段入口
+     */
+    private int compile(Node node, int next, int mark) {
+        if (types.size() - mark > MAX_PATTERN_STATES) {
+            throw new UnsupportedOperationException("pattern too large");
+        }
+        if (node instanceof Chars) {
+            return addState(TYPE_CHARS, ((Chars) node).ranges, next, -1);
+        }
+        if (node instanceof Concat) {
+            List<Node> items = ((Concat) node).items;
+            int entry = next;
+            for (int i = items.size() - 1; i >= 0; i--) {
+                entry = compile(items.get(i), entry, mark);
+            }
+            return entry;
+        }
+        if (node instanceof Alternation) {
+            List<Node> options = ((Alternation) node).options;
+            int entry = compile(options.get(options.size() - 1), next, mark);
+            for (int i = options.size() - 2; i >= 0; i--) {
+                entry = addState(TYPE_SPLIT, null, compile(options.get(i), next, mark), entry);
+            }
+            return entry;
+        }
+        if (node instanceof Repeat) {
+            Repeat repeat = (Repeat) node;
+            int entry;
+            if (repeat.max < 0) {
+                // 无上限：循环状态
+                int loop = addState(TYPE_SPLIT, null, -1, next);
+                out1.set(loop, compile(repeat.node, loop, mark));
+                entry = loop;
+            } else {
+                entry = next;
+                for (int i = repeat.min; i < repeat.max; i++) {
+                    entry = addState(TYPE_SPLIT, null, compile(repeat.node, entry, mark), next);
+                }
+            }
+            for (int i = 0; i < repeat.min; i++) {
+                entry = compile(repeat.node, entry, mark);
+            }
+            return entry;
+        }
+        throw new UnsupportedOperationException("unsupported node");
+    }
+
+    private static boolean containsAnchor(Node node) {
+        if (node instanceof Anchor) {
+            return true;
+        }
+        if (node instanceof Concat) {
+            return ((Concat) node).items.stream().anyMatch(RegexSetMatcher::containsAnchor);
+        }
+        if (node instanceof Alternation) {
+            return ((Alternation) node).options.stream().anyMatch(RegexSetMatcher::containsAnchor);
+        }
+        if (node instanceof Repeat) {
+            return containsAnchor(((Repeat) node).node);
+        }
+        return false;
+    }
+
+    // ---------------------------------------------------------------- DFA构造
+
+    private int[] closure(int[] starts) {
+        BitSet seen = new BitSet(stateTypes.length);
+        ArrayDeque<Integer> stack = new ArrayDeque<>();
+        for (int s : starts) {
+            stack.push(s);
+        }
+        while (!stack.isEmpty()) {
+            int s = stack.pop();
+            if (seen.get(s)) {
+                continue;
+            }
+            seen.set(s);
+            if (stateTypes[s] == TYPE_SPLIT) {
+                stack.push(stateOut2[s]);
+                stack.push(stateOut1[s]);
+            }
+        }
+        return seen.stream().toArray();
+    }
+
+    private int[] step(int[] nfaStates, int c) {
+        int[] moved = new int[nfaStates.length + floatingClosure.length];
+        int count = 0;
+        for (int s : nfaStates) {
+            if (stateTypes[s] == TYPE_CHARS && contains(stateChars[s], c)) {
+                moved[count++] = stateOut1[s];
+            }
+        }
+        int[] reached = closure(Arrays.copyOf(moved, count));
+
+        // 未锚定的规则在每个位置都可以重新开始匹配
+        BitSet merged = new BitSet(stateTypes.length);
+        for (int s : reached) {
+            merged.set(s);
+        }
+        for (int s : floatingClosure) {
+            merged.set(s);
+        }
+        return merged.stream().toArray();
+    }
+
+    private static boolean contains(int[] ranges, int c) {
+        int lo = 0;
+        int hi = ranges.length / 2 - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (c < ranges[mid * 2]) {
+                hi = mid - 1;
+            } else if (c > ranges[mid * 2 + 1]) {
+                lo = mid + 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private class DfaCache {
+        private final Map<StateKey, DfaState> states = new ConcurrentHashMap<>();
+        private final DfaState initial;
+
+        DfaCache() {
+            int[] starts = new int[anchoredStarts.size() + floatingStarts.size()];
+            int i = 0;
+            for (int s : anchoredStarts) {
+                starts[i++] = s;
+            }
+            for (int s : floatingStarts) {
+                starts[i++] = s;
+            }
+            initial = intern(closure(starts));
+        }
+
+        DfaState intern(int[] nfaStates) {
+            return states.computeIfAbsent(new StateKey(nfaStates), key -> new DfaState(nfaStates));
+        }
+
+        int size() {
+            return states.size();
+        }
+    }
+
+    private final class DfaState {
+        private final int[] nfaStates;
+        private final int[] matches;
+        private final int[] endMatches;
+        private final boolean dead;
+        // 转移表：ASCII用数组，其余字符用Map；并发写入同一槽位时结果相同，无需加锁
+        private final DfaState[] asciiNext = new DfaState[ASCII];
+        private final Map<Integer, DfaState> otherNext = new ConcurrentHashMap<>();
+
+        DfaState(int[] nfaStates) {
+            this.nfaStates = nfaStates;
+            List<Integer> now = new ArrayList<>();
+            List<Integer> atEnd = new ArrayList<>();
+            boolean live = false;
+            for (int s : nfaStates) {
+                if (stateTypes[s] == TYPE_MATCH) {
+                    int pattern = stateOut1[s];
+                    (matchEndAnchored[pattern] ? atEnd : now).add(pattern);
+                } else if (stateTypes[s] == TYPE_CHARS) {
+                    live = true;
+                }
+            }
+            this.matches = now.stream().mapToInt(Integer::intValue).toArray();
+            this.endMatches = atEnd.stream().mapToInt(Integer::intValue).toArray();
+            this.dead = !live;
+        }
+
+        DfaState next(int c) {
+            return c < ASCII ? asciiNext[c] : otherNext.get(c);
+        }
+
+        void setNext(int c, DfaState next) {
+            if (c < ASCII) {
+                asciiNext[c] = next;
+            } else {
+                otherNext.put(c, next);
+            }
+        }
+
+        void markMatches(BitSet matched, int[] ordinalsByPattern, boolean atEnd) {
+            for (int pattern : atEnd ? endMatches : matches) {
+                matched.set(ordinalsByPattern[pattern]);
+            }
+        }
+    }
+
+    private static final class StateKey {
+        private final int[] states;
+        private final int hash;
+
+        StateKey(int[] states) {
+            this.states = states;
+            this.hash = Arrays.hashCode(states);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StateKey && Arrays.equals(states, ((StateKey) o).states);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // ---------------------------------------------------------------- 语法树
+
+    private interface Node {
+    }
+
+    private enum Anchor implements Node {
+        START, END
+    }
+
+    private static final class Chars implements Node {
+        private final int[] ranges;
+
+        Chars(int[] ranges) {
+            this.ranges = ranges;
+        }
+    }
+
+    private static final class Concat implements Node {
+        private final List<Node> items;
+
+        Concat(List<Node> items) {
+            this.items = items;
+        }
+    }
+
+    private static final class Alternation implements Node {
+        private final List<Node> options;
+
+        Alternation(List<Node> options) {
+            this.options = options;
+        }
+    }
+
+    private static final class Repeat implements Node {
+        private final Node node;
+        private final int min;
+        private final int max;
+
+        Repeat(Node node, int min, int max) {
+            this.node = node;
+            this.min = min;
+            this.max = max;
+        }
+    }
+
+    // ---------------------------------------------------------------- 解析
+
+    /**
+     * 正则子集的递归下降解析器，遇到不支持的写法抛出UnsupportedOperationException
+     * 字符集合在解析时按ASCII忽略大小写折叠为小写，与扫描时对输入的折叠对应
+     */
+    private static final class Parser {
+        private static final int MAX_CODE_POINT = Character.MAX_CODE_POINT;
+        private static final int[] DIGIT = {'0', '9'};
+        private static final int[] WORD = {'0', '9', 'A', 'Z', '_', '_', 'a', 'z'};
+        private static final int[] SPACE = {'\t', '\r', ' ', ' '};
+        private static final int[] DOT = negate(new int[]{'\n', '\n', '\r', '\r', 0x85, 0x85, 0x2028, 0x2029});
+
+        private final String regex;
+        private int pos;
+
+        Parser(String regex) {
+            this.regex = regex;
+        }
+
+        Node parse() {
+            Node node = parseAlternation();
+            if (pos < regex.length()) {
+                throw unsupported();
+            }
+            return node;
+        }
+
+        private Node parseAlternation() {
+            List<Node> options = new ArrayList<>();
+            options.add(parseConcat());
+            while (peek() == '|') {
+                pos++;
+                options.add(parseConcat());
+            }
+            return options.size() == 1 ? options.get(0) : new Alternation(options);
+        }
+
+        private Node parseConcat() {
+            List<Node> items = new ArrayList<>();
+            while (pos < regex.length() && peek() != '|' && peek() != ')') {
+                items.add(parseRepeat());
+            }
+            return items.size() == 1 && !(items.get(0) instanceof Anchor) ? items.get(0) : new Concat(items);
+        }
+
+        private Node parseRepeat() {
+            Node atom = parseAtom();
+            while (pos < regex.length()) {
+                int c = peek();
+                int min;
+                int max;
+                if (c == '*') {
+                    min = 0;
+                    max = -1;
+                    pos++;
+                } else if (c == '+') {
+                    min = 1;
+                    max = -1;
+                    pos++;
+                } else if (c == '?') {
+                    min = 0;
+                    max = 1;
+                    pos++;
+                } else if (c == '{') {
+                    int close = regex.indexOf('}', pos);
+                    if (close < 0) {
+                        throw unsupported();
+                    }
+                    String body = regex.substring(pos + 1, close);
+                    int comma = body.indexOf(',');
+                    try {
+                        min = Integer.parseInt(comma < 0 ? body : body.substring(0, comma));
+                        max = comma < 0 ? min
+                            : comma == body.length() - 1 ? -1 : Integer.parseInt(body.substring(comma + 1));
+                    } catch (NumberFormatException e) {
+                        throw unsupported();
+                    }
+                    if (min > MAX_REPEAT || max > MAX_REPEAT || (max >= 0 && max < min)) {
+                        throw unsupported();
+                    }
+                    pos = close + 1;
+                } else {
+                    break;
+                }
+
+                if (atom instanceof Anchor) {
+                    throw unsupported();
+                }
+                // 惰性量词不影响是否存在匹配；占有量词会改变匹配结果，不支持
+                if (peek() == '?') {
+                    pos++;
+                } else if (peek() == '+') {
+                    throw unsupported();
+                }
+                atom = new Repeat(atom, min, max);
+            }
+            return atom;
+        }
+
+        private Node parseAtom() {
+            int c = regex.codePointAt(pos);
+            pos += Character.charCount(c);
+            switch (c) {
+                case '^':
+                    return Anchor.START;
+                case '$':
+                    return Anchor.END;
+                case '.':
+                    return new Chars(DOT);
+                case '(':
+                    if (peek() == '?') {
+                        // 只支持非捕获分组和命名分组，环视与内嵌标志不支持
+                        if (regex.startsWith("?:", pos)) {
+                            pos += 2;
+                        } else if (regex.startsWith("?<", pos) && pos + 2 < regex.length()
+                            && Character.isLetter(regex.charAt(pos + 2))) {
+                            int close = regex.indexOf('>', pos);
+                            if (close < 0) {
+                                throw unsupported();
+                            }
+                            pos = close + 1;
+                        } else {
+                            throw unsupported();
+                        }
+                    }
+                    Node group = parseAlternation();
+                    if (peek() != ')') {
+                        throw unsupported();
+                    }
+                    pos++;
+                    return group;
+                case '[':
+                    return new Chars(parseClass());
+                case '\\':
+                    return new Chars(parseEscape(false));
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                case ')':
+                    throw unsupported();
+                default:
+                    return new Chars(fold(new int[]{c, c}));
+            }
+        }
+
+        private int[] parseClass() {
+            boolean negated = false;
+            if (peek() == '^') {
+                negated = true;
+                pos++;
+            }
+            if (peek() == ']') {
+                throw unsupported();
+            }
+
+            List<int[]> parts = new ArrayList<>();
+            while (true) {
+                if (pos >= regex.length()) {
+                    throw unsupported();
+                }
+                int c = regex.codePointAt(pos);
+                if (c == ']') {
+                    pos++;
+                    break;
+                }
+                if (c == '[' || regex.startsWith("&&", pos)) {
+                    throw unsupported();
+                }
+
+                int[] item;
+                pos += Character.charCount(c);
+                if (c == '\\') {
+                    item = parseEscape(true);
+                } else {
+                    item = new int[]{c, c};
+                }
+
+                // 区间a-b（'-'位于末尾时按字面量处理）
+                if (item.length == 2 && item[0] == item[1] && peek() == '-'
+                    && pos + 1 < regex.length() && regex.charAt(pos + 1) != ']') {
+                    pos++;
+                    int end = regex.codePointAt(pos);
+                    pos += Character.charCount(end);
+                    if (end == '\\') {
+                        int[] escaped = parseEscape(true);
+                        if (escaped.length != 2 || escaped[0] != escaped[1]) {
+                            throw unsupported();
+                        }
+                        end = escaped[0];
+                    } else if (end == '[') {
+                        throw unsupported();
+                    }
+                    if (end < item[0]) {
+                        throw unsupported();
+                    }
+                    item = new int[]{item[0], end};
+                }
+                parts.add(item);
+            }
+
+            int[] set = new int[0];
+            for (int[] part : parts) {
+                set = union(set, part);
+            }
+            set = fold(set);
+            return negated ? negate(set) : set;
+        }
+
+        /**
+         * 解析反斜杠之后的转义，返回字符集合
+         */
+        private int[] parseEscape(boolean inClass) {
+            if (pos >= regex.length()) {
+                throw unsupported();
+            }
+            int c = regex.codePointAt(pos);
+            pos += Character.charCount(c);
+            switch (c) {
+                case 'd': return DIGIT;
+                case 'D': return negate(DIGIT);
+                case 'w': return WORD;
+                case 'W': return negate(WORD);
+                case 's': return SPACE;
+                case 'S': return negate(SPACE);
+                case 't': return new int[]{'\t', '\t'};
+                case 'n': return new int[]{'\n', '\n'};
+                case 'r': return new int[]{'\r', '\r'};
+                case 'f': return new int[]{'\f', '\f'};
+                case 'a': return new int[]{0x07, 0x07};
+                case 'e': return new int[]{0x1B, 0x1B};
+                case 'x': return literal(parseHex(2), inClass);
+                case 'u': return literal(parseHex(4), inClass);
+                default:
+                    // 其余字母、数字转义（\b \B \A \z \Z \G \p \Q \k \1 \0等）不支持；标点转义即字面量
+                    if (Character.isLetterOrDigit(c)) {
+                        throw unsupported();
+                    }
+                    return literal(c, inClass);
+            }
+        }
+
+        private int parseHex(int digits) {
+            if (pos + digits > regex.length()) {
+                throw unsupported();
+            }
+            try {
+                int value = Integer.parseInt(regex.substring(pos, pos + digits), 16);
+                pos += digits;
+                return value;
+            } catch (NumberFormatException e) {
+                throw unsupported();
+            }
+        }
+
+        /**
+         * 字符类内部的字面量先不折叠，以便作为区间端点，整个字符类解析完后统一折叠
+         */
+        private static int[] literal(int c, boolean inClass) {
+            int[] set = {c, c};
+            return inClass ? set : fold(set);
+        }
+
+        private int peek() {
+            return pos < regex.length() ? regex.charAt(pos) : -1;
+        }
+
+        private UnsupportedOperationException unsupported() {
+            return new UnsupportedOperationException("unsupported regex construct at " + pos);
+        }
+
+        /**
+         * ASCII忽略大小写：集合中的大写字母补充对应的小写字母
+         */
+        private static int[] fold(int[] set) {
+            int[] result = set;
+            for (int i = 0; i < set.length; i += 2) {
+                int lo = Math.max(set[i], 'A');
+                int hi = Math.min(set[i + 1], 'Z');
+                if (lo <= hi) {
+                    result = union(result, new int[]{lo + ('a' - 'A'), hi + ('a' - 'A')});
+                }
+            }
+            return result;
+        }
+
+        private static int[] union(int[] a, int[] b) {
+            List<int[]> ranges = new ArrayList<>();
+            for (int i = 0; i < a.length; i += 2) {
+                ranges.add(new int[]{a[i], a[i + 1]});
+            }
+            for (int i = 0; i < b.length; i += 2) {
+                ranges.add(new int[]{b[i], b[i + 1]});
+            }
+            ranges.sort(Comparator.comparingInt(r -> r[0]));
+
+            List<int[]> merged = new ArrayList<>();
+            for (int[] range : ranges) {
+                int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && range[0] <= last[1] + 1) {
+                    last[1] = Math.max(last[1], range[1]);
+                } else {
+                    merged.add(range.clone());
+                }
+            }
+            int[] result = new int[merged.size() * 2];
+            for (int i = 0; i < merged.size(); i++) {
+                result[i * 2] = merged.get(i)[0];
+                result[i * 2 + 1] = merged.get(i)[1];
+            }
+            return result;
+        }
+
+        private static int[] negate(int[] set) {
+            List<Integer> result = new ArrayList<>();
+            int next = 0;
+            for (int i = 0; i < set.length; i += 2) {
+                if (set[i] > next) {
+                    result.add(next);
+                    result.add(set[i] - 1);
+                }
+                next = set[i + 1] + 1;
+            }
+            if (next <= MAX_CODE_POINT) {
+                result.add(next);
+                result.add(MAX_CODE_POINT);
+            }
+            return result.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.alert.system.service;
+
+import com.alert.system.dto.AlertFilterRuleRequest;
+import com.alert.system.dto.AlertTaggingRuleRequest;
+import com.alert.system.entity.Alert;
+import com.alert.system.service.CompiledRuleSet.CompiledRule;
+import com.alert.system.service.CompiledRuleSet.RuleBucket;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 规则回测
+ * 用生产环境的匹配器对未保存的规则求值，数据来自该告警类型ClickHouse表中最近N天的告警；
+ * 读取线程按块流式读取，每块在ForkJoinPool上拆分并行求值，同时在途的块数受限以控制内存。
+ * 回测只读ClickHouse，不写入任何告警、规则或执行指标
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RuleBacktestService {
+
+    private static final Set<String> MATCH_TYPES = Set.of("exact", "contains", "regex", "condition");
+    // 块内拆分到不超过该数量的告警后直接求值
+    private static final int SPLIT_THRESHOLD = 256;
+
+    private final ClickHouseStorageService clickHouseStorageService;
+    private final AlertRuleEngine ruleEngine;
+
+    // 回测并行度，0表示使用CPU核数
+    @Value("${app.rules.backtest.parallelism:0}")
+    private int parallelism;
+
+    // 每次从ClickHouse读取并提交求值的告警数
+    @Value("${app.rules.backtest.chunk-size:5000}")
+    private int chunkSize;
+
+    @Value("${app.rules.backtest.max-days:30}")
+    private int maxDays;
+
+    // 单次回测最多读取的告警数，0表示不限制
+    @Value("${app.rules.backtest.max-alerts:5000000}")
+    private long maxAlerts;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void initialize() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads, p -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            thread.setName("rule-backtest-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public Map<String, Object> backtestFilterRule(AlertFilterRuleRequest request, int days, int sampleSize) {
+        return backtest(RuleMetricsService.RULE_TYPE_FILTER, request, request.getRuleName(), request.getAlertType(),
+            request.getAlertSubtype(), request.getMatchField(), request.getMatchType(), request.getMatchValue(),
+            days, sampleSize);
+    }
+
+    public Map<String, Object> backtestTaggingRule(AlertTaggingRuleRequest request, int days, int sampleSize) {
+        Map<String, Object> result = backtest(RuleMetricsService.RULE_TYPE_TAGGING, request, request.getRuleName(),
+            request.getAlertType(), request.getAlertSubtype(), request.getMatchField(), request.getMatchType(),
+            request.getMatchValue(), days, sampleSize);
+        result.put("tags", request.getTags());
+        return result;
+    }
+
+    private <R> Map<String, Object> backtest(String ruleKind, R draft, String ruleName, Integer alertType,
+                                             String alertSubtype, String matchField, String matchType,
+                                             String matchValue, int days, int sampleSize) {
+        if (matchType == null || !MATCH_TYPES.contains(matchType.toLowerCase())) {
+            throw new IllegalArgumentException("Invalid match type. Must be one of: exact, contains, regex, condition");
+        }
+        if (days < 1 || days > maxDays) {
+            throw new IllegalArgumentException("days must be between 1 and " + maxDays);
+        }
+
+        AtomicBoolean budgetExceeded = new AtomicBoolean();
+        CompiledRuleSet<R> ruleSet = ruleEngine.compileDraft(draft, ruleName, alertType, alertSubtype,
+            matchField, matchType, matchValue, rule -> budgetExceeded.set(true));
+
+        Evaluation<R> evaluation = new Evaluation<>(ruleSet, Math.max(0, sampleSize));
+        int maxInFlight = pool.getParallelism() * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        long start = System.nanoTime();
+        long scanned;
+        try {
+            scanned = clickHouseStorageService.scanRecentAlerts(alertType, days, chunkSize, maxAlerts, chunk -> {
+                inFlight.acquireUninterruptibly();
+                pool.execute(new ChunkTask<>(evaluation, chunk, 0, chunk.size(), inFlight));
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to read alerts from ClickHouse: " + e.getMessage(), e);
+        } finally {
+            // 等待已提交的块全部求值完成
+            inFlight.acquireUninterruptibly(maxInFlight);
+            inFlight.release(maxInFlight);
+        }
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+
+        if (evaluation.failure.get() != null) {
+            throw new RuntimeException("Backtest evaluation failed: " + evaluation.failure.get().getMessage(),
+                evaluation.failure.get());
+        }
+
+        long matched = evaluation.matched.sum();
+        long evaluationNanos = evaluation.evaluationNanos.sum();
+        List<Map<String, Object>> samples = new ArrayList<>(evaluation.samples);
+        samples.sort(Comparator.comparing(sample -> String.valueOf(sample.get("alertTime"))));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ruleKind", ruleKind);
+        result.put("alertType", alertType);
+        result.put("alertSubtype", alertSubtype);
+        result.put("days", days);
+        result.put("scanned", scanned);
+        result.put("matched", matched);
+        result.put("matchRate", scanned > 0 ? (double) matched / scanned : 0.0);
+        result.put("truncated", maxAlerts > 0 && scanned >= maxAlerts);
+        result.put("regexBudgetExceeded", budgetExceeded.get());
+        result.put("samples", samples);
+        result.put("elapsedMs", elapsedNanos / 1_000_000);
+        result.put("alertsPerSecond", (long) (scanned * 1_000_000_000.0 / elapsedNanos));
+        result.put("evaluationMicrosPerAlert", scanned > 0 ? evaluationNanos / 1000.0 / scanned : 0.0);
+        result.put("parallelism", pool.getParallelism());
+
+        log.info("Backtested {} rule '{}' on alert type {} over {} days: {} of {} alerts matched in {} ms",
+            ruleKind, ruleName, alertType, days, matched, scanned, elapsedNanos / 1_000_000);
+        return result;
+    }
+
+    /**
+     * 一次回测的求值状态，在所有工作线程间共享
+     */
+    private static class Evaluation<R> {
+        private final CompiledRuleSet<R> ruleSet;
+        private final int sampleSize;
+        private final LongAdder matched = new LongAdder();
+        private final LongAdder evaluationNanos = new LongAdder();
+        private final AtomicInteger sampled = new AtomicInteger();
+        private final Queue<Map<String, Object>> samples = new ConcurrentLinkedQueue<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Evaluation(CompiledRuleSet<R> ruleSet, int sampleSize) {
+            this.ruleSet = ruleSet;
+            this.sampleSize = sampleSize;
+        }
+    }
+
+    /**
+     * 对一块告警求值：超过SPLIT_THRESHOLD时对半拆分，根任务完成后归还在途许可
+     */
+    private class ChunkTask<R> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Evaluation<R> evaluation;
+        private final List<Alert> alerts;
+        private final int from;
+        private final int to;
+        private final Semaphore inFlight;
+
+        ChunkTask(Evaluation<R> evaluation, List<Alert> alerts, int from, int to, Semaphore inFlight) {
+            this.evaluation = evaluation;
+            this.alerts = alerts;
+            this.from = from;
+            this.to = to;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                if (to - from <= SPLIT_THRESHOLD) {
+                    evaluate();
+                } else {
+                    int mid = (from + to) >>> 1;
+                    invokeAll(new ChunkTask<>(evaluation, alerts, from, mid, null),
+                        new ChunkTask<>(evaluation, alerts, mid, to, null));
+                }
+            } catch (Throwable e) {
+                evaluation.failure.compareAndSet(null, e);
+            } finally {
+                if (inFlight != null) {
+                    inFlight.release();
+                }
+            }
+        }
+
+        private void evaluate() {
+            long start = System.nanoTime();
+            long matched = 0;
+            for (int i = from; i < to; i++) {
+                Alert alert = alerts.get(i);
+                RuleBucket<R> bucket = evaluation.ruleSet.bucketFor(alert.getAlertType().getId(), alert.getAlertSubtype());
+                if (bucket.isEmpty()) {
+                    continue;
+                }
+                CompiledRule<R> rule = bucket.firstMatch(field -> ruleEngine.getAlertFieldValue(alert, field));
+                if (rule != null) {
+                    matched++;
+                    sample(alert, rule);
+                }
+            }
+            evaluation.matched.add(matched);
+            evaluation.evaluationNanos.add(System.nanoTime() - start);
+        }
+
+        private void sample(Alert alert, CompiledRule<R> rule) {
+            if (evaluation.sampled.get() >= evaluation.sampleSize
+                || evaluation.sampled.getAndIncrement() >= evaluation.sampleSize) {
+                return;
+            }
+            Map<String, Object> sample = new LinkedHashMap<>();
+            sample.put("alertUuid", alert.getAlertUuid());
+            sample.put("alertTime", alert.getAlertTime());
+            sample.put("alertSubtype", alert.getAlertSubtype());
+            sample.put("title", alert.getTitle());
+            sample.put("matchField", rule.getMatchField());
+            sample.put("matchedValue", ruleEngine.getAlertFieldValue(alert, rule.getMatchField()));
+            evaluation.samples.add(sample);
+        }
+    }
+}
@@ -0,0 +1,888 @@
+package com.alert.system.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.InetAddress;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 复合规则条件（matchType为condition的规则，matchValue为JSON条件树）
+ * <pre>
+ * {"and": [
+ *   {"field": "src_ip", "op": "cidr", "value": ["10.0.0.0/8", "192.168.0.0/16"]},
+ *   {"or": [
+ *     {"field": "alarm_severity", "op": "in", "value": ["high", "critical"]},
+ *     {"field": "dst_port", "op": "gte", "value": 1024}
+ *   ]},
+ *   {"not": {"field": "alarm_name", "op": "contains", "value": "test"}}
+ * ]}
+ * </pre>
+ * 叶子操作: eq、ne、in、contains、regex（忽略大小写），gt、gte、lt、lte（数值），cidr（IPv4/IPv6网段），exists；
+ * 字段不存在时除exists外的叶子均不成立。
+ *
+ * 编译分两步：先解析为带代价和通过率估计的计划树，and/or的子节点按估计排序
+ * （and按 代价/(1-通过率) 升序，最可能不成立的廉价条件先求值；or按 代价/通过率 升序），
+ * 再把计划树组合为短路求值的lambda。创建后不可变，可被多线程共享。
+ *
+ * 同一规则集中的条件共享一个Registry：字段和叶子按内容编号，一条告警求值时每个字段只读取、转小写一次，
+ * 多个条件中相同的叶子（如 severity in [high, critical]）只求值一次
+ */
+public class RuleCondition {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int MAX_DEPTH = 32;
+    private static final int MAX_NODES = 1000;
+
+    private final Node plan;
+    private final Evaluator evaluator;
+    private final Registry registry;
+
+    private RuleCondition(Node plan, Registry registry) {
+        this.plan = plan;
+        this.evaluator = plan.compile();
+        this.registry = registry;
+    }
+
+    /**
+     * @param json            条件树
+     * @param linearRegex     true时regex叶子必须能由线性时间的正则集合自动机求值
+     * @param regexStepBudget java.util.regex求值的步数预算，0表示不限制
+     */
+    public static RuleCondition compile(String json, boolean linearRegex, int regexStepBudget) {
+        return compile(json, linearRegex, regexStepBudget, new Registry());
+    }
+
+    /**
+     * 在共享的Registry中编译条件；同一Registry的条件应使用同一个Context求值
+     */
+    static RuleCondition compile(String json, boolean linearRegex, int regexStepBudget, Registry registry) {
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(json);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid condition JSON: " + e.getMessage());
+        }
+        if (root == null || !root.isObject()) {
+            throw new IllegalArgumentException("Condition must be a JSON object");
+        }
+        Parser parser = new Parser(linearRegex, regexStepBudget, registry);
+        return new RuleCondition(parser.parse(root, 0).simplify(), registry);
+    }
+
+    /**
+     * 对告警求值；java.util.regex求值超出预算时抛出BudgetedCharSequence.BudgetExceededException
+     */
+    public boolean test(Function<String, String> fieldValues) {
+        return evaluator.test(registry.newContext(fieldValues));
+    }
+
+    /**
+     * 在一条告警的求值上下文中求值，复用上下文中已读取的字段和已求值的叶子
+     */
+    boolean test(Context context) {
+        return evaluator.test(context);
+    }
+
+    /**
+     * 重排后的求值计划，便于排查条件顺序
+     */
+    public String describe() {
+        return plan.describe();
+    }
+
+    /**
+     * 条件成立的必要叶子：条件本身或顶层and中的一个contains叶子，且该字段的contains叶子已合并为自动机。
+     * 返回{字段编号, 叶子编号}，没有时返回null；规则桶据此只对自动机命中的条件求值
+     */
+    int[] containsGate() {
+        List<Node> candidates = plan instanceof Junction && ((Junction) plan).and
+            ? ((Junction) plan).children : List.of(plan);
+        for (Node node : candidates) {
+            if (node instanceof Leaf) {
+                Leaf leaf = (Leaf) node;
+                if (leaf.containsNeedle != null && registry.batchedContains(leaf.fieldSlot)) {
+                    return new int[] {leaf.fieldSlot, leaf.leafSlot};
+                }
+            }
+        }
+        return null;
+    }
+
+    Registry getRegistry() {
+        return registry;
+    }
+
+    public double estimatedCost() {
+        return plan.cost();
+    }
+
+    public double estimatedPassRate() {
+        return plan.passRate();
+    }
+
+    @FunctionalInterface
+    interface Evaluator {
+        boolean test(Context context);
+    }
+
+    /**
+     * 叶子谓词，value为原始字段值，lowerValue为其小写形式
+     */
+    @FunctionalInterface
+    private interface ValuePredicate {
+        boolean test(String value, String lowerValue);
+    }
+
+    /**
+     * 字段和叶子的编号表，编译期间写入，求值期间只读
+     * 同一字段上的contains叶子较多时合并为一个Aho-Corasick自动机，任一叶子求值时一次算出该字段全部contains叶子
+     */
+    static final class Registry {
+        private static final int BATCH_CONTAINS_MIN = 4;
+
+        private final Map<String, Integer> fields = new HashMap<>();
+        private final List<String> fieldNames = new ArrayList<>();
+        private final Map<String, Integer> leaves = new HashMap<>();
+        private final Map<Integer, Map<String, Integer>> containsLeaves = new HashMap<>();
+        private volatile Indexes indexes;
+
+        synchronized int field(String name) {
+            Integer slot = fields.get(name);
+            if (slot == null) {
+                slot = fields.size();
+                fields.put(name, slot);
+                fieldNames.add(name);
+                indexes = null;
+            }
+            return slot;
+        }
+
+        synchronized int leaf(String key) {
+            Integer slot = leaves.get(key);
+            if (slot == null) {
+                slot = leaves.size();
+                leaves.put(key, slot);
+                indexes = null;
+            }
+            return slot;
+        }
+
+        synchronized void registerContains(int fieldSlot, String needle, int leafSlot) {
+            containsLeaves.computeIfAbsent(fieldSlot, f -> new LinkedHashMap<>()).putIfAbsent(needle, leafSlot);
+            indexes = null;
+        }
+
+        boolean batchedContains(int fieldSlot) {
+            Indexes current = indexes != null ? indexes : buildIndexes();
+            return current.containsMatchers[fieldSlot] != null;
+        }
+
+        Context newContext(Function<String, String> fieldValues) {
+            Indexes current = indexes;
+            if (current == null) {
+                current = buildIndexes();
+            }
+            return new Context(fieldValues, current);
+        }
+
+        private synchronized Indexes buildIndexes() {
+            if (indexes != null) {
+                return indexes;
+            }
+            AhoCorasickMatcher[] matchers = new AhoCorasickMatcher[fieldNames.size()];
+            int[][] batchSlots = new int[fieldNames.size()][];
+            containsLeaves.forEach((fieldSlot, needles) -> {
+                if (needles.size() < BATCH_CONTAINS_MIN) {
+                    return;
+                }
+                String[] needleArray = needles.keySet().toArray(new String[0]);
+                int[] slots = new int[needleArray.length];
+                for (int i = 0; i < needleArray.length; i++) {
+                    slots[i] = needles.get(needleArray[i]);
+                }
+                matchers[fieldSlot] = new AhoCorasickMatcher(needleArray, slots);
+                batchSlots[fieldSlot] = slots;
+            });
+            indexes = new Indexes(fieldNames.toArray(new String[0]), leaves.size(), matchers, batchSlots);
+            return indexes;
+        }
+    }
+
+    private static final class Indexes {
+        private final String[] names;
+        private final int leafCount;
+        private final AhoCorasickMatcher[] containsMatchers;
+        private final int[][] containsSlots;
+
+        Indexes(String[] names, int leafCount, AhoCorasickMatcher[] containsMatchers, int[][] containsSlots) {
+            this.names = names;
+            this.leafCount = leafCount;
+            this.containsMatchers = containsMatchers;
+            this.containsSlots = containsSlots;
+        }
+    }
+
+    /**
+     * 一条告警的求值上下文：按编号缓存字段值、小写字段值和叶子结果，只在单个线程内使用
+     */
+    static final class Context {
+        private static final byte UNKNOWN = 0;
+        private static final byte TRUE = 1;
+        private static final byte FALSE = 2;
+
+        private final Function<String, String> fieldValues;
+        private final Indexes indexes;
+        private final String[] values;
+        private final String[] lowerValues;
+        private final boolean[] fetched;
+        private final byte[] leafResults;
+        private BitSet[] containsHits;
+
+        Context(Function<String, String> fieldValues, Indexes indexes) {
+            this.fieldValues = fieldValues;
+            this.indexes = indexes;
+            this.values = new String[indexes.names.length];
+            this.lowerValues = new String[indexes.names.length];
+            this.fetched = new boolean[indexes.names.length];
+            this.leafResults = new byte[indexes.leafCount];
+        }
+
+        String value(int slot) {
+            if (!fetched[slot]) {
+                values[slot] = fieldValues.apply(indexes.names[slot]);
+                fetched[slot] = true;
+            }
+            return values[slot];
+        }
+
+        String lowerValue(int slot) {
+            String lower = lowerValues[slot];
+            if (lower == null) {
+                lower = values[slot].toLowerCase(Locale.ROOT);
+                lowerValues[slot] = lower;
+            }
+            return lower;
+        }
+
+        /**
+         * contains叶子：字段上有合并的自动机时一次写入该字段全部contains叶子的结果
+         */
+        boolean contains(int fieldSlot, int leafSlot, String needle) {
+            if (indexes.containsMatchers[fieldSlot] == null) {
+                return lowerValue(fieldSlot).contains(needle);
+            }
+            return containsHits(fieldSlot).get(leafSlot);
+        }
+
+        /**
+         * 字段上合并的contains自动机命中的叶子编号；字段不存在时为空
+         */
+        BitSet containsHits(int fieldSlot) {
+            if (containsHits == null) {
+                containsHits = new BitSet[indexes.names.length];
+            }
+            BitSet hits = containsHits[fieldSlot];
+            if (hits != null) {
+                return hits;
+            }
+            hits = new BitSet(leafResults.length);
+            if (value(fieldSlot) != null) {
+                indexes.containsMatchers[fieldSlot].match(lowerValue(fieldSlot), hits);
+            }
+            for (int slot : indexes.containsSlots[fieldSlot]) {
+                leafResults[slot] = hits.get(slot) ? TRUE : FALSE;
+            }
+            containsHits[fieldSlot] = hits;
+            return hits;
+        }
+    }
+
+    /**
+     * 计划树节点：cost为一次求值的估计代价，passRate为估计的成立概率
+     */
+    private abstract static class Node {
+        abstract double cost();
+
+        abstract double passRate();
+
+        abstract Evaluator compile();
+
+        abstract String describe();
+
+        Node simplify() {
+            return this;
+        }
+    }
+
+    private static final class Constant extends Node {
+        private final boolean value;
+
+        Constant(boolean value) {
+            this.value = value;
+        }
+
+        double cost() { return 0; }
+
+        double passRate() { return value ? 1 : 0; }
+
+        Evaluator compile() {
+            return value ? context -> true : context -> false;
+        }
+
+        String describe() {
+            return String.valueOf(value);
+        }
+    }
+
+    private static final class Leaf extends Node {
+        private final String field;
+        private final String op;
+        private final String operand;
+        private final double cost;
+        private final double passRate;
+        private final boolean matchMissing;
+        private final ValuePredicate predicate;
+        private final int fieldSlot;
+        private final int leafSlot;
+        // contains叶子的小写子串，其他叶子为null
+        private final String containsNeedle;
+
+        Leaf(Registry registry, String field, String op, String operand, double cost, double passRate,
+             boolean matchMissing, ValuePredicate predicate) {
+            this.field = field;
+            this.op = op;
+            this.operand = operand;
+            this.cost = cost;
+            this.passRate = passRate;
+            this.matchMissing = matchMissing;
+            this.predicate = predicate;
+            this.fieldSlot = registry.field(field);
+            this.leafSlot = registry.leaf(field + '\u0000' + op + '\u0000' + operand);
+            this.containsNeedle = "contains".equals(op) ? operand : null;
+            if (containsNeedle != null) {
+                registry.registerContains(fieldSlot, containsNeedle, leafSlot);
+            }
+        }
+
+        double cost() { return cost; }
+
+        double passRate() { return passRate; }
+
+        Evaluator compile() {
+            int fieldIndex = fieldSlot;
+            int leafIndex = leafSlot;
+            ValuePredicate test = predicate;
+            boolean missing = matchMissing;
+            String needle = containsNeedle;
+            return context -> {
+                byte cached = context.leafResults[leafIndex];
+                if (cached != Context.UNKNOWN) {
+                    return cached == Context.TRUE;
+                }
+                String value = context.value(fieldIndex);
+                boolean result;
+                if (value == null) {
+                    result = missing;
+                } else if (needle != null) {
+                    result = context.contains(fieldIndex, leafIndex, needle);
+                } else {
+                    result = test.test(value, context.lowerValue(fieldIndex));
+                }
+                context.leafResults[leafIndex] = result ? Context.TRUE : Context.FALSE;
+                return result;
+            };
+        }
+
+        String describe() {
+            return field + " " + op + " " + operand;
+        }
+    }
+
+    private static final class Not extends Node {
+        private final Node child;
+
+        Not(Node child) {
+            this.child = child;
+        }
+
+        double cost() { return child.cost(); }
+
+        double passRate() { return 1 - child.passRate(); }
+
+        Evaluator compile() {
+            Evaluator inner = child.compile();
+            return context -> !inner.test(context);
+        }
+
+        String describe() {
+            return "not(" + child.describe() + ")";
+        }
+
+        Node simplify() {
+            Node inner = child.simplify();
+            if (inner instanceof Not) {
+                return ((Not) inner).child;
+            }
+            if (inner instanceof Constant) {
+                return new Constant(((Constant) inner).passRate() == 0);
+            }
+            return new Not(inner);
+        }
+    }
+
+    /**
+     * and/or：展开同类嵌套、消去常量后按估计排序
+     */
+    private static final class Junction extends Node {
+        private final boolean and;
+        private final List<Node> children;
+
+        Junction(boolean and, List<Node> children) {
+            this.and = and;
+            this.children = children;
+        }
+
+        /**
+         * 按顺序短路求值的期望代价：and时只有前面全部成立才会求值下一个，or时只有前面全部不成立才会
+         */
+        double cost() {
+            double cost = 0;
+            double reach = 1;
+            for (Node child : children) {
+                cost += reach * child.cost();
+                reach *= and ? child.passRate() : 1 - child.passRate();
+            }
+            return cost;
+        }
+
+        double passRate() {
+            double product = 1;
+            for (Node child : children) {
+                product *= and ? child.passRate() : 1 - child.passRate();
+            }
+            return and ? product : 1 - product;
+        }
+
+        Evaluator compile() {
+            Evaluator[] evaluators = new Evaluator[children.size()];
+            for (int i = 0; i < evaluators.length; i++) {
+                evaluators[i] = children.get(i).compile();
+            }
+            if (evaluators.length == 2) {
+                Evaluator first = evaluators[0];
+                Evaluator second = evaluators[1];
+                return and
+                    ? context -> first.test(context) && second.test(context)
+                    : context -> first.test(context) || second.test(context);
+            }
+            if (and) {
+                return context -> {
+                    for (Evaluator evaluator : evaluators) {
+                        if (!evaluator.test(context)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                };
+            }
+            return context -> {
+                for (Evaluator evaluator : evaluators) {
+                    if (evaluator.test(context)) {
+                        return true;
+                    }
+                }
+                return false;
+            };
+        }
+
+        String describe() {
+            StringJoiner joiner = new StringJoiner(", ", (and ? "and" : "or") + "(", ")");
+            children.forEach(child -> joiner.add(child.describe()));
+            return joiner.toString();
+        }
+
+        Node simplify() {
+            List<Node> flattened = new ArrayList<>();
+            for (Node child : children) {
+                Node simplified = child.simplify();
+                if (simplified instanceof Junction && ((Junction) simplified).and == and) {
+                    flattened.addAll(((Junction) simplified).children);
+                } else if (simplified instanceof Constant) {
+                    boolean value = simplified.passRate() == 1;
+                    if (value != and) {
+                        // and中的false、or中的true决定整个结果
+                        return simplified;
+                    }
+                } else {
+                    flattened.add(simplified);
+                }
+            }
+            if (flattened.isEmpty()) {
+                return new Constant(and);
+            }
+            if (flattened.size() == 1) {
+                return flattened.get(0);
+            }
+            flattened.sort(Comparator.comparingDouble(this::rank));
+            return new Junction(and, flattened);
+        }
+
+        private double rank(Node node) {
+            double decisive = and ? 1 - node.passRate() : node.passRate();
+            return decisive <= 0 ? Double.MAX_VALUE : node.cost() / decisive;
+        }
+    }
+
+    private static final class Parser {
+        private final boolean linearRegex;
+        private final int regexStepBudget;
+        private final Registry registry;
+        private int nodes;
+
+        Parser(boolean linearRegex, int regexStepBudget, Registry registry) {
+            this.linearRegex = linearRegex;
+            this.regexStepBudget = regexStepBudget;
+            this.registry = registry;
+        }
+
+        Node parse(JsonNode node, int depth) {
+            if (depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("Condition is nested deeper than " + MAX_DEPTH + " levels");
+            }
+            if (++nodes > MAX_NODES) {
+                throw new IllegalArgumentException("Condition has more than " + MAX_NODES + " nodes");
+            }
+            if (node == null || !node.isObject()) {
+                throw new IllegalArgumentException("Condition node must be a JSON object: " + node);
+            }
+            if (node.has("and") || node.has("or")) {
+                boolean and = node.has("and");
+                JsonNode items = node.get(and ? "and" : "or");
+                if (!items.isArray()) {
+                    throw new IllegalArgumentException("'" + (and ? "and" : "or") + "' must be an array");
+                }
+                List<Node> children = new ArrayList<>();
+                for (JsonNode item : items) {
+                    children.add(parse(item, depth + 1));
+                }
+                return new Junction(and, children);
+            }
+            if (node.has("not")) {
+                return new Not(parse(node.get("not"), depth + 1));
+            }
+            return parseLeaf(node);
+        }
+
+        private Node parseLeaf(JsonNode node) {
+            String field = text(node, "field");
+            String op = text(node, "op").toLowerCase(Locale.ROOT);
+            JsonNode value = node.get("value");
+            if (!"exists".equals(op) && (value == null || value.isNull())) {
+                throw new IllegalArgumentException("Condition on '" + field + "' requires a value");
+            }
+
+            switch (op) {
+                case "eq": {
+                    String expected = value.asText().toLowerCase(Locale.ROOT);
+                    return new Leaf(registry, field, op, expected, 2, 0.1, false, (v, lower) -> lower.equals(expected));
+                }
+                case "ne": {
+                    String expected = value.asText().toLowerCase(Locale.ROOT);
+                    return new Leaf(registry, field, op, expected, 2, 0.9, false, (v, lower) -> !lower.equals(expected));
+                }
+                case "in": {
+                    Set<String> expected = new TreeSet<>();
+                    for (String item : list(value)) {
+                        expected.add(item.toLowerCase(Locale.ROOT));
+                    }
+                    Set<String> lookup = new HashSet<>(expected);
+                    return new Leaf(registry, field, op, expected.toString(), 3, Math.min(0.5, 0.05 * expected.size()),
+                        false, (v, lower) -> lookup.contains(lower));
+                }
+                case "contains": {
+                    String needle = value.asText().toLowerCase(Locale.ROOT);
+                    return new Leaf(registry, field, op, needle, 4 + needle.length() / 8.0, 0.15, false,
+                        (v, lower) -> lower.contains(needle));
+                }
+                case "regex":
+                    return regexLeaf(field, value.asText());
+                case "gt":
+                case "gte":
+                case "lt":
+                case "lte":
+                    return numericLeaf(field, op, value);
+                case "cidr": {
+                    CidrSet cidrs = new CidrSet(list(value));
+                    return new Leaf(registry, field, op, list(value).toString(), 5, Math.min(0.5, 0.2 * cidrs.size()),
+                        false, (v, lower) -> cidrs.contains(v));
+                }
+                case "exists": {
+                    boolean expected = value == null || value.isNull() || value.asBoolean();
+                    return new Leaf(registry, field, op, String.valueOf(expected), 1, expected ? 0.8 : 0.2, !expected,
+                        (v, lower) -> expected);
+                }
+                default:
+                    throw new IllegalArgumentException("Unsupported condition op: " + op);
+            }
+        }
+
+        private Node regexLeaf(String field, String regex) {
+            Pattern pattern;
+            try {
+                pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid regex: " + e.getDescription());
+            }
+            if (linearRegex) {
+                RegexSetMatcher matcher = new RegexSetMatcher();
+                if (!matcher.tryAdd(regex, 0)) {
+                    throw new IllegalArgumentException(
+                        "Regex uses constructs not supported by the linear-time engine: " + regex);
+                }
+                RegexSetMatcher built = matcher.build();
+                return new Leaf(registry, field, "regex", regex, 15, 0.15, false, (v, lower) -> {
+                    BitSet matched = new BitSet(1);
+                    built.match(v, matched);
+                    return matched.get(0);
+                });
+            }
+            int budget = regexStepBudget;
+            return new Leaf(registry, field, "regex", regex, 30, 0.15, false,
+                (v, lower) -> pattern.matcher(new BudgetedCharSequence(v, budget)).find());
+        }
+
+        private Node numericLeaf(String field, String op, JsonNode value) {
+            if (!value.isNumber() && !isNumeric(value.asText())) {
+                throw new IllegalArgumentException("Condition '" + op + "' on '" + field + "' requires a number");
+            }
+            double bound = value.asDouble();
+            ValuePredicate predicate;
+            switch (op) {
+                case "gt": predicate = (v, lower) -> toNumber(v) > bound; break;
+                case "gte": predicate = (v, lower) -> toNumber(v) >= bound; break;
+                case "lt": predicate = (v, lower) -> toNumber(v) < bound; break;
+                default: predicate = (v, lower) -> toNumber(v) <= bound; break;
+            }
+            return new Leaf(registry, field, op, String.valueOf(bound), 4, 0.4, false, predicate);
+        }
+
+        private static String text(JsonNode node, String name) {
+            JsonNode value = node.get(name);
+            if (value == null || !value.isTextual() || value.asText().isBlank()) {
+                throw new IllegalArgumentException("Condition node requires '" + name + "': " + node);
+            }
+            return value.asText();
+        }
+
+        private static List<String> list(JsonNode value) {
+            List<String> items = new ArrayList<>();
+            if (value.isArray()) {
+                value.forEach(item -> items.add(item.asText()));
+            } else {
+                items.add(value.asText());
+            }
+            if (items.isEmpty()) {
+                throw new IllegalArgumentException("Condition list must not be empty");
+            }
+            return items;
+        }
+    }
+
+    /**
+     * 字段值不是数字时返回NaN，使所有数值比较均不成立
+     */
+    private static double toNumber(String value) {
+        return isNumeric(value) ? Double.parseDouble(value.trim()) : Double.NaN;
+    }
+
+    private static boolean isNumeric(String value) {
+        String text = value.trim();
+        if (text.isEmpty() || text.length() > 40) {
+            return false;
+        }
+        boolean digit = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (c != '.' && c != '-' && c != '+' && c != 'e' && c != 'E') {
+                return false;
+            }
+        }
+        if (!digit) {
+            return false;
+        }
+        try {
+            Double.parseDouble(text);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 一组网段：IPv4网段合并为有序区间后二分查找，IPv6网段逐个比较前缀
+     */
+    static final class CidrSet {
+        private final long[] starts;
+        private final long[] ends;
+        private final List<byte[]> v6Networks = new ArrayList<>();
+        private final List<Integer> v6Prefixes = new ArrayList<>();
+        private final int size;
+
+        CidrSet(List<String> cidrs) {
+            List<long[]> ranges = new ArrayList<>();
+            for (String cidr : cidrs) {
+                String text = cidr.trim();
+                int slash = text.indexOf('/');
+                String address = slash >= 0 ? text.substring(0, slash) : text;
+                long v4 = parseIpv4(address);
+                if (v4 >= 0) {
+                    int prefix = slash >= 0 ? parsePrefix(text.substring(slash + 1), 32, cidr) : 32;
+                    long mask = prefix == 0 ? 0 : (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+                    long start = v4 & mask;
+                    ranges.add(new long[] {start, start | (~mask & 0xFFFFFFFFL)});
+                    continue;
+                }
+                byte[] v6 = parseIpv6(address);
+                if (v6 == null) {
+                    throw new IllegalArgumentException("Invalid CIDR: " + cidr);
+                }
+                v6Networks.add(v6);
+                v6Prefixes.add(slash >= 0 ? parsePrefix(text.substring(slash + 1), 128, cidr) : 128);
+            }
+            this.size = cidrs.size();
+
+            ranges.sort(Comparator.comparingLong(range -> range[0]));
+            List<long[]> merged = new ArrayList<>();
+            for (long[] range : ranges) {
+                long[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+                if (last != null && range[0] <= last[1] + 1) {
+                    last[1] = Math.max(last[1], range[1]);
+                } else {
+                    merged.add(range.clone());
+                }
+            }
+            starts = new long[merged.size()];
+            ends = new long[merged.size()];
+            for (int i = 0; i < merged.size(); i++) {
+                starts[i] = merged.get(i)[0];
+                ends[i] = merged.get(i)[1];
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(String ip) {
+            String address = ip.trim();
+            long v4 = parseIpv4(address);
+            if (v4 >= 0) {
+                int index = Arrays.binarySearch(starts, v4);
+                if (index < 0) {
+                    index = -index - 2;
+                }
+                return index >= 0 && v4 <= ends[index];
+            }
+            if (v6Networks.isEmpty()) {
+                return false;
+            }
+            byte[] v6 = parseIpv6(address);
+            if (v6 == null) {
+                return false;
+            }
+            for (int i = 0; i < v6Networks.size(); i++) {
+                if (prefixMatches(v6Networks.get(i), v6, v6Prefixes.get(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int parsePrefix(String text, int max, String cidr) {
+            try {
+                int prefix = Integer.parseInt(text.trim());
+                if (prefix >= 0 && prefix <= max) {
+                    return prefix;
+                }
+            } catch (NumberFormatException ignored) {
+                // 落到下面的异常
+            }
+            throw new IllegalArgumentException("Invalid CIDR prefix: " + cidr);
+        }
+
+        private static boolean prefixMatches(byte[] network, byte[] address, int prefix) {
+            int fullBytes = prefix / 8;
+            for (int i = 0; i < fullBytes; i++) {
+                if (network[i] != address[i]) {
+                    return false;
+                }
+            }
+            int remaining = prefix % 8;
+            if (remaining == 0) {
+                return true;
+            }
+            int mask = (0xFF << (8 - remaining)) & 0xFF;
+            return (network[fullBytes] & mask) == (address[fullBytes] & mask);
+        }
+
+        /**
+         * 解析点分十进制IPv4地址，不是合法IPv4时返回-1
+         */
+        static long parseIpv4(String text) {
+            long result = 0;
+            int octets = 0;
+            int value = -1;
+            for (int i = 0; i <= text.length(); i++) {
+                char c = i < text.length() ? text.charAt(i) : '.';
+                if (c >= '0' && c <= '9') {
+                    value = (value < 0 ? 0 : value * 10) + (c - '0');
+                    if (value > 255) {
+                        return -1;
+                    }
+                } else if (c == '.' && value >= 0 && octets < 4) {
+                    result = (result << 8) | value;
+                    octets++;
+                    value = -1;
+                } else {
+                    return -1;
+                }
+            }
+            return octets == 4 ? result : -1;
+        }
+
+        /**
+         * 解析IPv6字面量；只接受十六进制数字、冒号和点，保证不会触发DNS解析
+         */
+        private static byte[] parseIpv6(String text) {
+            if (text.indexOf(':') < 0) {
+                return null;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (!(c == ':' || c == '.' || Character.digit(c, 16) >= 0)) {
+                    return null;
+                }
+            }
+            try {
+                byte[] bytes = InetAddress.getByName(text).getAddress();
+                if (bytes.length == 4) {
+                    // IPv4映射地址（::ffff:a.b.c.d）会被解析为IPv4
+                    byte[] mapped = new byte[16];
+                    mapped[10] = (byte) 0xFF;
+                    mapped[11] = (byte) 0xFF;
+                    System.arraycopy(bytes, 0, mapped, 12, 4);
+                    return mapped;
+                }
+                return bytes;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+}
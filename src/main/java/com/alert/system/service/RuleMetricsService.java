@@ -0,0 +1,295 @@
+package com.alert.system.service;
+
+import com.alert.system.entity.RuleExecutionLog;
+import com.alert.system.repository.EventCorrelationRuleRepository;
+import com.alert.system.repository.RuleExecutionLogRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 规则执行指标
+ * 每条规则的求值次数、命中次数、累计耗时和最大耗时保存在LongAdder中，记录时无锁；
+ * 每隔 app.rules.metrics.flush-interval-seconds 秒把这段时间的增量按规则汇总写入一行RuleExecutionLog，
+ * 关联规则的执行次数也在此时一次性更新，不再在每次生成事件时保存整条规则
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class RuleMetricsService {
+
+    public static final String RULE_TYPE_FILTER = "filter";
+    public static final String RULE_TYPE_TAGGING = "tagging";
+    public static final String RULE_TYPE_CORRELATION = "correlation";
+
+    private final RuleExecutionLogRepository executionLogRepository;
+    private final EventCorrelationRuleRepository correlationRuleRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.rules.metrics.flush-interval-seconds:60}")
+    private int flushIntervalSeconds;
+
+    private final Map<UUID, RuleCounters> counters = new ConcurrentHashMap<>();
+    // 刷新前调用，把规则引擎等处按匹配器汇总的计数转入每条规则的计数器
+    private final List<Runnable> sources = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService scheduler;
+    private volatile LocalDateTime lastFlushTime = LocalDateTime.now();
+
+    @PostConstruct
+    public void initialize() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "rule-metrics-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int interval = Math.max(1, flushIntervalSeconds);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Exception e) {
+                log.error("Failed to flush rule metrics", e);
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("Failed to flush rule metrics on shutdown: {}", e.getMessage());
+        }
+    }
+
+    public void registerSource(Runnable source) {
+        sources.add(source);
+    }
+
+    /**
+     * 记录一次规则求值
+     */
+    public void recordEvaluation(String ruleType, UUID ruleId, String ruleName, long nanos) {
+        RuleCounters rule = counters(ruleType, ruleId, ruleName);
+        rule.evaluations.increment();
+        rule.totalNanos.add(nanos);
+        rule.maxNanos.accumulate(nanos);
+    }
+
+    /**
+     * 记录一次规则命中
+     */
+    public void recordHit(String ruleType, UUID ruleId, String ruleName) {
+        RuleCounters rule = counters(ruleType, ruleId, ruleName);
+        rule.hits.increment();
+        rule.lastHitTime = System.currentTimeMillis();
+    }
+
+    /**
+     * 合并一批已汇总的计数
+     */
+    public void record(String ruleType, UUID ruleId, String ruleName,
+                       long evaluations, long hits, long nanos, long maxNanos) {
+        if (evaluations == 0 && hits == 0 && nanos == 0) {
+            return;
+        }
+        RuleCounters rule = counters(ruleType, ruleId, ruleName);
+        rule.evaluations.add(evaluations);
+        rule.hits.add(hits);
+        rule.totalNanos.add(nanos);
+        rule.maxNanos.accumulate(maxNanos);
+        if (hits > 0) {
+            rule.lastHitTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 把上次刷新以来的增量写入rule_execution_logs，每条规则一行
+     */
+    public synchronized int flush() {
+        for (Runnable source : sources) {
+            source.run();
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        long windowSeconds = Math.max(1, Duration.between(lastFlushTime, now).getSeconds());
+        List<RuleExecutionLog> logs = new ArrayList<>();
+        List<RuleCounters.Snapshot> correlationUpdates = new ArrayList<>();
+
+        for (RuleCounters rule : counters.values()) {
+            RuleCounters.Snapshot window = rule.drainWindow();
+            if (window.evaluations == 0 && window.hits == 0) {
+                continue;
+            }
+            logs.add(toExecutionLog(rule, window, now, windowSeconds));
+            if (RULE_TYPE_CORRELATION.equals(rule.ruleType) && window.hits > 0) {
+                correlationUpdates.add(window);
+            }
+        }
+        lastFlushTime = now;
+
+        if (logs.isEmpty()) {
+            return 0;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            executionLogRepository.saveAll(logs);
+            for (RuleCounters.Snapshot window : correlationUpdates) {
+                correlationRuleRepository.addExecutionStats(window.ruleId, window.hits, window.hits,
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(window.lastHitTime), ZoneId.systemDefault()));
+            }
+        });
+
+        log.debug("Flushed execution metrics for {} rules", logs.size());
+        return logs.size();
+    }
+
+    /**
+     * 启动以来的规则指标，按sortBy(totalNanos/evaluations/hits/maxNanos)降序
+     */
+    public synchronized List<Map<String, Object>> getRuleMetrics(String ruleType, String sortBy, int limit) {
+        for (Runnable source : sources) {
+            source.run();
+        }
+
+        List<Map<String, Object>> metrics = new ArrayList<>();
+        for (RuleCounters rule : counters.values()) {
+            if (ruleType == null || ruleType.equalsIgnoreCase(rule.ruleType)) {
+                metrics.add(rule.toMap());
+            }
+        }
+
+        String key = sortBy != null && !sortBy.isEmpty() ? sortBy : "totalNanos";
+        metrics.sort((a, b) -> Long.compare(
+            ((Number) b.getOrDefault(key, 0L)).longValue(), ((Number) a.getOrDefault(key, 0L)).longValue()));
+        return metrics.size() > limit ? new ArrayList<>(metrics.subList(0, limit)) : metrics;
+    }
+
+    public List<RuleExecutionLog> getExecutionLogs(UUID ruleId, String ruleType, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        if (ruleId != null) {
+            return executionLogRepository.findByRuleIdOrderByExecutionTimeDesc(ruleId, page);
+        }
+        if (ruleType != null) {
+            return executionLogRepository.findByRuleTypeOrderByExecutionTimeDesc(ruleType, page);
+        }
+        return executionLogRepository.findAllByOrderByExecutionTimeDesc(page);
+    }
+
+    private RuleCounters counters(String ruleType, UUID ruleId, String ruleName) {
+        RuleCounters rule = counters.computeIfAbsent(ruleId, id -> new RuleCounters(ruleType, id));
+        if (!Objects.equals(rule.ruleName, ruleName)) {
+            rule.ruleName = ruleName;
+        }
+        return rule;
+    }
+
+    private RuleExecutionLog toExecutionLog(RuleCounters rule, RuleCounters.Snapshot window,
+                                            LocalDateTime now, long windowSeconds) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("ruleName", rule.ruleName);
+        details.put("evaluations", window.evaluations);
+        details.put("hits", window.hits);
+        details.put("totalNanos", window.totalNanos);
+        details.put("maxNanos", window.maxNanos);
+        details.put("avgNanos", window.evaluations > 0 ? window.totalNanos / window.evaluations : 0);
+        details.put("windowSeconds", windowSeconds);
+
+        RuleExecutionLog executionLog = new RuleExecutionLog();
+        executionLog.setRuleType(rule.ruleType);
+        executionLog.setRuleId(rule.ruleId);
+        executionLog.setExecutionTime(now);
+        executionLog.setInputCount((int) Math.min(Integer.MAX_VALUE, window.evaluations));
+        executionLog.setOutputCount((int) Math.min(Integer.MAX_VALUE, window.hits));
+        executionLog.setSuccess(true);
+        executionLog.setDurationMs((int) Math.min(Integer.MAX_VALUE, window.totalNanos / 1_000_000));
+        executionLog.setExecutionDetails(details);
+        return executionLog;
+    }
+
+    /**
+     * 单条规则的计数器：LongAdder保存自上次刷新以来的增量，刷新时转入累计值
+     */
+    private static class RuleCounters {
+        private final String ruleType;
+        private final UUID ruleId;
+        private volatile String ruleName;
+
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+        private volatile long lastHitTime;
+
+        // 累计值只在持有RuleMetricsService锁时更新
+        private long flushedEvaluations;
+        private long flushedHits;
+        private long flushedNanos;
+        private long flushedMaxNanos;
+
+        RuleCounters(String ruleType, UUID ruleId) {
+            this.ruleType = ruleType;
+            this.ruleId = ruleId;
+        }
+
+        Snapshot drainWindow() {
+            Snapshot window = new Snapshot(ruleId, evaluations.sumThenReset(), hits.sumThenReset(),
+                totalNanos.sumThenReset(), maxNanos.getThenReset(), lastHitTime);
+            flushedEvaluations += window.evaluations;
+            flushedHits += window.hits;
+            flushedNanos += window.totalNanos;
+            flushedMaxNanos = Math.max(flushedMaxNanos, window.maxNanos);
+            return window;
+        }
+
+        Map<String, Object> toMap() {
+            long totalEvaluations = flushedEvaluations + evaluations.sum();
+            long total = flushedNanos + totalNanos.sum();
+
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("ruleId", ruleId);
+            map.put("ruleType", ruleType);
+            map.put("ruleName", ruleName);
+            map.put("evaluations", totalEvaluations);
+            map.put("hits", flushedHits + hits.sum());
+            map.put("totalNanos", total);
+            map.put("maxNanos", Math.max(flushedMaxNanos, maxNanos.get()));
+            map.put("avgNanos", totalEvaluations > 0 ? total / totalEvaluations : 0L);
+            map.put("lastHitTime", lastHitTime > 0
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(lastHitTime), ZoneId.systemDefault()) : null);
+            return map;
+        }
+
+        static class Snapshot {
+            final UUID ruleId;
+            final long evaluations;
+            final long hits;
+            final long totalNanos;
+            final long maxNanos;
+            final long lastHitTime;
+
+            Snapshot(UUID ruleId, long evaluations, long hits, long totalNanos, long maxNanos, long lastHitTime) {
+                this.ruleId = ruleId;
+                this.evaluations = evaluations;
+                this.hits = hits;
+                this.totalNanos = totalNanos;
+                this.maxNanos = maxNanos;
+                this.lastHitTime = lastHitTime;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.alert.system.service;
+
+import com.alert.system.entity.Tag;
+import com.alert.system.repository.TagRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 标签字典：标签名到标签的内存映射
+ * 启动时加载全部标签，TagService增删改后在事务提交时同步；打标签时按名称查找不访问数据库。
+ * 缺失的自动标签在调用方的事务中用INSERT ... ON CONFLICT DO NOTHING创建后查回，不另占连接，
+ * 多线程、多实例并发创建同名标签时结果一致；事务提交后才放入字典，告警事务回滚不会让字典中留下不存在的标签
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TagDictionary {
+
+    private static final String AUTO_TAG_TYPE = "auto";
+    private static final String AUTO_TAG_COLOR = "#409eff";
+
+    private final TagRepository tagRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Tag> tags = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        reload();
+    }
+
+    private void reload() {
+        Map<String, Tag> loaded = new HashMap<>();
+        for (Tag tag : tagRepository.findAll()) {
+            loaded.put(tag.getTagName(), tag);
+        }
+        tags.keySet().retainAll(loaded.keySet());
+        tags.putAll(loaded);
+        log.info("Loaded {} tags into tag dictionary", loaded.size());
+    }
+
+    /**
+     * 按名称取标签，不存在时在当前事务中创建自动标签，提交后放入字典
+     */
+    public Tag getOrCreate(String tagName) {
+        Tag tag = tags.get(tagName);
+        if (tag != null) {
+            return tag;
+        }
+        // 数据库访问不放在map的compute中，避免持有桶锁等待I/O；并发创建由ON CONFLICT保证只插入一行
+        Tag created = createAutoTag(tagName);
+        afterCommit(() -> tags.putIfAbsent(tagName, created));
+        return created;
+    }
+
+    /**
+     * 标签保存后调用，事务提交后更新字典；改名时previousName为旧名称
+     */
+    public void onSaved(Tag tag, String previousName) {
+        afterCommit(() -> {
+            if (previousName != null && !previousName.equals(tag.getTagName())) {
+                tags.remove(previousName);
+            }
+            tags.put(tag.getTagName(), tag);
+        });
+    }
+
+    public void onDeleted(Tag tag) {
+        afterCommit(() -> tags.remove(tag.getTagName()));
+    }
+
+    private Tag createAutoTag(String tagName) {
+        int inserted = jdbcTemplate.update(
+            "INSERT INTO tags (id, tag_name, tag_type, color, is_enabled, created_at, updated_at) "
+                + "VALUES (?, ?, ?, ?, true, ?, ?) ON CONFLICT (tag_name) DO NOTHING",
+            UUID.randomUUID(), tagName, AUTO_TAG_TYPE, AUTO_TAG_COLOR, LocalDateTime.now(), LocalDateTime.now());
+        Tag tag = tagRepository.findByTagName(tagName)
+            .orElseThrow(() -> new RuntimeException("Failed to create tag: " + tagName));
+        if (inserted > 0) {
+            log.info("Created auto tag: {}", tagName);
+        }
+        return tag;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -34,6 +34,9 @@ public class TagService {
     @Autowired
     private AlertTagMappingRepository alertTagMappingRepository;
 
+    @Autowired
+    private TagDictionary tagDictionary;
+
     /**
      * 分页查询标签列表（支持搜索）
      */
@@ -103,6 +106,7 @@ public class TagService {
         tag.setCreatedBy(currentUser);
 
         Tag savedTag = tagRepository.save(tag);
+        tagDictionary.onSaved(savedTag, null);
         return new TagResponse(savedTag);
     }
 
@@ -119,6 +123,8 @@ public class TagService {
             throw new IllegalArgumentException("标签名称 '" + request.getTagName() + "' 已存在");
         }
 
+        String previousName = existingTag.getTagName();
+
         // 更新标签信息
         existingTag.setTagName(request.getTagName());
         existingTag.setDescription(request.getDescription());
@@ -127,6 +133,7 @@ public class TagService {
         existingTag.setIsEnabled(request.getIsEnabled());
 
         Tag updatedTag = tagRepository.save(existingTag);
+        tagDictionary.onSaved(updatedTag, previousName);
         return new TagResponse(updatedTag);
     }
 
@@ -141,6 +148,7 @@ public class TagService {
         // 例如：检查是否有告警关联了这个标签
 
         tagRepository.delete(tag);
+        tagDictionary.onDeleted(tag);
     }
 
     /**
@@ -152,6 +160,7 @@ public class TagService {
 
         tag.setIsEnabled(!tag.getIsEnabled());
         Tag updatedTag = tagRepository.save(tag);
+        tagDictionary.onSaved(updatedTag, null);
 
         return new TagResponse(updatedTag);
     }
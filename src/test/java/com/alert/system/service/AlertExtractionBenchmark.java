@@ -0,0 +1,120 @@
+package com.alert.system.service;
+
+import com.alert.system.entity.AlertField;
+import com.alert.system.entity.AlertType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 告警字段提取基准：在样例告警上比较流式提取（JsonParser单次遍历）与先构建JsonNode树再按路径提取的单条告警耗时，
+ * 字段取自同名的*-fields.json
+ */
+public class AlertExtractionBenchmark {
+
+    private AlertExtractionBenchmark() {
+    }
+
+    /**
+     * 在测试类路径下运行：参数依次为样例告警目录（读取其中的*-example.json和*-fields.json）和提取轮数，默认 alert-interface 20000
+     */
+    public static void main(String[] args) throws IOException {
+        String samplesDir = args.length > 0 ? args[0] : "alert-interface";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(Paths.get(samplesDir))) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith("-example.json"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Path fieldsFile = file.resolveSibling(name.replace("-example.json", "-fields.json"));
+            if (!Files.exists(fieldsFile)) {
+                continue;
+            }
+
+            AlertExtractionPlan plan = new AlertExtractionPlan(new AlertType(),
+                loadFields(objectMapper.readTree(fieldsFile.toFile())));
+            JsonNode root = objectMapper.readTree(file.toFile());
+            List<byte[]> payloads = new ArrayList<>();
+            for (JsonNode sample : root.isArray() ? root : List.of(root)) {
+                payloads.add(objectMapper.writeValueAsBytes(sample));
+            }
+
+            Map<String, Object> result = run(objectMapper, plan, payloads, iterations);
+            result.put("sampleFile", name);
+            System.out.println(result);
+        }
+    }
+
+    /**
+     * @param payloads   原始告警JSON
+     * @param iterations 每条告警的提取轮数
+     */
+    public static Map<String, Object> run(ObjectMapper objectMapper, AlertExtractionPlan plan,
+                                          List<byte[]> payloads, int iterations) throws IOException {
+        long totalBytes = 0;
+        boolean resultsMatch = true;
+        for (byte[] payload : payloads) {
+            totalBytes += payload.length;
+            resultsMatch &= Arrays.deepEquals(plan.extract(objectMapper, payload),
+                plan.extract(objectMapper.readTree(payload)));
+        }
+
+        // 预热：触发JIT
+        for (int i = 0; i < Math.max(1, iterations / 10); i++) {
+            for (byte[] payload : payloads) {
+                plan.extract(objectMapper, payload);
+                plan.extract(objectMapper.readTree(payload));
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] payload : payloads) {
+                plan.extract(objectMapper, payload);
+            }
+        }
+        long streamingNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] payload : payloads) {
+                plan.extract(objectMapper.readTree(payload));
+            }
+        }
+        long treeNanos = System.nanoTime() - start;
+
+        long alerts = (long) iterations * payloads.size();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("fields", plan.getFields().size());
+        result.put("sampleAlerts", payloads.size());
+        result.put("avgBytesPerAlert", payloads.isEmpty() ? 0 : totalBytes / payloads.size());
+        result.put("alerts", alerts);
+        result.put("streamingMicrosPerAlert", alerts == 0 ? 0 : streamingNanos / 1000.0 / alerts);
+        result.put("treeMicrosPerAlert", alerts == 0 ? 0 : treeNanos / 1000.0 / alerts);
+        result.put("resultsMatch", resultsMatch);
+        return result;
+    }
+
+    private static List<AlertField> loadFields(JsonNode definition) {
+        List<AlertField> fields = new ArrayList<>();
+        for (JsonNode node : definition.path("fields")) {
+            AlertField field = new AlertField();
+            field.setFieldName(node.path("name").asText());
+            field.setDataType(node.path("type").asText("string"));
+            fields.add(field);
+        }
+        return fields;
+    }
+}
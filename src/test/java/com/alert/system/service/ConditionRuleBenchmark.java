@@ -0,0 +1,132 @@
+package com.alert.system.service;
+
+import com.alert.system.service.CompiledRuleSet.CompiledRule;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 复合条件基准：同样的and条件分别写成一条condition规则和一串单字段规则，
+ * 比较两者的单条告警耗时；单字段规则链中全部规则命中才算该条件命中
+ */
+public class ConditionRuleBenchmark {
+
+    private static final String[] SEVERITIES = {"low", "medium", "high", "critical"};
+
+    private ConditionRuleBenchmark() {
+    }
+
+    /**
+     * 在测试类路径下运行：参数依次为逗号分隔的条件数量和匹配轮数，默认 10,100,1000 200
+     */
+    public static void main(String[] args) {
+        String conditionCounts = args.length > 0 ? args[0] : "10,100,1000";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        for (String conditionCount : conditionCounts.split(",")) {
+            System.out.println(run(Integer.parseInt(conditionCount.trim()), iterations));
+        }
+    }
+
+    /**
+     * @param conditionCount 条件数量，每个条件由4个单字段谓词组成
+     * @param iterations     每条告警的匹配轮数
+     */
+    public static Map<String, Object> run(int conditionCount, int iterations) {
+        List<CompiledRule<Integer>> conditionRules = new ArrayList<>(conditionCount);
+        List<CompiledRule<Integer>> chainRules = new ArrayList<>(conditionCount * 4);
+        for (int i = 0; i < conditionCount; i++) {
+            int subnet = i % 256;
+            String condition = String.format("{\"and\": ["
+                + "{\"field\": \"src_ip\", \"op\": \"cidr\", \"value\": \"10.%d.0.0/16\"},"
+                + "{\"field\": \"alarm_severity\", \"op\": \"in\", \"value\": [\"high\", \"critical\"]},"
+                + "{\"field\": \"dst_port\", \"op\": \"gte\", \"value\": 1000},"
+                + "{\"field\": \"alarm_name\", \"op\": \"contains\", \"value\": \"malware%d\"}]}", subnet, i);
+            conditionRules.add(rule(i, "condition", "condition", condition, conditionRules.size()));
+
+            chainRules.add(rule(i, "src_ip", "regex", "^10\\." + subnet + "\\.", chainRules.size()));
+            chainRules.add(rule(i, "alarm_severity", "regex", "^(high|critical)$", chainRules.size()));
+            chainRules.add(rule(i, "dst_port", "regex", "^[1-9]\\d{3,4}$", chainRules.size()));
+            chainRules.add(rule(i, "alarm_name", "contains", "malware" + i, chainRules.size()));
+        }
+
+        RuleCondition example = conditionCount > 0
+            ? RuleCondition.compile(conditionRules.get(0).getMatchValue(), true, 0) : null;
+        CompiledRuleSet.RuleBucket<Integer> conditionBucket = new CompiledRuleSet<>(conditionRules).bucketFor(1, null);
+        CompiledRuleSet.RuleBucket<Integer> chainBucket = new CompiledRuleSet<>(chainRules).bucketFor(1, null);
+
+        List<Function<String, String>> alerts = alerts(conditionCount);
+
+        // 预热：构造惰性DFA状态并触发JIT
+        for (int i = 0; i < Math.max(1, iterations / 10); i++) {
+            for (Function<String, String> alert : alerts) {
+                conditionBucket.match(alert);
+                matchChain(chainBucket, alert, conditionCount);
+            }
+        }
+
+        long start = System.nanoTime();
+        int conditionHits = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (Function<String, String> alert : alerts) {
+                conditionHits += conditionBucket.match(alert).cardinality();
+            }
+        }
+        long conditionNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int chainHits = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (Function<String, String> alert : alerts) {
+                chainHits += matchChain(chainBucket, alert, conditionCount);
+            }
+        }
+        long chainNanos = System.nanoTime() - start;
+
+        long evaluated = (long) iterations * alerts.size();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("conditionCount", conditionCount);
+        result.put("chainRuleCount", chainRules.size());
+        result.put("alerts", evaluated);
+        result.put("conditionMicrosPerAlert", conditionNanos / 1000.0 / evaluated);
+        result.put("chainMicrosPerAlert", chainNanos / 1000.0 / evaluated);
+        result.put("resultsMatch", conditionHits == chainHits);
+        result.put("examplePlan", example != null ? example.describe() : null);
+        return result;
+    }
+
+    /**
+     * 单字段规则链：条件i对应第4i到4i+3条规则，全部命中才算命中
+     */
+    private static int matchChain(CompiledRuleSet.RuleBucket<Integer> bucket, Function<String, String> alert,
+                                  int conditionCount) {
+        BitSet matched = bucket.match(alert);
+        int hits = 0;
+        for (int i = 0; i < conditionCount; i++) {
+            int base = i * 4;
+            if (matched.get(base) && matched.get(base + 1) && matched.get(base + 2) && matched.get(base + 3)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private static List<Function<String, String>> alerts(int conditionCount) {
+        List<Function<String, String>> alerts = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 16; i++) {
+            int target = conditionCount > 0 ? random.nextInt(conditionCount) : 0;
+            Map<String, String> fields = new HashMap<>();
+            fields.put("src_ip", (i % 2 == 0 ? "10." + (target % 256) : "172.16") + "." + random.nextInt(256)
+                + "." + random.nextInt(256));
+            fields.put("alarm_severity", SEVERITIES[i % SEVERITIES.length]);
+            fields.put("dst_port", String.valueOf(i % 3 == 0 ? 443 : 1024 + random.nextInt(60000)));
+            fields.put("alarm_name", i % 4 == 1 ? "Trojan malware" + target + " beacon" : "Port scan from host " + i);
+            alerts.add(fields::get);
+        }
+        return alerts;
+    }
+
+    private static CompiledRule<Integer> rule(int id, String field, String matchType, String matchValue, int order) {
+        return new CompiledRule<>(id, UUID.randomUUID(), "benchmark-" + id, 1, null, field, matchType, matchValue, order);
+    }
+}
@@ -0,0 +1,197 @@
+package com.alert.system.service;
+
+import com.alert.system.entity.ParsedAlert;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 可观察对象提取基准：在样例告警上比较单次扫描器与原先的逐个正则扫描。
+ * 两者都扫描原始字节和全部字符串字段值；正则一侧只计find和取子串，不含原先的逐条校验，耗时偏低
+ */
+public class ObservableScanBenchmark {
+
+    // 原先ObservableService中的正则
+    private static final Map<String, Pattern> LEGACY_PATTERNS = new LinkedHashMap<>();
+
+    static {
+        LEGACY_PATTERNS.put("IP", Pattern.compile(
+            "\\b(?:[0-9]{1,3}\\.){3}[0-9]{1,3}\\b"));
+        LEGACY_PATTERNS.put("DOMAIN", Pattern.compile(
+            "\\b(?:[a-zA-Z0-9](?:[a-zA-Z0-9-]{0,61}[a-zA-Z0-9])?\\.)+[a-zA-Z]{2,}\\b"));
+        LEGACY_PATTERNS.put("URL", Pattern.compile(
+            "https?://[^\\s]+"));
+        LEGACY_PATTERNS.put("EMAIL", Pattern.compile(
+            "\\b[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Z|a-z]{2,}\\b"));
+        LEGACY_PATTERNS.put("MD5", Pattern.compile(
+            "\\b[a-fA-F0-9]{32}\\b"));
+        LEGACY_PATTERNS.put("SHA1", Pattern.compile(
+            "\\b[a-fA-F0-9]{40}\\b"));
+        LEGACY_PATTERNS.put("SHA256", Pattern.compile(
+            "\\b[a-fA-F0-9]{64}\\b"));
+        LEGACY_PATTERNS.put("CVE", Pattern.compile(
+            "CVE-\\d{4}-\\d{4,7}"));
+        LEGACY_PATTERNS.put("FILE_PATH", Pattern.compile(
+            "(?:[A-Za-z]:)?[\\\\/](?:[^\\\\/:\\*\\?\"<>|\\r\\n]+[\\\\/])*[^\\\\/:\\*\\?\"<>|\\r\\n]*"));
+    }
+
+    private ObservableScanBenchmark() {
+    }
+
+    /**
+     * 在测试类路径下运行：参数依次为样例告警目录（读取其中的*-example.json）和扫描轮数，默认 alert-interface 2000
+     */
+    public static void main(String[] args) throws IOException {
+        String samplesDir = args.length > 0 ? args[0] : "alert-interface";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        List<String> rawAlerts = new ArrayList<>();
+        List<List<String>> fieldValues = new ArrayList<>();
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(Paths.get(samplesDir))) {
+            files = listing.filter(path -> path.getFileName().toString().endsWith("-example.json"))
+                .sorted()
+                .collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            JsonNode root = objectMapper.readTree(file.toFile());
+            for (JsonNode sample : root.isArray() ? root : List.of(root)) {
+                String raw = objectMapper.writeValueAsString(sample);
+                List<String> values = new ArrayList<>();
+                collectStrings(ParsedAlert.fromJson(raw, objectMapper).getFields(), values);
+                rawAlerts.add(raw);
+                fieldValues.add(values);
+            }
+        }
+
+        Map<String, Object> result = run(rawAlerts, fieldValues, iterations);
+        result.put("sampleFiles", files.stream().map(path -> path.getFileName().toString()).collect(Collectors.toList()));
+        System.out.println(result);
+    }
+
+    /**
+     * @param rawAlerts  原始告警JSON
+     * @param fieldValues 每条告警的字符串字段值
+     * @param iterations 每条告警的扫描轮数
+     */
+    public static Map<String, Object> run(List<String> rawAlerts, List<List<String>> fieldValues, int iterations) {
+        List<byte[]> rawBytes = new ArrayList<>(rawAlerts.size());
+        long totalBytes = 0;
+        for (String raw : rawAlerts) {
+            byte[] bytes = raw.getBytes(StandardCharsets.UTF_8);
+            rawBytes.add(bytes);
+            totalBytes += bytes.length;
+        }
+
+        // 预热
+        for (int i = 0; i < Math.max(1, iterations / 10); i++) {
+            for (int a = 0; a < rawBytes.size(); a++) {
+                scanWithScanner(rawBytes.get(a), fieldValues.get(a), null);
+                scanWithRegex(rawBytes.get(a), fieldValues.get(a), null);
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (int a = 0; a < rawBytes.size(); a++) {
+                scanWithScanner(rawBytes.get(a), fieldValues.get(a), null);
+            }
+        }
+        long scannerNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (int a = 0; a < rawBytes.size(); a++) {
+                scanWithRegex(rawBytes.get(a), fieldValues.get(a), null);
+            }
+        }
+        long regexNanos = System.nanoTime() - start;
+
+        Map<String, Set<String>> scannerFound = new TreeMap<>();
+        Map<String, Set<String>> regexFound = new TreeMap<>();
+        for (int a = 0; a < rawBytes.size(); a++) {
+            scanWithScanner(rawBytes.get(a), fieldValues.get(a), scannerFound);
+            scanWithRegex(rawBytes.get(a), fieldValues.get(a), regexFound);
+        }
+
+        long alerts = (long) iterations * rawAlerts.size();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("sampleAlerts", rawAlerts.size());
+        result.put("avgBytesPerAlert", rawAlerts.isEmpty() ? 0 : totalBytes / rawAlerts.size());
+        result.put("alerts", alerts);
+        result.put("scannerMicrosPerAlert", alerts == 0 ? 0 : scannerNanos / 1000.0 / alerts);
+        result.put("regexMicrosPerAlert", alerts == 0 ? 0 : regexNanos / 1000.0 / alerts);
+        result.put("scannerDistinctByType", counts(scannerFound));
+        result.put("regexDistinctByType", counts(regexFound));
+        return result;
+    }
+
+    private static void scanWithScanner(byte[] raw, List<String> values, Map<String, Set<String>> found) {
+        ByteCharSequence bytes = new ByteCharSequence(raw);
+        ObservableScanner.scan(bytes, (type, start, end) -> {
+            String value = bytes.decode(start, end);
+            if (found != null) {
+                found.computeIfAbsent(type, t -> new HashSet<>()).add(value);
+            }
+        });
+        for (String text : values) {
+            ObservableScanner.scan(text, (type, start, end) -> {
+                String value = text.substring(start, end);
+                if (found != null) {
+                    found.computeIfAbsent(type, t -> new HashSet<>()).add(value);
+                }
+            });
+        }
+    }
+
+    private static void scanWithRegex(byte[] raw, List<String> values, Map<String, Set<String>> found) {
+        ByteCharSequence bytes = new ByteCharSequence(raw);
+        for (Map.Entry<String, Pattern> entry : LEGACY_PATTERNS.entrySet()) {
+            Matcher matcher = entry.getValue().matcher(bytes);
+            while (matcher.find()) {
+                String value = bytes.decode(matcher.start(), matcher.end());
+                if (found != null) {
+                    found.computeIfAbsent(entry.getKey(), t -> new HashSet<>()).add(value);
+                }
+            }
+        }
+        for (String text : values) {
+            for (Map.Entry<String, Pattern> entry : LEGACY_PATTERNS.entrySet()) {
+                Matcher matcher = entry.getValue().matcher(text);
+                while (matcher.find()) {
+                    String value = matcher.group();
+                    if (found != null) {
+                        found.computeIfAbsent(entry.getKey(), t -> new HashSet<>()).add(value);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void collectStrings(Object node, List<String> values) {
+        if (node instanceof String) {
+            values.add((String) node);
+        } else if (node instanceof List) {
+            ((List<?>) node).forEach(item -> collectStrings(item, values));
+        } else if (node instanceof Map) {
+            ((Map<?, ?>) node).values().forEach(item -> collectStrings(item, values));
+        }
+    }
+
+    private static Map<String, Integer> counts(Map<String, Set<String>> found) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        found.forEach((type, values) -> counts.put(type, values.size()));
+        return counts;
+    }
+}
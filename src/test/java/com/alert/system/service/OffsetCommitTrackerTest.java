@@ -0,0 +1,81 @@
+package com.alert.system.service;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffsetCommitTrackerTest {
+
+    private static final TopicPartition PARTITION = new TopicPartition("alerts", 0);
+
+    @Test
+    void completesOffsetBeforeRewindPoint() {
+        OffsetCommitTracker tracker = new OffsetCommitTracker(1, 0);
+        long epoch = track(tracker, 10, 11, 12);
+
+        // 11失败回退，10在回退后才完成
+        tracker.rewind(PARTITION, 11);
+        assertTrue(tracker.isCurrent(PARTITION, 10, epoch));
+        assertFalse(tracker.isCurrent(PARTITION, 11, epoch));
+        tracker.complete(PARTITION, 10, epoch);
+        assertEquals(11, committed(tracker));
+
+        // 重新消费的11、12以新epoch完成
+        long retryEpoch = track(tracker, 11, 12);
+        assertNotEquals(epoch, retryEpoch);
+        tracker.complete(PARTITION, 12, retryEpoch);
+        tracker.complete(PARTITION, 11, retryEpoch);
+        assertEquals(13, committed(tracker));
+        assertEquals(0, tracker.getInFlightCount(PARTITION));
+    }
+
+    @Test
+    void failureBeforeRewindPointStaysCurrent() {
+        OffsetCommitTracker tracker = new OffsetCommitTracker(1, 0);
+        long epoch = track(tracker, 10, 11, 12);
+
+        tracker.rewind(PARTITION, 11);
+        // 10随后失败，仍需由消费线程处理，才能回退到10
+        assertTrue(tracker.isCurrent(PARTITION, 10, epoch));
+        tracker.rewind(PARTITION, 10);
+        assertEquals(0, tracker.getInFlightCount(PARTITION));
+
+        long retryEpoch = track(tracker, 10, 11, 12);
+        tracker.complete(PARTITION, 10, retryEpoch);
+        tracker.complete(PARTITION, 11, retryEpoch);
+        tracker.complete(PARTITION, 12, retryEpoch);
+        assertEquals(13, committed(tracker));
+    }
+
+    @Test
+    void ignoresStaleCompletionOfRewoundOffset() {
+        OffsetCommitTracker tracker = new OffsetCommitTracker(1, 0);
+        long epoch = track(tracker, 10, 11);
+
+        tracker.rewind(PARTITION, 10);
+        long retryEpoch = track(tracker, 10, 11);
+        // 旧的10迟到完成，不能提前提交重新消费中的10
+        tracker.complete(PARTITION, 10, epoch);
+        assertTrue(tracker.drainCommittable().isEmpty());
+
+        tracker.complete(PARTITION, 10, retryEpoch);
+        assertEquals(11, committed(tracker));
+    }
+
+    private static long track(OffsetCommitTracker tracker, long... offsets) {
+        for (long offset : offsets) {
+            tracker.track(PARTITION, offset);
+        }
+        return tracker.epoch(PARTITION);
+    }
+
+    private static long committed(OffsetCommitTracker tracker) {
+        Map<TopicPartition, OffsetAndMetadata> committable = tracker.drainCommittable();
+        assertTrue(committable.containsKey(PARTITION));
+        return committable.get(PARTITION).offset();
+    }
+}
@@ -0,0 +1,113 @@
+package com.alert.system.service;
+
+import com.alert.system.entity.DataStorageConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * 流水线执行器基准：用同一份模拟负载分别运行平台线程模型（缓存线程池 + 公共ForkJoinPool）和虚拟线程模型，
+ * 比较吞吐量与单条告警端到端耗时的p50/p99。
+ * 每条记录在消费通道上同步执行一次PostgreSQL写入，随后并行执行ClickHouse存储和可观察对象写入两个异步阶段，
+ * 各次JDBC访问以sleep模拟，并受与生产相同的信号量限制
+ */
+public class PipelineExecutorBenchmark {
+
+    private static final String STAGE_CLICKHOUSE = "clickhouse";
+    private static final String STAGE_OBSERVABLES = "observables";
+
+    private PipelineExecutorBenchmark() {
+    }
+
+    /**
+     * 在测试类路径下运行：参数依次为记录数、消费通道数、单次JDBC耗时（毫秒），默认 20000 16 5。
+     * 虚拟线程模型需要Java 21及以上，更低版本下回退为平台线程并在结果中注明
+     */
+    public static void main(String[] args) throws Exception {
+        int records = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int lanes = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        long ioMillis = args.length > 2 ? Long.parseLong(args[2]) : 5;
+        System.out.println(run(false, records, lanes, ioMillis));
+        System.out.println(run(true, records, lanes, ioMillis));
+    }
+
+    /**
+     * @param virtualThreads 是否请求虚拟线程模型
+     * @param records        处理的记录数
+     * @param lanes          并行的消费通道数，对应分区通道
+     * @param ioMillis       单次模拟JDBC访问的耗时
+     */
+    public static Map<String, Object> run(boolean virtualThreads, int records, int lanes, long ioMillis)
+            throws Exception {
+        PipelineExecutorService executor = new PipelineExecutorService();
+        ReflectionTestUtils.setField(executor, "virtualThreadsRequested", virtualThreads);
+        ReflectionTestUtils.setField(executor, "postgresMaxConnections", 10);
+        executor.initialize();
+
+        DataStorageConfig storage = new DataStorageConfig();
+        storage.setId(1L);
+        storage.setMaxConnections(10);
+
+        long[] latencies = new long[records];
+        CountDownLatch done = new CountDownLatch(records);
+        ExecutorService consumers = executor.getConsumerExecutor();
+        int perLane = (records + lanes - 1) / lanes;
+
+        long start = System.nanoTime();
+        for (int lane = 0; lane < lanes; lane++) {
+            int from = lane * perLane;
+            int to = Math.min(records, from + perLane);
+            consumers.execute(() -> {
+                for (int i = from; i < to; i++) {
+                    int record = i;
+                    long received = System.nanoTime();
+                    executor.withPostgres(() -> blockFor(ioMillis));
+                    CompletableFuture.allOf(
+                        executor.runStage(STAGE_CLICKHOUSE, () -> {
+                            try {
+                                executor.withStorage(storage, () -> blockFor(ioMillis));
+                            } catch (Exception e) {
+                                throw new CompletionException(e);
+                            }
+                        }),
+                        executor.runStage(STAGE_OBSERVABLES, () -> executor.withPostgres(() -> blockFor(ioMillis)))
+                    ).whenComplete((ignored, e) -> {
+                        latencies[record] = System.nanoTime() - received;
+                        done.countDown();
+                    });
+                }
+            });
+        }
+        done.await();
+        long elapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("requested", virtualThreads ? "virtual" : "platform");
+        result.put("threadModel", executor.isVirtualThreads() ? "virtual" : "platform");
+        result.put("records", records);
+        result.put("lanes", lanes);
+        result.put("ioMillis", ioMillis);
+        result.put("throughputPerSecond", records * 1_000_000_000.0 / elapsedNanos);
+        result.put("p50LatencyMs", percentile(latencies, 0.50) / 1_000_000.0);
+        result.put("p99LatencyMs", percentile(latencies, 0.99) / 1_000_000.0);
+        result.put("maxLatencyMs", latencies[records - 1] / 1_000_000.0);
+        return result;
+    }
+
+    private static Object blockFor(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
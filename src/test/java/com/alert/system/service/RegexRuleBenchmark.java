@@ -0,0 +1,113 @@
+package com.alert.system.service;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 正则规则匹配基准：用合成的规则和告警字段值，比较正则集合自动机与逐条Pattern.find的单条告警耗时
+ */
+public class RegexRuleBenchmark {
+
+    private static final String[] TEMPLATES = {
+        "malware-\\d{3}-family%d",
+        "^cmd\\.exe .*-enc%d",
+        "(powershell|pwsh).*token%d",
+        "[a-z]+_%d_(dropper|loader)",
+        "c2-beacon-%d\\.(com|net|org)$",
+        "brute[- ]?force.*user%d",
+    };
+
+    private static final String[] VALUES = {
+        "Suspicious PowerShell download cradle detected on host WS-0142",
+        "cmd.exe /c whoami -enc17 executed by svc_backup",
+        "Outbound connection to c2-beacon-42.net blocked by firewall",
+        "Brute force login attempt against user1234 from 10.2.3.4",
+        "Trojan.GenericKD malware-042-family7 quarantined",
+        "DNS query for update.microsoft.com",
+        "Port scan detected from 192.168.10.20 to 192.168.10.0/24",
+        "svchost_381_dropper written to C:\\Windows\\Temp",
+    };
+
+    private RegexRuleBenchmark() {
+    }
+
+    /**
+     * 在测试类路径下运行：参数依次为逗号分隔的规则数量和匹配轮数，默认 100,1000,5000 200
+     */
+    public static void main(String[] args) {
+        String ruleCounts = args.length > 0 ? args[0] : "100,1000,5000";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        for (String ruleCount : ruleCounts.split(",")) {
+            System.out.println(run(Integer.parseInt(ruleCount.trim()), iterations));
+        }
+    }
+
+    /**
+     * @param ruleCount  规则数量
+     * @param iterations 每个字段值的匹配轮数
+     */
+    public static Map<String, Object> run(int ruleCount, int iterations) {
+        String[] regexes = new String[ruleCount];
+        Pattern[] patterns = new Pattern[ruleCount];
+        RegexSetMatcher regexSet = new RegexSetMatcher();
+        int supported = 0;
+        for (int i = 0; i < ruleCount; i++) {
+            regexes[i] = String.format(TEMPLATES[i % TEMPLATES.length], i);
+            patterns[i] = Pattern.compile(regexes[i], Pattern.CASE_INSENSITIVE);
+            if (regexSet.tryAdd(regexes[i], i)) {
+                supported++;
+            }
+        }
+        regexSet.build();
+
+        // 预热：构造惰性DFA状态并触发JIT
+        for (int i = 0; i < Math.max(1, iterations / 10); i++) {
+            for (String value : VALUES) {
+                BitSet matched = new BitSet(ruleCount);
+                regexSet.match(value, matched);
+                matchIndividually(patterns, value);
+            }
+        }
+
+        long start = System.nanoTime();
+        int setHits = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (String value : VALUES) {
+                BitSet matched = new BitSet(ruleCount);
+                regexSet.match(value, matched);
+                setHits += matched.cardinality();
+            }
+        }
+        long setNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        int individualHits = 0;
+        for (int i = 0; i < iterations; i++) {
+            for (String value : VALUES) {
+                individualHits += matchIndividually(patterns, value).cardinality();
+            }
+        }
+        long individualNanos = System.nanoTime() - start;
+
+        long alerts = (long) iterations * VALUES.length;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ruleCount", ruleCount);
+        result.put("regexSetRules", supported);
+        result.put("alerts", alerts);
+        result.put("regexSetMicrosPerAlert", setNanos / 1000.0 / alerts);
+        result.put("individualMicrosPerAlert", individualNanos / 1000.0 / alerts);
+        result.put("dfaStates", regexSet.getCachedStateCount());
+        result.put("resultsMatch", setHits == individualHits);
+        return result;
+    }
+
+    private static BitSet matchIndividually(Pattern[] patterns, String value) {
+        BitSet matched = new BitSet(patterns.length);
+        for (int i = 0; i < patterns.length; i++) {
+            if (patterns[i].matcher(value).find()) {
+                matched.set(i);
+            }
+        }
+        return matched;
+    }
+}